@@ -0,0 +1,92 @@
+package com.example.testingapp.benchmarks;
+
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseCategory;
+import com.example.testingapp.security.JwtUtil;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the objects the benchmarks work on, shaped like the sample data the app loads.
+ */
+final class BenchmarkFixtures {
+
+    // Same secret and lifetime as application.properties, so token sizes match production
+    static final String JWT_SECRET = "myVerySecretKeyForJWTTokenGenerationThatShouldBeLongEnough";
+    static final long JWT_EXPIRATION_MS = 86_400_000L;
+
+    private static final String[][] CATEGORIES = {
+            {"Food & Dining", "Restaurants, groceries, and food delivery", "#FF6B6B", "utensils"},
+            {"Transportation", "Gas, public transport, ride sharing", "#4ECDC4", "car"},
+            {"Shopping", "Clothing, electronics, and general shopping", "#45B7D1", "shopping-bag"},
+            {"Entertainment", "Movies, games, concerts, and hobbies", "#96CEB4", "film"},
+            {"Bills & Utilities", "Electricity, water, internet, phone", "#FFEAA7", "file-invoice"},
+            {"Healthcare", "Medical expenses, pharmacy, insurance", "#DDA0DD", "heart"},
+            {"Travel", "Hotels, flights, and vacation expenses", "#98D8C8", "plane"},
+            {"Education", "Books, courses, and learning materials", "#F7DC6F", "graduation-cap"},
+            {"Personal Care", "Haircuts, cosmetics, and wellness", "#BB8FCE", "user"},
+            {"Other", "Miscellaneous expenses", "#AEB6BF", "ellipsis-h"}
+    };
+
+    private BenchmarkFixtures() {}
+
+    static JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", JWT_SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", JWT_EXPIRATION_MS);
+        return jwtUtil;
+    }
+
+    static AppUser user() {
+        AppUser user = new AppUser("user", "user@example.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z6jYRiD6WxQzCl9EE9rZl6xu", AppUser.Role.USER);
+        user.setId(2L);
+        user.setEnabled(true);
+        return user;
+    }
+
+    static List<ExpenseCategory> categories() {
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<ExpenseCategory> categories = new ArrayList<>(CATEGORIES.length);
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            String[] row = CATEGORIES[i];
+            ExpenseCategory category = new ExpenseCategory(row[0], row[1], row[2], row[3]);
+            category.setId(i + 1L);
+            category.setActive(true);
+            category.setCreatedAt(created);
+            category.setUpdatedAt(created);
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    static List<Expense> expenses(int count) {
+        List<ExpenseCategory> categories = categories();
+        AppUser user = user();
+        Expense.PaymentMethod[] paymentMethods = Expense.PaymentMethod.values();
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Expense expense = new Expense("Expense " + i + " at a local store",
+                    BigDecimal.valueOf(1_000 + (i * 7919L) % 50_000, 2),
+                    firstDay.plusDays(i % 365), categories.get(i % categories.size()), user);
+            expense.setId(i + 1L);
+            expense.setNotes(i % 3 == 0 ? "Paid with the shared account" : null);
+            expense.setPaymentMethod(paymentMethods[i % paymentMethods.length]);
+            expense.setRecurring(i % 10 == 0);
+            expense.setRecurringFrequency(i % 10 == 0 ? Expense.RecurringFrequency.MONTHLY : null);
+            LocalDateTime created = firstDay.plusDays(i % 365).atTime(12, 30);
+            expense.setCreatedAt(created);
+            expense.setUpdatedAt(created);
+            expense.setChangeSeq(i + 1L);
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.testingapp.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Entry point of the shaded benchmarks jar. Accepts the usual JMH command line, but writes
+ * JSON results to {@code jmh-result.json} unless {@code -rf}/{@code -rff} say otherwise, so
+ * every run leaves a file that can be archived and compared against the previous release.
+ * With only {@code -rf}, the file is named after the chosen format, as JMH itself does.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        int formatIndex = options.indexOf("-rf");
+        String format;
+        if (formatIndex >= 0 && formatIndex + 1 < options.size()) {
+            format = options.get(formatIndex + 1).toLowerCase(Locale.ROOT);
+        } else {
+            format = "json";
+            options.add(0, format);
+            options.add(0, "-rf");
+        }
+        if (!options.contains("-rff")) {
+            options.add(0, "jmh-result." + format);
+            options.add(0, "-rff");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
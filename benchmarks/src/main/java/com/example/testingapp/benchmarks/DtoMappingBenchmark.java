@@ -0,0 +1,87 @@
+package com.example.testingapp.benchmarks;
+
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseCategory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Entity to DTO mapping and JSON serialisation for list responses of typical sizes. The
+ * ObjectMapper is built the way Spring Boot builds the one MVC uses (JSR-310 dates as ISO
+ * strings, no failure on unknown properties).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Expense> expenses;
+    private List<ExpenseResponse> expenseResponses;
+    private List<ExpenseCategory> categories;
+    private List<ExpenseCategoryResponse> categoryResponses;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        expenses = BenchmarkFixtures.expenses(size);
+        expenseResponses = mapExpenses();
+        categories = BenchmarkFixtures.categories();
+        categoryResponses = mapCategories();
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> mapExpenses() {
+        return expenses.stream()
+                .map(ExpenseResponse::new)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serializeExpenses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(expenseResponses);
+    }
+
+    // What GET /api/expenses does after the query returns
+    @Benchmark
+    public byte[] mapAndSerializeExpenses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(mapExpenses());
+    }
+
+    // The category list is small and fixed, so it ignores the size parameter
+    @Benchmark
+    public List<ExpenseCategoryResponse> mapCategories() {
+        return categories.stream()
+                .map(ExpenseCategoryResponse::new)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serializeCategories() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(categoryResponses);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.testingapp.loadtest;
+
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseCategory;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseCategoryRepository;
+import com.example.testingapp.repository.ExpenseRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the embedded database through the app's own repositories, so the data goes
+ * through the same mappings and indexes as production writes.
+ */
+public class DataSeeder {
+
+    static final String PASSWORD = "loadtest123";
+    static final String[] DESCRIPTION_WORDS = {
+            "coffee", "groceries", "lunch", "taxi", "fuel", "cinema", "pharmacy", "books",
+            "internet", "gym", "hotel", "flight", "dinner", "parking", "train"
+    };
+    private static final int BATCH_SIZE = 500;
+
+    private final AppUserRepository userRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseCategoryRepository categoryRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+
+    public DataSeeder(ApplicationContext context) {
+        this.userRepository = context.getBean(AppUserRepository.class);
+        this.expenseRepository = context.getBean(ExpenseRepository.class);
+        this.categoryRepository = context.getBean(ExpenseCategoryRepository.class);
+        this.passwordEncoder = context.getBean(PasswordEncoder.class);
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    // Returns the usernames created, all with the same password
+    public List<String> seed(int users, int expensesPerUser) {
+        List<ExpenseCategory> categories = categoryRepository.findByIsActiveTrue();
+        // Hashing once keeps seeding fast; logins still pay the full BCrypt cost
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        Random random = new Random(42);
+
+        List<String> usernames = new ArrayList<>(users);
+        for (int u = 1; u <= users; u++) {
+            String username = "load-user-" + u;
+            AppUser user = userRepository.save(
+                    new AppUser(username, username + "@loadtest.local", passwordHash, AppUser.Role.USER));
+            usernames.add(username);
+
+            List<Expense> batch = new ArrayList<>(Math.min(BATCH_SIZE, expensesPerUser));
+            for (int e = 0; e < expensesPerUser; e++) {
+                String word = DESCRIPTION_WORDS[random.nextInt(DESCRIPTION_WORDS.length)];
+                Expense expense = new Expense(word + " #" + e,
+                        BigDecimal.valueOf(100 + random.nextInt(20_000), 2),
+                        LocalDate.now().minusDays(random.nextInt(365)),
+                        categories.get(random.nextInt(categories.size())), user);
+                batch.add(expense);
+                if (batch.size() == BATCH_SIZE) {
+                    saveBatch(batch);
+                }
+            }
+            saveBatch(batch);
+        }
+        return usernames;
+    }
+
+    public List<Long> getCategoryIds() {
+        return categoryRepository.findByIsActiveTrue().stream().map(ExpenseCategory::getId).toList();
+    }
+
+    private void saveBatch(List<Expense> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> expenseRepository.saveAll(batch));
+        batch.clear();
+    }
+}
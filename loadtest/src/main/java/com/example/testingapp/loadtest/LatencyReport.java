@@ -0,0 +1,104 @@
+package com.example.testingapp.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-endpoint summary of a run: a console table, {@code summary.csv} for tooling, and the
+ * full percentile distribution of each endpoint as an {@code .hgrm} file that HdrHistogram's
+ * plotter can chart. Latencies are reported in milliseconds.
+ */
+public class LatencyReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String CSV_HEADER =
+            "endpoint,requests,errors,throughput_rps,p50_ms,p99_ms,p999_ms,max_ms,service_p50_ms,service_p99_ms";
+
+    private final List<Row> rows = new ArrayList<>();
+    private final List<OperationStats> operations;
+
+    public LatencyReport(OpenLoopDriver.Result result) {
+        this.operations = new ArrayList<>(result.getStats().values());
+        double seconds = result.getElapsedNanos() / 1_000_000_000.0;
+        Histogram allResponse = new Histogram(3);
+        Histogram allService = new Histogram(3);
+        long allErrors = 0;
+        for (OperationStats stats : operations) {
+            rows.add(new Row(stats.getOperation().getEndpoint(), stats.getResponseTime(),
+                    stats.getServiceTime(), stats.getErrors(), seconds));
+            allResponse.add(stats.getResponseTime());
+            allService.add(stats.getServiceTime());
+            allErrors += stats.getErrors();
+        }
+        rows.add(new Row("ALL", allResponse, allService, allErrors, seconds));
+    }
+
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%-30s %9s %7s %9s %9s %9s %9s %9s %11s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50", "p99", "p99.9", "Max", "Service p99");
+        for (Row row : rows) {
+            out.printf(Locale.ROOT, "%-30s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %11.2f%n",
+                    row.endpoint, row.requests, row.errors, row.throughput,
+                    row.p50, row.p99, row.p999, row.max, row.serviceP99);
+        }
+        out.println("Latencies in ms, measured from the scheduled send time (coordinated-omission corrected).");
+        out.println("Service p99 is measured from the actual send time; a large gap means requests queued.");
+    }
+
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(directory.resolve("summary.csv")))) {
+            csv.println(CSV_HEADER);
+            for (Row row : rows) {
+                csv.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                        row.endpoint, row.requests, row.errors, row.throughput,
+                        row.p50, row.p99, row.p999, row.max, row.serviceP50, row.serviceP99);
+            }
+        }
+        for (OperationStats stats : operations) {
+            Path file = directory.resolve(stats.getOperation().name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                stats.getResponseTime().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private static final class Row {
+
+        final String endpoint;
+        final long requests;
+        final long errors;
+        final double throughput;
+        final double p50;
+        final double p99;
+        final double p999;
+        final double max;
+        final double serviceP50;
+        final double serviceP99;
+
+        Row(String endpoint, Histogram response, Histogram service, long errors, double seconds) {
+            this.endpoint = endpoint;
+            this.requests = response.getTotalCount();
+            this.errors = errors;
+            this.throughput = (requests - errors) / seconds;
+            this.p50 = millis(response, 50);
+            this.p99 = millis(response, 99);
+            this.p999 = millis(response, 99.9);
+            this.max = response.getMaxValue() / NANOS_PER_MILLI;
+            this.serviceP50 = millis(service, 50);
+            this.serviceP99 = millis(service, 99);
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.testingapp.loadtest;
+
+import com.example.testingapp.TestingappApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the app on an in-memory H2 database, seeds it, and runs a fixed-rate request mix
+ * against it. See loadtest/README.md for the options.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.println("Load test: " + options);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TestingappApplication.class)
+                .run(appArguments(options));
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            long seedStart = System.nanoTime();
+            DataSeeder seeder = new DataSeeder(context);
+            List<String> usernames = seeder.seed(options.getUsers(), options.getExpensesPerUser());
+            System.out.printf("Seeded %d users with %d expenses each in %d ms%n", options.getUsers(),
+                    options.getExpensesPerUser(), (System.nanoTime() - seedStart) / 1_000_000);
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Workload workload = new Workload(client, "http://localhost:" + port, usernames,
+                    seeder.getCategoryIds(), options.getExpensesPerUser(),
+                    Duration.ofSeconds(options.getRequestTimeoutSeconds()));
+            workload.loginAll();
+
+            OpenLoopDriver driver = new OpenLoopDriver(client, workload);
+            if (options.getWarmupSeconds() > 0) {
+                System.out.printf("Warming up for %d s%n", options.getWarmupSeconds());
+                driver.run(options.getMix(), options.getRate(), Duration.ofSeconds(options.getWarmupSeconds()));
+            }
+            System.out.printf("Measuring for %d s at %d requests/s%n", options.getDurationSeconds(), options.getRate());
+            OpenLoopDriver.Result result = driver.run(options.getMix(), options.getRate(),
+                    Duration.ofSeconds(options.getDurationSeconds()));
+
+            LatencyReport report = new LatencyReport(result);
+            report.print(System.out);
+            report.write(options.getReportDir());
+            System.out.println("Report written to " + options.getReportDir().toAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String[] appArguments(LoadTestOptions options) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        // app.* options override the defaults above; repeating a key would join the values instead
+        properties.putAll(options.getAppProperties());
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.testingapp.loadtest;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line options, given as {@code key=value} (a leading {@code --} is allowed).
+ * Unknown keys are rejected so a typo does not silently run the defaults.
+ */
+public class LoadTestOptions {
+
+    private int users = 50;
+    private int expensesPerUser = 200;
+    private int rate = 100;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private int requestTimeoutSeconds = 30;
+    private Path reportDir = Path.of("loadtest-report");
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private final Map<String, String> appProperties = new LinkedHashMap<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (Operation operation : Operation.values()) {
+            options.mix.put(operation, operation.getDefaultWeight());
+        }
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            String key = option.substring(0, separator);
+            String value = option.substring(separator + 1);
+            if (key.startsWith("app.")) {
+                // Passed to the embedded instance, e.g. app.spring.profiles.active=virtual-threads
+                options.appProperties.put(key.substring(4), value);
+                continue;
+            }
+            switch (key) {
+                case "users" -> options.users = positive(key, value);
+                case "expenses-per-user" -> options.expensesPerUser = Integer.parseInt(value);
+                case "rate" -> options.rate = positive(key, value);
+                case "duration" -> options.durationSeconds = positive(key, value);
+                case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                case "timeout" -> options.requestTimeoutSeconds = positive(key, value);
+                case "report-dir" -> options.reportDir = Path.of(value);
+                case "mix" -> options.parseMix(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + key);
+            }
+        }
+        return options;
+    }
+
+    // e.g. mix=list:50,paginate:30,create:20 - operations left out get weight 0
+    private void parseMix(String value) {
+        mix.replaceAll((operation, weight) -> 0);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in mix but got: " + entry);
+            }
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            mix.put(operation, Integer.parseInt(parts[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight");
+        }
+    }
+
+    private static int positive(String key, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(key + " must be positive");
+        }
+        return parsed;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getExpensesPerUser() {
+        return expensesPerUser;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getRequestTimeoutSeconds() {
+        return requestTimeoutSeconds;
+    }
+
+    public Path getReportDir() {
+        return reportDir;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public Map<String, String> getAppProperties() {
+        return appProperties;
+    }
+
+    @Override
+    public String toString() {
+        return "users=" + users + " expenses-per-user=" + expensesPerUser + " rate=" + rate + "/s"
+                + " duration=" + durationSeconds + "s warmup=" + warmupSeconds + "s mix=" + mix;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.testingapp.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed arrival rate, independent of how fast responses come back.
+ * <p>
+ * A closed-loop client waits for each response before sending the next request, so when
+ * the server stalls it also stops sending, and the stall shows up as one slow sample
+ * instead of the many requests real users would have queued up (coordinated omission).
+ * Here every request has an intended send time on a fixed schedule and its latency is
+ * measured from that time, so a stall is charged to every request that should have been
+ * sent during it, including ones the dispatcher itself sent late.
+ */
+public class OpenLoopDriver {
+
+    private final HttpClient client;
+    private final Workload workload;
+
+    public OpenLoopDriver(HttpClient client, Workload workload) {
+        this.client = client;
+        this.workload = workload;
+    }
+
+    public Result run(Map<Operation, Integer> mix, int ratePerSecond, Duration duration) {
+        Operation[] operations = mix.keySet().toArray(new Operation[0]);
+        int[] cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (int i = 0; i < operations.length; i++) {
+            int weight = mix.get(operations[i]);
+            totalWeight += weight;
+            cumulativeWeights[i] = totalWeight;
+            if (weight > 0) {
+                stats.put(operations[i], new OperationStats(operations[i]));
+            }
+        }
+
+        double intervalNanos = 1_000_000_000.0 / ratePerSecond;
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            int pick = random.nextInt(totalWeight);
+            int index = 0;
+            while (cumulativeWeights[index] <= pick) {
+                index++;
+            }
+            OperationStats operationStats = stats.get(operations[index]);
+            HttpRequest request = workload.request(operations[index]);
+            long sent = System.nanoTime();
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        long done = System.nanoTime();
+                        boolean success = error == null && response.statusCode() < 400;
+                        operationStats.record(done - intendedStart, done - sent, success);
+                        return null;
+                    }));
+        }
+
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        long elapsed = Math.max(System.nanoTime(), end) - start;
+        return new Result(stats, pending.size(), elapsed);
+    }
+
+    public static class Result {
+
+        private final Map<Operation, OperationStats> stats;
+        private final long requests;
+        private final long elapsedNanos;
+
+        Result(Map<Operation, OperationStats> stats, long requests, long elapsedNanos) {
+            this.stats = stats;
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Map<Operation, OperationStats> getStats() {
+            return stats;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
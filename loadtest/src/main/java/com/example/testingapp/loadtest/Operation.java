@@ -0,0 +1,31 @@
+package com.example.testingapp.loadtest;
+
+/**
+ * The requests in the load mix. The default weights approximate a dashboard session:
+ * mostly reads, some writes and the occasional fresh login.
+ */
+public enum Operation {
+
+    LOGIN("POST /api/auth/login", 5),
+    LIST("GET /api/expenses", 20),
+    PAGINATE("GET /api/expenses/paginated", 25),
+    CREATE("POST /api/expenses", 15),
+    SEARCH("GET /api/expenses/search", 15),
+    TOTAL("GET /api/expenses/total", 20);
+
+    private final String endpoint;
+    private final int defaultWeight;
+
+    Operation(String endpoint, int defaultWeight) {
+        this.endpoint = endpoint;
+        this.defaultWeight = defaultWeight;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.testingapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies for one operation, in nanoseconds. Response time runs from when the request
+ * was scheduled to be sent, service time from when it actually was; the gap between the
+ * two is time spent queued behind a saturated client or server.
+ */
+public class OperationStats {
+
+    private final Operation operation;
+    private final Histogram responseTime = new ConcurrentHistogram(3);
+    private final Histogram serviceTime = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+
+    public OperationStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    void record(long responseNanos, long serviceNanos, boolean success) {
+        responseTime.recordValue(responseNanos);
+        serviceTime.recordValue(serviceNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+}
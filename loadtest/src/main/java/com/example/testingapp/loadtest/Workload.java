@@ -0,0 +1,111 @@
+package com.example.testingapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Builds the request for each operation on behalf of a random seeded user.
+ */
+public class Workload {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final List<String> usernames;
+    private final List<Long> categoryIds;
+    private final int pages;
+    private final Duration timeout;
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public Workload(HttpClient client, String baseUrl, List<String> usernames, List<Long> categoryIds,
+                    int expensesPerUser, Duration timeout) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.usernames = usernames;
+        this.categoryIds = categoryIds;
+        this.pages = Math.max(1, expensesPerUser / PAGE_SIZE);
+        this.timeout = timeout;
+    }
+
+    // Log every user in once up front; the LOGIN operation measures logins on top of that
+    public void loginAll() {
+        CompletableFuture<?>[] logins = usernames.stream()
+                .map(username -> client.sendAsync(loginRequest(username), HttpResponse.BodyHandlers.ofString())
+                        .thenAccept(response -> tokens.put(username, readToken(username, response))))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(logins).join();
+    }
+
+    public HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String username = usernames.get(random.nextInt(usernames.size()));
+        return switch (operation) {
+            case LOGIN -> loginRequest(username);
+            case LIST -> get(username, "/api/expenses");
+            case PAGINATE -> get(username, "/api/expenses/paginated?page=" + random.nextInt(pages) + "&size=" + PAGE_SIZE);
+            case SEARCH -> get(username, "/api/expenses/search?description="
+                    + URLEncoder.encode(randomWord(random), StandardCharsets.UTF_8));
+            case TOTAL -> get(username, "/api/expenses/total");
+            case CREATE -> authorized(username, "/api/expenses")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                            "{\"description\":\"%s load\",\"amount\":%d.%02d,\"expenseDate\":\"%s\",\"categoryId\":%d}",
+                            randomWord(random), 1 + random.nextInt(200), random.nextInt(100),
+                            LocalDate.now().minusDays(random.nextInt(30)),
+                            categoryIds.get(random.nextInt(categoryIds.size())))))
+                    .build();
+        };
+    }
+
+    private HttpRequest loginRequest(String username) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + DataSeeder.PASSWORD + "\"}"))
+                .build();
+    }
+
+    private HttpRequest get(String username, String path) {
+        return authorized(username, path).GET().build();
+    }
+
+    private HttpRequest.Builder authorized(String username, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Authorization", "Bearer " + tokens.get(username));
+    }
+
+    private String readToken(String username, HttpResponse<String> response) {
+        try {
+            JsonNode token = objectMapper.readTree(response.body()).get("token");
+            if (response.statusCode() != 200 || token == null) {
+                throw new IllegalStateException("Login failed for " + username + ": " + response.statusCode());
+            }
+            return token.asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable login response for " + username, e);
+        }
+    }
+
+    private static String randomWord(ThreadLocalRandom random) {
+        return DataSeeder.DESCRIPTION_WORDS[random.nextInt(DataSeeder.DESCRIPTION_WORDS.length)];
+    }
+}
@@ -0,0 +1,119 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load client used by thread-mode-benchmark.sh to compare platform and
+ * virtual request threads. Each of N concurrent clients repeatedly calls one endpoint
+ * for the given duration; throughput and latency percentiles are printed as one CSV row.
+ * <p>
+ * Run with a Java 21+ launcher (single-file source mode, no build needed):
+ * {@code java scripts/ThreadModeBenchmark.java http://localhost:8080 expenses 1000 30 platform}
+ */
+public class ThreadModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("usage: ThreadModeBenchmark <baseUrl> <expenses|login> <concurrency> <seconds> <label>");
+            System.exit(2);
+        }
+        String baseUrl = args[0];
+        String endpoint = args[1];
+        int concurrency = Integer.parseInt(args[2]);
+        long durationNanos = Duration.ofSeconds(Long.parseLong(args[3])).toNanos();
+        String label = args[4];
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        String token = login(client, baseUrl);
+        HttpRequest request = "login".equals(endpoint)
+                ? loginRequest(baseUrl)
+                : HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses"))
+                        .header("Authorization", "Bearer " + token)
+                        .timeout(Duration.ofSeconds(60))
+                        .GET()
+                        .build();
+
+        LatencyLog[] logs = new LatencyLog[concurrency];
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                LatencyLog log = new LatencyLog();
+                logs[i] = log;
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        log.add(System.nanoTime() - sent);
+                    }
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int total = Arrays.stream(logs).mapToInt(log -> log.size).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (LatencyLog log : logs) {
+            System.arraycopy(log.values, 0, all, offset, log.size);
+            offset += log.size;
+        }
+        Arrays.sort(all);
+        System.out.printf("%s,%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%d%n",
+                label, endpoint, concurrency, total, total / elapsedSeconds,
+                percentileMillis(all, 0.50), percentileMillis(all, 0.99), percentileMillis(all, 0.999),
+                errors.get());
+    }
+
+    private static HttpRequest loginRequest(String baseUrl) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"user\",\"password\":\"user123\"}"))
+                .build();
+    }
+
+    private static String login(HttpClient client, String baseUrl) throws Exception {
+        String body = client.send(loginRequest(baseUrl), HttpResponse.BodyHandlers.ofString()).body();
+        int start = body.indexOf("\"token\":\"") + 9;
+        return body.substring(start, body.indexOf('"', start));
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    // Per-client latency buffer; only its own client thread writes to it
+    private static final class LatencyLog {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+    }
+}
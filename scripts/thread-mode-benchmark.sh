@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request execution on an embedded H2 database.
+# Needs a Java 21+ JAVA_HOME and a packaged app (mvn package -DskipTests).
+#
+#   scripts/thread-mode-benchmark.sh [seconds-per-run] [concurrency levels...]
+#   scripts/thread-mode-benchmark.sh 30 1000 2500 5000 10000
+#
+# Prints one CSV row per mode/endpoint/concurrency:
+#   mode,endpoint,concurrency,requests,throughput_rps,p50_ms,p99_ms,p999_ms,errors
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+SECONDS_PER_RUN=${1:-30}
+shift || true
+LEVELS=${*:-1000 2500 5000 10000}
+PORT=${PORT:-18080}
+JAR=target/testingapp-0.0.1-SNAPSHOT.jar
+
+ulimit -n 65536 2>/dev/null || echo "warning: could not raise open file limit; high concurrency runs may fail" >&2
+
+run_mode() {
+    local mode=$1 profiles=$2
+    java -jar "$JAR" \
+        --server.port="$PORT" \
+        --spring.profiles.active="$profiles" \
+        --spring.datasource.url="jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+        --spring.datasource.driver-class-name=org.h2.Driver \
+        --spring.datasource.username=sa \
+        --spring.jpa.database-platform=org.hibernate.dialect.H2Dialect \
+        --spring.jpa.show-sql=false \
+        --server.tomcat.max-connections=10000 \
+        --logging.level.root=WARN > "target/benchmark-$mode.log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/health" > /dev/null; do sleep 1; done
+
+    for endpoint in expenses login; do
+        for level in $LEVELS; do
+            java scripts/ThreadModeBenchmark.java "http://localhost:$PORT" "$endpoint" "$level" "$SECONDS_PER_RUN" "$mode"
+        done
+    done
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+echo "mode,endpoint,concurrency,requests,throughput_rps,p50_ms,p99_ms,p999_ms,errors"
+run_mode platform default
+run_mode virtual virtual-threads
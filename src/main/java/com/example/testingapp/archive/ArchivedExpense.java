@@ -0,0 +1,96 @@
+package com.example.testingapp.archive;
+
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.dto.ExpenseFields;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.entity.Expense;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An expense as stored in an archive segment: the expense row without its user, who is
+ * implied by the segment, and without the unused receipt URL.
+ */
+public record ArchivedExpense(long id,
+                              String description,
+                              BigDecimal amount,
+                              LocalDate expenseDate,
+                              long categoryId,
+                              String notes,
+                              Expense.PaymentMethod paymentMethod,
+                              boolean recurring,
+                              Expense.RecurringFrequency recurringFrequency,
+                              LocalDateTime createdAt,
+                              LocalDateTime updatedAt,
+                              long changeSeq) {
+
+    // Columns read by ROW_MAPPER, for selecting expenses that are about to be archived
+    public static final String COLUMNS = "id, description, amount, expense_date, category_id, notes, "
+            + "payment_method, is_recurring, recurring_frequency, created_at, updated_at, change_seq";
+
+    public static final RowMapper<ArchivedExpense> ROW_MAPPER = (rs, rowNum) -> {
+        String paymentMethod = rs.getString("payment_method");
+        String recurringFrequency = rs.getString("recurring_frequency");
+        return new ArchivedExpense(
+                rs.getLong("id"),
+                rs.getString("description"),
+                rs.getBigDecimal("amount"),
+                rs.getDate("expense_date").toLocalDate(),
+                rs.getLong("category_id"),
+                rs.getString("notes"),
+                paymentMethod != null ? Expense.PaymentMethod.valueOf(paymentMethod) : null,
+                rs.getBoolean("is_recurring"),
+                recurringFrequency != null ? Expense.RecurringFrequency.valueOf(recurringFrequency) : null,
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                toLocalDateTime(rs.getTimestamp("updated_at")),
+                rs.getLong("change_seq"));
+    };
+
+    public ExpenseResponse toResponse(ExpenseCategoryResponse category) {
+        ExpenseResponse response = new ExpenseResponse();
+        response.setId(id);
+        response.setDescription(description);
+        response.setAmount(amount);
+        response.setExpenseDate(expenseDate);
+        response.setCategory(category);
+        response.setNotes(notes);
+        response.setPaymentMethod(paymentMethod);
+        response.setRecurring(recurring);
+        response.setRecurringFrequency(recurringFrequency);
+        response.setCreatedAt(createdAt);
+        response.setUpdatedAt(updatedAt);
+        return response;
+    }
+
+    // Same keys and value types as the sparse fieldset queries return for a live expense
+    public Map<String, Object> toFields(ExpenseFields fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String name : fields.getNames()) {
+            row.put(name, switch (name) {
+                case "id" -> id;
+                case "description" -> description;
+                case "amount" -> amount;
+                case "expenseDate" -> expenseDate;
+                case "categoryId" -> categoryId;
+                case "notes" -> notes;
+                case "paymentMethod" -> paymentMethod;
+                case "recurring" -> recurring;
+                case "recurringFrequency" -> recurringFrequency;
+                case "createdAt" -> createdAt;
+                case "updatedAt" -> updatedAt;
+                default -> throw new IllegalArgumentException("Unknown field: " + name);
+            });
+        }
+        return row;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
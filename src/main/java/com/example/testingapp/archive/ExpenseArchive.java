@@ -0,0 +1,332 @@
+package com.example.testingapp.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage for old expenses: immutable {@link ExpenseSegment} files on local disk, laid
+ * out as {@code <dir>/<userId>/<year>-<n>.seg}, usually one per user and year.
+ * <p>
+ * Every segment is opened and memory-mapped at startup and indexed by user, so reads only
+ * touch the segments of the requesting user that overlap the range asked for. Reads that
+ * combine the expenses table with the archive run under {@link #read}, and moving expenses
+ * into the archive takes the same user's write lock while their rows are deleted and the
+ * segment is published, so a reader sees every expense exactly once, either in the table or
+ * in a segment.
+ * <p>
+ * A segment is written under a {@code .pending} name first and only renamed to
+ * {@code .seg} once the rows it holds are deleted from the table. {@link ExpenseArchiver}
+ * settles pending files left behind by a crash at startup.
+ */
+@Component
+public class ExpenseArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseArchive.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<ArchivedExpense> NEWEST_FIRST =
+            Comparator.comparing(ArchivedExpense::expenseDate).thenComparingLong(ArchivedExpense::id).reversed();
+
+    private final Path root;
+    private final Map<Long, List<ExpenseSegment>> segmentsByUser = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+
+    public ExpenseArchive(@Value("${expense.archive.dir:data/expense-archive}") String dir) {
+        this.root = Paths.get(dir);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        // A segment that cannot be read would silently drop expenses from every read, so startup fails instead
+        try (Stream<Path> files = list(SEGMENT_SUFFIX)) {
+            files.forEach(file -> {
+                try {
+                    add(userIdOf(file), ExpenseSegment.open(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open expense segment " + file, e);
+                }
+            });
+        }
+        if (!segmentsByUser.isEmpty()) {
+            log.info("Expense archive {} holds {} segments of {} users", root,
+                    segmentsByUser.values().stream().mapToInt(List::size).sum(), segmentsByUser.size());
+        }
+    }
+
+    // Runs a read that combines the table and the archive without racing a segment being published
+    public <T> T read(Long userId, Supplier<T> work) {
+        ReadWriteLock lock = lockFor(userId);
+        lock.readLock().lock();
+        try {
+            return work.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasExpenses(Long userId) {
+        return !segments(userId).isEmpty();
+    }
+
+    // Archived expenses dated within the range, inclusive, newest first
+    public List<ArchivedExpense> findBetween(Long userId, LocalDate startDate, LocalDate endDate) {
+        List<ArchivedExpense> rows = new ArrayList<>();
+        for (ExpenseSegment segment : segments(userId)) {
+            rows.addAll(segment.rowsBetween(startDate, endDate));
+        }
+        rows.sort(NEWEST_FIRST);
+        return rows;
+    }
+
+    // Archived expenses that match the filter, newest first
+    public List<ArchivedExpense> findAll(Long userId, Predicate<ArchivedExpense> filter) {
+        List<ArchivedExpense> rows = new ArrayList<>();
+        for (ExpenseSegment segment : segments(userId)) {
+            for (ArchivedExpense row : segment.rows()) {
+                if (filter.test(row)) {
+                    rows.add(row);
+                }
+            }
+        }
+        rows.sort(NEWEST_FIRST);
+        return rows;
+    }
+
+    // Archived expenses last changed within (afterSeq, throughSeq], by change sequence; segments are skipped by header
+    public List<ArchivedExpense> findChanges(Long userId, long afterSeq, long throughSeq) {
+        List<ArchivedExpense> rows = new ArrayList<>();
+        for (ExpenseSegment segment : segments(userId)) {
+            rows.addAll(segment.rowsChangedBetween(afterSeq, throughSeq));
+        }
+        rows.sort(Comparator.comparingLong(ArchivedExpense::changeSeq));
+        return rows;
+    }
+
+    public Optional<ArchivedExpense> find(Long userId, long expenseId) {
+        for (ExpenseSegment segment : segments(userId)) {
+            Optional<ArchivedExpense> expense = segment.find(expenseId);
+            if (expense.isPresent()) {
+                return expense;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public long count(Long userId) {
+        return segments(userId).stream().mapToLong(ExpenseSegment::getRowCount).sum();
+    }
+
+    // Answered from segment headers
+    public BigDecimal total(Long userId) {
+        return segments(userId).stream().map(ExpenseSegment::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public BigDecimal total(Long userId, LocalDate startDate, LocalDate endDate) {
+        return segments(userId).stream()
+                .map(segment -> segment.totalBetween(startDate, endDate))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public Map<YearMonth, BigDecimal> monthlyTotals(Long userId) {
+        Map<YearMonth, BigDecimal> totals = new HashMap<>();
+        for (ExpenseSegment segment : segments(userId)) {
+            int[] dates = segment.dates();
+            BigDecimal[] amounts = segment.amounts();
+            for (int i = 0; i < dates.length; i++) {
+                totals.merge(YearMonth.from(LocalDate.ofEpochDay(dates[i])), amounts[i], BigDecimal::add);
+            }
+        }
+        return totals;
+    }
+
+    public Map<Long, BigDecimal> totalsByCategory(Long userId) {
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (ExpenseSegment segment : segments(userId)) {
+            long[] categoryIds = segment.categoryIds();
+            BigDecimal[] amounts = segment.amounts();
+            for (int i = 0; i < categoryIds.length; i++) {
+                totals.merge(categoryIds[i], amounts[i], BigDecimal::add);
+            }
+        }
+        return totals;
+    }
+
+    // Same rows as AnalyticsRepository.getReportCells, for the archived part of the range
+    public List<Map<String, Object>> reportCells(Long userId, LocalDate startDate, LocalDate endDate) {
+        Map<List<Object>, Map<String, Object>> cells = new LinkedHashMap<>();
+        for (ExpenseSegment segment : segments(userId)) {
+            if (!segment.overlaps(startDate, endDate)) {
+                continue;
+            }
+            int[] dates = segment.dates();
+            BigDecimal[] amounts = segment.amounts();
+            long[] categoryIds = segment.categoryIds();
+            String[] paymentMethods = segment.strings(ExpenseSegment.Column.PAYMENT_METHOD);
+            for (int i = ExpenseSegment.lowerBound(dates, startDate); i < ExpenseSegment.upperBound(dates, endDate); i++) {
+                LocalDate date = LocalDate.ofEpochDay(dates[i]);
+                List<Object> key = Arrays.asList(date.getYear(), date.getMonthValue(), categoryIds[i], paymentMethods[i]);
+                Map<String, Object> cell = cells.computeIfAbsent(key, k -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("year", date.getYear());
+                    row.put("month", date.getMonthValue());
+                    row.put("categoryId", k.get(2));
+                    row.put("paymentMethod", k.get(3));
+                    row.put("count", 0L);
+                    row.put("total", BigDecimal.ZERO);
+                    return row;
+                });
+                cell.put("count", (Long) cell.get("count") + 1);
+                cell.put("total", ((BigDecimal) cell.get("total")).add(amounts[i]));
+            }
+        }
+        return new ArrayList<>(cells.values());
+    }
+
+    // Highest change sequence among the user's archived expenses, 0 if none
+    public long maxChangeSeq(Long userId) {
+        return segments(userId).stream().mapToLong(ExpenseSegment::getMaxChangeSeq).max().orElse(0);
+    }
+
+    // Highest id among the user's archived expenses, 0 if none
+    public long maxExpenseId(Long userId) {
+        return segments(userId).stream()
+                .flatMapToLong(segment -> Arrays.stream(segment.ids()))
+                .max()
+                .orElse(0);
+    }
+
+    // Answered from segment headers
+    public boolean referencesCategory(Long categoryId) {
+        return segmentsByUser.values().stream()
+                .flatMap(List::stream)
+                .anyMatch(segment -> segment.referencesCategory(categoryId));
+    }
+
+    public Map<String, Object> getStats() {
+        List<ExpenseSegment> all = segmentsByUser.values().stream().flatMap(List::stream).toList();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dir", root.toAbsolutePath().toString());
+        stats.put("users", segmentsByUser.size());
+        stats.put("segments", all.size());
+        stats.put("expenses", all.stream().mapToLong(ExpenseSegment::getRowCount).sum());
+        stats.put("bytes", all.stream().mapToLong(ExpenseSegment::getSizeBytes).sum());
+        return stats;
+    }
+
+    /**
+     * Writes the expenses of a user from one year to a new segment, then runs commit, which
+     * must delete exactly those rows from the table in one transaction and return true, or
+     * return false (or throw) to abandon the segment. Returns whether it was published.
+     */
+    boolean append(Long userId, int year, List<ArchivedExpense> expenses, BooleanSupplier commit) throws IOException {
+        Path dir = Files.createDirectories(root.resolve(userId.toString()));
+        Path pending = dir.resolve(year + "-" + nextSequence(dir, year) + PENDING_SUFFIX);
+        ExpenseSegmentWriter.write(pending, expenses);
+        ReadWriteLock lock = lockFor(userId);
+        lock.writeLock().lock();
+        try {
+            boolean committed;
+            try {
+                committed = commit.getAsBoolean();
+            } catch (RuntimeException e) {
+                Files.deleteIfExists(pending);
+                throw e;
+            }
+            if (!committed) {
+                Files.deleteIfExists(pending);
+                return false;
+            }
+            promote(pending);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Segments whose rows may or may not have been deleted from the table before a crash
+    List<Path> pendingSegments() {
+        try (Stream<Path> files = list(PENDING_SUFFIX)) {
+            return files.toList();
+        }
+    }
+
+    // Publishes a pending segment whose rows are no longer in the table
+    void promote(Path pending) throws IOException {
+        String name = pending.getFileName().toString();
+        Path target = pending.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length()) + SEGMENT_SUFFIX);
+        Files.move(pending, target, StandardCopyOption.ATOMIC_MOVE);
+        add(userIdOf(target), ExpenseSegment.open(target));
+    }
+
+    static Long userIdOf(Path segment) {
+        return Long.valueOf(segment.getParent().getFileName().toString());
+    }
+
+    private List<ExpenseSegment> segments(Long userId) {
+        return segmentsByUser.getOrDefault(userId, List.of());
+    }
+
+    private void add(Long userId, ExpenseSegment segment) {
+        segmentsByUser.compute(userId, (id, segments) -> {
+            List<ExpenseSegment> updated = segments != null ? new ArrayList<>(segments) : new ArrayList<>();
+            updated.add(segment);
+            updated.sort(Comparator.comparing(ExpenseSegment::getMinDate));
+            return List.copyOf(updated);
+        });
+    }
+
+    private ReadWriteLock lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static int nextSequence(Path dir, int year) throws IOException {
+        String prefix = year + "-";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .mapToInt(name -> Integer.parseInt(name.substring(prefix.length(), name.indexOf('.'))))
+                    .max()
+                    .orElse(0) + 1;
+        }
+    }
+
+    // Files with the suffix in every user directory; nothing if the archive was never written
+    private Stream<Path> list(String suffix) {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        try {
+            return Files.find(root, 2, (file, attributes) -> attributes.isRegularFile()
+                    && file.getFileName().toString().endsWith(suffix));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list expense archive " + root, e);
+        }
+    }
+}
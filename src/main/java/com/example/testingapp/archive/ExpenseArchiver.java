@@ -0,0 +1,270 @@
+package com.example.testingapp.archive;
+
+import com.example.testingapp.dto.ExpenseArchiveRun;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import com.example.testingapp.service.CategoryUsageService;
+import com.example.testingapp.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Moves expenses older than the hot window out of the expenses table into the
+ * {@link ExpenseArchive}, one segment per user and calendar year.
+ * <p>
+ * Only whole years are archived: the cutoff is the first of January of the year that
+ * started {@code expense.archive.hot-months} ago, so at least that many months of history
+ * stay in the table and a year is normally written once. For each user and year the rows
+ * are read, written to a pending segment, and then deleted in one transaction that first
+ * locks them and checks their change sequences, so an expense edited in between is never
+ * lost; the year is simply retried by the next run. Users being moved between shards are
+ * skipped for the same reason. Archived expenses are read-only and are no longer counted by
+ * {@link CategoryUsageService}.
+ */
+@Service
+public class ExpenseArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseArchiver.class);
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    private final ExpenseArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final CategoryUsageService categoryUsageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService executor;
+    private volatile ExpenseArchiveRun lastRun;
+
+    @Value("${expense.archive.scheduled:false}")
+    private boolean scheduled;
+
+    @Value("${expense.archive.hot-months:12}")
+    private int hotMonths;
+
+    @Autowired
+    public ExpenseArchiver(ExpenseArchive archive,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           ShardRouter shardRouter,
+                           CategoryUsageService categoryUsageService,
+                           ApplicationEventPublisher eventPublisher) {
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.categoryUsageService = categoryUsageService;
+        this.eventPublisher = eventPublisher;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expense-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts a run in the background, or returns the one still running
+    public synchronized ExpenseArchiveRun start() {
+        ExpenseArchiveRun current = lastRun;
+        if (current != null && current.getStatus() == ExpenseArchiveRun.Status.RUNNING) {
+            return current;
+        }
+        ExpenseArchiveRun run = new ExpenseArchiveRun(UUID.randomUUID().toString(), cutoff(LocalDate.now()));
+        lastRun = run;
+        executor.execute(() -> run(run));
+        return run;
+    }
+
+    public Optional<ExpenseArchiveRun> getLastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+
+    @Scheduled(cron = "${expense.archive.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (scheduled) {
+            start();
+        }
+    }
+
+    // First day of the oldest year that stays in the table
+    public LocalDate cutoff(LocalDate today) {
+        return today.minusMonths(hotMonths).withDayOfYear(1);
+    }
+
+    /**
+     * Archives the user's expenses dated before the cutoff, which must be the first of a
+     * year. Returns the number of expenses archived. Throws RejectedExecutionException while
+     * the user is being moved between shards.
+     */
+    public int archiveUser(Long userId, LocalDate cutoff) {
+        return archiveUser(userId, cutoff, expenses -> { });
+    }
+
+    // Settles segments a crash left between being written and being published
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPending() {
+        for (Path pending : archive.pendingSegments()) {
+            Long userId = ExpenseArchive.userIdOf(pending);
+            try {
+                long[] ids = ExpenseSegment.open(pending).ids();
+                long remaining = shardRouter.onShard(shardRouter.shardFor(userId), () -> countExisting(ids));
+                if (remaining == 0) {
+                    archive.promote(pending);
+                    log.info("Published archive segment {} whose expenses were already deleted", pending);
+                } else if (remaining == ids.length) {
+                    Files.delete(pending);
+                    log.info("Discarded archive segment {} whose expenses were never deleted", pending);
+                } else {
+                    log.error("Archive segment {} matches {} of {} expenses still in the table; left unpublished",
+                            pending, remaining, ids.length);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not recover archive segment {}", pending, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // A year is published or abandoned as a whole, so an interrupted run is simply repeated
+        executor.shutdownNow();
+    }
+
+    private void run(ExpenseArchiveRun run) {
+        try {
+            LocalDate cutoff = run.getCutoff();
+            Set<Long> userIds = new TreeSet<>();
+            shardRouter.onEachShard(() -> jdbcTemplate.queryForList(
+                    "SELECT DISTINCT user_id FROM expenses WHERE expense_date < ?", Long.class, Date.valueOf(cutoff)))
+                    .values().forEach(userIds::addAll);
+            run.setTotalUsers(userIds.size());
+            for (Long userId : userIds) {
+                try {
+                    archiveUser(userId, cutoff, run::segmentWritten);
+                    run.userProcessed();
+                } catch (RejectedExecutionException e) {
+                    run.userSkipped();
+                }
+            }
+            run.complete();
+            log.info("Archived {} expenses of {} users dated before {} into {} segments",
+                    run.getArchivedExpenses(), run.getProcessedUsers(), cutoff, run.getSegments());
+        } catch (RuntimeException e) {
+            log.error("Expense archive run {} failed", run.getId(), e);
+            run.fail(e.getMessage());
+        }
+    }
+
+    private int archiveUser(Long userId, LocalDate cutoff, IntConsumer onSegment) {
+        if (cutoff.getDayOfYear() != 1) {
+            throw new IllegalArgumentException("The archive cutoff must be the first day of a year: " + cutoff);
+        }
+        return shardRouter.write(userId, () -> {
+            List<Integer> years = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT YEAR(expense_date) FROM expenses WHERE user_id = ? AND expense_date < ? " +
+                    "ORDER BY YEAR(expense_date)", Integer.class, userId, Date.valueOf(cutoff));
+            int archived = 0;
+            for (int year : years) {
+                int expenses = archiveYear(userId, year);
+                if (expenses > 0) {
+                    onSegment.accept(expenses);
+                    archived += expenses;
+                }
+            }
+            return archived;
+        });
+    }
+
+    private int archiveYear(Long userId, int year) {
+        LocalDate from = LocalDate.of(year, 1, 1);
+        List<ArchivedExpense> expenses = jdbcTemplate.query(
+                "SELECT " + ArchivedExpense.COLUMNS + " FROM expenses " +
+                "WHERE user_id = ? AND expense_date >= ? AND expense_date < ?",
+                ArchivedExpense.ROW_MAPPER, userId, Date.valueOf(from), Date.valueOf(from.plusYears(1)));
+        if (expenses.isEmpty()) {
+            return 0;
+        }
+        boolean published;
+        try {
+            published = archive.append(userId, year, expenses, () -> Boolean.TRUE.equals(
+                    transactionTemplate.execute(status -> deleteUnchanged(expenses, status))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive segment of user " + userId + " for " + year, e);
+        }
+        if (!published) {
+            log.info("Expenses of user {} from {} changed while being archived; left for the next run", userId, year);
+            return 0;
+        }
+        Map<Long, Long> removedByCategory = new HashMap<>();
+        expenses.forEach(expense -> removedByCategory.merge(expense.categoryId(), 1L, Long::sum));
+        removedByCategory.forEach(categoryUsageService::expensesRemoved);
+        ExpenseRangesWrittenEvent.Builder written = ExpenseRangesWrittenEvent.builder(ExpenseRangesWrittenEvent.Operation.ARCHIVED);
+        expenses.forEach(expense -> written.add(userId, expense.id(), expense.changeSeq()));
+        eventPublisher.publishEvent(written.build());
+        return expenses.size();
+    }
+
+    // Locks the rows and deletes them only if none was changed or deleted since it was read
+    private boolean deleteUnchanged(List<ArchivedExpense> expenses, TransactionStatus status) {
+        for (int start = 0; start < expenses.size(); start += DELETE_CHUNK_SIZE) {
+            List<ArchivedExpense> chunk = expenses.subList(start, Math.min(start + DELETE_CHUNK_SIZE, expenses.size()));
+            Object[] ids = chunk.stream().map(ArchivedExpense::id).toArray();
+            String placeholders = String.join(", ", Collections.nCopies(ids.length, "?"));
+            Map<Long, Long> changeSeqs = new HashMap<>();
+            jdbcTemplate.query("SELECT id, change_seq FROM expenses WHERE id IN (" + placeholders + ") FOR UPDATE",
+                    rs -> {
+                        changeSeqs.put(rs.getLong("id"), rs.getLong("change_seq"));
+                    }, ids);
+            for (ArchivedExpense expense : chunk) {
+                Long changeSeq = changeSeqs.get(expense.id());
+                if (changeSeq == null || changeSeq != expense.changeSeq()) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+            }
+            jdbcTemplate.update("DELETE FROM expenses WHERE id IN (" + placeholders + ")", ids);
+        }
+        return true;
+    }
+
+    private long countExisting(long[] ids) {
+        long existing = 0;
+        for (int start = 0; start < ids.length; start += DELETE_CHUNK_SIZE) {
+            Object[] chunk = new Object[Math.min(DELETE_CHUNK_SIZE, ids.length - start)];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = ids[start + i];
+            }
+            existing += jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.length, "?")) + ")", Long.class, chunk);
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.testingapp.archive;
+
+import com.example.testingapp.entity.Expense;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of one archive segment file, memory-mapped.
+ * <p>
+ * A segment holds one user's expenses from one year, sorted by date and id. The file starts
+ * with a header carrying the row count, the date range, the total amount, the highest change
+ * sequence and the distinct category ids, followed by one Deflate-compressed block per
+ * column. Totals over a range that covers the whole segment are answered from the header
+ * alone, and other queries only inflate the columns they read, straight from the mapping,
+ * so the file is never copied onto the heap. Blocks carry a CRC32 that is checked before
+ * they are inflated. Segments are immutable; see {@link ExpenseSegmentWriter}.
+ */
+public final class ExpenseSegment {
+
+    static final int MAGIC = 0x45585347; // "EXSG"
+    static final int VERSION = 1;
+
+    enum Column {
+        ID, EXPENSE_DATE, AMOUNT, CATEGORY_ID, DESCRIPTION, NOTES, PAYMENT_METHOD,
+        RECURRING, RECURRING_FREQUENCY, CREATED_AT, UPDATED_AT, CHANGE_SEQ
+    }
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final LocalDate minDate;
+    private final LocalDate maxDate;
+    private final int amountScale;
+    private final BigDecimal total;
+    private final long maxChangeSeq;
+    private final long[] categoryIds;
+    private final Map<Column, Block> blocks = new EnumMap<>(Column.class);
+
+    private ExpenseSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        ByteBuffer header = buffer.duplicate();
+        if (header.remaining() < 5 || header.getInt() != MAGIC) {
+            throw new IOException("Not an expense segment: " + path);
+        }
+        int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported segment version " + version + ": " + path);
+        }
+        this.rowCount = header.getInt();
+        this.minDate = LocalDate.ofEpochDay(header.getInt());
+        this.maxDate = LocalDate.ofEpochDay(header.getInt());
+        this.amountScale = header.get();
+        this.total = BigDecimal.valueOf(header.getLong(), amountScale);
+        this.maxChangeSeq = header.getLong();
+        this.categoryIds = new long[header.getInt()];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = header.getLong();
+        }
+        int columns = header.get();
+        for (int i = 0; i < columns; i++) {
+            Column column = Column.values()[header.get()];
+            Block block = new Block(header.getInt(), header.getInt(), header.getInt(), header.getInt());
+            if ((long) block.offset + block.compressedLength > buffer.capacity()) {
+                throw new IOException("Truncated expense segment: " + path);
+            }
+            blocks.put(column, block);
+        }
+        if (blocks.size() != Column.values().length) {
+            throw new IOException("Expense segment is missing columns: " + path);
+        }
+    }
+
+    // The mapping stays valid after the channel is closed
+    public static ExpenseSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ExpenseSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDate getMinDate() {
+        return minDate;
+    }
+
+    public LocalDate getMaxDate() {
+        return maxDate;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public long getMaxChangeSeq() {
+        return maxChangeSeq;
+    }
+
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    public boolean overlaps(LocalDate startDate, LocalDate endDate) {
+        return !minDate.isAfter(endDate) && !maxDate.isBefore(startDate);
+    }
+
+    public boolean referencesCategory(long categoryId) {
+        return Arrays.binarySearch(categoryIds, categoryId) >= 0;
+    }
+
+    // Sum of the amounts dated within the range, inclusive
+    public BigDecimal totalBetween(LocalDate startDate, LocalDate endDate) {
+        if (!overlaps(startDate, endDate)) {
+            return BigDecimal.ZERO;
+        }
+        if (!minDate.isBefore(startDate) && !maxDate.isAfter(endDate)) {
+            return total;
+        }
+        int[] dates = dates();
+        long[] amounts = longs(Column.AMOUNT, false);
+        long sum = 0;
+        for (int i = lowerBound(dates, startDate); i < upperBound(dates, endDate); i++) {
+            sum += amounts[i];
+        }
+        return BigDecimal.valueOf(sum, amountScale);
+    }
+
+    // Every expense in the segment, oldest first
+    public List<ArchivedExpense> rows() {
+        return rows(dates(), 0, rowCount);
+    }
+
+    // Expenses dated within the range, inclusive, oldest first
+    public List<ArchivedExpense> rowsBetween(LocalDate startDate, LocalDate endDate) {
+        if (!overlaps(startDate, endDate)) {
+            return Collections.emptyList();
+        }
+        int[] dates = dates();
+        return rows(dates, lowerBound(dates, startDate), upperBound(dates, endDate));
+    }
+
+    // Expenses whose change sequence is after afterSeq and at most throughSeq, in segment order
+    public List<ArchivedExpense> rowsChangedBetween(long afterSeq, long throughSeq) {
+        if (maxChangeSeq <= afterSeq) {
+            return Collections.emptyList();
+        }
+        List<ArchivedExpense> rows = new ArrayList<>();
+        for (ArchivedExpense row : rows(dates(), 0, rowCount)) {
+            if (row.changeSeq() > afterSeq && row.changeSeq() <= throughSeq) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    public Optional<ArchivedExpense> find(long id) {
+        long[] ids = longs(Column.ID, true);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return Optional.of(rows(dates(), i, i + 1).get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    long[] ids() {
+        return longs(Column.ID, true);
+    }
+
+    // Epoch days, ascending
+    int[] dates() {
+        long[] days = longs(Column.EXPENSE_DATE, true);
+        int[] dates = new int[days.length];
+        for (int i = 0; i < days.length; i++) {
+            dates[i] = (int) days[i];
+        }
+        return dates;
+    }
+
+    BigDecimal[] amounts() {
+        long[] unscaled = longs(Column.AMOUNT, false);
+        BigDecimal[] amounts = new BigDecimal[unscaled.length];
+        for (int i = 0; i < unscaled.length; i++) {
+            amounts[i] = BigDecimal.valueOf(unscaled[i], amountScale);
+        }
+        return amounts;
+    }
+
+    long[] categoryIds() {
+        return longs(Column.CATEGORY_ID, false);
+    }
+
+    String[] strings(Column column) {
+        ColumnCodec.Input input = inflate(column);
+        String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = input.readString();
+        }
+        return values;
+    }
+
+    // First index dated on or after the date
+    static int lowerBound(int[] dates, LocalDate date) {
+        int key = (int) date.toEpochDay();
+        int low = 0;
+        int high = dates.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dates[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index dated after the date
+    static int upperBound(int[] dates, LocalDate date) {
+        return lowerBound(dates, date.plusDays(1));
+    }
+
+    private List<ArchivedExpense> rows(int[] dates, int from, int to) {
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        long[] ids = longs(Column.ID, true);
+        BigDecimal[] amounts = amounts();
+        long[] categories = categoryIds();
+        String[] descriptions = strings(Column.DESCRIPTION);
+        String[] notes = strings(Column.NOTES);
+        String[] paymentMethods = strings(Column.PAYMENT_METHOD);
+        ColumnCodec.Input recurring = inflate(Column.RECURRING);
+        String[] frequencies = strings(Column.RECURRING_FREQUENCY);
+        LocalDateTime[] createdAt = timestamps(Column.CREATED_AT);
+        LocalDateTime[] updatedAt = timestamps(Column.UPDATED_AT);
+        long[] changeSeqs = longs(Column.CHANGE_SEQ, true);
+        List<ArchivedExpense> rows = new ArrayList<>(to - from);
+        for (int i = 0; i < rowCount; i++) {
+            boolean isRecurring = recurring.readByte() != 0;
+            if (i < from || i >= to) {
+                continue;
+            }
+            rows.add(new ArchivedExpense(ids[i], descriptions[i], amounts[i], LocalDate.ofEpochDay(dates[i]),
+                    categories[i], notes[i],
+                    paymentMethods[i] != null ? Expense.PaymentMethod.valueOf(paymentMethods[i]) : null,
+                    isRecurring,
+                    frequencies[i] != null ? Expense.RecurringFrequency.valueOf(frequencies[i]) : null,
+                    createdAt[i], updatedAt[i], changeSeqs[i]));
+        }
+        return rows;
+    }
+
+    private long[] longs(Column column, boolean deltas) {
+        ColumnCodec.Input input = inflate(column);
+        long[] values = new long[rowCount];
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+            long value = input.readSignedVarLong();
+            values[i] = deltas ? previous + value : value;
+            previous = values[i];
+        }
+        return values;
+    }
+
+    // Microseconds since the epoch in UTC, delta encoded; 0 marks a null
+    private LocalDateTime[] timestamps(Column column) {
+        ColumnCodec.Input input = inflate(column);
+        LocalDateTime[] values = new LocalDateTime[rowCount];
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+            long value = input.readVarLong();
+            if (value == 0) {
+                continue;
+            }
+            long delta = value - 1;
+            long micros = previous + ((delta >>> 1) ^ -(delta & 1));
+            values[i] = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+            previous = micros;
+        }
+        return values;
+    }
+
+    private ColumnCodec.Input inflate(Column column) {
+        Block block = blocks.get(column);
+        ByteBuffer compressed = buffer.slice(block.offset, block.compressedLength);
+        CRC32 crc = new CRC32();
+        crc.update(compressed.duplicate());
+        if ((int) crc.getValue() != block.crc) {
+            throw new IllegalStateException("Checksum mismatch in column " + column + " of " + path);
+        }
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != raw.length) {
+                throw new IllegalStateException("Column " + column + " of " + path + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Column " + column + " of " + path + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return new ColumnCodec.Input(raw);
+    }
+
+    private record Block(int offset, int compressedLength, int rawLength, int crc) {
+    }
+}
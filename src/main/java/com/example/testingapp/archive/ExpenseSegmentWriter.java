@@ -0,0 +1,175 @@
+package com.example.testingapp.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the segment format read by {@link ExpenseSegment}.
+ * <p>
+ * Rows are sorted by date and id first, so dates, ids and change sequences are stored as
+ * small deltas and each column compresses well on its own. Segments are written once and
+ * read for years, so the strongest Deflate level is used.
+ */
+public final class ExpenseSegmentWriter {
+
+    private ExpenseSegmentWriter() {
+    }
+
+    // Writes and syncs a new file; the caller moves it into place
+    public static void write(Path target, List<ArchivedExpense> expenses) throws IOException {
+        if (expenses.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one expense");
+        }
+        List<ArchivedExpense> rows = new ArrayList<>(expenses);
+        rows.sort(Comparator.comparing(ArchivedExpense::expenseDate).thenComparingLong(ArchivedExpense::id));
+
+        int scale = 0;
+        long maxChangeSeq = 0;
+        TreeSet<Long> categoryIds = new TreeSet<>();
+        for (ArchivedExpense row : rows) {
+            scale = Math.max(scale, row.amount().scale());
+            maxChangeSeq = Math.max(maxChangeSeq, row.changeSeq());
+            categoryIds.add(row.categoryId());
+        }
+        long total = 0;
+        Map<ExpenseSegment.Column, byte[]> columns = new EnumMap<>(ExpenseSegment.Column.class);
+        ColumnCodec.Output amounts = new ColumnCodec.Output();
+        for (ArchivedExpense row : rows) {
+            long unscaled = row.amount().setScale(scale).unscaledValue().longValueExact();
+            amounts.writeSignedVarLong(unscaled);
+            total = Math.addExact(total, unscaled);
+        }
+        columns.put(ExpenseSegment.Column.AMOUNT, amounts.toByteArray());
+        columns.put(ExpenseSegment.Column.ID, deltas(rows, ArchivedExpense::id));
+        columns.put(ExpenseSegment.Column.EXPENSE_DATE, deltas(rows, row -> row.expenseDate().toEpochDay()));
+        columns.put(ExpenseSegment.Column.CHANGE_SEQ, deltas(rows, ArchivedExpense::changeSeq));
+        ColumnCodec.Output categories = new ColumnCodec.Output();
+        ColumnCodec.Output recurring = new ColumnCodec.Output();
+        for (ArchivedExpense row : rows) {
+            categories.writeSignedVarLong(row.categoryId());
+            recurring.writeByte(row.recurring() ? 1 : 0);
+        }
+        columns.put(ExpenseSegment.Column.CATEGORY_ID, categories.toByteArray());
+        columns.put(ExpenseSegment.Column.RECURRING, recurring.toByteArray());
+        columns.put(ExpenseSegment.Column.DESCRIPTION, strings(rows, ArchivedExpense::description));
+        columns.put(ExpenseSegment.Column.NOTES, strings(rows, ArchivedExpense::notes));
+        columns.put(ExpenseSegment.Column.PAYMENT_METHOD, strings(rows,
+                row -> row.paymentMethod() != null ? row.paymentMethod().name() : null));
+        columns.put(ExpenseSegment.Column.RECURRING_FREQUENCY, strings(rows,
+                row -> row.recurringFrequency() != null ? row.recurringFrequency().name() : null));
+        columns.put(ExpenseSegment.Column.CREATED_AT, timestamps(rows, ArchivedExpense::createdAt));
+        columns.put(ExpenseSegment.Column.UPDATED_AT, timestamps(rows, ArchivedExpense::updatedAt));
+
+        Map<ExpenseSegment.Column, byte[]> compressed = new EnumMap<>(ExpenseSegment.Column.class);
+        columns.forEach((column, raw) -> compressed.put(column, deflate(raw)));
+        int headerLength = 4 + 1 + 4 + 4 + 4 + 1 + 8 + 8 + 4 + 8 * categoryIds.size()
+                + 1 + columns.size() * (1 + 4 * 4);
+        int length = headerLength;
+        for (byte[] block : compressed.values()) {
+            length += block.length;
+        }
+
+        ByteBuffer file = ByteBuffer.allocate(length);
+        file.putInt(ExpenseSegment.MAGIC);
+        file.put((byte) ExpenseSegment.VERSION);
+        file.putInt(rows.size());
+        file.putInt(Math.toIntExact(rows.get(0).expenseDate().toEpochDay()));
+        file.putInt(Math.toIntExact(rows.get(rows.size() - 1).expenseDate().toEpochDay()));
+        file.put((byte) scale);
+        file.putLong(total);
+        file.putLong(maxChangeSeq);
+        file.putInt(categoryIds.size());
+        categoryIds.forEach(file::putLong);
+        file.put((byte) compressed.size());
+        int offset = headerLength;
+        for (Map.Entry<ExpenseSegment.Column, byte[]> entry : compressed.entrySet()) {
+            CRC32 crc = new CRC32();
+            crc.update(entry.getValue());
+            file.put((byte) entry.getKey().ordinal());
+            file.putInt(offset);
+            file.putInt(entry.getValue().length);
+            file.putInt(columns.get(entry.getKey()).length);
+            file.putInt((int) crc.getValue());
+            offset += entry.getValue().length;
+        }
+        compressed.values().forEach(file::put);
+        file.flip();
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (file.hasRemaining()) {
+                channel.write(file);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static byte[] deltas(List<ArchivedExpense> rows, ToLongFunction<ArchivedExpense> value) {
+        ColumnCodec.Output output = new ColumnCodec.Output();
+        long previous = 0;
+        for (ArchivedExpense row : rows) {
+            long current = value.applyAsLong(row);
+            output.writeSignedVarLong(current - previous);
+            previous = current;
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] strings(List<ArchivedExpense> rows, Function<ArchivedExpense, String> value) {
+        ColumnCodec.Output output = new ColumnCodec.Output();
+        for (ArchivedExpense row : rows) {
+            output.writeString(value.apply(row));
+        }
+        return output.toByteArray();
+    }
+
+    // Microseconds since the epoch in UTC as zigzag deltas shifted by one, so 0 can mark a null
+    private static byte[] timestamps(List<ArchivedExpense> rows, Function<ArchivedExpense, LocalDateTime> value) {
+        ColumnCodec.Output output = new ColumnCodec.Output();
+        long previous = 0;
+        for (ArchivedExpense row : rows) {
+            LocalDateTime timestamp = value.apply(row);
+            if (timestamp == null) {
+                output.writeVarLong(0);
+                continue;
+            }
+            long micros = Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+                    timestamp.getNano() / 1000);
+            long delta = micros - previous;
+            output.writeVarLong(((delta << 1) ^ (delta >> 63)) + 1);
+            previous = micros;
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.testingapp.async;
+
+import com.example.testingapp.sharding.ShardContext;
+import com.example.testingapp.tracing.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor that isolates one class of work (a bulkhead) from the request pool.
+ * <p>
+ * Tasks are queued per key, normally the username, and workers take one task per key in
+ * round-robin order. A user with a hundred queued reports therefore waits behind other
+ * users' single requests instead of in front of them. Submissions beyond the total or
+ * per-key queue limit fail fast with {@link RejectedExecutionException}, as do tasks still
+ * queued at shutdown.
+ */
+public class FairBulkheadExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(FairBulkheadExecutor.class);
+
+    private final String name;
+    private final int threads;
+    private final int maxQueued;
+    private final int maxQueuedPerKey;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<String, ArrayDeque<Task>> queues = new HashMap<>();
+    private final ArrayDeque<String> readyKeys = new ArrayDeque<>();
+    private int queued;
+    private boolean shutdown;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Thread[] workers;
+
+    public FairBulkheadExecutor(String name, int threads, int maxQueued, int maxQueuedPerKey) {
+        this.name = name;
+        this.threads = threads;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerKey = maxQueuedPerKey;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::runWorker, name + "-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Supplier<T> traced = RequestTrace.propagate(ShardContext.propagate(task));
+        Runnable work = () -> {
+            try {
+                future.complete(traced.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+
+        lock.lock();
+        try {
+            ArrayDeque<Task> queue = queues.get(key);
+            int keyDepth = queue == null ? 0 : queue.size();
+            if (shutdown || queued >= maxQueued || keyDepth >= maxQueuedPerKey) {
+                rejected.incrementAndGet();
+                future.completeExceptionally(new RejectedExecutionException(
+                        "The " + name + " bulkhead is at capacity, please retry shortly"));
+                return future;
+            }
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(key, queue);
+                readyKeys.addLast(key);
+            }
+            queue.addLast(new Task(work, future));
+            queued++;
+            submitted.incrementAndGet();
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    private void runWorker() {
+        while (true) {
+            Runnable work;
+            lock.lock();
+            try {
+                while (readyKeys.isEmpty() && !shutdown) {
+                    workAvailable.awaitUninterruptibly();
+                }
+                if (shutdown) {
+                    return;
+                }
+                String key = readyKeys.pollFirst();
+                ArrayDeque<Task> queue = queues.get(key);
+                work = queue.pollFirst().work();
+                if (queue.isEmpty()) {
+                    queues.remove(key);
+                } else {
+                    // Back of the line: every other waiting key gets a turn first
+                    readyKeys.addLast(key);
+                }
+                queued--;
+            } finally {
+                lock.unlock();
+            }
+
+            active.incrementAndGet();
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure in {} bulkhead", name, e);
+            } finally {
+                active.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        }
+    }
+
+    // Running tasks finish; queued ones are dropped and their futures fail, so no caller waits forever
+    public void shutdown() {
+        List<Task> dropped = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            queues.values().forEach(dropped::addAll);
+            queues.clear();
+            readyKeys.clear();
+            queued = 0;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        rejected.addAndGet(dropped.size());
+        for (Task task : dropped) {
+            task.future().completeExceptionally(new RejectedExecutionException("The " + name + " bulkhead was shut down"));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    private record Task(Runnable work, CompletableFuture<?> future) {
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("name", name);
+            stats.put("threads", threads);
+            stats.put("active", active.get());
+            stats.put("queueDepth", queued);
+            stats.put("maxQueued", maxQueued);
+            stats.put("maxQueuedPerUser", maxQueuedPerKey);
+            stats.put("queuedUsers", queues.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("submitted", submitted.get());
+        stats.put("completed", completed.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
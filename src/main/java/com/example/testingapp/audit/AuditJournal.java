@@ -0,0 +1,511 @@
+package com.example.testingapp.audit;
+
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit trail of expense writes, including bulk writes as per-user ranges, kept in fixed-size, memory-mapped segment files
+ * named after the journal position they start at, {@code <dir>/<position>.journal}.
+ * <p>
+ * Appending encodes an {@link AuditRecord} straight into the mapped current segment under a
+ * short lock, so it costs a memory copy rather than a database round trip. When a record no
+ * longer fits, the segment is forced to disk and a new one is mapped. Durability follows
+ * {@code audit.journal.fsync}:
+ * <ul>
+ *   <li>{@code none}: the OS writes dirty pages back whenever it likes; only rolling and
+ *       shutdown force them.</li>
+ *   <li>{@code interval}: a flusher thread forces new records every
+ *       {@code audit.journal.flush-interval-ms}, so a crash of the machine loses at most that
+ *       much; a crash of the process alone loses nothing.</li>
+ *   <li>{@code always}: the writing thread waits until its record is on disk. Writers that
+ *       arrive while a force is running are committed together by the next one.</li>
+ * </ul>
+ * Every record is CRC-protected. At startup the segments are scanned, a torn record at the
+ * end of the last one is ignored and appending continues in a fresh segment. Segments
+ * whose newest record is older than {@code audit.journal.retention-days} are deleted. Only
+ * one journal may use a directory at a time; a second one fails at startup.
+ */
+@Component
+public class AuditJournal {
+
+    public enum FsyncPolicy {
+        NONE, INTERVAL, ALWAYS
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AuditJournal.class);
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final int MAGIC = 0x41554A4C; // "AUJL"
+    private static final int VERSION = 1;
+    // Magic, version and the segment's start position, padded
+    private static final int SEGMENT_HEADER_LENGTH = 16;
+    private static final long MIN_SEGMENT_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long flushIntervalMs;
+    private final int retentionDays;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32C writeCrc = new CRC32C();
+    private final FileLock directoryLock;
+    private final Thread flusher;
+
+    // Guarded by lock
+    private Segment current;
+    private long flushedPosition;
+    private long lastTimestamp;
+    private boolean closed;
+
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder appendNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+
+    @Autowired
+    public AuditJournal(@Value("${audit.journal.dir:data/audit-journal}") String dir,
+                        @Value("${audit.journal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${audit.journal.fsync:interval}") FsyncPolicy fsyncPolicy,
+                        @Value("${audit.journal.flush-interval-ms:200}") long flushIntervalMs,
+                        @Value("${audit.journal.retention-days:90}") int retentionDays) {
+        if (segmentSize.toBytes() < MIN_SEGMENT_SIZE || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("audit.journal.segment-size must be between 64KB and 2GB");
+        }
+        this.root = Paths.get(dir);
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.fsyncPolicy = fsyncPolicy;
+        this.flushIntervalMs = flushIntervalMs;
+        this.retentionDays = retentionDays;
+        try {
+            Files.createDirectories(root);
+            this.directoryLock = lockDirectory();
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit journal " + root, e);
+        }
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            this.flusher = new Thread(this::flushLoop, "audit-journal-flush");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    // Journals a committed expense write; never fails the write itself
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        try {
+            append(event);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Could not journal {} of expense {}: {}", event.getType(), event.getExpenseId(), e.getMessage());
+        }
+    }
+
+    // Journals a committed chunk of a bulk write as one range record per user; never fails the write itself
+    @EventListener
+    public void onExpenseRangesWritten(ExpenseRangesWrittenEvent event) {
+        for (ExpenseRangesWrittenEvent.Range range : event.getRanges()) {
+            try {
+                append(event.getOperation(), range);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Could not journal {} of {} expenses of user {}: {}", event.getOperation(),
+                        range.count(), range.userId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends a record of the write and returns its end position in the journal. With the
+     * {@code always} policy, returns once the record is on disk.
+     */
+    public long append(ExpenseChangedEvent event) {
+        return append(event.getType().ordinal(), event.getUserId(), event.getExpenseId(), event.getChangeSeq(),
+                AuditRecord.encodeBody(event));
+    }
+
+    // Appends a range record of a bulk write, as append(ExpenseChangedEvent) does for one expense
+    public long append(ExpenseRangesWrittenEvent.Operation operation, ExpenseRangesWrittenEvent.Range range) {
+        return append(operation.getType().ordinal() | AuditRecord.RANGE_FLAG, range.userId(),
+                range.firstExpenseId(), range.firstChangeSeq(), AuditRecord.encodeRange(operation, range));
+    }
+
+    private long append(int type, long userId, long expenseId, long changeSeq, byte[] body) {
+        long started = System.nanoTime();
+        int length = AuditRecord.FIXED_LENGTH + body.length;
+        long position;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Audit journal is closed");
+            }
+            if (current.end + length > current.capacity) {
+                roll();
+            }
+            Segment segment = current;
+            // Never behind the previous record, so replay can stop at the first record past its range
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+            lastTimestamp = timestamp;
+            AuditRecord.write(segment.buffer, segment.end, type, userId, expenseId, changeSeq, timestamp, body, writeCrc);
+            segment.appended(length, timestamp);
+            position = segment.base + segment.end;
+            writtenPosition = position;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                flushRequested.signal();
+                while (flushedPosition < position && !closed) {
+                    flushed.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        appended.increment();
+        appendNanos.add(System.nanoTime() - started);
+        return position;
+    }
+
+    /**
+     * Replays the user's records with a timestamp in [from, to), oldest first, up to limit.
+     * Segments outside the range are skipped without being read.
+     */
+    public List<AuditRecord> replay(long userId, Instant from, Instant to, int limit) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        List<AuditRecord> records = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        for (Segment segment : segments.values()) {
+            if (records.size() >= limit) {
+                break;
+            }
+            int end = segment.end;
+            if (end == SEGMENT_HEADER_LENGTH || segment.lastTimestamp < fromMillis || segment.firstTimestamp >= toMillis) {
+                continue;
+            }
+            ByteBuffer buffer = segment.buffer.duplicate();
+            int offset = SEGMENT_HEADER_LENGTH;
+            while (offset < end && records.size() < limit) {
+                int length = AuditRecord.validLength(buffer, offset, end, crc);
+                if (length <= 0) {
+                    log.warn("Audit journal segment {} is corrupt at offset {}; skipping the rest", segment.path, offset);
+                    break;
+                }
+                long timestamp = AuditRecord.timestampAt(buffer, offset);
+                if (timestamp >= toMillis) {
+                    return records;
+                }
+                if (timestamp >= fromMillis && AuditRecord.userIdAt(buffer, offset) == userId) {
+                    records.add(AuditRecord.read(buffer, offset));
+                }
+                offset += length;
+            }
+        }
+        return records;
+    }
+
+    // Delete whole segments whose newest record is past the retention period
+    @Scheduled(fixedDelayString = "${audit.journal.retention-check-interval-ms:3600000}")
+    public void purgeExpired() {
+        purgeBefore(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+    }
+
+    public Map<String, Object> getStats() {
+        long records = appended.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dir", root.toAbsolutePath().toString());
+        stats.put("fsync", fsyncPolicy);
+        stats.put("segments", segments.size());
+        stats.put("records", segments.values().stream().mapToLong(segment -> segment.records).sum());
+        stats.put("bytes", segments.values().stream().mapToLong(segment -> segment.end).sum());
+        stats.put("appended", records);
+        stats.put("averageAppendMicros", records == 0 ? 0 : appendNanos.sum() / records / 1000.0);
+        stats.put("failedAppends", failures.sum());
+        stats.put("forces", forces.sum());
+        stats.put("unflushedBytes", writtenPosition - durablePosition);
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        current.buffer.force();
+        durablePosition = writtenPosition;
+        try {
+            directoryLock.channel().close();
+        } catch (IOException e) {
+            log.warn("Could not unlock audit journal {}: {}", root, e.getMessage());
+        }
+    }
+
+    void purgeBefore(Instant cutoff) {
+        long cutoffMillis = cutoff.toEpochMilli();
+        for (Segment segment : segments.values()) {
+            if (segment == current || segment.lastTimestamp >= cutoffMillis) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+                segments.remove(segment.base);
+                log.info("Deleted audit journal segment {} past retention", segment.path);
+            } catch (IOException e) {
+                log.warn("Could not delete audit journal segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    private FileLock lockDirectory() throws IOException {
+        FileChannel channel = FileChannel.open(root.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock directoryLock;
+        try {
+            directoryLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            directoryLock = null;
+        }
+        if (directoryLock == null) {
+            channel.close();
+            throw new IllegalStateException("Audit journal " + root + " is in use by another instance");
+        }
+        return directoryLock;
+    }
+
+    private void open() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(root)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        boolean torn = false;
+        for (Path file : files) {
+            Segment segment = scan(file);
+            segments.put(segment.base, segment);
+            torn = segment.torn;
+        }
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last == null) {
+            current = create(0);
+        } else if (torn || last.getValue().capacity != segmentSize) {
+            // A torn tail stays as it is for inspection; writing starts after it
+            current = create(last.getKey() + last.getValue().capacity);
+        } else {
+            current = reopen(last.getValue());
+        }
+        lastTimestamp = segments.values().stream().mapToLong(segment -> segment.lastTimestamp).max().orElse(0);
+        writtenPosition = current.base + current.end;
+        durablePosition = writtenPosition;
+        flushedPosition = writtenPosition;
+        if (!files.isEmpty()) {
+            log.info("Audit journal {} opened with {} segments, appending at position {}",
+                    root, segments.size(), writtenPosition);
+        }
+    }
+
+    private Segment scan(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < SEGMENT_HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+            throw new IOException("Not an audit journal segment: " + file);
+        }
+        Segment segment = new Segment(file, buffer.getLong(8), buffer);
+        CRC32C crc = new CRC32C();
+        int length;
+        while ((length = AuditRecord.validLength(buffer, segment.end, buffer.capacity(), crc)) > 0) {
+            segment.appended(length, AuditRecord.timestampAt(buffer, segment.end));
+        }
+        if (length < 0) {
+            segment.torn = true;
+            log.warn("Audit journal segment {} ends in a torn record at offset {}; it is ignored", file, segment.end);
+        }
+        return segment;
+    }
+
+    private Segment create(long base) throws IOException {
+        Path file = root.resolve(String.format("%020d", base) + SEGMENT_SUFFIX);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.put(4, (byte) VERSION);
+        buffer.putLong(8, base);
+        Segment segment = new Segment(file, base, buffer);
+        segments.put(base, segment);
+        return segment;
+    }
+
+    private Segment reopen(Segment sealed) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(sealed.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        Segment segment = new Segment(sealed.path, sealed.base, buffer);
+        segment.end = sealed.end;
+        segment.records = sealed.records;
+        segment.firstTimestamp = sealed.firstTimestamp;
+        segment.lastTimestamp = sealed.lastTimestamp;
+        segments.put(segment.base, segment);
+        return segment;
+    }
+
+    // Called with the lock held; the full segment is on disk before the next one takes writes
+    private void roll() {
+        Segment full = current;
+        full.buffer.force();
+        forces.increment();
+        try {
+            current = create(full.base + full.capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create audit journal segment", e);
+        }
+        long position = full.base + full.end;
+        flushedPosition = Math.max(flushedPosition, position);
+        durablePosition = Math.max(durablePosition, position);
+        flushed.signalAll();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Segment segment;
+            long target;
+            int from;
+            lock.lock();
+            try {
+                try {
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                        while (writtenPosition == flushedPosition && !closed) {
+                            flushRequested.await();
+                        }
+                    } else if (!closed) {
+                        flushRequested.await(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+                segment = current;
+                target = writtenPosition;
+                from = (int) Math.max(flushedPosition - segment.base, 0);
+            } finally {
+                lock.unlock();
+            }
+            if (target > flushedPosition) {
+                flush(segment, from, target);
+            }
+        }
+    }
+
+    // Forces outside the lock, so writers keep appending and join the next force
+    private void flush(Segment segment, int from, long target) {
+        boolean forced = false;
+        try {
+            segment.buffer.force(from, (int) (target - segment.base) - from);
+            forces.increment();
+            forced = true;
+        } catch (RuntimeException e) {
+            log.warn("Could not force audit journal segment {}: {}", segment.path, e.getMessage());
+        }
+        lock.lock();
+        try {
+            if (forced) {
+                durablePosition = Math.max(durablePosition, target);
+            }
+            // Waiters are released even when the force failed; the journal is best effort beyond that
+            flushedPosition = Math.max(flushedPosition, target);
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Segment {
+
+        final Path path;
+        final long base;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        volatile int end = SEGMENT_HEADER_LENGTH;
+        volatile long records;
+        volatile long firstTimestamp = Long.MAX_VALUE;
+        volatile long lastTimestamp = Long.MIN_VALUE;
+        boolean torn;
+
+        Segment(Path path, long base, MappedByteBuffer buffer) {
+            this.path = path;
+            this.base = base;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        // Called by the only writer
+        void appended(int length, long timestamp) {
+            if (records == 0) {
+                firstTimestamp = timestamp;
+            }
+            lastTimestamp = timestamp;
+            records++;
+            end += length;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.testingapp.audit;
+
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * One expense write as recorded in the {@link AuditJournal}: who changed which expense,
+ * when, at which change sequence, and the expense as it was written. Description, amount,
+ * date and category are null for deletions.
+ * <p>
+ * A bulk write is recorded as one range record per user and committed chunk instead: the
+ * expense id and change sequence are the lowest of the range, and {@link #range()} holds
+ * the operation, the highest ones and the number of expenses. It is null for single writes.
+ * <p>
+ * Binary layout, big-endian:
+ * <pre>
+ *  0 int   record length, header included
+ *  4 int   CRC32C of every byte after this field
+ *  8 byte  type (ExpenseChangedEvent.Type ordinal), with 0x80 set for a range record
+ *  9 long  timestamp, epoch millis
+ * 17 long  user id
+ * 25 long  expense id
+ * 33 long  change sequence
+ * -- creates and updates only:
+ * 41 long  category id
+ * 49 int   expense date, epoch day
+ * 53 byte  amount scale
+ * 54 long  amount, unscaled
+ * 62 short description length, unsigned, then its UTF-8 bytes
+ * -- range records only:
+ * 41 byte  operation (ExpenseRangesWrittenEvent.Operation ordinal)
+ * 42 long  last expense id
+ * 50 long  last change sequence
+ * 58 int   expense count
+ * </pre>
+ */
+public record AuditRecord(Instant timestamp,
+                          ExpenseChangedEvent.Type type,
+                          long userId,
+                          long expenseId,
+                          long changeSeq,
+                          String description,
+                          BigDecimal amount,
+                          LocalDate expenseDate,
+                          Long categoryId,
+                          Range range) {
+
+    public record Range(ExpenseRangesWrittenEvent.Operation operation,
+                        long lastExpenseId,
+                        long lastChangeSeq,
+                        int count) {
+    }
+
+    static final int HEADER_LENGTH = 8;
+    static final int FIXED_LENGTH = 41;
+    static final int EXPENSE_LENGTH = 64;
+    static final int RANGE_LENGTH = 62;
+    static final int RANGE_FLAG = 0x80;
+    // Descriptions are at most 255 characters; longer ones are cut so a record always fits a segment
+    static final int MAX_DESCRIPTION_BYTES = 4096;
+
+    // Encodes the part after the timestamp once, outside the journal lock
+    static byte[] encodeBody(ExpenseChangedEvent event) {
+        ExpenseResponse expense = event.getExpense();
+        if (expense == null) {
+            return new byte[0];
+        }
+        byte[] description = expense.getDescription().getBytes(StandardCharsets.UTF_8);
+        int descriptionLength = Math.min(description.length, MAX_DESCRIPTION_BYTES);
+        BigDecimal amount = expense.getAmount();
+        ByteBuffer body = ByteBuffer.allocate(EXPENSE_LENGTH - FIXED_LENGTH + descriptionLength);
+        body.putLong(expense.getCategory() != null ? expense.getCategory().getId() : 0);
+        body.putInt((int) expense.getExpenseDate().toEpochDay());
+        body.put((byte) amount.scale());
+        body.putLong(amount.unscaledValue().longValueExact());
+        body.putShort((short) descriptionLength);
+        body.put(description, 0, descriptionLength);
+        return body.array();
+    }
+
+    static byte[] encodeRange(ExpenseRangesWrittenEvent.Operation operation, ExpenseRangesWrittenEvent.Range range) {
+        ByteBuffer body = ByteBuffer.allocate(RANGE_LENGTH - FIXED_LENGTH);
+        body.put((byte) operation.ordinal());
+        body.putLong(range.lastExpenseId());
+        body.putLong(range.lastChangeSeq());
+        body.putInt(range.count());
+        return body.array();
+    }
+
+    // Writes a whole record at offset and returns its length; type is the byte at offset 8
+    static int write(ByteBuffer target, int offset, int type, long userId, long expenseId, long changeSeq,
+                     long timestampMillis, byte[] body, CRC32C crc) {
+        int length = FIXED_LENGTH + body.length;
+        target.put(offset + 8, (byte) type);
+        target.putLong(offset + 9, timestampMillis);
+        target.putLong(offset + 17, userId);
+        target.putLong(offset + 25, expenseId);
+        target.putLong(offset + 33, changeSeq);
+        target.put(offset + FIXED_LENGTH, body);
+        crc.reset();
+        crc.update(target.slice(offset + HEADER_LENGTH, length - HEADER_LENGTH));
+        target.putInt(offset + 4, (int) crc.getValue());
+        target.putInt(offset, length);
+        return length;
+    }
+
+    // Length of a valid record at offset, 0 at the end of the written part, or -1 for a torn record
+    static int validLength(ByteBuffer source, int offset, int limit, CRC32C crc) {
+        if (offset + HEADER_LENGTH > limit) {
+            return 0;
+        }
+        int length = source.getInt(offset);
+        if (length == 0) {
+            return 0;
+        }
+        if (length < FIXED_LENGTH || length > limit - offset) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(source.slice(offset + HEADER_LENGTH, length - HEADER_LENGTH));
+        return (int) crc.getValue() == source.getInt(offset + 4) ? length : -1;
+    }
+
+    static long timestampAt(ByteBuffer source, int offset) {
+        return source.getLong(offset + 9);
+    }
+
+    static long userIdAt(ByteBuffer source, int offset) {
+        return source.getLong(offset + 17);
+    }
+
+    static AuditRecord read(ByteBuffer source, int offset) {
+        int length = source.getInt(offset);
+        int typeByte = source.get(offset + 8) & 0xFF;
+        ExpenseChangedEvent.Type type = ExpenseChangedEvent.Type.values()[typeByte & ~RANGE_FLAG];
+        Instant timestamp = Instant.ofEpochMilli(timestampAt(source, offset));
+        long userId = userIdAt(source, offset);
+        long expenseId = source.getLong(offset + 25);
+        long changeSeq = source.getLong(offset + 33);
+        if ((typeByte & RANGE_FLAG) != 0) {
+            Range range = new Range(ExpenseRangesWrittenEvent.Operation.values()[source.get(offset + 41)],
+                    source.getLong(offset + 42), source.getLong(offset + 50), source.getInt(offset + 58));
+            return new AuditRecord(timestamp, type, userId, expenseId, changeSeq, null, null, null, null, range);
+        }
+        if (length == FIXED_LENGTH) {
+            return new AuditRecord(timestamp, type, userId, expenseId, changeSeq, null, null, null, null, null);
+        }
+        long categoryId = source.getLong(offset + 41);
+        LocalDate expenseDate = LocalDate.ofEpochDay(source.getInt(offset + 49));
+        BigDecimal amount = BigDecimal.valueOf(source.getLong(offset + 54), source.get(offset + 53));
+        byte[] description = new byte[source.getShort(offset + 62) & 0xFFFF];
+        source.get(offset + EXPENSE_LENGTH, description);
+        return new AuditRecord(timestamp, type, userId, expenseId, changeSeq,
+                new String(description, StandardCharsets.UTF_8), amount, expenseDate, categoryId, null);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.testingapp.config;
+
+import com.example.testingapp.async.FairBulkheadExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AsyncConfig {
+
+    // Runs analytics-class endpoints off the Tomcat request pool, fairly across users
+    @Bean(destroyMethod = "shutdown")
+    public FairBulkheadExecutor analyticsExecutor(
+            @Value("${analytics.executor.threads:4}") int threads,
+            @Value("${analytics.executor.max-queued:200}") int maxQueued,
+            @Value("${analytics.executor.max-queued-per-user:10}") int maxQueuedPerUser) {
+        return new FairBulkheadExecutor("analytics", threads, maxQueued, maxQueuedPerUser);
+    }
+
+    // Runs statement import chunks, one per task, fairly across users; threads cap the connections imports hold
+    @Bean(destroyMethod = "shutdown")
+    public FairBulkheadExecutor importExecutor(
+            @Value("${expense.import.executor.threads:2}") int threads,
+            @Value("${expense.import.max-running:20}") int maxRunning,
+            @Value("${expense.import.max-running-per-user:2}") int maxRunningPerUser) {
+        // Each running import has at most one chunk queued, so these limits are never hit between chunks
+        return new FairBulkheadExecutor("import", threads, maxRunning, maxRunningPerUser);
+    }
+
+    // Generates expense report artefacts; a few threads so long reports never crowd out the analytics endpoints
+    @Bean(destroyMethod = "shutdown")
+    public FairBulkheadExecutor reportExecutor(
+            @Value("${report.executor.threads:2}") int threads,
+            @Value("${report.executor.max-queued:100}") int maxQueued,
+            @Value("${report.executor.max-queued-per-user:5}") int maxQueuedPerUser) {
+        return new FairBulkheadExecutor("report", threads, maxQueued, maxQueuedPerUser);
+    }
+}
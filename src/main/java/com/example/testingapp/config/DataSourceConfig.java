@@ -0,0 +1,104 @@
+package com.example.testingapp.config;
+
+import com.example.testingapp.tracing.SqlDiagnosticsListener;
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Declares the connection pools explicitly. The primary pool serves JPA and CRUD traffic;
+ * the analytics pool is a separate, smaller pool for long aggregate queries so they cannot
+ * exhaust the connections that expense writes need. Both use the spring.datasource
+ * connection settings and are tuned independently through their hikari prefixes.
+ * <p>
+ * When any datasource-proxy listener bean exists (SQL diagnostics, request tracing), both
+ * pools are wrapped in a single proxy that feeds every listener; otherwise they are used as is.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(@Qualifier("dataSource") DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    @ConfigurationProperties("analytics.datasource.hikari")
+    public HikariDataSource analyticsDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("analytics-pool");
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcTemplate analyticsJdbcTemplate(@Qualifier("analyticsDataSource") DataSource analyticsDataSource) {
+        return new JdbcTemplate(analyticsDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sql.diagnostics.enabled", havingValue = "true", matchIfMissing = true)
+    public SqlDiagnosticsListener sqlDiagnosticsListener(
+            @Value("${sql.diagnostics.slow-query-ms:200}") long slowQueryMs,
+            @Value("${sql.diagnostics.sample-rate:0.001}") double sampleRate,
+            @Value("${sql.diagnostics.max-fingerprints:500}") int maxFingerprints) {
+        return new SqlDiagnosticsListener(slowQueryMs, sampleRate, maxFingerprints);
+    }
+
+    // Static so the post-processor is registered before the data sources are created
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(
+            ObjectProvider<QueryExecutionListener> queryListeners,
+            ObjectProvider<MethodExecutionListener> methodListeners) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                List<QueryExecutionListener> queries = queryListeners.orderedStream().toList();
+                List<MethodExecutionListener> methods = methodListeners.orderedStream().toList();
+                if (queries.isEmpty() && methods.isEmpty()) {
+                    return bean;
+                }
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource).name(beanName);
+                queries.forEach(builder::listener);
+                if (!methods.isEmpty()) {
+                    // Result sets are only proxied for listeners that count rows
+                    builder.proxyResultSet();
+                    methods.forEach(builder::methodListener);
+                }
+                return builder.build();
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.testingapp.config;
+
+import com.example.testingapp.jfr.RepositoryEventPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Custom Java Flight Recorder events. All of them are disabled by default and are switched
+ * on by a recording settings file such as jfr/testingapp.jfc.
+ */
+@Configuration
+public class JfrConfig {
+
+    // Static so it does not force early initialisation of this configuration class
+    @Bean
+    public static RepositoryEventPostProcessor repositoryEventPostProcessor() {
+        return new RepositoryEventPostProcessor();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.testingapp.config;
+
+import com.example.testingapp.async.FairBulkheadExecutor;
+import com.example.testingapp.metrics.RepositoryStatementMetricsPostProcessor;
+import com.example.testingapp.metrics.StatementCountingInspector;
+import com.example.testingapp.service.ExpenseStreamService;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    // Backs @Timed on beans that are not Spring Data repositories (e.g. AnalyticsRepository)
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+
+    // Static so it does not force early initialisation of this configuration class
+    @Bean
+    public static RepositoryStatementMetricsPostProcessor repositoryStatementMetricsPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryStatementMetricsPostProcessor(meterRegistry);
+    }
+
+    // Saturation of the in-process pools that are not Hikari or Tomcat (those are bound by Boot)
+    @Bean
+    public MeterBinder bulkheadMetrics(List<FairBulkheadExecutor> bulkheads) {
+        return registry -> bulkheads.forEach(bulkhead -> {
+            String name = bulkhead.getName();
+            Gauge.builder("bulkhead.queued", bulkhead, FairBulkheadExecutor::getQueueDepth)
+                    .description("Tasks waiting for a bulkhead worker")
+                    .tag("name", name)
+                    .register(registry);
+            Gauge.builder("bulkhead.active", bulkhead, FairBulkheadExecutor::getActiveCount)
+                    .description("Tasks currently running on a bulkhead")
+                    .tag("name", name)
+                    .register(registry);
+            FunctionCounter.builder("bulkhead.rejected", bulkhead, FairBulkheadExecutor::getRejectedCount)
+                    .description("Tasks turned away because the bulkhead was full")
+                    .tag("name", name)
+                    .register(registry);
+            FunctionCounter.builder("bulkhead.completed", bulkhead, FairBulkheadExecutor::getCompletedCount)
+                    .description("Tasks finished by a bulkhead")
+                    .tag("name", name)
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder expenseStreamMetrics(ExpenseStreamService expenseStreamService) {
+        return registry -> Gauge.builder("expense.stream.connections", expenseStreamService,
+                        ExpenseStreamService::getConnectionCount)
+                .description("Open expense SSE connections")
+                .register(registry);
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.testingapp.config;
 
 import com.example.testingapp.security.JwtAuthenticationFilter;
+import com.example.testingapp.security.OffloadingPasswordEncoder;
+import com.example.testingapp.security.TimedPasswordEncoder;
 import com.example.testingapp.service.AppUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -28,9 +33,27 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Enabled by the virtual-threads profile so BCrypt does not monopolise carrier threads
+    @Value("${auth.password-hashing.offload:false}")
+    private boolean offloadPasswordHashing;
+
+    @Value("${auth.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Timed inside the offload pool so the metric is hashing time, not queueing
+        PasswordEncoder bcrypt = new TimedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
+        if (!offloadPasswordHashing) {
+            return bcrypt;
+        }
+        int threads = passwordHashingThreads > 0
+                ? passwordHashingThreads
+                : Runtime.getRuntime().availableProcessors();
+        return new OffloadingPasswordEncoder(bcrypt, threads);
     }
 
     @Bean
@@ -51,9 +74,15 @@ public class SecurityConfig {
         http.csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                // Async dispatches (SSE streams) were authorised on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // Public endpoints - allow all
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/health").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // Metrics name users and endpoints, so the Prometheus scrape needs an admin token too
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/h2-console/**").permitAll()
 
                 // Static resources - allow all
@@ -0,0 +1,113 @@
+package com.example.testingapp.config;
+
+import com.example.testingapp.sharding.HibernateMetadataCapture;
+import com.example.testingapp.sharding.ShardDataSources;
+import com.example.testingapp.sharding.ShardRouter;
+import com.example.testingapp.sharding.ShardRoutingFilter;
+import com.example.testingapp.sharding.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Expense sharding (see {@link ShardRouter}). With {@code sharding.enabled=false}, the
+ * default, only the properties, an empty {@link ShardDataSources} and the metadata capture
+ * exist, and the data sources are left alone.
+ * <p>
+ * When enabled, the {@code dataSource} and {@code analyticsDataSource} pools become the
+ * primary targets of routing data sources, so JPA, the JdbcTemplates and datasource-proxy
+ * listeners all keep working unchanged and follow the shard bound to the thread.
+ */
+@Configuration
+public class ShardingConfig {
+
+    @Bean
+    @ConfigurationProperties("sharding")
+    public ShardingProperties shardingProperties() {
+        return new ShardingProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(ShardingProperties properties, Environment environment) {
+        return new ShardDataSources(properties, Binder.get(environment));
+    }
+
+    @Bean
+    public HibernateMetadataCapture hibernateMetadataCapture() {
+        return new HibernateMetadataCapture();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer metadataCaptureCustomizer(HibernateMetadataCapture metadataCapture) {
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(metadataCapture));
+    }
+
+    // Right behind Spring Security, so the authenticated user is known
+    @Bean
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    public FilterRegistrationBean<ShardRoutingFilter> shardRoutingFilter(ShardRouter router) {
+        FilterRegistrationBean<ShardRoutingFilter> registration = new FilterRegistrationBean<>(
+                new ShardRoutingFilter(router));
+        registration.addUrlPatterns("/api/expenses", "/api/expenses/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    // Static so the post-processor is registered before the data sources are created; the declared
+    // type has to expose PriorityOrdered, which Spring checks before instantiating post-processors
+    @Bean
+    public static ShardRoutingPostProcessor shardRoutingPostProcessor(ObjectProvider<ShardDataSources> shardDataSources) {
+        return new ShardRoutingPostProcessor(shardDataSources);
+    }
+
+    // Runs ahead of DataSourceConfig's proxy post-processor, so one proxy wraps the whole router
+    public static class ShardRoutingPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        private final ObjectProvider<ShardDataSources> shardDataSources;
+
+        ShardRoutingPostProcessor(ObjectProvider<ShardDataSources> shardDataSources) {
+            this.shardDataSources = shardDataSources;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof HikariDataSource pool)) {
+                return bean;
+            }
+            if (beanName.equals("dataSource")) {
+                ShardDataSources shards = shardDataSources.getObject();
+                if (shards.isEnabled()) {
+                    shards.preparePrimary(pool);
+                    return shards.route(pool);
+                }
+            } else if (beanName.equals("analyticsDataSource")) {
+                ShardDataSources shards = shardDataSources.getObject();
+                if (shards.isEnabled()) {
+                    return shards.routeAnalytics(pool);
+                }
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.testingapp.config;
+
+import com.example.testingapp.tracing.RequestTracingFilter;
+import com.example.testingapp.tracing.TimedJackson2HttpMessageConverter;
+import com.example.testingapp.tracing.TracingQueryListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per-request phase timing (see {@link RequestTracingFilter}). Nothing here is created
+ * unless {@code tracing.enabled=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracing.enabled", havingValue = "true")
+public class TracingConfig {
+
+    // Ahead of Spring Security so the JWT filter's time falls inside the trace
+    @Bean
+    public FilterRegistrationBean<RequestTracingFilter> requestTracingFilter(
+            ObjectMapper objectMapper,
+            @Value("${tracing.server-timing.enabled:false}") boolean serverTiming,
+            @Value("${tracing.sample-rate:0.01}") double sampleRate,
+            @Value("${tracing.slow-request-ms:1000}") long slowRequestMs) {
+        FilterRegistrationBean<RequestTracingFilter> registration = new FilterRegistrationBean<>(
+                new RequestTracingFilter(objectMapper, serverTiming, sampleRate, slowRequestMs));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Replaces Boot's default Jackson converter
+    @Bean
+    public TimedJackson2HttpMessageConverter timedJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedJackson2HttpMessageConverter(objectMapper);
+    }
+
+    // Attached to the data sources by DataSourceConfig's proxy post-processor
+    @Bean
+    public TracingQueryListener tracingQueryListener() {
+        return new TracingQueryListener();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.audit.AuditJournal;
+import com.example.testingapp.audit.AuditRecord;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.repository.AppUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin/audit")
+public class AuditController {
+    
+    private static final int MAX_RECORDS = 10_000;
+    
+    private final AuditJournal auditJournal;
+    private final AppUserRepository userRepository;
+    
+    @Autowired
+    public AuditController(AuditJournal auditJournal, AppUserRepository userRepository) {
+        this.auditJournal = auditJournal;
+        this.userRepository = userRepository;
+    }
+    
+    // Get journal size, fsync policy and append latency (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getJournal() {
+        return ResponseEntity.ok(auditJournal.getStats());
+    }
+    
+    // Replay a user's expense writes in [from, to), oldest first; the last day by default (Admin only)
+    @GetMapping("/records")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getRecords(
+            @RequestParam String username,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        Optional<AppUser> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "User not found: " + username));
+        }
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(1, ChronoUnit.DAYS);
+        if (!start.isBefore(end) || limit < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "from must be before to and limit positive"));
+        }
+        List<AuditRecord> records = auditJournal.replay(user.get().getId(), start, end, Math.min(limit, MAX_RECORDS));
+        return ResponseEntity.ok(records);
+    }
+}
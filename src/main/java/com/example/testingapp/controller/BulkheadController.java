@@ -0,0 +1,45 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.async.FairBulkheadExecutor;
+import com.example.testingapp.service.ExpenseIngestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/admin/bulkheads")
+public class BulkheadController {
+    
+    private final List<FairBulkheadExecutor> bulkheads;
+    private final ExpenseIngestService expenseIngestService;
+    
+    @Autowired
+    public BulkheadController(List<FairBulkheadExecutor> bulkheads, ExpenseIngestService expenseIngestService) {
+        this.bulkheads = bulkheads;
+        this.expenseIngestService = expenseIngestService;
+    }
+    
+    // Get queue depth, activity and rejection counts for each bulkhead (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getBulkheadStats() {
+        List<Map<String, Object>> stats = bulkheads.stream()
+                .map(FairBulkheadExecutor::getStats)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(stats);
+    }
+    
+    // Get batch and queue statistics of the write-behind expense ingest queue (Admin only)
+    @GetMapping("/ingest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        return ResponseEntity.ok(expenseIngestService.getStats());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.archive.ExpenseArchiver;
+import com.example.testingapp.dto.ExpenseArchiveRun;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/expense-archive")
+public class ExpenseArchiveController {
+    
+    private final ExpenseArchive expenseArchive;
+    private final ExpenseArchiver expenseArchiver;
+    
+    @Autowired
+    public ExpenseArchiveController(ExpenseArchive expenseArchive, ExpenseArchiver expenseArchiver) {
+        this.expenseArchive = expenseArchive;
+        this.expenseArchiver = expenseArchiver;
+    }
+    
+    // Get archive size, the current cutoff and the last archive run (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getArchive() {
+        Map<String, Object> body = new LinkedHashMap<>(expenseArchive.getStats());
+        body.put("cutoff", expenseArchiver.cutoff(LocalDate.now()));
+        body.put("lastRun", expenseArchiver.getLastRun().orElse(null));
+        return ResponseEntity.ok(body);
+    }
+    
+    // Archive expenses older than the cutoff in the background (Admin only)
+    @PostMapping("/runs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ExpenseArchiveRun> startRun() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(expenseArchiver.start());
+    }
+}
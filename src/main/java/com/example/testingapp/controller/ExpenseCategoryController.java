@@ -1,7 +1,10 @@
 package com.example.testingapp.controller;
 
+import com.example.testingapp.dto.CategoryDeletionJob;
 import com.example.testingapp.dto.ExpenseCategoryRequest;
 import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.service.CategoryDeletionService;
+import com.example.testingapp.service.CategoryUsageService;
 import com.example.testingapp.service.ExpenseCategoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,16 +15,23 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/expense-categories")
 public class ExpenseCategoryController {
     
     private final ExpenseCategoryService categoryService;
+    private final CategoryUsageService categoryUsageService;
+    private final CategoryDeletionService categoryDeletionService;
     
     @Autowired
-    public ExpenseCategoryController(ExpenseCategoryService categoryService) {
+    public ExpenseCategoryController(ExpenseCategoryService categoryService,
+                                     CategoryUsageService categoryUsageService,
+                                     CategoryDeletionService categoryDeletionService) {
         this.categoryService = categoryService;
+        this.categoryUsageService = categoryUsageService;
+        this.categoryDeletionService = categoryDeletionService;
     }
     
     // Create a new category (Admin only)
@@ -92,18 +102,42 @@ public class ExpenseCategoryController {
         }
     }
     
-    // Delete category (Admin only)
+    // Delete category (Admin only). With reassignTo its expenses are moved to that category first,
+    // otherwise they are deleted; either way by a background job, and 202 points at its progress
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteCategory(@PathVariable Long id) {
-        if (categoryService.deleteCategory(id)) {
-            return ResponseEntity.ok().body(Map.of("message", "Category deleted successfully"));
-        } else {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Category not found with id: " + id));
+    public ResponseEntity<?> deleteCategory(@PathVariable Long id,
+                                            @RequestParam(required = false) Long reassignTo) {
+        try {
+            Optional<CategoryDeletionJob> job = reassignTo != null
+                    ? categoryDeletionService.startReassignment(id, reassignTo)
+                    : categoryDeletionService.startDeletion(id);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Category not found with id: " + id));
+            }
+            if (job.get().getStatus() == CategoryDeletionJob.Status.COMPLETED) {
+                return ResponseEntity.ok().body(Map.of("message", "Category deleted successfully"));
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Location", "/api/expense-categories/deletions/" + job.get().getId())
+                    .body(job.get());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         }
     }
     
+    // Get progress of a background category deletion (Admin only)
+    @GetMapping("/deletions/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getDeletionJob(@PathVariable String jobId) {
+        return categoryDeletionService.getJob(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok().body(job))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Deletion job not found with id: " + jobId)));
+    }
+    
     // Deactivate category (Admin only)
     @PatchMapping("/{id}/deactivate")
     @PreAuthorize("hasRole('ADMIN')")
@@ -135,10 +169,9 @@ public class ExpenseCategoryController {
         return ResponseEntity.ok(Map.of("exists", exists));
     }
     
-    // Get categories ordered by usage
+    // Get categories ordered by usage (in-memory counters, no query)
     @GetMapping("/popular")
     public ResponseEntity<List<ExpenseCategoryResponse>> getPopularCategories() {
-        List<ExpenseCategoryResponse> categories = categoryService.getCategoriesOrderedByUsage();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok(categoryUsageService.getCategoriesOrderedByUsage());
     }
 }
@@ -1,34 +1,67 @@
 package com.example.testingapp.controller;
 
+import com.example.testingapp.dto.ExpenseChangesResponse;
+import com.example.testingapp.dto.ExpenseFields;
+import com.example.testingapp.dto.ExpenseImportJob;
 import com.example.testingapp.dto.ExpenseRequest;
 import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.importer.StatementFormat;
+import com.example.testingapp.service.AnalyticsService;
+import com.example.testingapp.service.ExpenseImportService;
+import com.example.testingapp.service.ExpenseIngestService;
 import com.example.testingapp.service.ExpenseService;
+import com.example.testingapp.service.ExpenseStreamService;
+import com.example.testingapp.service.ExpenseSyncService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/expenses")
 public class ExpenseController {
     
     private final ExpenseService expenseService;
+    private final ExpenseSyncService expenseSyncService;
+    private final ExpenseStreamService expenseStreamService;
+    private final AnalyticsService analyticsService;
+    private final ExpenseImportService expenseImportService;
+    private final ExpenseIngestService expenseIngestService;
     
     @Autowired
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService,
+                             ExpenseSyncService expenseSyncService,
+                             ExpenseStreamService expenseStreamService,
+                             AnalyticsService analyticsService,
+                             ExpenseImportService expenseImportService,
+                             ExpenseIngestService expenseIngestService) {
         this.expenseService = expenseService;
+        this.expenseSyncService = expenseSyncService;
+        this.expenseStreamService = expenseStreamService;
+        this.analyticsService = analyticsService;
+        this.expenseImportService = expenseImportService;
+        this.expenseIngestService = expenseIngestService;
     }
     
     private String getCurrentUsername() {
@@ -36,35 +69,104 @@ public class ExpenseController {
         return authentication.getName();
     }
     
-    // Create a new expense
+    // Create a new expense; answered once it has committed, which may be as part of a batch
     @PostMapping
-    public ResponseEntity<?> createExpense(@Valid @RequestBody ExpenseRequest request) {
+    public CompletableFuture<ResponseEntity<?>> createExpense(@Valid @RequestBody ExpenseRequest request) {
+        CompletableFuture<ExpenseResponse> created;
         try {
-            ExpenseResponse expense = expenseService.createExpense(request, getCurrentUsername());
-            return ResponseEntity.status(HttpStatus.CREATED).body(expense);
+            created = expenseIngestService.createExpense(request, getCurrentUsername());
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", e.getMessage()));
+            created = CompletableFuture.failedFuture(e);
         }
+        return created.handle((expense, failure) -> {
+            if (failure == null) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(expense);
+            }
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            if (cause instanceof RejectedExecutionException rejected) {
+                throw rejected;
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", String.valueOf(cause.getMessage())));
+        });
     }
     
     // Get all expenses for current user
     @GetMapping
-    public ResponseEntity<List<ExpenseResponse>> getAllExpenses() {
+    public ResponseEntity<?> getAllExpenses(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(expenseService.getAllExpensesForUser(
+                    getCurrentUsername(), ExpenseFields.parse(fields)));
+        }
         List<ExpenseResponse> expenses = expenseService.getAllExpensesForUser(getCurrentUsername());
         return ResponseEntity.ok(expenses);
     }
     
     // Get expenses with pagination
     @GetMapping("/paginated")
-    public ResponseEntity<Page<ExpenseResponse>> getExpensesPaginated(
+    public ResponseEntity<?> getExpensesPaginated(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields) {
         Pageable pageable = PageRequest.of(page, size);
+        if (fields != null) {
+            return ResponseEntity.ok(expenseService.getExpensesForUser(
+                    getCurrentUsername(), pageable, ExpenseFields.parse(fields)));
+        }
         Page<ExpenseResponse> expenses = expenseService.getExpensesForUser(getCurrentUsername(), pageable);
         return ResponseEntity.ok(expenses);
     }
     
+    // Get expenses created, updated or deleted since a change cursor (delta sync)
+    @GetMapping("/changes")
+    public ResponseEntity<ExpenseChangesResponse> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        ExpenseChangesResponse changes = expenseSyncService.getChanges(getCurrentUsername(), since, limit);
+        return ResponseEntity.ok(changes);
+    }
+    
+    // Stream expense changes and totals as server-sent events
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamExpenses() {
+        return expenseStreamService.subscribe(getCurrentUsername());
+    }
+    
+    // Import expenses from a bank statement (CSV or OFX) body as a background job; 202 points at its progress
+    @PostMapping("/import")
+    public ResponseEntity<ExpenseImportJob> importExpenses(
+            InputStream body,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long defaultCategoryId,
+            @RequestParam(defaultValue = "OTHER") Expense.PaymentMethod paymentMethod,
+            @RequestParam(defaultValue = "yyyy-MM-dd") String dateFormat) throws IOException {
+        ExpenseImportJob job = expenseImportService.startImport(getCurrentUsername(), body,
+                StatementFormat.parse(format), defaultCategoryId, paymentMethod, dateFormat);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/expenses/import/" + job.getId())
+                .body(job);
+    }
+    
+    // Get progress of one of the current user's statement imports
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<?> getImportJob(@PathVariable String jobId) {
+        return expenseImportService.getJob(jobId, getCurrentUsername())
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok().body(job))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Import job not found with id: " + jobId)));
+    }
+    
+    // Cancel a statement import after its current chunk; expenses already inserted stay
+    @DeleteMapping("/import/{jobId}")
+    public ResponseEntity<?> cancelImport(@PathVariable String jobId) {
+        return expenseImportService.cancel(jobId, getCurrentUsername())
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok().body(job))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Import job not found with id: " + jobId)));
+    }
+    
     // Get expense by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getExpenseById(@PathVariable Long id) {
@@ -76,9 +178,14 @@ public class ExpenseController {
     
     // Get expenses by date range
     @GetMapping("/date-range")
-    public ResponseEntity<List<ExpenseResponse>> getExpensesByDateRange(
+    public ResponseEntity<?> getExpensesByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(expenseService.getExpensesByDateRange(
+                    getCurrentUsername(), startDate, endDate, ExpenseFields.parse(fields)));
+        }
         List<ExpenseResponse> expenses = expenseService.getExpensesByDateRange(
                 getCurrentUsername(), startDate, endDate);
         return ResponseEntity.ok(expenses);
@@ -86,8 +193,13 @@ public class ExpenseController {
     
     // Get expenses by category
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<?> getExpensesByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<?> getExpensesByCategory(@PathVariable Long categoryId,
+                                                   @RequestParam(required = false) String fields) {
         try {
+            if (fields != null) {
+                return ResponseEntity.ok(expenseService.getExpensesByCategory(
+                        getCurrentUsername(), categoryId, ExpenseFields.parse(fields)));
+            }
             List<ExpenseResponse> expenses = expenseService.getExpensesByCategory(
                     getCurrentUsername(), categoryId);
             return ResponseEntity.ok(expenses);
@@ -99,7 +211,12 @@ public class ExpenseController {
     
     // Search expenses by description
     @GetMapping("/search")
-    public ResponseEntity<List<ExpenseResponse>> searchExpenses(@RequestParam String description) {
+    public ResponseEntity<?> searchExpenses(@RequestParam String description,
+                                            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(expenseService.searchExpenses(
+                    getCurrentUsername(), description, ExpenseFields.parse(fields)));
+        }
         List<ExpenseResponse> expenses = expenseService.searchExpenses(getCurrentUsername(), description);
         return ResponseEntity.ok(expenses);
     }
@@ -130,26 +247,43 @@ public class ExpenseController {
         }
     }
     
-    // Get total expenses
+    // Get total expenses (analytics bulkhead)
     @GetMapping("/total")
-    public ResponseEntity<Map<String, BigDecimal>> getTotalExpenses() {
-        BigDecimal total = expenseService.getTotalExpenses(getCurrentUsername());
-        return ResponseEntity.ok(Map.of("total", total));
+    public CompletableFuture<ResponseEntity<Map<String, BigDecimal>>> getTotalExpenses() {
+        return analyticsService.getTotalExpenses(getCurrentUsername())
+                .thenApply(total -> ResponseEntity.ok(Map.of("total", total)));
     }
     
-    // Get total expenses by date range
+    // Get total expenses by date range (analytics bulkhead)
     @GetMapping("/total/date-range")
-    public ResponseEntity<Map<String, BigDecimal>> getTotalExpensesByDateRange(
+    public CompletableFuture<ResponseEntity<Map<String, BigDecimal>>> getTotalExpensesByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        BigDecimal total = expenseService.getTotalExpensesByDateRange(
-                getCurrentUsername(), startDate, endDate);
-        return ResponseEntity.ok(Map.of("total", total));
+        return analyticsService.getTotalExpensesByDateRange(getCurrentUsername(), startDate, endDate)
+                .thenApply(total -> ResponseEntity.ok(Map.of("total", total)));
+    }
+    
+    // Get monthly totals (analytics bulkhead)
+    @GetMapping("/summary/monthly")
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> getMonthlySummary() {
+        return analyticsService.getMonthlyExpenses(getCurrentUsername())
+                .thenApply(ResponseEntity::ok);
+    }
+    
+    // Get totals by category (analytics bulkhead)
+    @GetMapping("/summary/by-category")
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> getCategorySummary() {
+        return analyticsService.getExpensesByCategory(getCurrentUsername())
+                .thenApply(ResponseEntity::ok);
     }
     
     // Get recent expenses
     @GetMapping("/recent")
-    public ResponseEntity<List<ExpenseResponse>> getRecentExpenses() {
+    public ResponseEntity<?> getRecentExpenses(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(expenseService.getRecentExpenses(
+                    getCurrentUsername(), ExpenseFields.parse(fields)));
+        }
         List<ExpenseResponse> expenses = expenseService.getRecentExpenses(getCurrentUsername());
         return ResponseEntity.ok(expenses);
     }
@@ -163,7 +297,11 @@ public class ExpenseController {
     
     // Get recurring expenses
     @GetMapping("/recurring")
-    public ResponseEntity<List<ExpenseResponse>> getRecurringExpenses() {
+    public ResponseEntity<?> getRecurringExpenses(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(expenseService.getRecurringExpenses(
+                    getCurrentUsername(), ExpenseFields.parse(fields)));
+        }
         List<ExpenseResponse> expenses = expenseService.getRecurringExpenses(getCurrentUsername());
         return ResponseEntity.ok(expenses);
     }
@@ -0,0 +1,83 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.dto.ReportFormat;
+import com.example.testingapp.dto.ReportJob;
+import com.example.testingapp.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/expenses/reports")
+public class ReportController {
+    
+    private final ReportService reportService;
+    
+    @Autowired
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+    
+    private String getCurrentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getName();
+    }
+    
+    // Submit a report by month, category and payment method; 200 if an identical one is cached, else 202
+    @PostMapping
+    public ResponseEntity<ReportJob> submitReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "json") String format) {
+        ReportJob job = reportService.submit(getCurrentUsername(), startDate, endDate, ReportFormat.parse(format));
+        HttpStatus status = job.getStatus() == ReportJob.Status.COMPLETED ? HttpStatus.OK : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.LOCATION, "/api/expenses/reports/" + job.getId())
+                .body(job);
+    }
+    
+    // Get the status of a report
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getReport(@PathVariable String jobId) {
+        return reportService.getJob(jobId, getCurrentUsername())
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok().body(job))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Report not found with id: " + jobId)));
+    }
+    
+    // Download a completed report; 409 while it is still being generated
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<?> downloadReport(@PathVariable String jobId) {
+        String username = getCurrentUsername();
+        Optional<ReportJob> job = reportService.getJob(jobId, username);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Report not found with id: " + jobId));
+        }
+        Optional<Path> artefact = reportService.getArtefact(jobId, username);
+        if (artefact.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Report is " + job.get().getStatus() + ", not ready for download"));
+        }
+        ReportJob report = job.get();
+        String filename = "expenses-" + report.getStartDate() + "-to-" + report.getEndDate()
+                + "." + report.getFormat().getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(report.getFormat().getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body((Resource) new FileSystemResource(artefact.get()));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.dto.ShardMoveJob;
+import com.example.testingapp.repository.AnalyticsRepository;
+import com.example.testingapp.sharding.ShardMoveService;
+import com.example.testingapp.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+public class ShardController {
+    
+    private final ShardRouter shardRouter;
+    private final ShardMoveService shardMoveService;
+    private final AnalyticsRepository analyticsRepository;
+    
+    @Autowired
+    public ShardController(ShardRouter shardRouter,
+                           ShardMoveService shardMoveService,
+                           AnalyticsRepository analyticsRepository) {
+        this.shardRouter = shardRouter;
+        this.shardMoveService = shardMoveService;
+        this.analyticsRepository = analyticsRepository;
+    }
+    
+    // Get expense and user counts per shard, queried on all shards in parallel (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getShards() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", shardRouter.isEnabled());
+        body.put("primary", shardRouter.getPrimary());
+        body.put("shards", shardRouter.onEachShard(analyticsRepository::getExpenseTableStats));
+        body.put("pinnedUsers", shardRouter.getPinned().size());
+        return ResponseEntity.ok(body);
+    }
+    
+    // Move a user's expenses to another shard in the background (Admin only)
+    @PostMapping("/moves")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startMove(@RequestParam String username, @RequestParam String target) {
+        try {
+            ShardMoveJob job = shardMoveService.startMove(username, target);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Location", "/api/admin/shards/moves/" + job.getId())
+                    .body(job);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Get the progress of a move (Admin only)
+    @GetMapping("/moves/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getMove(@PathVariable String jobId) {
+        return shardMoveService.getJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Move not found: " + jobId)));
+    }
+}
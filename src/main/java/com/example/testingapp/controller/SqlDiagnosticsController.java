@@ -0,0 +1,55 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.tracing.SqlDiagnosticsListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/sql-stats")
+public class SqlDiagnosticsController {
+    
+    private final ObjectProvider<SqlDiagnosticsListener> sqlDiagnostics;
+    
+    @Autowired
+    public SqlDiagnosticsController(ObjectProvider<SqlDiagnosticsListener> sqlDiagnostics) {
+        this.sqlDiagnostics = sqlDiagnostics;
+    }
+    
+    // Get per-fingerprint statement count, total, mean and max time, most expensive first (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getSqlStats(@RequestParam(defaultValue = "50") int limit) {
+        SqlDiagnosticsListener diagnostics = sqlDiagnostics.getIfAvailable();
+        if (diagnostics == null) {
+            return disabled();
+        }
+        return ResponseEntity.ok(diagnostics.getSummary(Math.max(0, Math.min(limit, 1000))));
+    }
+    
+    // Reset the aggregates, e.g. before a load test (Admin only)
+    @DeleteMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> resetSqlStats() {
+        SqlDiagnosticsListener diagnostics = sqlDiagnostics.getIfAvailable();
+        if (diagnostics == null) {
+            return disabled();
+        }
+        diagnostics.reset();
+        return ResponseEntity.ok(Map.of("message", "SQL statistics reset"));
+    }
+    
+    private ResponseEntity<?> disabled() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "SQL diagnostics are disabled (sql.diagnostics.enabled=false)"));
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.testingapp.controller;
 
 import com.example.testingapp.dto.UserCreateRequest;
+import com.example.testingapp.dto.UserExportFormat;
+import com.example.testingapp.dto.UserImportJob;
+import com.example.testingapp.dto.UserPageResponse;
 import com.example.testingapp.dto.UserResponse;
+import com.example.testingapp.dto.UserSort;
 import com.example.testingapp.dto.UserUpdateRequest;
+import com.example.testingapp.service.UserImportService;
 import com.example.testingapp.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -17,11 +31,15 @@ import java.util.Map;
 @RequestMapping("/api/users")
 public class UserController {
     
+    private static final int MAX_AUTOCOMPLETE_LIMIT = 50;
+    
     private final UserService userService;
+    private final UserImportService userImportService;
     
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService) {
         this.userService = userService;
+        this.userImportService = userImportService;
     }
     
     // Create a new user
@@ -43,6 +61,73 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
     
+    // Get users one page at a time (keyset cursor); pass nextCursor back as cursor
+    @GetMapping("/paginated")
+    public ResponseEntity<UserPageResponse> getUsersPaginated(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        UserPageResponse page = userService.getUsersPage(
+                UserSort.parse(sort), Sort.Direction.fromString(direction), cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+    
+    // Export all users as NDJSON or CSV, streamed from a database cursor (Admin only)
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format) {
+        UserExportFormat exportFormat = UserExportFormat.parse(format);
+        StreamingResponseBody body = out -> userService.exportUsers(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+    
+    // Import users from a CSV body as a background job; 202 points at its progress (Admin only)
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserImportJob> importUsers(InputStream body) throws IOException {
+        UserImportJob job = userImportService.startImport(body);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/users/import/" + job.getId())
+                .body(job);
+    }
+    
+    // Get progress of a user import (Admin only)
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getImportJob(@PathVariable String jobId) {
+        return userImportService.getJob(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok().body(job))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Import job not found with id: " + jobId)));
+    }
+    
+    // Download the per-row result report of a user import as CSV (Admin only)
+    @GetMapping("/import/{jobId}/report")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getImportReport(@PathVariable String jobId) {
+        return userImportService.getReport(jobId)
+                .<ResponseEntity<?>>map(report -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"user-import-" + jobId + ".csv\"")
+                        .body((Resource) new FileSystemResource(report)))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Import job not found with id: " + jobId)));
+    }
+    
+    // Cancel a user import after its current chunk; rows already inserted stay (Admin only)
+    @DeleteMapping("/import/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> cancelImport(@PathVariable String jobId) {
+        return userImportService.cancel(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok().body(job))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Import job not found with id: " + jobId)));
+    }
+    
     // Get user by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
@@ -68,6 +153,14 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
     
+    // Suggest users by name or email as the query is typed; best matches first
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<UserResponse>> autocompleteUsers(@RequestParam String q,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        List<UserResponse> users = userService.autocompleteUsers(q, Math.min(limit, MAX_AUTOCOMPLETE_LIMIT));
+        return ResponseEntity.ok(users);
+    }
+    
     // Update user
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable Long id,
@@ -0,0 +1,98 @@
+package com.example.testingapp.dto;
+
+import java.time.LocalDateTime;
+
+// Progress of a background category deletion, whose expenses are either deleted or moved to the target
+// category first; updated by CategoryDeletionService while it runs
+public class CategoryDeletionJob {
+    
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id;
+    private final Long categoryId;
+    private final Long targetCategoryId;
+    private final long totalExpenses;
+    private final LocalDateTime startedAt;
+    private volatile long deletedExpenses;
+    private volatile long reassignedExpenses;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public CategoryDeletionJob(String id, Long categoryId, Long targetCategoryId, long totalExpenses) {
+        this.id = id;
+        this.categoryId = categoryId;
+        this.targetCategoryId = targetCategoryId;
+        this.totalExpenses = totalExpenses;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    public void addDeleted(int count) {
+        deletedExpenses += count; // Single writer: the deletion thread
+    }
+    
+    public void addReassigned(int count) {
+        reassignedExpenses += count;
+    }
+    
+    public void complete() {
+        status = Status.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    public void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    // Null when the expenses are deleted with the category
+    public Long getTargetCategoryId() {
+        return targetCategoryId;
+    }
+    
+    public long getTotalExpenses() {
+        return totalExpenses;
+    }
+    
+    public long getDeletedExpenses() {
+        return deletedExpenses;
+    }
+    
+    public long getReassignedExpenses() {
+        return reassignedExpenses;
+    }
+    
+    // Capped, since expenses added to the category after the job started are processed too
+    public int getPercentComplete() {
+        long processed = deletedExpenses + reassignedExpenses;
+        return totalExpenses == 0 ? 100 : (int) Math.min(100, processed * 100 / totalExpenses);
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
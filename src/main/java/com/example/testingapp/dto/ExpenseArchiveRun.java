@@ -0,0 +1,106 @@
+package com.example.testingapp.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Progress of a run of the expense archiver; updated by ExpenseArchiver while it runs
+public class ExpenseArchiveRun {
+    
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id;
+    private final LocalDate cutoff;
+    private final LocalDateTime startedAt;
+    private volatile int totalUsers;
+    private volatile int processedUsers;
+    private volatile int skippedUsers;
+    private volatile long archivedExpenses;
+    private volatile int segments;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public ExpenseArchiveRun(String id, LocalDate cutoff) {
+        this.id = id;
+        this.cutoff = cutoff;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    // Single writer for all counters: the archiver thread
+    public void setTotalUsers(int totalUsers) {
+        this.totalUsers = totalUsers;
+    }
+    
+    public void userProcessed() {
+        processedUsers++;
+    }
+    
+    public void userSkipped() {
+        skippedUsers++;
+    }
+    
+    public void segmentWritten(int expenses) {
+        segments++;
+        archivedExpenses += expenses;
+    }
+    
+    public void complete() {
+        status = Status.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    public void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    // Expenses dated before this day were archived
+    public LocalDate getCutoff() {
+        return cutoff;
+    }
+    
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+    
+    public int getProcessedUsers() {
+        return processedUsers;
+    }
+    
+    // Users left for the next run, e.g. because they were being moved between shards
+    public int getSkippedUsers() {
+        return skippedUsers;
+    }
+    
+    public long getArchivedExpenses() {
+        return archivedExpenses;
+    }
+    
+    public int getSegments() {
+        return segments;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.testingapp.dto;
+
+public class ExpenseChange {
+    
+    public enum Type {
+        UPSERT, DELETE
+    }
+    
+    private Type type;
+    private long changeSeq;
+    private Long expenseId;
+    private ExpenseResponse expense; // Only set for UPSERT
+    
+    // Constructors
+    public ExpenseChange() {}
+    
+    public ExpenseChange(Type type, long changeSeq, Long expenseId, ExpenseResponse expense) {
+        this.type = type;
+        this.changeSeq = changeSeq;
+        this.expenseId = expenseId;
+        this.expense = expense;
+    }
+    
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+    
+    public void setType(Type type) {
+        this.type = type;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+    
+    public ExpenseResponse getExpense() {
+        return expense;
+    }
+    
+    public void setExpense(ExpenseResponse expense) {
+        this.expense = expense;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.testingapp.dto;
+
+import java.util.List;
+
+public class ExpenseChangesResponse {
+    
+    private long cursor; // Pass back as "since" on the next call
+    private boolean hasMore;
+    private boolean resetRequired; // Cursor predates retained tombstones; resync from 0
+    private List<ExpenseChange> changes;
+    
+    // Constructors
+    public ExpenseChangesResponse() {}
+    
+    public ExpenseChangesResponse(long cursor, boolean hasMore, boolean resetRequired,
+                                  List<ExpenseChange> changes) {
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.resetRequired = resetRequired;
+        this.changes = changes;
+    }
+    
+    // Getters and Setters
+    public long getCursor() {
+        return cursor;
+    }
+    
+    public void setCursor(long cursor) {
+        this.cursor = cursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+    
+    public boolean isResetRequired() {
+        return resetRequired;
+    }
+    
+    public void setResetRequired(boolean resetRequired) {
+        this.resetRequired = resetRequired;
+    }
+    
+    public List<ExpenseChange> getChanges() {
+        return changes;
+    }
+    
+    public void setChanges(List<ExpenseChange> changes) {
+        this.changes = changes;
+    }
+}
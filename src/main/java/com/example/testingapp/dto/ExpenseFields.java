@@ -0,0 +1,91 @@
+package com.example.testingapp.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whitelisted sparse fieldset for expense list endpoints ({@code ?fields=id,amount,...}).
+ * Each public field name maps to the JPQL path that is selected for it, so only the
+ * requested columns are read and serialised.
+ */
+public final class ExpenseFields {
+
+    // Public field name -> JPQL path on the Expense alias "e"
+    private static final Map<String, String> ALLOWED = new LinkedHashMap<>();
+
+    static {
+        ALLOWED.put("id", "e.id");
+        ALLOWED.put("description", "e.description");
+        ALLOWED.put("amount", "e.amount");
+        ALLOWED.put("expenseDate", "e.expenseDate");
+        ALLOWED.put("categoryId", "e.category.id");
+        ALLOWED.put("notes", "e.notes");
+        ALLOWED.put("paymentMethod", "e.paymentMethod");
+        ALLOWED.put("recurring", "e.isRecurring");
+        ALLOWED.put("recurringFrequency", "e.recurringFrequency");
+        ALLOWED.put("createdAt", "e.createdAt");
+        ALLOWED.put("updatedAt", "e.updatedAt");
+    }
+
+    private final List<String> names;
+
+    private ExpenseFields(List<String> names) {
+        this.names = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Parses a comma separated field list. The id is always included so clients can
+     * correlate rows. Unknown fields are rejected rather than silently ignored.
+     */
+    public static ExpenseFields parse(String fields) {
+        Set<String> requested = new LinkedHashSet<>();
+        requested.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ALLOWED.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name
+                        + ". Allowed fields: " + String.join(",", ALLOWED.keySet()));
+            }
+            requested.add(name);
+        }
+        return new ExpenseFields(new ArrayList<>(requested));
+    }
+
+    public static Set<String> allowedFields() {
+        return Collections.unmodifiableSet(ALLOWED.keySet());
+    }
+
+    // The same fieldset with one more allowed field, e.g. one needed to merge rows
+    public ExpenseFields including(String name) {
+        if (!ALLOWED.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown field: " + name);
+        }
+        if (names.contains(name)) {
+            return this;
+        }
+        List<String> extended = new ArrayList<>(names);
+        extended.add(name);
+        return new ExpenseFields(extended);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    // Builds the JPQL select list, aliasing each path with its public field name
+    public String toSelectClause() {
+        List<String> columns = new ArrayList<>(names.size());
+        for (String name : names) {
+            columns.add(ALLOWED.get(name) + " AS " + name);
+        }
+        return String.join(", ", columns);
+    }
+}
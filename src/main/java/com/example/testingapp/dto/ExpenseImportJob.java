@@ -0,0 +1,130 @@
+package com.example.testingapp.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Progress of a background bank statement import; updated by ExpenseImportService while it runs
+public class ExpenseImportJob {
+    
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+    
+    // Only the first errors are kept, so a file of bad lines cannot grow the job without bound
+    public static final int MAX_ERRORS = 20;
+    
+    private final String id;
+    private final String format;
+    private final LocalDateTime startedAt;
+    // Single writer: whichever import worker runs the job's current chunk
+    private volatile long linesRead;
+    private volatile long created;
+    private volatile long duplicates;
+    private volatile long credits;
+    private volatile long invalid;
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelRequested;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public ExpenseImportJob(String id, String format) {
+        this.id = id;
+        this.format = format;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    public void addLinesRead(int count) {
+        linesRead += count;
+    }
+    
+    public void addCreated(int count) {
+        created += count;
+    }
+    
+    public void addDuplicates(int count) {
+        duplicates += count;
+    }
+    
+    public void addCredits(int count) {
+        credits += count;
+    }
+    
+    public void addInvalid(long line, String message) {
+        invalid++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Line " + line + ": " + message);
+        }
+    }
+    
+    // Honoured between chunks; expenses already inserted stay
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+    
+    public void complete() {
+        status = cancelRequested ? Status.CANCELLED : Status.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    public void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public String getFormat() {
+        return format;
+    }
+    
+    public long getLinesRead() {
+        return linesRead;
+    }
+    
+    public long getCreated() {
+        return created;
+    }
+    
+    public long getDuplicates() {
+        return duplicates;
+    }
+    
+    // Money coming in; a statement's credits are not expenses and are skipped
+    public long getCredits() {
+        return credits;
+    }
+    
+    public long getInvalid() {
+        return invalid;
+    }
+    
+    public List<String> getErrors() {
+        return errors;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
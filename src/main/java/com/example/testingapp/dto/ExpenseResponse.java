@@ -23,11 +23,16 @@ public class ExpenseResponse {
     public ExpenseResponse() {}
     
     public ExpenseResponse(Expense expense) {
+        this(expense, new ExpenseCategoryResponse(expense.getCategory()));
+    }
+    
+    // Takes the category response separately so callers can pass a shared instance
+    public ExpenseResponse(Expense expense, ExpenseCategoryResponse category) {
         this.id = expense.getId();
         this.description = expense.getDescription();
         this.amount = expense.getAmount();
         this.expenseDate = expense.getExpenseDate();
-        this.category = new ExpenseCategoryResponse(expense.getCategory());
+        this.category = category;
         this.notes = expense.getNotes();
         this.paymentMethod = expense.getPaymentMethod();
         this.isRecurring = expense.isRecurring();
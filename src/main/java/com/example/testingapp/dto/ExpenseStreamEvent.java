@@ -0,0 +1,66 @@
+package com.example.testingapp.dto;
+
+import com.example.testingapp.event.ExpenseChangedEvent;
+import java.math.BigDecimal;
+
+// Payload of an "expense" server-sent event
+public class ExpenseStreamEvent {
+    
+    private ExpenseChangedEvent.Type type;
+    private long changeSeq;
+    private Long expenseId;
+    private ExpenseResponse expense;
+    private BigDecimal total;
+    
+    // Constructors
+    public ExpenseStreamEvent() {}
+    
+    public ExpenseStreamEvent(ExpenseChangedEvent event, BigDecimal total) {
+        this.type = event.getType();
+        this.changeSeq = event.getChangeSeq();
+        this.expenseId = event.getExpenseId();
+        this.expense = event.getExpense();
+        this.total = total;
+    }
+    
+    // Getters and Setters
+    public ExpenseChangedEvent.Type getType() {
+        return type;
+    }
+    
+    public void setType(ExpenseChangedEvent.Type type) {
+        this.type = type;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+    
+    public ExpenseResponse getExpense() {
+        return expense;
+    }
+    
+    public void setExpense(ExpenseResponse expense) {
+        this.expense = expense;
+    }
+    
+    public BigDecimal getTotal() {
+        return total;
+    }
+    
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.testingapp.dto;
+
+// Artefact formats offered by expense report jobs ({@code ?format=json})
+public enum ReportFormat {
+
+    CSV("text/csv", "csv"),
+    JSON("application/json", "json");
+
+    private final String contentType;
+    private final String extension;
+
+    ReportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public static ReportFormat parse(String value) {
+        for (ReportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown report format: " + value + " (allowed: csv, json)");
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
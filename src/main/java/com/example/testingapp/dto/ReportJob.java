@@ -0,0 +1,77 @@
+package com.example.testingapp.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// State of a background expense report; shared by every identical request while it runs or stays cached
+public class ReportJob {
+    
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id;
+    private final ReportFormat format;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final LocalDateTime submittedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public ReportJob(String id, ReportFormat format, LocalDate startDate, LocalDate endDate) {
+        this.id = id;
+        this.format = format;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.submittedAt = LocalDateTime.now();
+    }
+    
+    public void start() {
+        status = Status.RUNNING;
+    }
+    
+    public void complete() {
+        status = Status.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    public void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public ReportFormat getFormat() {
+        return format;
+    }
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
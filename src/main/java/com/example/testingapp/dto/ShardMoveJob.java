@@ -0,0 +1,100 @@
+package com.example.testingapp.dto;
+
+import java.time.LocalDateTime;
+
+// Progress of moving one user's expenses to another shard; updated by ShardMoveService while it runs
+public class ShardMoveJob {
+    
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id;
+    private final Long userId;
+    private final String sourceShard;
+    private final String targetShard;
+    private final LocalDateTime startedAt;
+    private volatile long copiedExpenses;
+    private volatile long copiedTombstones;
+    private volatile boolean switched;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public ShardMoveJob(String id, Long userId, String sourceShard, String targetShard) {
+        this.id = id;
+        this.userId = userId;
+        this.sourceShard = sourceShard;
+        this.targetShard = targetShard;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    public void addCopiedExpenses(int count) {
+        copiedExpenses += count; // Single writer: the move thread
+    }
+    
+    public void addCopiedTombstones(int count) {
+        copiedTombstones += count;
+    }
+    
+    // Reads and writes go to the target shard from here on
+    public void switched() {
+        switched = true;
+    }
+    
+    public void complete() {
+        status = Status.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    public void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getSourceShard() {
+        return sourceShard;
+    }
+    
+    public String getTargetShard() {
+        return targetShard;
+    }
+    
+    public long getCopiedExpenses() {
+        return copiedExpenses;
+    }
+    
+    public long getCopiedTombstones() {
+        return copiedTombstones;
+    }
+    
+    public boolean isSwitched() {
+        return switched;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
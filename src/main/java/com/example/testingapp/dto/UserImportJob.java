@@ -0,0 +1,119 @@
+package com.example.testingapp.dto;
+
+import java.time.LocalDateTime;
+
+// Progress of a background user CSV import; updated by UserImportService while it runs
+public class UserImportJob {
+    
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+    
+    private final String id;
+    private final LocalDateTime startedAt;
+    // Single writer: the import thread
+    private volatile long rowsRead;
+    private volatile long created;
+    private volatile long duplicatesInFile;
+    private volatile long alreadyExisting;
+    private volatile long invalid;
+    private volatile long failed;
+    private volatile boolean cancelRequested;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public UserImportJob(String id) {
+        this.id = id;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    public void addRowsRead(int count) {
+        rowsRead += count;
+    }
+    
+    public void addCreated(int count) {
+        created += count;
+    }
+    
+    public void addDuplicatesInFile(int count) {
+        duplicatesInFile += count;
+    }
+    
+    public void addAlreadyExisting(int count) {
+        alreadyExisting += count;
+    }
+    
+    public void addInvalid(int count) {
+        invalid += count;
+    }
+    
+    public void addFailed(int count) {
+        failed += count;
+    }
+    
+    // Honoured between chunks; rows already inserted stay
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+    
+    public void complete() {
+        status = cancelRequested ? Status.CANCELLED : Status.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    public void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public long getRowsRead() {
+        return rowsRead;
+    }
+    
+    public long getCreated() {
+        return created;
+    }
+    
+    public long getDuplicatesInFile() {
+        return duplicatesInFile;
+    }
+    
+    public long getAlreadyExisting() {
+        return alreadyExisting;
+    }
+    
+    public long getInvalid() {
+        return invalid;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.testingapp.dto;
+
+import java.util.List;
+
+public class UserPageResponse {
+    
+    private List<UserResponse> users;
+    private String nextCursor; // Pass back as "cursor" for the next page; null on the last page
+    private boolean hasMore;
+    
+    // Constructors
+    public UserPageResponse() {}
+    
+    public UserPageResponse(List<UserResponse> users, String nextCursor, boolean hasMore) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+    
+    // Getters and Setters
+    public List<UserResponse> getUsers() {
+        return users;
+    }
+    
+    public void setUsers(List<UserResponse> users) {
+        this.users = users;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.testingapp.dto;
+
+import com.example.testingapp.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sort orders offered by the paginated user listing ({@code ?sort=lastName}). The id is
+ * always appended as a tie-breaker, so every row has a unique position a cursor can point at.
+ */
+public enum UserSort {
+
+    ID("id"),
+    FIRST_NAME("firstName"),
+    LAST_NAME("lastName"),
+    EMAIL("email"),
+    CREATED_AT("createdAt");
+
+    private final String property;
+
+    UserSort(String property) {
+        this.property = property;
+    }
+
+    public static UserSort parse(String value) {
+        for (UserSort sort : values()) {
+            if (sort.property.equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort field: " + value
+                + " (allowed: id, firstName, lastName, email, createdAt)");
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    // Value of this sort key on a user, as stored in a cursor
+    public String keyOf(User user) {
+        return switch (this) {
+            case ID -> String.valueOf(user.getId());
+            case FIRST_NAME -> user.getFirstName();
+            case LAST_NAME -> user.getLastName();
+            case EMAIL -> user.getEmail();
+            case CREATED_AT -> String.valueOf(user.getCreatedAt());
+        };
+    }
+
+    // Inverse of keyOf, typed for the query
+    public Object parseKey(String key) {
+        return switch (this) {
+            case ID -> Long.valueOf(key);
+            case CREATED_AT -> LocalDateTime.parse(key);
+            default -> key;
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.testingapp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Persisted expense count per category, kept up to date by CategoryUsageService
+@Entity
+@Table(name = "category_usage")
+public class CategoryUsage {
+    
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+    
+    @Column(name = "expense_count", nullable = false)
+    private Long expenseCount;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public CategoryUsage() {}
+    
+    public CategoryUsage(Long categoryId, Long expenseCount) {
+        this.categoryId = categoryId;
+        this.expenseCount = expenseCount;
+    }
+    
+    // Lifecycle callbacks
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public Long getExpenseCount() {
+        return expenseCount;
+    }
+    
+    public void setExpenseCount(Long expenseCount) {
+        this.expenseCount = expenseCount;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
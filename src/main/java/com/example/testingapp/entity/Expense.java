@@ -10,7 +10,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+    @Index(name = "idx_expenses_user_change_seq", columnList = "user_id, change_seq"),
+    @Index(name = "idx_expenses_user_date", columnList = "user_id, expense_date")
+})
 public class Expense {
     
     @Id
@@ -65,6 +68,10 @@ public class Expense {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Monotonic change cursor used by delta sync, assigned on every create and update
+    @Column(name = "change_seq")
+    private Long changeSeq;
+    
     // Enums
     public enum PaymentMethod {
         CASH, CREDIT_CARD, DEBIT_CARD, BANK_TRANSFER, DIGITAL_WALLET, CHECK, OTHER
@@ -202,4 +209,12 @@ public class Expense {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
 }
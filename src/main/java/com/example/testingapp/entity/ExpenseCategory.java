@@ -3,13 +3,21 @@ package com.example.testingapp.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Table(name = "expense_categories")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ExpenseCategory.CACHE_REGION)
 public class ExpenseCategory {
     
+    // Second-level cache regions, sized in application.conf
+    public static final String CACHE_REGION = "expense-categories";
+    public static final String QUERY_CACHE_REGION = "expense-category-queries";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,7 +46,8 @@ public class ExpenseCategory {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // Not cascaded: CategoryDeletionService moves or deletes a category's expenses in bulk
+    @OneToMany(mappedBy = "category", fetch = FetchType.LAZY)
     private List<Expense> expenses;
     
     // Constructors
@@ -0,0 +1,86 @@
+package com.example.testingapp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Marker left behind when an expense is deleted so sync clients can drop it
+@Entity
+@Table(name = "expense_tombstones", indexes = {
+    @Index(name = "idx_expense_tombstones_user_change_seq", columnList = "user_id, change_seq"),
+    @Index(name = "idx_expense_tombstones_change_seq", columnList = "change_seq")
+})
+public class ExpenseTombstone {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "expense_id", nullable = false)
+    private Long expenseId;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private AppUser user;
+    
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+    
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+    
+    // Constructors
+    public ExpenseTombstone() {}
+    
+    public ExpenseTombstone(Long expenseId, AppUser user, Long changeSeq) {
+        this.expenseId = expenseId;
+        this.user = user;
+        this.changeSeq = changeSeq;
+    }
+    
+    // Lifecycle callbacks
+    @PrePersist
+    protected void onCreate() {
+        deletedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+    
+    public AppUser getUser() {
+        return user;
+    }
+    
+    public void setUser(AppUser user) {
+        this.user = user;
+    }
+    
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+    
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
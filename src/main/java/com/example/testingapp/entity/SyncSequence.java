@@ -0,0 +1,53 @@
+package com.example.testingapp.entity;
+
+import jakarta.persistence.*;
+
+// Persistent high-water mark for a change sequence, allocated in blocks
+@Entity
+@Table(name = "sync_sequences")
+public class SyncSequence {
+    
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+    
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+    
+    // Highest change_seq whose tombstones have been purged; older cursors must resync
+    @Column(name = "purged_through", nullable = false)
+    private Long purgedThrough = 0L;
+    
+    // Constructors
+    public SyncSequence() {}
+    
+    public SyncSequence(String name, Long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+    
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public Long getNextValue() {
+        return nextValue;
+    }
+    
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+    
+    public Long getPurgedThrough() {
+        return purgedThrough;
+    }
+    
+    public void setPurgedThrough(Long purgedThrough) {
+        this.purgedThrough = purgedThrough;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.testingapp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Shard a user's expenses were moved to, overriding the hash ring; read from the primary shard only
+@Entity
+@Table(name = "user_shards")
+public class UserShard {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "shard", nullable = false, length = 50)
+    private String shard;
+    
+    @Column(name = "assigned_at", nullable = false)
+    private LocalDateTime assignedAt;
+    
+    // Constructors
+    public UserShard() {}
+    
+    public UserShard(Long userId, String shard) {
+        this.userId = userId;
+        this.shard = shard;
+    }
+    
+    // Lifecycle callbacks
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        assignedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public String getShard() {
+        return shard;
+    }
+    
+    public void setShard(String shard) {
+        this.shard = shard;
+    }
+    
+    public LocalDateTime getAssignedAt() {
+        return assignedAt;
+    }
+}
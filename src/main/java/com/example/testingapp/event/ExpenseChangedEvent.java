@@ -0,0 +1,52 @@
+package com.example.testingapp.event;
+
+import com.example.testingapp.dto.ExpenseResponse;
+
+// Published by ExpenseService, or ExpenseIngestService for batched creates, after an expense write has committed
+public class ExpenseChangedEvent {
+    
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+    
+    private final Type type;
+    private final Long userId;
+    private final String username;
+    private final Long expenseId;
+    private final long changeSeq;
+    private final ExpenseResponse expense; // Null for DELETED
+    
+    public ExpenseChangedEvent(Type type, Long userId, String username, Long expenseId,
+                               long changeSeq, ExpenseResponse expense) {
+        this.type = type;
+        this.userId = userId;
+        this.username = username;
+        this.expenseId = expenseId;
+        this.changeSeq = changeSeq;
+        this.expense = expense;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public ExpenseResponse getExpense() {
+        return expense;
+    }
+}
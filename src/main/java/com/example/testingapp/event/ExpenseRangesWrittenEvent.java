@@ -0,0 +1,88 @@
+package com.example.testingapp.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Published after one committed chunk of a bulk write that bypasses ExpenseService, with the id and change
+// sequence range it covered per user, so the audit journal can record it
+public class ExpenseRangesWrittenEvent {
+
+    public enum Operation {
+        CATEGORY_REASSIGNED(ExpenseChangedEvent.Type.UPDATED),
+        CATEGORY_DELETED(ExpenseChangedEvent.Type.DELETED),
+        IMPORTED(ExpenseChangedEvent.Type.CREATED),
+        ARCHIVED(ExpenseChangedEvent.Type.DELETED), // Left the table; still readable from the archive
+        SHARD_MOVED(ExpenseChangedEvent.Type.UPDATED); // Same ids and sequences, on another shard
+
+        private final ExpenseChangedEvent.Type type;
+
+        Operation(ExpenseChangedEvent.Type type) {
+            this.type = type;
+        }
+
+        // What the operation did to each expense in the range
+        public ExpenseChangedEvent.Type getType() {
+            return type;
+        }
+    }
+
+    // Expenses of one user written by the chunk; ids and sequences are bounds, not necessarily contiguous
+    public record Range(long userId, long firstExpenseId, long lastExpenseId,
+                        long firstChangeSeq, long lastChangeSeq, int count) {
+    }
+
+    private final Operation operation;
+    private final List<Range> ranges;
+
+    public ExpenseRangesWrittenEvent(Operation operation, List<Range> ranges) {
+        this.operation = operation;
+        this.ranges = List.copyOf(ranges);
+    }
+
+    public static Builder builder(Operation operation) {
+        return new Builder(operation);
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    // One per user, in the order the users were first seen
+    public List<Range> getRanges() {
+        return ranges;
+    }
+
+    // Folds written expenses into one range per user
+    public static final class Builder {
+
+        private final Operation operation;
+        private final Map<Long, long[]> bounds = new LinkedHashMap<>();
+
+        private Builder(Operation operation) {
+            this.operation = operation;
+        }
+
+        public Builder add(long userId, long expenseId, long changeSeq) {
+            long[] b = bounds.computeIfAbsent(userId, id -> new long[] {
+                    Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 0});
+            b[0] = Math.min(b[0], expenseId);
+            b[1] = Math.max(b[1], expenseId);
+            b[2] = Math.min(b[2], changeSeq);
+            b[3] = Math.max(b[3], changeSeq);
+            b[4]++;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return bounds.isEmpty();
+        }
+
+        public ExpenseRangesWrittenEvent build() {
+            List<Range> ranges = new ArrayList<>(bounds.size());
+            bounds.forEach((userId, b) -> ranges.add(new Range(userId, b[0], b[1], b[2], b[3], (int) b[4])));
+            return new ExpenseRangesWrittenEvent(operation, ranges);
+        }
+    }
+}
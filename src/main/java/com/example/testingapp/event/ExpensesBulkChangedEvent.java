@@ -0,0 +1,36 @@
+package com.example.testingapp.event;
+
+import java.util.Set;
+
+// Published after a set-based write touched expenses of possibly many users, e.g. a category merge
+public class ExpensesBulkChangedEvent {
+    
+    private final Long categoryId;
+    private final Set<Long> userIds;
+    private final long affectedExpenses;
+    
+    public ExpensesBulkChangedEvent(Long categoryId, Set<Long> userIds, long affectedExpenses) {
+        this.categoryId = categoryId;
+        this.userIds = Set.copyOf(userIds);
+        this.affectedExpenses = affectedExpenses;
+    }
+    
+    // A bulk write limited to one user, such as a statement import
+    public static ExpensesBulkChangedEvent forUser(Long userId, long affectedExpenses) {
+        return new ExpensesBulkChangedEvent(null, Set.of(userId), affectedExpenses);
+    }
+    
+    // Null when the write was not limited to a category
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    // Owners of the affected expenses
+    public Set<Long> getUserIds() {
+        return userIds;
+    }
+    
+    public long getAffectedExpenses() {
+        return affectedExpenses;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.testingapp.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a bank's CSV statement export. The header row names the columns; common bank
+ * spellings are recognised, ignoring case, spaces and punctuation. A statement needs a date
+ * column, a description or payee column, and either a signed amount column or separate
+ * debit and credit columns. Memo, category and transaction id columns are optional.
+ */
+public class BankCsvStatementReader implements StatementReader {
+
+    private static final List<String> DATE = List.of("date", "transactiondate", "posteddate", "postingdate", "bookingdate");
+    private static final List<String> DESCRIPTION = List.of("description", "payee", "name", "merchant", "details", "narrative");
+    private static final List<String> MEMO = List.of("memo", "notes", "reference");
+    private static final List<String> AMOUNT = List.of("amount", "transactionamount");
+    private static final List<String> DEBIT = List.of("debit", "withdrawal", "withdrawals", "moneyout", "paidout");
+    private static final List<String> CREDIT = List.of("credit", "deposit", "deposits", "moneyin", "paidin");
+    private static final List<String> CATEGORY = List.of("category");
+    private static final List<String> TRANSACTION_ID = List.of("transactionid", "fitid", "id");
+
+    private final CsvReader csv;
+    private final DateTimeFormatter dateFormat;
+    private final int date;
+    private final int description;
+    private final int memo;
+    private final int amount;
+    private final int debit;
+    private final int credit;
+    private final int category;
+    private final int transactionId;
+
+    // Reads the header immediately, so a file this reader cannot import is rejected up front
+    public BankCsvStatementReader(Reader reader, DateTimeFormatter dateFormat) throws IOException {
+        this.csv = new CsvReader(reader);
+        this.dateFormat = dateFormat;
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV is empty; expected a header row");
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            positions.putIfAbsent(header.get(i).replaceAll("[^\\p{Alnum}]", "").toLowerCase(Locale.ROOT), i);
+        }
+        this.date = find(positions, DATE);
+        this.description = find(positions, DESCRIPTION);
+        this.memo = find(positions, MEMO);
+        this.amount = find(positions, AMOUNT);
+        this.debit = find(positions, DEBIT);
+        this.credit = find(positions, CREDIT);
+        this.category = find(positions, CATEGORY);
+        this.transactionId = find(positions, TRANSACTION_ID);
+        if (date < 0) {
+            throw new IllegalArgumentException("CSV header is missing a date column");
+        }
+        if (description < 0) {
+            throw new IllegalArgumentException("CSV header is missing a description or payee column");
+        }
+        if (amount < 0 && debit < 0) {
+            throw new IllegalArgumentException("CSV header is missing an amount or debit column");
+        }
+    }
+
+    @Override
+    public StatementLine next() throws IOException {
+        List<String> record = csv.next();
+        if (record == null) {
+            return null;
+        }
+        long line = csv.getRecordLine();
+        String dateText = get(record, date);
+        if (dateText == null) {
+            return StatementLine.invalid(line, "Date is missing");
+        }
+        LocalDate parsedDate;
+        try {
+            parsedDate = LocalDate.parse(dateText, dateFormat);
+        } catch (DateTimeParseException e) {
+            return StatementLine.invalid(line, "Unreadable date: " + dateText);
+        }
+        BigDecimal signedAmount;
+        try {
+            signedAmount = amount(record);
+        } catch (NumberFormatException e) {
+            return StatementLine.invalid(line, e.getMessage());
+        }
+        return new StatementLine(line, parsedDate, signedAmount, get(record, description),
+                get(record, memo), get(record, category), get(record, transactionId));
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+
+    // Signed amount, from the amount column or as credit minus debit
+    private BigDecimal amount(List<String> record) {
+        String signed = get(record, amount);
+        if (signed != null) {
+            return StatementReader.parseAmount(signed);
+        }
+        String out = get(record, debit);
+        String in = get(record, credit);
+        if (out == null && in == null) {
+            throw new NumberFormatException("Amount is missing");
+        }
+        BigDecimal result = BigDecimal.ZERO;
+        if (out != null) {
+            // Some banks sign their debit column, others do not
+            result = result.subtract(StatementReader.parseAmount(out).abs());
+        }
+        if (in != null) {
+            result = result.add(StatementReader.parseAmount(in).abs());
+        }
+        return result;
+    }
+
+    private static int find(Map<String, Integer> positions, List<String> names) {
+        for (String name : names) {
+            Integer position = positions.get(name);
+            if (position != null) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // Trimmed value, or null when the column is absent, missing from this row, or blank
+    private static String get(List<String> record, int position) {
+        if (position < 0 || position >= record.size()) {
+            return null;
+        }
+        String value = record.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
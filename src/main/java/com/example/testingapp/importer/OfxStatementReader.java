@@ -0,0 +1,149 @@
+package com.example.testingapp.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the transactions of an OFX statement, either OFX 1.x SGML, whose leaf elements have
+ * no closing tags, or OFX 2.x XML. Only {@code STMTTRN} aggregates are read; everything else
+ * is skipped as it streams past, so the file is never held in memory.
+ */
+public class OfxStatementReader implements StatementReader {
+
+    private static final int MAX_TAG_CHARS = 64;
+    private static final int MAX_VALUE_CHARS = 4096;
+    private static final DateTimeFormatter OFX_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Reader reader;
+    private final StringBuilder text = new StringBuilder();
+    private int pushedBack = -2; // -2: none
+    private long line = 1;
+
+    // The reader should be buffered; every char is read individually
+    public OfxStatementReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public StatementLine next() throws IOException {
+        Map<String, String> transaction = null;
+        long transactionLine = 0;
+        String tag;
+        while ((tag = nextTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                transaction = new HashMap<>();
+                transactionLine = line;
+            } else if (tag.equals("/STMTTRN")) {
+                if (transaction != null) {
+                    return toLine(transactionLine, transaction);
+                }
+            } else if (transaction != null && !tag.startsWith("/")) {
+                String value = readText();
+                if (!value.isEmpty()) {
+                    transaction.putIfAbsent(tag, value);
+                }
+            }
+        }
+        if (transaction != null) {
+            throw new IOException("Unterminated STMTTRN starting on line " + transactionLine);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static StatementLine toLine(long line, Map<String, String> transaction) {
+        String posted = transaction.get("DTPOSTED");
+        if (posted == null || posted.length() < 8) {
+            return StatementLine.invalid(line, "DTPOSTED is missing");
+        }
+        LocalDate date;
+        try {
+            // yyyyMMdd, optionally followed by a time and a time zone
+            date = LocalDate.parse(posted.substring(0, 8), OFX_DATE);
+        } catch (DateTimeParseException e) {
+            return StatementLine.invalid(line, "Unreadable DTPOSTED: " + posted);
+        }
+        BigDecimal amount;
+        try {
+            amount = StatementReader.parseAmount(transaction.get("TRNAMT"));
+        } catch (NumberFormatException e) {
+            return StatementLine.invalid(line, "Invalid TRNAMT: " + e.getMessage());
+        }
+        String name = transaction.getOrDefault("NAME", transaction.get("PAYEE"));
+        String memo = transaction.get("MEMO");
+        return new StatementLine(line, date, amount, name != null ? name : memo,
+                name != null ? memo : null, null, transaction.get("FITID"));
+    }
+
+    // Upper-cased name of the next tag, with a leading / for closing tags, or null at end of input
+    private String nextTag() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c != '<') {
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            while ((c = read()) != -1 && c != '>') {
+                if (name.length() >= MAX_TAG_CHARS) {
+                    throw new IOException("Tag on line " + line + " exceeds " + MAX_TAG_CHARS + " characters");
+                }
+                name.append((char) c);
+            }
+            String tag = name.toString().trim();
+            if (tag.startsWith("?") || tag.startsWith("!")) {
+                continue; // XML declaration, OFX processing instruction or comment
+            }
+            int space = tag.indexOf(' ');
+            if (space > 0) {
+                tag = tag.substring(0, space); // Attributes are not used by OFX
+            }
+            return tag.toUpperCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    // Element text up to the next tag, trimmed, with XML entities decoded
+    private String readText() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            if (text.length() >= MAX_VALUE_CHARS) {
+                throw new IOException("Value on line " + line + " exceeds " + MAX_VALUE_CHARS + " characters");
+            }
+            text.append((char) c);
+        }
+        if (c == '<') {
+            pushedBack = c;
+        }
+        String value = text.toString().trim();
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        int c = reader.read();
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.testingapp.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.format.DateTimeFormatter;
+
+// Statement file formats accepted by the expense import ({@code ?format=ofx})
+public enum StatementFormat {
+
+    CSV,
+    OFX;
+
+    public static StatementFormat parse(String value) {
+        for (StatementFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown statement format: " + value + " (allowed: csv, ofx)");
+    }
+
+    // OFX carries its own date format, so dateFormat applies to CSV only
+    public StatementReader open(Reader reader, DateTimeFormatter dateFormat) throws IOException {
+        return this == CSV ? new BankCsvStatementReader(reader, dateFormat) : new OfxStatementReader(reader);
+    }
+}
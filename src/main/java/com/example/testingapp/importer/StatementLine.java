@@ -0,0 +1,85 @@
+package com.example.testingapp.importer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One transaction read from a bank statement. The amount keeps the statement's sign, so
+ * money going out is negative. A line that could not be parsed carries an error instead of
+ * its values.
+ */
+public class StatementLine {
+
+    private final long line;
+    private final LocalDate date;
+    private final BigDecimal amount;
+    private final String description;
+    private final String memo;
+    private final String category;
+    private final String transactionId;
+    private final String error;
+
+    public StatementLine(long line, LocalDate date, BigDecimal amount, String description,
+                         String memo, String category, String transactionId) {
+        this(line, date, amount, description, memo, category, transactionId, null);
+    }
+
+    private StatementLine(long line, LocalDate date, BigDecimal amount, String description,
+                          String memo, String category, String transactionId, String error) {
+        this.line = line;
+        this.date = date;
+        this.amount = amount;
+        this.description = description;
+        this.memo = memo;
+        this.category = category;
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+
+    public static StatementLine invalid(long line, String error) {
+        return new StatementLine(line, null, null, null, null, null, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    public boolean isDebit() {
+        return amount.signum() < 0;
+    }
+
+    // Line of the file on which the transaction starts, counting from 1
+    public long getLine() {
+        return line;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getMemo() {
+        return memo;
+    }
+
+    // Category name given by the statement, or null
+    public String getCategory() {
+        return category;
+    }
+
+    // Bank's own id for the transaction (OFX FITID), or null
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
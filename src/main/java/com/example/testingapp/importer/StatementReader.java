@@ -0,0 +1,66 @@
+package com.example.testingapp.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Streaming reader over the transactions of a bank statement export. Implementations hold
+ * only the transaction being read, so a statement of any length is read in constant memory.
+ */
+public interface StatementReader extends Closeable {
+
+    /**
+     * Next transaction, or null at end of input. A malformed transaction is returned as an
+     * invalid line rather than thrown, so one bad line does not end the import; an
+     * {@link IOException} means the file itself cannot be read further.
+     */
+    StatementLine next() throws IOException;
+
+    /**
+     * Parses an amount as banks write it: currency symbols, spaces and thousands separators
+     * are ignored, parentheses or a trailing minus mean negative, and a comma followed by one
+     * or two digits is a decimal comma.
+     */
+    static BigDecimal parseAmount(String text) {
+        if (text == null || text.isBlank()) {
+            throw new NumberFormatException("Amount is empty");
+        }
+        String value = text.trim();
+        boolean negative = false;
+        if (value.startsWith("(") && value.endsWith(")")) {
+            negative = true;
+            value = value.substring(1, value.length() - 1);
+        }
+        if (value.endsWith("-")) {
+            negative = true;
+            value = value.substring(0, value.length() - 1);
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.' || c == ',') {
+                digits.append(c);
+            } else if (c == '-' && digits.length() == 0) {
+                negative = !negative;
+            } else if (c != '+' && !Character.isWhitespace(c) && !Character.isLetter(c)
+                    && Character.getType(c) != Character.CURRENCY_SYMBOL && c != '\'') {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+        }
+        String number = digits.toString();
+        int comma = number.lastIndexOf(',');
+        int dot = number.lastIndexOf('.');
+        if (comma > dot && (dot >= 0 || number.length() - comma - 1 <= 2)) {
+            // 1.234,56 or 12,5
+            number = number.replace(".", "").replace(',', '.');
+        } else {
+            number = number.replace(",", "");
+        }
+        if (number.isEmpty() || number.equals(".")) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        BigDecimal amount = new BigDecimal(number);
+        return negative ? amount.negate() : amount;
+    }
+}
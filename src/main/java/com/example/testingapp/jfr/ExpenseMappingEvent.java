@@ -0,0 +1,27 @@
+package com.example.testingapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Conversion of a batch of Expense entities into ExpenseResponse DTOs.
+ */
+@Name("com.example.testingapp.ExpenseMapping")
+@Label("Expense Mapping")
+@Category({"Testing App", "Mapping"})
+@Description("Expense entities mapped to ExpenseResponse DTOs")
+@Enabled(false)
+@StackTrace(false)
+public class ExpenseMappingEvent extends Event {
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,29 @@
+package com.example.testingapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing and signature verification of one JWT.
+ */
+@Name("com.example.testingapp.JwtParse")
+@Label("JWT Parse")
+@Category({"Testing App", "Security"})
+@Description("A JWT parsed and its signature verified")
+@Enabled(false)
+@StackTrace(false)
+public class JwtParseEvent extends Event {
+
+    @Label("Username")
+    @Description("Token subject, empty when the token could not be parsed")
+    public String username;
+
+    @Label("Outcome")
+    @Description("valid, expired or invalid")
+    public String outcome;
+}
@@ -0,0 +1,31 @@
+package com.example.testingapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One BCrypt hash or match. The event spans only the hashing itself, not the user lookup
+ * around it, and is emitted on the thread that does the work (the auth pool when hashing
+ * is offloaded).
+ */
+@Name("com.example.testingapp.PasswordHash")
+@Label("Password Hash")
+@Category({"Testing App", "Security"})
+@Description("BCrypt work for one password encode or match")
+@Enabled(false)
+@StackTrace(false)
+public class PasswordHashEvent extends Event {
+
+    @Label("Operation")
+    @Description("encode (register) or matches (login)")
+    public String operation;
+
+    @Label("Succeeded")
+    @Description("Whether the password matched; always true for encode")
+    public boolean succeeded;
+}
@@ -0,0 +1,38 @@
+package com.example.testingapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One Spring Data repository method call, emitted by {@link RepositoryEventPostProcessor}.
+ */
+@Name("com.example.testingapp.RepositoryCall")
+@Label("Repository Call")
+@Category({"Testing App", "Data"})
+@Description("A Spring Data repository method call and the rows it returned")
+@Enabled(false)
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("User Id")
+    @Description("Id of the AppUser argument, 0 when the call has none")
+    public long userId;
+
+    @Label("Rows")
+    @Description("Entities returned; -1 for scalar, stream or void results")
+    public long rows;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
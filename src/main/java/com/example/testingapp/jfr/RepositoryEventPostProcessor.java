@@ -0,0 +1,88 @@
+package com.example.testingapp.jfr;
+
+import com.example.testingapp.entity.AppUser;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+/**
+ * Emits a {@link RepositoryCallEvent} around every Spring Data repository method. The
+ * event is disabled unless a recording's settings turn it on; until then
+ * {@code shouldCommit()} is false and the result is never inspected.
+ */
+public class RepositoryEventPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, information) -> proxyFactory.addAdvice(
+                            new EventInterceptor(information.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result == null || result instanceof Number || result instanceof Boolean
+                || result instanceof CharSequence || result instanceof BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+
+    private static long userId(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof AppUser user && user.getId() != null) {
+                return user.getId();
+            }
+        }
+        return 0;
+    }
+
+    private static final class EventInterceptor implements MethodInterceptor {
+
+        private final String repository;
+
+        private EventInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            RepositoryCallEvent event = new RepositoryCallEvent();
+            event.begin();
+            Object result = null;
+            boolean succeeded = false;
+            try {
+                result = invocation.proceed();
+                succeeded = true;
+                return result;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.repository = repository;
+                    event.method = invocation.getMethod().getName();
+                    event.userId = userId(invocation.getArguments());
+                    event.rows = succeeded ? rows(result) : -1;
+                    event.succeeded = succeeded;
+                    event.commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.testingapp.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many SQL statements each Spring Data repository method issues, as the
+ * {@code spring.data.repository.statements} summary tagged like Boot's
+ * {@code spring.data.repository.invocations} timer (repository interface and method name),
+ * so the two can be read side by side. Statements flushed later, when the surrounding
+ * transaction commits, are not attributed to any method.
+ */
+public class RepositoryStatementMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryStatementMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, information) -> proxyFactory.addAdvice(
+                            new StatementCountingInterceptor(information.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private final class StatementCountingInterceptor implements MethodInterceptor {
+
+        private final String repository;
+        private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+        private StatementCountingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long before = StatementCountingInspector.currentCount();
+            try {
+                return invocation.proceed();
+            } finally {
+                long statements = StatementCountingInspector.currentCount() - before;
+                summaries.computeIfAbsent(invocation.getMethod(), method -> DistributionSummary
+                                .builder("spring.data.repository.statements")
+                                .description("SQL statements issued per repository method call")
+                                .tag("repository", repository)
+                                .tag("method", method.getName())
+                                .register(meterRegistry.getObject()))
+                        .record(statements);
+            }
+        }
+    }
+}
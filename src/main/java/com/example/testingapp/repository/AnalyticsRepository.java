@@ -0,0 +1,136 @@
+package com.example.testingapp.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Aggregate queries that run on the dedicated analytics connection pool
+@Repository
+@Timed(value = "analytics.repository.invocations", description = "Analytics query time per method")
+public class AnalyticsRepository {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public AnalyticsRepository(@Qualifier("analyticsJdbcTemplate") JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    // Find user id by username
+    public Optional<Long> findUserId(String username) {
+        return jdbcTemplate.queryForList("SELECT id FROM app_users WHERE username = ?", Long.class, username)
+                .stream()
+                .findFirst();
+    }
+    
+    // Get total expenses by user
+    public BigDecimal getTotalExpenses(Long userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM expenses WHERE user_id = ?",
+                BigDecimal.class, userId);
+    }
+    
+    // Get total expenses by user and date range
+    public BigDecimal getTotalExpenses(Long userId, LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM expenses " +
+                "WHERE user_id = ? AND expense_date BETWEEN ? AND ?",
+                BigDecimal.class, userId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+    
+    // Get monthly expenses for user, newest month first
+    public List<Map<String, Object>> getMonthlyExpenses(Long userId) {
+        return jdbcTemplate.query(
+                "SELECT YEAR(expense_date) AS y, MONTH(expense_date) AS m, COALESCE(SUM(amount), 0) AS total " +
+                "FROM expenses WHERE user_id = ? " +
+                "GROUP BY YEAR(expense_date), MONTH(expense_date) " +
+                "ORDER BY YEAR(expense_date) DESC, MONTH(expense_date) DESC",
+                (rs, rowNum) -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("year", rs.getInt("y"));
+                    row.put("month", rs.getInt("m"));
+                    row.put("total", rs.getBigDecimal("total"));
+                    return row;
+                },
+                userId);
+    }
+    
+    // Get expense totals by category for user, largest first
+    public List<Map<String, Object>> getExpensesByCategory(Long userId) {
+        return jdbcTemplate.query(
+                "SELECT c.id AS category_id, c.name AS category_name, COALESCE(SUM(e.amount), 0) AS total " +
+                "FROM expenses e JOIN expense_categories c ON c.id = e.category_id " +
+                "WHERE e.user_id = ? GROUP BY c.id, c.name ORDER BY total DESC",
+                (rs, rowNum) -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("categoryId", rs.getLong("category_id"));
+                    row.put("category", rs.getString("category_name"));
+                    row.put("total", rs.getBigDecimal("total"));
+                    return row;
+                },
+                userId);
+    }
+    
+    // Highest change sequence among a user's expenses and tombstones; it moves on every write to their expenses
+    public long getChangeVersion(Long userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT GREATEST(" +
+                "COALESCE((SELECT MAX(change_seq) FROM expenses WHERE user_id = ?), 0), " +
+                "COALESCE((SELECT MAX(change_seq) FROM expense_tombstones WHERE user_id = ?), 0))",
+                Long.class, userId, userId);
+    }
+    
+    // Expense count and total per month, category and payment method for a user and date range
+    public List<Map<String, Object>> getReportCells(Long userId, LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.query(
+                "SELECT YEAR(expense_date) AS y, MONTH(expense_date) AS m, category_id, payment_method, " +
+                "COUNT(*) AS expense_count, COALESCE(SUM(amount), 0) AS total " +
+                "FROM expenses WHERE user_id = ? AND expense_date BETWEEN ? AND ? " +
+                "GROUP BY YEAR(expense_date), MONTH(expense_date), category_id, payment_method",
+                (rs, rowNum) -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("year", rs.getInt("y"));
+                    row.put("month", rs.getInt("m"));
+                    row.put("categoryId", rs.getLong("category_id"));
+                    row.put("paymentMethod", rs.getString("payment_method"));
+                    row.put("count", rs.getLong("expense_count"));
+                    row.put("total", rs.getBigDecimal("total"));
+                    return row;
+                },
+                userId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+    
+    // Get the number of expenses in each category that has any
+    public Map<Long, Long> getExpenseCountsByCategory() {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT category_id, COUNT(*) AS expense_count FROM expenses GROUP BY category_id",
+                rs -> {
+                    counts.put(rs.getLong("category_id"), rs.getLong("expense_count"));
+                });
+        return counts;
+    }
+    
+    // Get the expense and distinct user counts of the whole table (one shard's share when sharded)
+    public Map<String, Object> getExpenseTableStats() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) AS expense_count, COUNT(DISTINCT user_id) AS user_count FROM expenses",
+                (rs, rowNum) -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("expenseCount", rs.getLong("expense_count"));
+                    row.put("userCount", rs.getLong("user_count"));
+                    return row;
+                });
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.entity.CategoryUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CategoryUsageRepository extends JpaRepository<CategoryUsage, Long> {
+    
+    // Apply a counter delta in place; returns 0 when the category has no row yet
+    @Modifying
+    @Query("UPDATE CategoryUsage u SET u.expenseCount = u.expenseCount + :delta, u.updatedAt = :now " +
+           "WHERE u.categoryId = :categoryId")
+    int addToExpenseCount(@Param("categoryId") Long categoryId,
+                          @Param("delta") long delta,
+                          @Param("now") LocalDateTime now);
+}
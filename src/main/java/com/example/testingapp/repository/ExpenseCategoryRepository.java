@@ -1,8 +1,11 @@
 package com.example.testingapp.repository;
 
 import com.example.testingapp.entity.ExpenseCategory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,20 +14,41 @@ import java.util.Optional;
 @Repository
 public interface ExpenseCategoryRepository extends JpaRepository<ExpenseCategory, Long> {
     
+    // Category queries are served from the query cache; the entities themselves come from the second-level cache
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ExpenseCategory.QUERY_CACHE_REGION)
+    })
+    List<ExpenseCategory> findAll();
+    
     // Find active categories
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ExpenseCategory.QUERY_CACHE_REGION)
+    })
     List<ExpenseCategory> findByIsActiveTrue();
     
     // Find category by name
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ExpenseCategory.QUERY_CACHE_REGION)
+    })
     Optional<ExpenseCategory> findByName(String name);
     
     // Check if category name exists
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ExpenseCategory.QUERY_CACHE_REGION)
+    })
     boolean existsByName(String name);
     
+    // Every category read from the table, not the caches, refreshing the cached entities on the way;
+    // used by CategoryRegistry so writes made by other instances are seen
+    @Query("SELECT c FROM ExpenseCategory c")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "REFRESH"))
+    List<ExpenseCategory> findAllFromTable();
+    
     // Find categories by name containing (case insensitive)
     List<ExpenseCategory> findByNameContainingIgnoreCase(String name);
-    
-    // Get categories with expense count
-    @Query("SELECT c FROM ExpenseCategory c LEFT JOIN c.expenses e " +
-           "GROUP BY c.id ORDER BY COUNT(e) DESC")
-    List<ExpenseCategory> findCategoriesOrderByExpenseCount();
 }
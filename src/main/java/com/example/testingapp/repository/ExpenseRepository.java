@@ -5,7 +5,9 @@ import com.example.testingapp.entity.Expense;
 import com.example.testingapp.entity.ExpenseCategory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,15 +17,18 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseRepositoryCustom {
     
-    // Find expenses by user
+    // Find expenses by user; the category is fetched in the same query since every response maps it
+    @EntityGraph(attributePaths = "category")
     List<Expense> findByUserOrderByExpenseDateDesc(AppUser user);
     
     // Find expenses by user with pagination
+    @EntityGraph(attributePaths = "category")
     Page<Expense> findByUserOrderByExpenseDateDesc(AppUser user, Pageable pageable);
     
     // Find expenses by user and date range
+    @EntityGraph(attributePaths = "category")
     List<Expense> findByUserAndExpenseDateBetweenOrderByExpenseDateDesc(
         AppUser user, LocalDate startDate, LocalDate endDate);
     
@@ -31,6 +36,7 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     List<Expense> findByUserAndCategoryOrderByExpenseDateDesc(AppUser user, ExpenseCategory category);
     
     // Find expenses by user and description containing
+    @EntityGraph(attributePaths = "category")
     List<Expense> findByUserAndDescriptionContainingIgnoreCaseOrderByExpenseDateDesc(
         AppUser user, String description);
     
@@ -38,6 +44,10 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.user = :user")
     BigDecimal getTotalExpensesByUser(@Param("user") AppUser user);
     
+    // Get total expenses by user id
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.user.id = :userId")
+    BigDecimal getTotalExpensesByUserId(@Param("userId") Long userId);
+    
     // Get total expenses by user and date range
     @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.user = :user " +
            "AND e.expenseDate BETWEEN :startDate AND :endDate")
@@ -58,11 +68,68 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     List<Object[]> getMonthlyExpensesForUser(@Param("user") AppUser user);
     
     // Get recent expenses for user
+    @EntityGraph(attributePaths = "category")
     List<Expense> findTop10ByUserOrderByCreatedAtDesc(AppUser user);
     
     // Count expenses by user
     long countByUser(AppUser user);
     
+    // Count expenses by user dated on or after a day
+    long countByUserAndExpenseDateGreaterThanEqual(AppUser user, LocalDate date);
+    
     // Find recurring expenses
+    @EntityGraph(attributePaths = "category")
     List<Expense> findByUserAndIsRecurringTrueOrderByExpenseDateDesc(AppUser user);
+    
+    // Expenses created or updated for user within a change window, oldest change first
+    @Query("SELECT e FROM Expense e JOIN FETCH e.category WHERE e.user = :user " +
+           "AND e.changeSeq > :since AND e.changeSeq <= :until ORDER BY e.changeSeq ASC")
+    List<Expense> findChangesForUser(@Param("user") AppUser user,
+                                     @Param("since") long since,
+                                     @Param("until") long until,
+                                     Pageable pageable);
+    
+    // Highest assigned change sequence
+    @Query("SELECT MAX(e.changeSeq) FROM Expense e")
+    Long findMaxChangeSeq();
+    
+    // Rows written before delta sync existed, in id order, so they can be given change sequences
+    @Query("SELECT e.id AS id, e.user.id AS userId FROM Expense e WHERE e.changeSeq IS NULL ORDER BY e.id")
+    List<ExpenseOwner> findOwnersWithoutChangeSeq(Pageable pageable);
+    
+    // Count a category's expenses without loading any
+    long countByCategoryId(Long categoryId);
+    
+    // Next chunk of a category's expenses as id and owner, lowest id first
+    @Query("SELECT e.id AS id, e.user.id AS userId FROM Expense e WHERE e.category.id = :categoryId ORDER BY e.id ASC")
+    List<ExpenseOwner> findOwnersByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    // Delete expenses by id without loading them
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+    
+    // Highest expense id; rows above it were written later
+    @Query("SELECT MAX(e.id) FROM Expense e")
+    Long findMaxId();
+    
+    // Date, amount and description of a user's expenses in a date range, up to an id, for duplicate checks
+    @Query("SELECT e.expenseDate AS expenseDate, e.amount AS amount, e.description AS description " +
+           "FROM Expense e WHERE e.user.id = :userId AND e.expenseDate BETWEEN :startDate AND :endDate " +
+           "AND e.id <= :maxId")
+    List<ImportKey> findImportKeys(@Param("userId") Long userId,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate,
+                                   @Param("maxId") long maxId);
+    
+    interface ExpenseOwner {
+        Long getId();
+        Long getUserId();
+    }
+    
+    interface ImportKey {
+        LocalDate getExpenseDate();
+        BigDecimal getAmount();
+        String getDescription();
+    }
 }
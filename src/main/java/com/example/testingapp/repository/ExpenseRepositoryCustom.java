@@ -0,0 +1,56 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.dto.ExpenseFields;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseCategory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Projection queries that read only the requested expense columns, and a JDBC batch insert
+public interface ExpenseRepositoryCustom {
+    
+    List<Map<String, Object>> findFieldsByUser(AppUser user, ExpenseFields fields);
+    
+    Page<Map<String, Object>> findFieldsByUser(AppUser user, ExpenseFields fields, Pageable pageable);
+    
+    // Newest first from any offset, for pages that interleave archived expenses
+    List<Map<String, Object>> findFieldsByUser(AppUser user, ExpenseFields fields, long offset, int limit);
+    
+    // Newest first from any offset, with the category fetched
+    List<Expense> findByUser(AppUser user, long offset, int limit);
+    
+    List<Map<String, Object>> findFieldsByUserAndExpenseDateBetween(
+        AppUser user, ExpenseFields fields, LocalDate startDate, LocalDate endDate);
+    
+    List<Map<String, Object>> findFieldsByUserAndCategory(
+        AppUser user, ExpenseFields fields, ExpenseCategory category);
+    
+    List<Map<String, Object>> findFieldsByUserAndDescriptionContaining(
+        AppUser user, ExpenseFields fields, String description);
+    
+    List<Map<String, Object>> findRecentFieldsByUser(AppUser user, ExpenseFields fields, int limit);
+    
+    List<Map<String, Object>> findRecurringFieldsByUser(AppUser user, ExpenseFields fields);
+    
+    // Give expense ids[i] change sequence firstChangeSeq + i, unless it already has one
+    void assignChangeSeqs(List<Long> ids, long firstChangeSeq);
+    
+    // Move the category's expenses of the given users with ids from minId to maxId to another category in one
+    // UPDATE; expense id gets change sequence firstChangeSeq + id - minId. Returns the rows moved, lowest id first.
+    List<ExpenseRepository.ExpenseOwner> reassignCategory(Long fromCategoryId, Long toCategoryId, Collection<Long> userIds,
+                                                          long minId, long maxId, long firstChangeSeq, LocalDateTime now);
+    
+    // Tombstone expenses[i] as one JDBC batch, before they are bulk deleted; row i gets firstChangeSeq + i
+    void insertTombstones(List<ExpenseRepository.ExpenseOwner> expenses, long firstChangeSeq, LocalDateTime now);
+    
+    // Insert expenses of any users as one JDBC batch; row i belongs to userIds[i] and gets firstChangeSeq + i
+    List<Long> insertAllReturningIds(List<Long> userIds, List<ExpenseRequest> expenses, long firstChangeSeq, LocalDateTime now);
+}
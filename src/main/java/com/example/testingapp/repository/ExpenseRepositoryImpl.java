@@ -0,0 +1,281 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.dto.ExpenseFields;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseCategory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+public class ExpenseRepositoryImpl implements ExpenseRepositoryCustom {
+    
+    private static final String ORDER_BY_DATE = " ORDER BY e.expenseDate DESC";
+    private static final String INSERT_EXPENSE =
+            "INSERT INTO expenses (description, amount, expense_date, category_id, user_id, notes, " +
+            "payment_method, is_recurring, recurring_frequency, created_at, updated_at, change_seq) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public ExpenseRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public List<Map<String, Object>> findFieldsByUser(AppUser user, ExpenseFields fields) {
+        TypedQuery<Tuple> query = select(fields, "e.user = :user" + ORDER_BY_DATE);
+        query.setParameter("user", user);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public Page<Map<String, Object>> findFieldsByUser(AppUser user, ExpenseFields fields, Pageable pageable) {
+        List<Map<String, Object>> content = findFieldsByUser(user, fields, pageable.getOffset(), pageable.getPageSize());
+        
+        Long total = entityManager
+                .createQuery("SELECT COUNT(e) FROM Expense e WHERE e.user = :user", Long.class)
+                .setParameter("user", user)
+                .getSingleResult();
+        return new PageImpl<>(content, pageable, total);
+    }
+    
+    @Override
+    public List<Map<String, Object>> findFieldsByUser(AppUser user, ExpenseFields fields, long offset, int limit) {
+        TypedQuery<Tuple> query = select(fields, "e.user = :user" + ORDER_BY_DATE);
+        query.setParameter("user", user);
+        query.setFirstResult((int) offset);
+        query.setMaxResults(limit);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public List<Expense> findByUser(AppUser user, long offset, int limit) {
+        return entityManager
+                .createQuery("SELECT e FROM Expense e JOIN FETCH e.category WHERE e.user = :user" + ORDER_BY_DATE,
+                        Expense.class)
+                .setParameter("user", user)
+                .setFirstResult((int) offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public List<Map<String, Object>> findFieldsByUserAndExpenseDateBetween(
+            AppUser user, ExpenseFields fields, LocalDate startDate, LocalDate endDate) {
+        TypedQuery<Tuple> query = select(fields,
+                "e.user = :user AND e.expenseDate BETWEEN :startDate AND :endDate" + ORDER_BY_DATE);
+        query.setParameter("user", user);
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public List<Map<String, Object>> findFieldsByUserAndCategory(
+            AppUser user, ExpenseFields fields, ExpenseCategory category) {
+        TypedQuery<Tuple> query = select(fields, "e.user = :user AND e.category = :category" + ORDER_BY_DATE);
+        query.setParameter("user", user);
+        query.setParameter("category", category);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public List<Map<String, Object>> findFieldsByUserAndDescriptionContaining(
+            AppUser user, ExpenseFields fields, String description) {
+        TypedQuery<Tuple> query = select(fields,
+                "e.user = :user AND LOWER(e.description) LIKE LOWER(CONCAT('%', :description, '%'))"
+                        + ORDER_BY_DATE);
+        query.setParameter("user", user);
+        query.setParameter("description", description);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public List<Map<String, Object>> findRecentFieldsByUser(AppUser user, ExpenseFields fields, int limit) {
+        TypedQuery<Tuple> query = select(fields, "e.user = :user ORDER BY e.createdAt DESC");
+        query.setParameter("user", user);
+        query.setMaxResults(limit);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public List<Map<String, Object>> findRecurringFieldsByUser(AppUser user, ExpenseFields fields) {
+        TypedQuery<Tuple> query = select(fields, "e.user = :user AND e.isRecurring = true" + ORDER_BY_DATE);
+        query.setParameter("user", user);
+        return toMaps(query.getResultList(), fields);
+    }
+    
+    @Override
+    public void assignChangeSeqs(List<Long> ids, long firstChangeSeq) {
+        jdbcTemplate.batchUpdate("UPDATE expenses SET change_seq = ? WHERE id = ? AND change_seq IS NULL",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setLong(1, firstChangeSeq + i);
+                        statement.setLong(2, ids.get(i));
+                    }
+                    
+                    @Override
+                    public int getBatchSize() {
+                        return ids.size();
+                    }
+                });
+    }
+    
+    @Override
+    public List<ExpenseRepository.ExpenseOwner> reassignCategory(Long fromCategoryId, Long toCategoryId,
+                                                                 Collection<Long> userIds, long minId, long maxId,
+                                                                 long firstChangeSeq, LocalDateTime now) {
+        List<Object> args = new ArrayList<>(List.of(
+                toCategoryId, Timestamp.valueOf(now), firstChangeSeq, minId, fromCategoryId, minId, maxId));
+        args.addAll(userIds);
+        int updated = jdbcTemplate.update(
+                "UPDATE expenses SET category_id = ?, updated_at = ?, change_seq = ? + (id - ?) " +
+                "WHERE category_id = ? AND id BETWEEN ? AND ? " +
+                "AND user_id IN (" + String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")",
+                args.toArray());
+        if (updated == 0) {
+            return List.of();
+        }
+        // Nothing else holds sequences from the reserved range, so they pick out exactly the rows just moved
+        return jdbcTemplate.query(
+                "SELECT id, user_id FROM expenses WHERE id BETWEEN ? AND ? AND change_seq BETWEEN ? AND ? ORDER BY id",
+                (rs, rowNum) -> new MovedExpense(rs.getLong("id"), rs.getLong("user_id")),
+                minId, maxId, firstChangeSeq, firstChangeSeq + (maxId - minId));
+    }
+    
+    @Override
+    public void insertTombstones(List<ExpenseRepository.ExpenseOwner> expenses, long firstChangeSeq, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO expense_tombstones (expense_id, user_id, change_seq, deleted_at) VALUES (?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setLong(1, expenses.get(i).getId());
+                        statement.setLong(2, expenses.get(i).getUserId());
+                        statement.setLong(3, firstChangeSeq + i);
+                        statement.setTimestamp(4, timestamp);
+                    }
+                    
+                    @Override
+                    public int getBatchSize() {
+                        return expenses.size();
+                    }
+                });
+    }
+    
+    @Override
+    public List<Long> insertAllReturningIds(List<Long> userIds, List<ExpenseRequest> expenses,
+                                            long firstChangeSeq, LocalDateTime now) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_EXPENSE, new String[] {"id"}),
+                insertValues(userIds::get, expenses, firstChangeSeq, now), keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != expenses.size()) {
+            throw new IllegalStateException("Expected " + expenses.size() + " generated ids, got " + keys.size());
+        }
+        List<Long> ids = new ArrayList<>(keys.size());
+        for (Map<String, Object> key : keys) {
+            // The column label differs between drivers, but it is the only one
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+    
+    private static BatchPreparedStatementSetter insertValues(IntFunction<Long> userIdOf, List<ExpenseRequest> expenses,
+                                                             long firstChangeSeq, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                ExpenseRequest expense = expenses.get(i);
+                statement.setString(1, expense.getDescription());
+                statement.setBigDecimal(2, expense.getAmount());
+                statement.setDate(3, Date.valueOf(expense.getExpenseDate()));
+                statement.setLong(4, expense.getCategoryId());
+                statement.setLong(5, userIdOf.apply(i));
+                statement.setString(6, expense.getNotes());
+                if (expense.getPaymentMethod() != null) {
+                    statement.setString(7, expense.getPaymentMethod().name());
+                } else {
+                    statement.setNull(7, Types.VARCHAR);
+                }
+                statement.setBoolean(8, expense.isRecurring());
+                if (expense.getRecurringFrequency() != null) {
+                    statement.setString(9, expense.getRecurringFrequency().name());
+                } else {
+                    statement.setNull(9, Types.VARCHAR);
+                }
+                statement.setTimestamp(10, timestamp);
+                statement.setTimestamp(11, timestamp);
+                statement.setLong(12, firstChangeSeq + i);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return expenses.size();
+            }
+        };
+    }
+    
+    private record MovedExpense(Long id, Long userId) implements ExpenseRepository.ExpenseOwner {
+        
+        @Override
+        public Long getId() {
+            return id;
+        }
+        
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+    }
+    
+    private TypedQuery<Tuple> select(ExpenseFields fields, String whereAndOrder) {
+        String jpql = "SELECT " + fields.toSelectClause() + " FROM Expense e WHERE " + whereAndOrder;
+        return entityManager.createQuery(jpql, Tuple.class);
+    }
+    
+    // Keep the requested field order in the serialised JSON
+    private List<Map<String, Object>> toMaps(List<Tuple> tuples, ExpenseFields fields) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String name : fields.getNames()) {
+                row.put(name, tuple.get(name));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
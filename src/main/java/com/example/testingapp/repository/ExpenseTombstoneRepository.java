@@ -0,0 +1,40 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.ExpenseTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ExpenseTombstoneRepository extends JpaRepository<ExpenseTombstone, Long> {
+    
+    // Tombstones for user within a change window, oldest first
+    @Query("SELECT t FROM ExpenseTombstone t WHERE t.user = :user " +
+           "AND t.changeSeq > :since AND t.changeSeq <= :until ORDER BY t.changeSeq ASC")
+    List<ExpenseTombstone> findChangesForUser(@Param("user") AppUser user,
+                                              @Param("since") long since,
+                                              @Param("until") long until,
+                                              Pageable pageable);
+    
+    // Highest change sequence among tombstones
+    @Query("SELECT MAX(t.changeSeq) FROM ExpenseTombstone t")
+    Long findMaxChangeSeq();
+    
+    // Highest change sequence among tombstones older than the cutoff
+    @Query("SELECT MAX(t.changeSeq) FROM ExpenseTombstone t WHERE t.deletedAt < :cutoff")
+    Long findMaxChangeSeqDeletedBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    // Purge tombstones up to and including a change sequence
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ExpenseTombstone t WHERE t.changeSeq <= :changeSeq")
+    int deleteUpToChangeSeq(@Param("changeSeq") long changeSeq);
+}
@@ -0,0 +1,20 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.entity.SyncSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SyncSequenceRepository extends JpaRepository<SyncSequence, String> {
+    
+    // Load a sequence row with a write lock so block allocation is serialised
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SyncSequence s WHERE s.name = :name")
+    Optional<SyncSequence> findByNameForUpdate(@Param("name") String name);
+}
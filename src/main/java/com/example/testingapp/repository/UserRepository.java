@@ -1,16 +1,27 @@
 package com.example.testingapp.repository;
 
+import com.example.testingapp.dto.UserResponse;
 import com.example.testingapp.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     
     // Find user by email
     Optional<User> findByEmail(String email);
@@ -30,6 +41,27 @@ public interface UserRepository extends JpaRepository<User, Long> {
            "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<User> findByFirstNameOrLastNameContainingIgnoreCase(@Param("name") String name);
     
+    // Which of these emails are already taken
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+    
+    // Find users by a batch of emails
+    List<User> findByEmailIn(Collection<String> emails);
+    
     // Find users by phone number
     Optional<User> findByPhoneNumber(String phoneNumber);
+    
+    // Next page of users after an id, for walking the whole table in id order
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // Keyset page of users: rows after the sort keys in position, plus one to tell if more follow
+    Window<User> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+    
+    // Every user as an unmanaged DTO in id order, fetched in batches through a server-side cursor
+    // (useCursorFetch on MySQL); the caller must consume and close it inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.testingapp.dto.UserResponse(" +
+           "u.id, u.firstName, u.lastName, u.email, u.phoneNumber, u.createdAt, u.updatedAt) " +
+           "FROM User u ORDER BY u.id")
+    Stream<UserResponse> streamAllForExport();
 }
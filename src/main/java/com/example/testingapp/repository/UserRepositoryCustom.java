@@ -0,0 +1,13 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.dto.UserCreateRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Plain JDBC writes for bulk paths, where per-entity persist would be too slow
+public interface UserRepositoryCustom {
+    
+    // Insert the users as one JDBC batch; IDENTITY ids stop Hibernate from batching these itself
+    void insertAll(List<UserCreateRequest> users, LocalDateTime now);
+}
@@ -0,0 +1,48 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.dto.UserCreateRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    
+    private static final String INSERT_USER =
+            "INSERT INTO users (first_name, last_name, email, phone_number, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public void insertAll(List<UserCreateRequest> users, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_USER, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                UserCreateRequest user = users.get(i);
+                statement.setString(1, user.getFirstName());
+                statement.setString(2, user.getLastName());
+                statement.setString(3, user.getEmail());
+                statement.setString(4, user.getPhoneNumber());
+                statement.setTimestamp(5, timestamp);
+                statement.setTimestamp(6, timestamp);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return users.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.testingapp.repository;
+
+import com.example.testingapp.entity.UserShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserShardRepository extends JpaRepository<UserShard, Long> {
+}
@@ -1,5 +1,7 @@
 package com.example.testingapp.security;
 
+import com.example.testingapp.tracing.RequestTrace;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -28,16 +30,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         
+        long start = System.nanoTime();
         final String authorizationHeader = request.getHeader("Authorization");
         
         String username = null;
-        String jwt = null;
+        Claims claims = null;
         
         // Check if Authorization header exists and starts with "Bearer "
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // The only signature check for this request; validation below reuses the claims
+                claims = jwtUtil.verify(jwt);
+                username = claims.getSubject();
             } catch (Exception e) {
                 logger.error("Error extracting username from JWT token", e);
             }
@@ -45,10 +50,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         // If username is extracted and no authentication is set in SecurityContext
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            final String subject = username;
+            UserDetails userDetails = RequestTrace.time("user",
+                    () -> this.userDetailsService.loadUserByUsername(subject));
             
             // Validate token
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (jwtUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = 
                     new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -57,6 +64,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
         }
         
+        // Token parsing, user lookup and validation; the rest of the chain is not included
+        RequestTrace.record("auth", System.nanoTime() - start);
         filterChain.doFilter(request, response);
     }
 }
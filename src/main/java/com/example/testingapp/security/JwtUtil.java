@@ -1,7 +1,11 @@
 package com.example.testingapp.security;
 
+import com.example.testingapp.jfr.JwtParseEvent;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -10,6 +14,7 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
@@ -21,6 +26,21 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
     private Long expiration;
     
+    // Signature checks per outcome; empty when no registry is present (e.g. benchmarks)
+    private Map<String, Timer> verificationTimers = Map.of();
+    
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        Map<String, Timer> timers = new HashMap<>();
+        for (String outcome : new String[] {"valid", "expired", "invalid"}) {
+            timers.put(outcome, Timer.builder("auth.jwt.verification")
+                    .description("Time spent parsing and verifying JWT signatures")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        this.verificationTimers = timers;
+    }
+    
     private SecretKey getSigningKey() {
         return Keys.hmacShaKeyFor(secret.getBytes());
     }
@@ -46,6 +66,37 @@ public class JwtUtil {
                 .getBody();
     }
     
+    // Parses and verifies the token once, recording the outcome; the authentication filter calls this
+    // per request and reads everything else from the returned claims
+    public Claims verify(String token) {
+        JwtParseEvent event = new JwtParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String outcome = "invalid";
+        String subject = "";
+        try {
+            Claims claims = extractAllClaims(token);
+            outcome = "valid";
+            subject = claims.getSubject();
+            return claims;
+        } catch (ExpiredJwtException e) {
+            outcome = "expired";
+            subject = e.getClaims().getSubject();
+            throw e;
+        } finally {
+            Timer timer = verificationTimers.get(outcome);
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.username = subject;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+    
     private Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
     }
@@ -75,12 +126,14 @@ public class JwtUtil {
         return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
     }
     
+    // Claims from verify() are already signature-checked and unexpired at parse time
+    public Boolean validateToken(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
+    }
+    
     public Boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
+            extractAllClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -0,0 +1,129 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.async.FairBulkheadExecutor;
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.repository.AnalyticsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Aggregate queries for analytics endpoints. Every call runs on the analytics bulkhead
+ * and its connection pool, keyed by the requesting user for fair scheduling. Results
+ * include the user's archived expenses, added in from the {@link ExpenseArchive}.
+ */
+@Service
+public class AnalyticsService {
+    
+    private final AnalyticsRepository analyticsRepository;
+    private final FairBulkheadExecutor analyticsExecutor;
+    private final ExpenseArchive expenseArchive;
+    private final CategoryRegistry categoryRegistry;
+    
+    @Autowired
+    public AnalyticsService(AnalyticsRepository analyticsRepository,
+                            @Qualifier("analyticsExecutor") FairBulkheadExecutor analyticsExecutor,
+                            ExpenseArchive expenseArchive,
+                            CategoryRegistry categoryRegistry) {
+        this.analyticsRepository = analyticsRepository;
+        this.analyticsExecutor = analyticsExecutor;
+        this.expenseArchive = expenseArchive;
+        this.categoryRegistry = categoryRegistry;
+    }
+    
+    // Get total expenses for user
+    public CompletableFuture<BigDecimal> getTotalExpenses(String username) {
+        return analyticsExecutor.submit(username, () -> {
+            Long userId = findUserId(username);
+            return expenseArchive.read(userId, () -> analyticsRepository.getTotalExpenses(userId)
+                    .add(expenseArchive.total(userId)));
+        });
+    }
+    
+    // Get total expenses for user by date range
+    public CompletableFuture<BigDecimal> getTotalExpensesByDateRange(String username, LocalDate startDate,
+                                                                    LocalDate endDate) {
+        return analyticsExecutor.submit(username, () -> {
+            Long userId = findUserId(username);
+            return expenseArchive.read(userId, () -> analyticsRepository.getTotalExpenses(userId, startDate, endDate)
+                    .add(expenseArchive.total(userId, startDate, endDate)));
+        });
+    }
+    
+    // Get monthly totals for user
+    public CompletableFuture<List<Map<String, Object>>> getMonthlyExpenses(String username) {
+        return analyticsExecutor.submit(username, () -> {
+            Long userId = findUserId(username);
+            return expenseArchive.read(userId, () -> {
+                List<Map<String, Object>> months = analyticsRepository.getMonthlyExpenses(userId);
+                if (!expenseArchive.hasExpenses(userId)) {
+                    return months;
+                }
+                Map<YearMonth, BigDecimal> totals = expenseArchive.monthlyTotals(userId);
+                for (Map<String, Object> row : months) {
+                    totals.merge(YearMonth.of((Integer) row.get("year"), (Integer) row.get("month")),
+                            (BigDecimal) row.get("total"), BigDecimal::add);
+                }
+                List<Map<String, Object>> merged = new ArrayList<>(totals.size());
+                totals.entrySet().stream()
+                        .sorted(Map.Entry.<YearMonth, BigDecimal>comparingByKey().reversed())
+                        .forEach(entry -> {
+                            Map<String, Object> row = new LinkedHashMap<>();
+                            row.put("year", entry.getKey().getYear());
+                            row.put("month", entry.getKey().getMonthValue());
+                            row.put("total", entry.getValue());
+                            merged.add(row);
+                        });
+                return merged;
+            });
+        });
+    }
+    
+    // Get totals by category for user
+    public CompletableFuture<List<Map<String, Object>>> getExpensesByCategory(String username) {
+        return analyticsExecutor.submit(username, () -> {
+            Long userId = findUserId(username);
+            return expenseArchive.read(userId, () -> {
+                List<Map<String, Object>> categories = analyticsRepository.getExpensesByCategory(userId);
+                if (!expenseArchive.hasExpenses(userId)) {
+                    return categories;
+                }
+                Map<Long, Map<String, Object>> merged = new HashMap<>();
+                for (Map<String, Object> row : categories) {
+                    merged.put((Long) row.get("categoryId"), row);
+                }
+                expenseArchive.totalsByCategory(userId).forEach((categoryId, total) -> {
+                    Map<String, Object> row = merged.computeIfAbsent(categoryId, id -> {
+                        ExpenseCategoryResponse category = categoryRegistry.find(id);
+                        Map<String, Object> created = new LinkedHashMap<>();
+                        created.put("categoryId", id);
+                        created.put("category", category != null ? category.getName() : "Category " + id);
+                        created.put("total", BigDecimal.ZERO);
+                        return created;
+                    });
+                    row.put("total", ((BigDecimal) row.get("total")).add(total));
+                });
+                List<Map<String, Object>> rows = new ArrayList<>(merged.values());
+                rows.sort(Comparator.comparing((Map<String, Object> row) -> (BigDecimal) row.get("total")).reversed());
+                return rows;
+            });
+        });
+    }
+    
+    private Long findUserId(String username) {
+        return analyticsRepository.findUserId(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+    }
+}
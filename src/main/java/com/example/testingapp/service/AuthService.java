@@ -6,6 +6,7 @@ import com.example.testingapp.dto.RegisterRequest;
 import com.example.testingapp.entity.AppUser;
 import com.example.testingapp.repository.AppUserRepository;
 import com.example.testingapp.security.JwtUtil;
+import com.example.testingapp.sharding.ReferenceDataReplicator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -32,6 +33,9 @@ public class AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
     
+    @Autowired
+    private ReferenceDataReplicator referenceDataReplicator;
+    
     public AuthResponse register(RegisterRequest request) {
         // Check if username already exists
         if (appUserRepository.existsByUsername(request.getUsername())) {
@@ -51,6 +55,8 @@ public class AuthService {
         appUser.setRole(AppUser.Role.USER); // Default role
         
         AppUser savedUser = appUserRepository.save(appUser);
+        // Expense rows on every shard reference the user
+        referenceDataReplicator.userChanged(savedUser.getId());
         
         // Generate JWT token
         Map<String, Object> extraClaims = new HashMap<>();
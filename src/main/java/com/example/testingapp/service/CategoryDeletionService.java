@@ -0,0 +1,278 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.dto.CategoryDeletionJob;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import com.example.testingapp.event.ExpensesBulkChangedEvent;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes categories without hydrating their expenses.
+ * <p>
+ * A background job whose progress can be polled either moves a category's expenses to
+ * another category, one UPDATE per id range, or tombstones and deletes them in chunks. Each
+ * chunk is its own short transaction, so no lock is held on the whole set. Every affected
+ * row gets a distinct change sequence from a range reserved with
+ * {@link ChangeSequenceService#recordChanges}, so delta sync clients see each change,
+ * each committed chunk is recorded in the audit journal as per-user ranges, and the open
+ * SSE streams of the affected users are asked to resync once the bulk write is done. With sharding, each
+ * shard is processed in turn before the category itself is deleted on the primary. Each chunk
+ * fences writes of the users it touches, so a job fails rather than write while one of them is
+ * being moved between shards; deleting the category again resumes it.
+ * Archived expenses are immutable, so a category that any of them uses cannot be deleted.
+ */
+@Service
+public class CategoryDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryDeletionService.class);
+    private static final long FINISHED_JOB_RETENTION_HOURS = 24;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseCategoryService categoryService;
+    private final CategoryRegistry categoryRegistry;
+    private final CategoryUsageService categoryUsageService;
+    private final ChangeSequenceService changeSequenceService;
+    private final ShardRouter shardRouter;
+    private final ExpenseArchive expenseArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService executor;
+
+    private final Map<String, CategoryDeletionJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, CategoryDeletionJob> runningByCategory = new ConcurrentHashMap<>();
+
+    @Value("${category.deletion.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    public CategoryDeletionService(ExpenseRepository expenseRepository,
+                                   ExpenseCategoryService categoryService,
+                                   CategoryRegistry categoryRegistry,
+                                   CategoryUsageService categoryUsageService,
+                                   ChangeSequenceService changeSequenceService,
+                                   ShardRouter shardRouter,
+                                   ExpenseArchive expenseArchive,
+                                   TransactionTemplate transactionTemplate,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.expenseRepository = expenseRepository;
+        this.categoryService = categoryService;
+        this.categoryRegistry = categoryRegistry;
+        this.categoryUsageService = categoryUsageService;
+        this.changeSequenceService = changeSequenceService;
+        this.shardRouter = shardRouter;
+        this.expenseArchive = expenseArchive;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "category-deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Move every expense of a category to another one, then delete the category. A category
+     * without expenses is deleted straight away and the returned job is already complete;
+     * otherwise the expenses are moved in the background. Returns empty if the category does
+     * not exist.
+     */
+    public Optional<CategoryDeletionJob> startReassignment(Long categoryId, Long targetCategoryId) {
+        if (categoryRegistry.find(categoryId) == null) {
+            return Optional.empty();
+        }
+        if (categoryId.equals(targetCategoryId) || categoryRegistry.find(targetCategoryId) == null) {
+            throw new RuntimeException("Target category not found: " + targetCategoryId);
+        }
+        if (runningByCategory.containsKey(targetCategoryId)) {
+            throw new RuntimeException("Target category is being deleted: " + targetCategoryId);
+        }
+        return Optional.of(start(categoryId, targetCategoryId));
+    }
+
+    /**
+     * Delete a category together with its expenses. A category without expenses is deleted
+     * straight away and the returned job is already complete; otherwise the expenses are
+     * deleted in the background. Returns empty if the category does not exist.
+     */
+    public Optional<CategoryDeletionJob> startDeletion(Long categoryId) {
+        if (categoryRegistry.find(categoryId) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(start(categoryId, null));
+    }
+
+    public Optional<CategoryDeletionJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // An interrupted job leaves whole chunks deleted or moved and the category in place; deleting again resumes it
+        executor.shutdownNow();
+    }
+
+    // Joins a running job with the same target; a category that other expenses are being moved into stays
+    private CategoryDeletionJob start(Long categoryId, Long targetCategoryId) {
+        CategoryDeletionJob running = runningByCategory.get(categoryId);
+        if (running != null) {
+            return sameTarget(running, targetCategoryId);
+        }
+        if (runningByCategory.values().stream().anyMatch(job -> categoryId.equals(job.getTargetCategoryId()))) {
+            throw new RuntimeException("Category is receiving the expenses of a deleted category: " + categoryId);
+        }
+        requireNotArchived(categoryId);
+        pruneFinishedJobs();
+
+        long total = shardRouter.onEachShard(() -> expenseRepository.countByCategoryId(categoryId))
+                .values().stream().mapToLong(Long::longValue).sum();
+        CategoryDeletionJob job = new CategoryDeletionJob(UUID.randomUUID().toString(), categoryId, targetCategoryId, total);
+        jobs.put(job.getId(), job);
+        if (total == 0) {
+            categoryService.deleteCategory(categoryId);
+            job.complete();
+            return job;
+        }
+
+        CategoryDeletionJob existing = runningByCategory.putIfAbsent(categoryId, job);
+        if (existing != null) {
+            jobs.remove(job.getId());
+            return sameTarget(existing, targetCategoryId);
+        }
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    private static CategoryDeletionJob sameTarget(CategoryDeletionJob running, Long targetCategoryId) {
+        if (!Objects.equals(running.getTargetCategoryId(), targetCategoryId)) {
+            throw new RuntimeException("Category is already being deleted: " + running.getCategoryId());
+        }
+        return running;
+    }
+
+    private void run(CategoryDeletionJob job) {
+        Long categoryId = job.getCategoryId();
+        Long targetCategoryId = job.getTargetCategoryId();
+        Set<Long> userIds = new HashSet<>();
+        try {
+            for (String shard : shardRouter.getShards()) {
+                shardRouter.onShard(shard, () -> {
+                    List<ExpenseRepository.ExpenseOwner> chunk;
+                    while (!(chunk = expenseRepository.findOwnersByCategoryId(categoryId, PageRequest.of(0, chunkSize))).isEmpty()) {
+                        if (targetCategoryId != null) {
+                            List<ExpenseRepository.ExpenseOwner> moved = reassignChunk(chunk, categoryId, targetCategoryId);
+                            moved.forEach(expense -> userIds.add(expense.getUserId()));
+                            categoryUsageService.expensesMoved(categoryId, targetCategoryId, moved.size());
+                            job.addReassigned(moved.size());
+                        } else {
+                            int deleted = deleteChunk(chunk);
+                            chunk.forEach(expense -> userIds.add(expense.getUserId()));
+                            categoryUsageService.expensesRemoved(categoryId, deleted);
+                            job.addDeleted(deleted);
+                        }
+                    }
+                    return null;
+                });
+            }
+            categoryService.deleteCategory(categoryId);
+            job.complete();
+            log.info("Deleted category {}, {} expenses deleted and {} moved to category {}", categoryId,
+                    job.getDeletedExpenses(), job.getReassignedExpenses(), targetCategoryId);
+        } catch (RuntimeException e) {
+            log.error("Deletion of category {} failed after {} expenses", categoryId,
+                    job.getDeletedExpenses() + job.getReassignedExpenses(), e);
+            job.fail(e.getMessage());
+        } finally {
+            runningByCategory.remove(categoryId);
+            long changed = job.getDeletedExpenses() + job.getReassignedExpenses();
+            if (changed > 0) {
+                eventPublisher.publishEvent(new ExpensesBulkChangedEvent(categoryId, userIds, changed));
+            }
+        }
+    }
+
+    /**
+     * Moves the id range spanned by one chunk in a single UPDATE in its own transaction,
+     * limited to the chunk's users, whose writes are fenced meanwhile. Each row's change
+     * sequence is offset by its id from the start of the range, so the range reserved is as
+     * wide as the ids, and only the rows actually moved are journaled.
+     */
+    private List<ExpenseRepository.ExpenseOwner> reassignChunk(List<ExpenseRepository.ExpenseOwner> chunk,
+                                                               Long categoryId, Long targetCategoryId) {
+        long minId = chunk.get(0).getId();
+        long maxId = chunk.get(chunk.size() - 1).getId();
+        Set<Long> owners = ownersOf(chunk);
+        return shardRouter.fenceWrites(owners, () -> changeSequenceService.recordChanges(maxId - minId + 1, firstChangeSeq -> {
+            List<ExpenseRepository.ExpenseOwner> moved = transactionTemplate.execute(status ->
+                    expenseRepository.reassignCategory(categoryId, targetCategoryId, owners, minId, maxId,
+                            firstChangeSeq, LocalDateTime.now()));
+            publishWritten(ExpenseRangesWrittenEvent.Operation.CATEGORY_REASSIGNED, moved,
+                    i -> firstChangeSeq + moved.get(i).getId() - minId);
+            return moved;
+        }));
+    }
+
+    // Tombstone and delete one chunk in a single transaction, with its users' writes fenced
+    private int deleteChunk(List<ExpenseRepository.ExpenseOwner> expenses) {
+        List<Long> ids = expenses.stream().map(ExpenseRepository.ExpenseOwner::getId).toList();
+        return shardRouter.fenceWrites(ownersOf(expenses), () -> changeSequenceService.recordChanges(expenses.size(), firstChangeSeq -> {
+            int deleted = transactionTemplate.execute(status -> {
+                expenseRepository.insertTombstones(expenses, firstChangeSeq, LocalDateTime.now());
+                return expenseRepository.deleteAllByIdIn(ids);
+            });
+            publishWritten(ExpenseRangesWrittenEvent.Operation.CATEGORY_DELETED, expenses, i -> firstChangeSeq + i);
+            return deleted;
+        }));
+    }
+
+    private static Set<Long> ownersOf(List<ExpenseRepository.ExpenseOwner> expenses) {
+        return expenses.stream().map(ExpenseRepository.ExpenseOwner::getUserId).collect(Collectors.toSet());
+    }
+
+    // For the audit journal, once the chunk has committed
+    private void publishWritten(ExpenseRangesWrittenEvent.Operation operation,
+                                List<ExpenseRepository.ExpenseOwner> expenses, IntToLongFunction changeSeqOf) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        ExpenseRangesWrittenEvent.Builder written = ExpenseRangesWrittenEvent.builder(operation);
+        for (int i = 0; i < expenses.size(); i++) {
+            written.add(expenses.get(i).getUserId(), expenses.get(i).getId(), changeSeqOf.applyAsLong(i));
+        }
+        eventPublisher.publishEvent(written.build());
+    }
+
+    private void requireNotArchived(Long categoryId) {
+        if (expenseArchive.referencesCategory(categoryId)) {
+            throw new RuntimeException("Category " + categoryId + " is used by archived expenses; deactivate it instead");
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(FINISHED_JOB_RETENTION_HOURS);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
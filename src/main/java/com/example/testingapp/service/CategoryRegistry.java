@@ -0,0 +1,146 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.entity.ExpenseCategory;
+import com.example.testingapp.repository.ExpenseCategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory view of every expense category, shared by all requests.
+ * <p>
+ * Each {@link Snapshot} is immutable and holds the categories indexed by id and by name,
+ * with one precomputed {@link ExpenseCategoryResponse} per category. Readers take the
+ * current snapshot without locking, so lookups run no SQL and allocate nothing; the shared
+ * responses must be treated as read-only. {@link ExpenseCategoryService} calls
+ * {@link #refresh()} after every write, which builds a new snapshot from the table and swaps
+ * it in. Writes made by another instance are picked up by the periodic refresh, or sooner
+ * when an id lookup misses.
+ */
+@Service
+public class CategoryRegistry {
+
+    private final ExpenseCategoryRepository categoryRepository;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public CategoryRegistry(ExpenseCategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    // Current snapshot, loading the first one if no request has needed it yet
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Shared response for a category id, or null if no such category exists. A miss is
+     * checked against the table once, so a category written elsewhere is not reported absent.
+     */
+    public ExpenseCategoryResponse find(Long id) {
+        ExpenseCategoryResponse response = snapshot().byId(id);
+        if (response == null && id != null && categoryRepository.existsById(id)) {
+            response = refresh().byId(id);
+        }
+        return response;
+    }
+
+    // Shared response for an expense's category, built directly if the registry does not know it
+    public ExpenseCategoryResponse responseFor(ExpenseCategory category) {
+        ExpenseCategoryResponse response = snapshot().byId(category.getId());
+        return response != null ? response : new ExpenseCategoryResponse(category);
+    }
+
+    // Serialised so a refresh that started before a write cannot replace one that started after it
+    public Snapshot refresh() {
+        refreshLock.lock();
+        try {
+            Snapshot loaded = new Snapshot(categoryRepository.findAllFromTable());
+            snapshot = loaded;
+            return loaded;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Loaded once the default categories are seeded, then kept in step with other instances
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${category.registry.refresh-interval-ms:60000}",
+               initialDelayString = "${category.registry.refresh-interval-ms:60000}")
+    public void reload() {
+        refresh();
+    }
+
+    public static final class Snapshot {
+
+        private final Map<Long, ExpenseCategoryResponse> byId;
+        private final Map<String, ExpenseCategoryResponse> byName;
+        private final List<ExpenseCategoryResponse> all;
+        private final List<ExpenseCategoryResponse> active;
+        private final int namesHash;
+
+        private Snapshot(List<ExpenseCategory> categories) {
+            Map<Long, ExpenseCategoryResponse> byId = new HashMap<>();
+            Map<String, ExpenseCategoryResponse> byName = new HashMap<>();
+            List<ExpenseCategoryResponse> all = new ArrayList<>(categories.size());
+            List<ExpenseCategoryResponse> active = new ArrayList<>();
+            for (ExpenseCategory category : categories) {
+                ExpenseCategoryResponse response = new ExpenseCategoryResponse(category);
+                byId.put(response.getId(), response);
+                byName.put(response.getName(), response);
+                all.add(response);
+                if (response.isActive()) {
+                    active.add(response);
+                }
+            }
+            this.byId = Map.copyOf(byId);
+            this.byName = Map.copyOf(byName);
+            this.all = Collections.unmodifiableList(all);
+            this.active = Collections.unmodifiableList(active);
+            Map<Long, String> names = new HashMap<>();
+            byId.forEach((id, response) -> names.put(id, response.getName()));
+            this.namesHash = names.hashCode();
+        }
+
+        public ExpenseCategoryResponse byId(Long id) {
+            return id != null ? byId.get(id) : null;
+        }
+
+        public ExpenseCategoryResponse byName(String name) {
+            return name != null ? byName.get(name) : null;
+        }
+
+        public List<ExpenseCategoryResponse> all() {
+            return all;
+        }
+
+        public List<ExpenseCategoryResponse> active() {
+            return active;
+        }
+
+        public int count() {
+            return all.size();
+        }
+
+        public int activeCount() {
+            return active.size();
+        }
+
+        // Changes when a category is added, removed or renamed, for callers that cache names
+        public int namesHash() {
+            return namesHash;
+        }
+    }
+}
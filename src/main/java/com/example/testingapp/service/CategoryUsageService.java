@@ -0,0 +1,212 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.entity.CategoryUsage;
+import com.example.testingapp.repository.AnalyticsRepository;
+import com.example.testingapp.repository.CategoryUsageRepository;
+import com.example.testingapp.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expense count per category, maintained incrementally so the popular-categories ranking
+ * needs no aggregate query.
+ * <p>
+ * Expense writes bump two striped {@link LongAdder}s per category: the in-memory total
+ * that the ranking reads, and a pending delta. A scheduled flush moves pending deltas into
+ * the {@code category_usage} table, which seeds the totals on the next start. A less
+ * frequent reconcile recounts the {@code expenses} table and corrects both, which covers
+ * writes that bypass {@link ExpenseService}, deltas lost in a crash, and writes made by
+ * other instances. With sharding the recount runs on every shard in parallel and the
+ * per-shard counts are summed.
+ */
+@Service
+public class CategoryUsageService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryUsageService.class);
+
+    private final CategoryUsageRepository usageRepository;
+    private final AnalyticsRepository analyticsRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, LongAdder> totals = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CategoryUsageService(CategoryUsageRepository usageRepository,
+                                AnalyticsRepository analyticsRepository,
+                                CategoryRegistry categoryRegistry,
+                                ShardRouter shardRouter,
+                                TransactionTemplate transactionTemplate) {
+        this.usageRepository = usageRepository;
+        this.analyticsRepository = analyticsRepository;
+        this.categoryRegistry = categoryRegistry;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void expenseAdded(Long categoryId) {
+        adjust(categoryId, 1);
+    }
+
+    public void expensesAdded(Long categoryId, long count) {
+        adjust(categoryId, count);
+    }
+
+    public void expenseRemoved(Long categoryId) {
+        adjust(categoryId, -1);
+    }
+
+    public void expenseMoved(Long fromCategoryId, Long toCategoryId) {
+        if (!fromCategoryId.equals(toCategoryId)) {
+            adjust(fromCategoryId, -1);
+            adjust(toCategoryId, 1);
+        }
+    }
+
+    public void expensesMoved(Long fromCategoryId, Long toCategoryId, long count) {
+        adjust(fromCategoryId, -count);
+        adjust(toCategoryId, count);
+    }
+
+    public void expensesRemoved(Long categoryId, long count) {
+        adjust(categoryId, -count);
+    }
+
+    public long getExpenseCount(Long categoryId) {
+        LongAdder total = totals.get(categoryId);
+        return total != null ? total.sum() : 0;
+    }
+
+    // Every category, most used first; ties keep id order
+    public List<ExpenseCategoryResponse> getCategoriesOrderedByUsage() {
+        List<ExpenseCategoryResponse> categories = categoryRegistry.snapshot().all();
+        // Counts are read once up front so concurrent writes cannot reorder the list mid-sort
+        List<RankedCategory> ranked = new ArrayList<>(categories.size());
+        for (ExpenseCategoryResponse category : categories) {
+            ranked.add(new RankedCategory(category, getExpenseCount(category.getId())));
+        }
+        ranked.sort((a, b) -> a.count != b.count
+                ? Long.compare(b.count, a.count)
+                : Long.compare(a.category.getId(), b.category.getId()));
+
+        List<ExpenseCategoryResponse> ordered = new ArrayList<>(ranked.size());
+        for (RankedCategory entry : ranked) {
+            ordered.add(entry.category);
+        }
+        return ordered;
+    }
+
+    // Seed the totals from the counter table, or from a full recount on the first start
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<CategoryUsage> rows = usageRepository.findAll();
+        if (rows.isEmpty()) {
+            reconcile();
+            return;
+        }
+        Map<Long, Long> persisted = new HashMap<>();
+        rows.forEach(row -> persisted.put(row.getCategoryId(), row.getExpenseCount()));
+        resetTotals(persisted);
+    }
+
+    // Move pending deltas into the counter table; on failure they are put back for the next flush
+    @Scheduled(fixedDelayString = "${category.usage.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        // sumThenReset swaps each stripe to zero atomically, so a concurrent increment is either
+        // included here or left behind for the next flush
+        pending.forEach((categoryId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                deltas.put(categoryId, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                deltas.forEach((categoryId, delta) -> {
+                    if (usageRepository.addToExpenseCount(categoryId, delta, now) == 0) {
+                        usageRepository.save(new CategoryUsage(categoryId, delta));
+                    }
+                });
+            });
+        } catch (RuntimeException e) {
+            deltas.forEach((categoryId, delta) -> pending.computeIfAbsent(categoryId, id -> new LongAdder()).add(delta));
+            log.warn("Could not flush category usage counters, will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recount expenses per category and overwrite both the counter table and the in-memory
+     * totals. Writes racing with the recount can be off by one until the next reconcile.
+     */
+    @Scheduled(fixedDelayString = "${category.usage.reconcile-interval-ms:3600000}",
+               initialDelayString = "${category.usage.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        flush();
+        Map<Long, Long> counts = new HashMap<>();
+        for (Map<Long, Long> shardCounts : shardRouter.onEachShard(analyticsRepository::getExpenseCountsByCategory).values()) {
+            shardCounts.forEach((categoryId, count) -> counts.merge(categoryId, count, Long::sum));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            usageRepository.deleteAllInBatch();
+            List<CategoryUsage> rows = new ArrayList<>(counts.size());
+            counts.forEach((categoryId, count) -> rows.add(new CategoryUsage(categoryId, count)));
+            usageRepository.saveAll(rows);
+        });
+        resetTotals(counts);
+        log.debug("Reconciled usage counters for {} categories", counts.size());
+    }
+
+    // Moves each total to its persisted value plus whatever is still pending, without losing concurrent updates
+    private void resetTotals(Map<Long, Long> persisted) {
+        Set<Long> categoryIds = new HashSet<>(persisted.keySet());
+        categoryIds.addAll(totals.keySet());
+        for (Long categoryId : categoryIds) {
+            LongAdder unflushed = pending.get(categoryId);
+            long target = persisted.getOrDefault(categoryId, 0L) + (unflushed != null ? unflushed.sum() : 0);
+            LongAdder total = totals.computeIfAbsent(categoryId, id -> new LongAdder());
+            total.add(target - total.sum());
+        }
+    }
+
+    private void adjust(Long categoryId, long delta) {
+        totals.computeIfAbsent(categoryId, id -> new LongAdder()).add(delta);
+        pending.computeIfAbsent(categoryId, id -> new LongAdder()).add(delta);
+    }
+
+    private static final class RankedCategory {
+
+        private final ExpenseCategoryResponse category;
+        private final long count;
+
+        private RankedCategory(ExpenseCategoryResponse category, long count) {
+            this.category = category;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.entity.SyncSequence;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.repository.ExpenseTombstoneRepository;
+import com.example.testingapp.repository.SyncSequenceRepository;
+import com.example.testingapp.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Hands out the monotonically increasing change cursor used by expense delta sync.
+ * <p>
+ * Values are reserved from the {@code sync_sequences} table in blocks so a write does
+ * not pay an extra round trip. Because a change with a lower value can commit after one
+ * with a higher value, readers only see changes up to the {@link #stableCursor() stable
+ * cursor}: the highest value below every change that is still in flight. This assumes a
+ * single application instance owns the sequence.
+ * <p>
+ * With sharding the sequence row lives on the primary and numbers changes on every shard,
+ * so a user's cursor stays valid when their expenses move to another shard.
+ */
+@Service
+public class ChangeSequenceService {
+
+    static final String EXPENSE_SEQUENCE = "expense";
+    private static final int BLOCK_SIZE = 50;
+    private static final int BACKFILL_CHUNK = 1000;
+
+    private final SyncSequenceRepository sequenceRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseTombstoneRepository tombstoneRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate requiresNew;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private long next;
+    private long blockEnd;
+    private boolean loaded;
+
+    @Autowired
+    public ChangeSequenceService(SyncSequenceRepository sequenceRepository,
+                                 ExpenseRepository expenseRepository,
+                                 ExpenseTombstoneRepository tombstoneRepository,
+                                 ShardRouter shardRouter,
+                                 PlatformTransactionManager transactionManager) {
+        this.sequenceRepository = sequenceRepository;
+        this.expenseRepository = expenseRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.shardRouter = shardRouter;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs a write under a freshly allocated change sequence. The value stays in flight,
+     * and therefore invisible to sync readers, until the work returns or throws.
+     */
+    public <T> T recordChange(LongFunction<T> work) {
+        long changeSeq = begin();
+        try {
+            return work.apply(changeSeq);
+        } finally {
+            inFlight.remove(changeSeq);
+        }
+    }
+
+    /**
+     * Runs a bulk write under {@code count} consecutive change sequences; the work receives
+     * the first. The range comes out of the current block when it fits; otherwise it is
+     * reserved past it and the rest of the block is abandoned, so no later change can be
+     * given a value below the range.
+     */
+    public <T> T recordChanges(long count, LongFunction<T> work) {
+        long first = beginRange(count);
+        try {
+            return work.apply(first);
+        } finally {
+            inFlight.remove(first);
+        }
+    }
+
+    // Highest cursor below which every change has either committed or been abandoned
+    public long stableCursor() {
+        lock.lock();
+        try {
+            ensureLoaded();
+            return inFlight.isEmpty() ? next - 1 : inFlight.first() - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPurgedThrough() {
+        return shardRouter.onShard(shardRouter.getPrimary(), () -> sequenceRepository.findById(EXPENSE_SEQUENCE)
+                .map(SyncSequence::getPurgedThrough)
+                .orElse(0L));
+    }
+
+    public void setPurgedThrough(long purgedThrough) {
+        shardRouter.onShard(shardRouter.getPrimary(), () -> requiresNew.execute(status -> {
+            SyncSequence sequence = loadForUpdate();
+            if (purgedThrough > sequence.getPurgedThrough()) {
+                sequence.setPurgedThrough(purgedThrough);
+                sequenceRepository.save(sequence);
+            }
+            return null;
+        }));
+    }
+
+    private long begin() {
+        lock.lock();
+        try {
+            ensureLoaded();
+            if (next >= blockEnd) {
+                allocateBlock();
+            }
+            long changeSeq = next++;
+            inFlight.add(changeSeq);
+            return changeSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long beginRange(long count) {
+        lock.lock();
+        try {
+            ensureLoaded();
+            long first;
+            if (next + count <= blockEnd) {
+                first = next;
+                next += count;
+            } else {
+                first = reserve(count);
+                // Exhaust the block so the next single change reserves a new one past the range
+                next = first + count;
+                blockEnd = next;
+            }
+            inFlight.add(first);
+            return first;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            backfill();
+            loaded = true;
+        }
+    }
+
+    /**
+     * Gives every row written before delta sync existed its own change sequence, in id
+     * order, so a sync page never ends inside a run of equal values and drops the rest.
+     * A fresh block is taken afterwards so new writes sort after the backfilled rows. Each
+     * chunk is fenced for the users it touches, so it fails, to be retried on next use,
+     * rather than write while one of them is being moved between shards.
+     */
+    void backfill() {
+        lock.lock();
+        try {
+            for (String shard : shardRouter.getShards()) {
+                PageRequest chunk = PageRequest.of(0, BACKFILL_CHUNK);
+                List<ExpenseRepository.ExpenseOwner> owners;
+                while (!(owners = shardRouter.onShard(shard, () -> expenseRepository.findOwnersWithoutChangeSeq(chunk))).isEmpty()) {
+                    List<Long> unsequenced = owners.stream().map(ExpenseRepository.ExpenseOwner::getId).toList();
+                    Set<Long> userIds = owners.stream().map(ExpenseRepository.ExpenseOwner::getUserId).collect(Collectors.toSet());
+                    long first = reserve(unsequenced.size());
+                    shardRouter.onShard(shard, () -> shardRouter.fenceWrites(userIds, () -> requiresNew.execute(status -> {
+                        expenseRepository.assignChangeSeqs(unsequenced, first);
+                        return null;
+                    })));
+                }
+            }
+            allocateBlock();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void allocateBlock() {
+        long start = reserve(BLOCK_SIZE);
+        next = start;
+        blockEnd = start + BLOCK_SIZE;
+    }
+
+    private long reserve(long size) {
+        return shardRouter.onShard(shardRouter.getPrimary(), () -> requiresNew.execute(status -> {
+            SyncSequence sequence = loadForUpdate();
+            long start = sequence.getNextValue();
+            sequence.setNextValue(start + size);
+            sequenceRepository.save(sequence);
+            return start;
+        }));
+    }
+
+    private SyncSequence loadForUpdate() {
+        return sequenceRepository.findByNameForUpdate(EXPENSE_SEQUENCE)
+                .orElseGet(() -> sequenceRepository.save(new SyncSequence(EXPENSE_SEQUENCE, initialValue())));
+    }
+
+    // Start past anything already stored so cursors never go backwards
+    private long initialValue() {
+        long max = 0;
+        for (Long expenseMax : shardRouter.onEachShard(expenseRepository::findMaxChangeSeq).values()) {
+            if (expenseMax != null) {
+                max = Math.max(max, expenseMax);
+            }
+        }
+        for (Long tombstoneMax : shardRouter.onEachShard(tombstoneRepository::findMaxChangeSeq).values()) {
+            if (tombstoneMax != null) {
+                max = Math.max(max, tombstoneMax);
+            }
+        }
+        return max + 1;
+    }
+}
@@ -4,6 +4,9 @@ import com.example.testingapp.dto.ExpenseCategoryRequest;
 import com.example.testingapp.dto.ExpenseCategoryResponse;
 import com.example.testingapp.entity.ExpenseCategory;
 import com.example.testingapp.repository.ExpenseCategoryRepository;
+import com.example.testingapp.sharding.ReferenceDataReplicator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -15,16 +18,25 @@ import java.util.stream.Collectors;
 public class ExpenseCategoryService {
     
     private final ExpenseCategoryRepository categoryRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ReferenceDataReplicator referenceDataReplicator;
     
     @Autowired
-    public ExpenseCategoryService(ExpenseCategoryRepository categoryRepository) {
+    public ExpenseCategoryService(ExpenseCategoryRepository categoryRepository,
+                                  CategoryRegistry categoryRegistry,
+                                  EntityManagerFactory entityManagerFactory,
+                                  ReferenceDataReplicator referenceDataReplicator) {
         this.categoryRepository = categoryRepository;
+        this.categoryRegistry = categoryRegistry;
+        this.entityManagerFactory = entityManagerFactory;
+        this.referenceDataReplicator = referenceDataReplicator;
     }
     
     // Create a new category
     public ExpenseCategoryResponse createCategory(ExpenseCategoryRequest request) {
         // Check if category name already exists
-        if (categoryRepository.existsByName(request.getName())) {
+        if (categoryRegistry.snapshot().byName(request.getName()) != null) {
             throw new RuntimeException("Category name already exists: " + request.getName());
         }
         
@@ -37,35 +49,28 @@ public class ExpenseCategoryService {
         category.setActive(request.isActive());
         
         ExpenseCategory savedCategory = categoryRepository.save(category);
+        categoriesChanged();
         return new ExpenseCategoryResponse(savedCategory);
     }
     
-    // Get all categories
+    // Get all categories (shared, read-only list from the registry)
     public List<ExpenseCategoryResponse> getAllCategories() {
-        return categoryRepository.findAll()
-                .stream()
-                .map(ExpenseCategoryResponse::new)
-                .collect(Collectors.toList());
+        return categoryRegistry.snapshot().all();
     }
     
-    // Get active categories only
+    // Get active categories only (shared, read-only list from the registry)
     public List<ExpenseCategoryResponse> getActiveCategories() {
-        return categoryRepository.findByIsActiveTrue()
-                .stream()
-                .map(ExpenseCategoryResponse::new)
-                .collect(Collectors.toList());
+        return categoryRegistry.snapshot().active();
     }
     
     // Get category by ID
     public Optional<ExpenseCategoryResponse> getCategoryById(Long id) {
-        return categoryRepository.findById(id)
-                .map(ExpenseCategoryResponse::new);
+        return Optional.ofNullable(categoryRegistry.find(id));
     }
     
     // Get category by name
     public Optional<ExpenseCategoryResponse> getCategoryByName(String name) {
-        return categoryRepository.findByName(name)
-                .map(ExpenseCategoryResponse::new);
+        return Optional.ofNullable(categoryRegistry.snapshot().byName(name));
     }
     
     // Search categories by name
@@ -82,7 +87,7 @@ public class ExpenseCategoryService {
                 .map(category -> {
                     // Check if new name already exists (excluding current category)
                     if (!category.getName().equals(request.getName()) && 
-                        categoryRepository.existsByName(request.getName())) {
+                        categoryRegistry.snapshot().byName(request.getName()) != null) {
                         throw new RuntimeException("Category name already exists: " + request.getName());
                     }
                     
@@ -93,14 +98,16 @@ public class ExpenseCategoryService {
                     category.setActive(request.isActive());
                     
                     ExpenseCategory updatedCategory = categoryRepository.save(category);
+                    categoriesChanged();
                     return new ExpenseCategoryResponse(updatedCategory);
                 });
     }
     
-    // Delete category
+    // Delete category; it must have no expenses left, see CategoryDeletionService
     public boolean deleteCategory(Long id) {
-        if (categoryRepository.existsById(id)) {
+        if (categoryRegistry.find(id) != null) {
             categoryRepository.deleteById(id);
+            categoriesChanged();
             return true;
         }
         return false;
@@ -112,30 +119,35 @@ public class ExpenseCategoryService {
                 .map(category -> {
                     category.setActive(false);
                     ExpenseCategory updatedCategory = categoryRepository.save(category);
+                    categoriesChanged();
                     return new ExpenseCategoryResponse(updatedCategory);
                 });
     }
     
     // Check if category exists
     public boolean categoryExists(Long id) {
-        return categoryRepository.existsById(id);
+        return categoryRegistry.find(id) != null;
     }
     
     // Get total category count
     public long getCategoryCount() {
-        return categoryRepository.count();
+        return categoryRegistry.snapshot().count();
     }
     
     // Get active category count
     public long getActiveCategoryCount() {
-        return categoryRepository.findByIsActiveTrue().size();
+        return categoryRegistry.snapshot().activeCount();
     }
     
-    // Get categories ordered by expense count
-    public List<ExpenseCategoryResponse> getCategoriesOrderedByUsage() {
-        return categoryRepository.findCategoriesOrderByExpenseCount()
-                .stream()
-                .map(ExpenseCategoryResponse::new)
-                .collect(Collectors.toList());
+    // Hibernate already invalidates the read-write region on its own writes; evicting after
+    // every mutation also covers the cascade delete and any bulk statement that bypasses it.
+    // The registry is rebuilt afterwards so it reads the table rather than stale cache entries.
+    // Shards get their copy of the table last, since expenses there reference it.
+    private void categoriesChanged() {
+        entityManagerFactory.getCache().evict(ExpenseCategory.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(ExpenseCategory.QUERY_CACHE_REGION);
+        categoryRegistry.refresh();
+        referenceDataReplicator.categoriesChanged();
     }
 }
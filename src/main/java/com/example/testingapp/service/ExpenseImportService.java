@@ -0,0 +1,437 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ArchivedExpense;
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.async.FairBulkheadExecutor;
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.dto.ExpenseImportJob;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import com.example.testingapp.event.ExpensesBulkChangedEvent;
+import com.example.testingapp.importer.StatementFormat;
+import com.example.testingapp.importer.StatementLine;
+import com.example.testingapp.importer.StatementReader;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Imports expenses from bank statement exports (CSV or OFX) as background jobs.
+ * <p>
+ * The upload is spooled to a temp file and read back a chunk at a time. Each chunk goes
+ * through the pipeline in one task: parse, map each line's category through the
+ * {@link CategoryRegistry} snapshot, drop lines matching an existing expense, and insert the
+ * rest as one JDBC batch in a short transaction. Only debits are imported; credits are
+ * counted and skipped.
+ * <p>
+ * Chunks run on the import {@link FairBulkheadExecutor}, and a job queues its next chunk
+ * only when the previous one is done. Concurrent imports therefore take turns chunk by
+ * chunk, fairly across users, and together never hold more connections than the executor
+ * has threads. Memory per job is one chunk of lines plus the existing expenses in that
+ * chunk's date range.
+ * <p>
+ * A line is a duplicate when an expense of the same user has the same date, amount and
+ * description, ignoring case. Matching is one-for-one, so two identical coffees on the
+ * same day import twice unless two such expenses already exist. Only expenses that existed
+ * when the job started are compared, so a statement is never de-duplicated against itself.
+ */
+@Service
+public class ExpenseImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImportService.class);
+    private static final long FINISHED_JOB_RETENTION_HOURS = 24;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    private static final int MAX_NOTES_LENGTH = 500;
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+    private static final String DEFAULT_CATEGORY = "Other";
+
+    private final AppUserRepository userRepository;
+    private final ExpenseRepository expenseRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final CategoryUsageService categoryUsageService;
+    private final ChangeSequenceService changeSequenceService;
+    private final ShardRouter shardRouter;
+    private final ExpenseArchive expenseArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FairBulkheadExecutor importExecutor;
+    private final Map<String, ImportRun> runs = new ConcurrentHashMap<>();
+    // Serialises the running-import limit check with registering the new run
+    private final ReentrantLock startLock = new ReentrantLock();
+
+    @Value("${expense.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${expense.import.max-running:20}")
+    private int maxRunning;
+
+    @Value("${expense.import.max-running-per-user:2}")
+    private int maxRunningPerUser;
+
+    @Autowired
+    public ExpenseImportService(AppUserRepository userRepository,
+                                ExpenseRepository expenseRepository,
+                                CategoryRegistry categoryRegistry,
+                                CategoryUsageService categoryUsageService,
+                                ChangeSequenceService changeSequenceService,
+                                ShardRouter shardRouter,
+                                ExpenseArchive expenseArchive,
+                                TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Qualifier("importExecutor") FairBulkheadExecutor importExecutor) {
+        this.userRepository = userRepository;
+        this.expenseRepository = expenseRepository;
+        this.categoryRegistry = categoryRegistry;
+        this.categoryUsageService = categoryUsageService;
+        this.changeSequenceService = changeSequenceService;
+        this.shardRouter = shardRouter;
+        this.expenseArchive = expenseArchive;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.importExecutor = importExecutor;
+    }
+
+    /**
+     * Spool a statement and queue its import for the user. Lines without a recognised
+     * category go to {@code defaultCategoryId}, or to "Other" when it is null. A CSV whose
+     * header cannot be mapped is rejected here rather than as a failed job.
+     */
+    public ExpenseImportJob startImport(String username, InputStream body, StatementFormat format,
+                                        Long defaultCategoryId, Expense.PaymentMethod paymentMethod,
+                                        String dateFormat) throws IOException {
+        pruneFinishedJobs();
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        CategoryRegistry.Snapshot categories = categoryRegistry.snapshot();
+        ExpenseCategoryResponse defaultCategory = defaultCategoryId != null
+                ? categoryRegistry.find(defaultCategoryId)
+                : categories.byName(DEFAULT_CATEGORY);
+        if (defaultCategory == null) {
+            throw new IllegalArgumentException(defaultCategoryId != null
+                    ? "Category not found: " + defaultCategoryId
+                    : "No \"" + DEFAULT_CATEGORY + "\" category; pass defaultCategoryId");
+        }
+        DateTimeFormatter dates;
+        try {
+            dates = DateTimeFormatter.ofPattern(dateFormat);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid dateFormat: " + dateFormat);
+        }
+
+        Path upload = Files.createTempFile("expense-import-", "." + format.name().toLowerCase(Locale.ROOT));
+        StatementReader reader;
+        try {
+            Files.copy(body, upload, StandardCopyOption.REPLACE_EXISTING);
+            reader = format.open(Files.newBufferedReader(upload, StandardCharsets.UTF_8), dates);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+
+        Map<String, Long> categoryIds = new HashMap<>();
+        categories.all().forEach(category ->
+                categoryIds.putIfAbsent(category.getName().toLowerCase(Locale.ROOT), category.getId()));
+        Long maxId = expenseRepository.findMaxId();
+        long maxExistingId = Math.max(maxId != null ? maxId : 0, expenseArchive.maxExpenseId(user.getId()));
+        ImportRun run = new ImportRun(new ExpenseImportJob(UUID.randomUUID().toString(), format.name()),
+                user.getId(), username, upload, reader, categoryIds, defaultCategory.getId(),
+                paymentMethod, maxExistingId);
+
+        startLock.lock();
+        try {
+            long running = 0;
+            long runningForUser = 0;
+            for (ImportRun other : runs.values()) {
+                if (other.job.getStatus() == ExpenseImportJob.Status.RUNNING) {
+                    running++;
+                    if (other.username.equals(username)) {
+                        runningForUser++;
+                    }
+                }
+            }
+            if (running >= maxRunning || runningForUser >= maxRunningPerUser) {
+                run.close();
+                throw new RejectedExecutionException(runningForUser >= maxRunningPerUser
+                        ? "You already have " + runningForUser + " imports running, please wait for one to finish"
+                        : "Too many imports are running, please retry shortly");
+            }
+            runs.put(run.job.getId(), run);
+        } finally {
+            startLock.unlock();
+        }
+        submitNextChunk(run);
+        return run.job;
+    }
+
+    // A job is only visible to the user who started it
+    public Optional<ExpenseImportJob> getJob(String jobId, String username) {
+        return Optional.ofNullable(runs.get(jobId))
+                .filter(run -> run.username.equals(username))
+                .map(run -> run.job);
+    }
+
+    public Optional<ExpenseImportJob> cancel(String jobId, String username) {
+        return getJob(jobId, username).map(job -> {
+            job.requestCancel();
+            return job;
+        });
+    }
+
+    // Imports cut short by shutdown keep the chunks already inserted
+    @PreDestroy
+    public void shutdown() {
+        runs.values().forEach(ImportRun::close);
+    }
+
+    private void submitNextChunk(ImportRun run) {
+        importExecutor.submit(run.username, () -> importChunk(run)).whenComplete((more, error) -> {
+            if (error == null && more && !run.job.isCancelRequested()) {
+                submitNextChunk(run);
+            } else {
+                finish(run, error);
+            }
+        });
+    }
+
+    // Reads, de-duplicates and inserts one chunk; true if the statement has more lines
+    private boolean importChunk(ImportRun run) {
+        ExpenseImportJob job = run.job;
+        List<StatementLine> lines = new ArrayList<>(chunkSize);
+        boolean more = true;
+        try {
+            while (lines.size() < chunkSize) {
+                StatementLine line = run.reader.next();
+                if (line == null) {
+                    more = false;
+                    break;
+                }
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<ExpenseRequest> candidates = new ArrayList<>(lines.size());
+        int credits = 0;
+        for (StatementLine line : lines) {
+            if (!line.isValid()) {
+                job.addInvalid(line.getLine(), line.getError());
+            } else if (!line.isDebit()) {
+                credits++;
+            } else {
+                String problem = toExpense(line, run, candidates);
+                if (problem != null) {
+                    job.addInvalid(line.getLine(), problem);
+                }
+            }
+        }
+
+        // Runs against the user's shard and fails the job if the user is being moved meanwhile
+        List<ExpenseRequest> inserts = shardRouter.write(run.userId, () -> {
+            List<ExpenseRequest> fresh = withoutDuplicates(candidates, run);
+            if (!fresh.isEmpty()) {
+                LocalDateTime now = LocalDateTime.now();
+                changeSequenceService.recordChanges(fresh.size(), firstChangeSeq -> {
+                    List<Long> ids = transactionTemplate.execute(status -> expenseRepository.insertAllReturningIds(
+                            Collections.nCopies(fresh.size(), run.userId), fresh, firstChangeSeq, now));
+                    ExpenseRangesWrittenEvent.Builder written = ExpenseRangesWrittenEvent.builder(
+                            ExpenseRangesWrittenEvent.Operation.IMPORTED);
+                    for (int i = 0; i < ids.size(); i++) {
+                        written.add(run.userId, ids.get(i), firstChangeSeq + i);
+                    }
+                    eventPublisher.publishEvent(written.build());
+                    return null;
+                });
+            }
+            return fresh;
+        });
+        if (!inserts.isEmpty()) {
+            Map<Long, Integer> perCategory = new HashMap<>();
+            inserts.forEach(expense -> perCategory.merge(expense.getCategoryId(), 1, Integer::sum));
+            perCategory.forEach(categoryUsageService::expensesAdded);
+        }
+
+        job.addLinesRead(lines.size());
+        job.addCredits(credits);
+        job.addDuplicates(candidates.size() - inserts.size());
+        job.addCreated(inserts.size());
+        return more;
+    }
+
+    // Maps a debit line to an expense request and adds it, or returns why it cannot be imported
+    private String toExpense(StatementLine line, ImportRun run, List<ExpenseRequest> expenses) {
+        String description = line.getDescription() != null ? line.getDescription() : line.getMemo();
+        if (description == null || description.isBlank()) {
+            return "Description is missing";
+        }
+        description = truncate(description.trim(), MAX_DESCRIPTION_LENGTH);
+        if (description.length() < 2) {
+            return "Description must be at least 2 characters";
+        }
+        BigDecimal amount = line.getAmount().negate().setScale(2, RoundingMode.HALF_UP);
+        if (amount.signum() == 0) {
+            return "Amount rounds to zero";
+        }
+        if (amount.compareTo(MAX_AMOUNT) > 0) {
+            return "Amount exceeds " + MAX_AMOUNT;
+        }
+        Long categoryId = line.getCategory() != null
+                ? run.categoryIds.getOrDefault(line.getCategory().trim().toLowerCase(Locale.ROOT), run.defaultCategoryId)
+                : run.defaultCategoryId;
+
+        ExpenseRequest expense = new ExpenseRequest(description, amount, line.getDate(), categoryId);
+        if (line.getDescription() != null && line.getMemo() != null) {
+            expense.setNotes(truncate(line.getMemo().trim(), MAX_NOTES_LENGTH));
+        }
+        expense.setPaymentMethod(run.paymentMethod);
+        expenses.add(expense);
+        return null;
+    }
+
+    // Drops candidates matching an existing expense one-for-one, live or archived, with one query over the
+    // chunk's date range
+    private List<ExpenseRequest> withoutDuplicates(List<ExpenseRequest> candidates, ImportRun run) {
+        if (candidates.isEmpty() || run.maxExistingId == 0) {
+            return candidates;
+        }
+        LocalDate start = candidates.get(0).getExpenseDate();
+        LocalDate end = start;
+        for (ExpenseRequest candidate : candidates) {
+            LocalDate date = candidate.getExpenseDate();
+            start = date.isBefore(start) ? date : start;
+            end = date.isAfter(end) ? date : end;
+        }
+        LocalDate from = start;
+        LocalDate to = end;
+        Map<String, Integer> existing = new HashMap<>();
+        expenseArchive.read(run.userId, () -> {
+            for (ExpenseRepository.ImportKey key : expenseRepository.findImportKeys(run.userId, from, to, run.maxExistingId)) {
+                existing.merge(duplicateKey(key.getExpenseDate(), key.getAmount(), key.getDescription()), 1, Integer::sum);
+            }
+            for (ArchivedExpense expense : expenseArchive.findBetween(run.userId, from, to)) {
+                if (expense.id() <= run.maxExistingId) {
+                    existing.merge(duplicateKey(expense.expenseDate(), expense.amount(), expense.description()),
+                            1, Integer::sum);
+                }
+            }
+            return null;
+        });
+        if (existing.isEmpty()) {
+            return candidates;
+        }
+        List<ExpenseRequest> kept = new ArrayList<>(candidates.size());
+        for (ExpenseRequest candidate : candidates) {
+            String key = duplicateKey(candidate.getExpenseDate(), candidate.getAmount(), candidate.getDescription());
+            Integer count = existing.get(key);
+            if (count != null && count > 0) {
+                existing.put(key, count - 1);
+            } else {
+                kept.add(candidate);
+            }
+        }
+        return kept;
+    }
+
+    private void finish(ImportRun run, Throwable error) {
+        ExpenseImportJob job = run.job;
+        run.close();
+        if (error != null) {
+            Throwable cause = error instanceof UncheckedIOException ? error.getCause() : error;
+            log.error("Expense import {} failed after {} lines", job.getId(), job.getLinesRead(), cause);
+            job.fail(cause.getMessage());
+        } else {
+            job.complete();
+            log.info("Expense import {} {}: {} created, {} duplicates of {} lines",
+                    job.getId(), job.getStatus(), job.getCreated(), job.getDuplicates(), job.getLinesRead());
+        }
+        if (job.getCreated() > 0) {
+            eventPublisher.publishEvent(ExpensesBulkChangedEvent.forUser(run.userId, job.getCreated()));
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(FINISHED_JOB_RETENTION_HOURS);
+        runs.values().removeIf(run -> run.job.getFinishedAt() != null && run.job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private static String duplicateKey(LocalDate date, BigDecimal amount, String description) {
+        return date + "|" + amount.setScale(2, RoundingMode.HALF_UP).toPlainString() + "|"
+                + description.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static final class ImportRun {
+
+        private final ExpenseImportJob job;
+        private final Long userId;
+        private final String username;
+        private final Path upload;
+        // Used by one chunk at a time; the executor hands it from worker to worker
+        private final StatementReader reader;
+        private final Map<String, Long> categoryIds;
+        private final Long defaultCategoryId;
+        private final Expense.PaymentMethod paymentMethod;
+        private final long maxExistingId;
+
+        private ImportRun(ExpenseImportJob job, Long userId, String username, Path upload, StatementReader reader,
+                          Map<String, Long> categoryIds, Long defaultCategoryId,
+                          Expense.PaymentMethod paymentMethod, long maxExistingId) {
+            this.job = job;
+            this.userId = userId;
+            this.username = username;
+            this.upload = upload;
+            this.reader = reader;
+            this.categoryIds = categoryIds;
+            this.defaultCategoryId = defaultCategoryId;
+            this.paymentMethod = paymentMethod;
+            this.maxExistingId = maxExistingId;
+        }
+
+        private void close() {
+            try {
+                reader.close();
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                log.warn("Could not delete import upload {}: {}", upload, e.getMessage());
+            }
+        }
+    }
+}
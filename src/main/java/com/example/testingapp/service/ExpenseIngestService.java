@@ -0,0 +1,338 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.async.BoundedRingBuffer;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.sharding.ShardContext;
+import com.example.testingapp.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind path for creating expenses.
+ * <p>
+ * When enabled, a create is validated on the request thread and put into a bounded ring
+ * buffer; a few writer threads drain it and insert everything they took, per shard, as one
+ * JDBC batch in one transaction under one range of change sequences. The caller's future
+ * completes only after that transaction has committed, so an acknowledged expense is as
+ * durable as one created directly, but a burst of creates costs a handful of commits instead
+ * of one each. A full buffer turns the request away with {@link RejectedExecutionException}.
+ * When disabled, creates go straight to {@link ExpenseService}.
+ */
+@Service
+public class ExpenseIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseIngestService.class);
+    // Writers recheck the buffer at least this often even if no producer wakes them
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final ExpenseService expenseService;
+    private final ExpenseRepository expenseRepository;
+    private final AppUserRepository userRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final CategoryUsageService categoryUsageService;
+    private final ChangeSequenceService changeSequenceService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BoundedRingBuffer<Pending> buffer;
+    private final ConcurrentLinkedQueue<Thread> idleWriters = new ConcurrentLinkedQueue<>();
+    private final Thread[] writers;
+    private volatile boolean stopping;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong expenses = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+
+    @Autowired
+    public ExpenseIngestService(ExpenseService expenseService,
+                                ExpenseRepository expenseRepository,
+                                AppUserRepository userRepository,
+                                CategoryRegistry categoryRegistry,
+                                CategoryUsageService categoryUsageService,
+                                ChangeSequenceService changeSequenceService,
+                                ShardRouter shardRouter,
+                                TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${expense.ingest.enabled:false}") boolean enabled,
+                                @Value("${expense.ingest.capacity:4096}") int capacity,
+                                @Value("${expense.ingest.writers:2}") int writerCount,
+                                @Value("${expense.ingest.max-batch-size:256}") int maxBatchSize,
+                                @Value("${expense.ingest.linger-ms:2}") long lingerMs) {
+        this.expenseService = expenseService;
+        this.expenseRepository = expenseRepository;
+        this.userRepository = userRepository;
+        this.categoryRegistry = categoryRegistry;
+        this.categoryUsageService = categoryUsageService;
+        this.changeSequenceService = changeSequenceService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.buffer = enabled ? new BoundedRingBuffer<>(capacity) : null;
+        this.writers = new Thread[enabled ? writerCount : 0];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(this::runWriter, "expense-ingest-" + (i + 1));
+            writers[i].setDaemon(true);
+            writers[i].start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Completes with the created expense once it has committed
+    public CompletableFuture<ExpenseResponse> createExpense(ExpenseRequest request, String username) {
+        if (!enabled) {
+            try {
+                return CompletableFuture.completedFuture(expenseService.createExpense(request, username));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        if (categoryRegistry.find(request.getCategoryId()) == null) {
+            throw new RuntimeException("Category not found: " + request.getCategoryId());
+        }
+
+        // Held until the expense is written, so a shard move waits for queued creates too
+        if (!shardRouter.enterWrite(user.getId())) {
+            throw new RejectedExecutionException("Your expenses are being moved, please retry shortly");
+        }
+        Pending pending = new Pending(request, user.getId(), user.getUsername());
+        if (stopping || !buffer.offer(pending)) {
+            shardRouter.exitWrite(user.getId());
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("The expense ingest queue is full, please retry shortly");
+        }
+        Thread writer = idleWriters.poll();
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+        return pending.future;
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        Thread self = Thread.currentThread();
+        while (true) {
+            if (buffer.drainTo(batch, maxBatchSize) == 0) {
+                if (stopping) {
+                    return;
+                }
+                // Registered before the last check, so a producer that misses it finds us to unpark
+                idleWriters.add(self);
+                if (buffer.isEmpty() && !stopping) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idleWriters.remove(self);
+                continue;
+            }
+            // Linger briefly so requests arriving together share one commit
+            long deadline = System.nanoTime() + lingerNanos;
+            while (batch.size() < maxBatchSize && System.nanoTime() < deadline) {
+                if (buffer.drainTo(batch, maxBatchSize - batch.size()) == 0) {
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure writing a batch of {} expenses", batch.size(), e);
+                batch.forEach(pending -> fail(pending, e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        Map<String, List<Pending>> byShard = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byShard.computeIfAbsent(shardRouter.shardFor(pending.userId), shard -> new ArrayList<>()).add(pending);
+        }
+        byShard.forEach((shard, entries) -> {
+            Inserted inserted;
+            try {
+                inserted = insert(shard, entries);
+            } catch (RuntimeException e) {
+                if (entries.size() == 1) {
+                    fail(entries.get(0), e);
+                    return;
+                }
+                // One bad row rolls back the whole batch; retry one by one so only it fails
+                log.debug("Batch of {} expenses failed, retrying them one by one", entries.size(), e);
+                for (Pending pending : entries) {
+                    Inserted single;
+                    try {
+                        single = insert(shard, List.of(pending));
+                    } catch (RuntimeException failure) {
+                        fail(pending, failure);
+                        continue;
+                    }
+                    complete(List.of(pending), single);
+                }
+                return;
+            }
+            // Outside the try: the rows are committed, so nothing after this may retry or fail them
+            complete(entries, inserted);
+        });
+    }
+
+    // Inserts the entries in one transaction; throwing means nothing was committed
+    private Inserted insert(String shard, List<Pending> entries) {
+        List<Long> userIds = new ArrayList<>(entries.size());
+        List<ExpenseRequest> requests = new ArrayList<>(entries.size());
+        for (Pending pending : entries) {
+            userIds.add(pending.userId);
+            requests.add(pending.request);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return ShardContext.callOn(shard, () -> changeSequenceService.recordChanges(entries.size(),
+                firstChangeSeq -> new Inserted(firstChangeSeq, now, transactionTemplate.execute(status ->
+                        expenseRepository.insertAllReturningIds(userIds, requests, firstChangeSeq, now)))));
+    }
+
+    // Bookkeeping for committed entries; a failure here is logged and never undoes the insert
+    private void complete(List<Pending> entries, Inserted inserted) {
+        batches.incrementAndGet();
+        expenses.addAndGet(entries.size());
+        largestBatch.accumulateAndGet(entries.size(), Math::max);
+        try {
+            Map<Long, Integer> perCategory = new HashMap<>();
+            entries.forEach(pending -> perCategory.merge(pending.request.getCategoryId(), 1, Integer::sum));
+            perCategory.forEach(categoryUsageService::expensesAdded);
+        } catch (RuntimeException e) {
+            log.error("Failed to count {} ingested expenses by category", entries.size(), e);
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            Pending pending = entries.get(i);
+            try {
+                ExpenseResponse response = toResponse(pending.request, inserted.ids.get(i), inserted.now);
+                eventPublisher.publishEvent(new ExpenseChangedEvent(ExpenseChangedEvent.Type.CREATED,
+                        pending.userId, pending.username, response.getId(), inserted.firstChangeSeq + i, response));
+                pending.future.complete(response);
+            } catch (RuntimeException e) {
+                log.error("Failed to publish created expense for user {}", pending.userId, e);
+                pending.future.completeExceptionally(e);
+            } finally {
+                shardRouter.exitWrite(pending.userId);
+            }
+        }
+    }
+
+    private ExpenseResponse toResponse(ExpenseRequest request, Long id, LocalDateTime now) {
+        ExpenseResponse response = new ExpenseResponse();
+        response.setId(id);
+        response.setDescription(request.getDescription());
+        response.setAmount(request.getAmount());
+        response.setExpenseDate(request.getExpenseDate());
+        response.setCategory(categoryRegistry.find(request.getCategoryId()));
+        response.setNotes(request.getNotes());
+        response.setPaymentMethod(request.getPaymentMethod());
+        response.setRecurring(request.isRecurring());
+        response.setRecurringFrequency(request.getRecurringFrequency());
+        response.setCreatedAt(now);
+        response.setUpdatedAt(now);
+        return response;
+    }
+
+    private void fail(Pending pending, RuntimeException e) {
+        failed.incrementAndGet();
+        pending.future.completeExceptionally(e);
+        shardRouter.exitWrite(pending.userId);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", enabled ? buffer.size() : 0);
+        stats.put("capacity", enabled ? buffer.capacity() : 0);
+        stats.put("writers", writers.length);
+        long batchCount = batches.get();
+        long expenseCount = expenses.get();
+        stats.put("batches", batchCount);
+        stats.put("expenses", expenseCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) expenseCount / batchCount);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    // Stops taking creates and writes out what is queued; anything left after the timeout fails
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        stopping = true;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        for (Thread writer : writers) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Pending pending;
+        int abandoned = 0;
+        while ((pending = buffer.poll()) != null) {
+            fail(pending, new RejectedExecutionException("The expense ingest queue is shutting down"));
+            abandoned++;
+        }
+        if (abandoned > 0) {
+            log.warn("Shut down with {} expenses still queued; their requests failed", abandoned);
+        }
+    }
+
+    private static final class Pending {
+        private final ExpenseRequest request;
+        private final Long userId;
+        private final String username;
+        private final CompletableFuture<ExpenseResponse> future = new CompletableFuture<>();
+
+        private Pending(ExpenseRequest request, Long userId, String username) {
+            this.request = request;
+            this.userId = userId;
+            this.username = username;
+        }
+    }
+
+    private record Inserted(long firstChangeSeq, LocalDateTime now, List<Long> ids) {}
+}
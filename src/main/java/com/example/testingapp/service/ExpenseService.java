@@ -1,38 +1,80 @@
 package com.example.testingapp.service;
 
+import com.example.testingapp.archive.ArchivedExpense;
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.dto.ExpenseFields;
 import com.example.testingapp.dto.ExpenseRequest;
 import com.example.testingapp.dto.ExpenseResponse;
 import com.example.testingapp.entity.AppUser;
 import com.example.testingapp.entity.Expense;
 import com.example.testingapp.entity.ExpenseCategory;
+import com.example.testingapp.entity.ExpenseTombstone;
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.jfr.ExpenseMappingEvent;
 import com.example.testingapp.repository.AppUserRepository;
 import com.example.testingapp.repository.ExpenseCategoryRepository;
 import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.repository.ExpenseTombstoneRepository;
+import com.example.testingapp.tracing.RequestTrace;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class ExpenseService {
     
+    private static final int RECENT_LIMIT = 10;
+    
     private final ExpenseRepository expenseRepository;
     private final ExpenseCategoryRepository categoryRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final CategoryUsageService categoryUsageService;
     private final AppUserRepository userRepository;
+    private final ExpenseTombstoneRepository tombstoneRepository;
+    private final ChangeSequenceService changeSequenceService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExpenseArchive expenseArchive;
     
     @Autowired
     public ExpenseService(ExpenseRepository expenseRepository, 
                          ExpenseCategoryRepository categoryRepository,
-                         AppUserRepository userRepository) {
+                         CategoryRegistry categoryRegistry,
+                         CategoryUsageService categoryUsageService,
+                         AppUserRepository userRepository,
+                         ExpenseTombstoneRepository tombstoneRepository,
+                         ChangeSequenceService changeSequenceService,
+                         TransactionTemplate transactionTemplate,
+                         ApplicationEventPublisher eventPublisher,
+                         ExpenseArchive expenseArchive) {
         this.expenseRepository = expenseRepository;
         this.categoryRepository = categoryRepository;
+        this.categoryRegistry = categoryRegistry;
+        this.categoryUsageService = categoryUsageService;
         this.userRepository = userRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeSequenceService = changeSequenceService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.expenseArchive = expenseArchive;
     }
     
     // Create a new expense
@@ -40,8 +82,7 @@ public class ExpenseService {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        ExpenseCategory category = categoryRepository.findById(request.getCategoryId())
-                .orElseThrow(() -> new RuntimeException("Category not found: " + request.getCategoryId()));
+        ExpenseCategory category = findCategory(request.getCategoryId());
         
         Expense expense = new Expense(
             request.getDescription(),
@@ -56,28 +97,40 @@ public class ExpenseService {
         expense.setRecurring(request.isRecurring());
         expense.setRecurringFrequency(request.getRecurringFrequency());
         
-        Expense savedExpense = expenseRepository.save(expense);
-        return new ExpenseResponse(savedExpense);
+        Expense savedExpense = changeSequenceService.recordChange(changeSeq -> {
+            expense.setChangeSeq(changeSeq);
+            return expenseRepository.save(expense);
+        });
+        categoryUsageService.expenseAdded(request.getCategoryId());
+        ExpenseResponse response = toResponse(savedExpense);
+        publishChange(ExpenseChangedEvent.Type.CREATED, user, savedExpense.getId(),
+                savedExpense.getChangeSeq(), response);
+        return response;
     }
     
-    // Get all expenses for user
+    // Get all expenses for user, archived ones included
     public List<ExpenseResponse> getAllExpensesForUser(String username) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findByUserOrderByExpenseDateDesc(user)
-                .stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return withArchived(user, () -> expenseRepository.findByUserOrderByExpenseDateDesc(user),
+                () -> expenseArchive.findAll(user.getId(), expense -> true));
     }
     
-    // Get expenses for user with pagination
+    // Get expenses for user with pagination, archived ones included
     public Page<ExpenseResponse> getExpensesForUser(String username, Pageable pageable) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findByUserOrderByExpenseDateDesc(user, pageable)
-                .map(ExpenseResponse::new);
+        return expenseArchive.read(user.getId(), () -> {
+            if (!expenseArchive.hasExpenses(user.getId())) {
+                Page<Expense> expenses = expenseRepository.findByUserOrderByExpenseDateDesc(user, pageable);
+                return mapResponses(user, expenses.getNumberOfElements(), () -> expenses.map(this::toResponse));
+            }
+            return mergedPage(user, pageable,
+                    (offset, limit) -> toResponses(user, expenseRepository.findByUser(user, offset, limit)),
+                    this::toResponse, ExpenseResponse::getExpenseDate);
+        });
     }
     
     // Get expense by ID (only if belongs to user)
@@ -85,45 +138,41 @@ public class ExpenseService {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findById(id)
+        return expenseArchive.read(user.getId(), () -> expenseRepository.findById(id)
                 .filter(expense -> expense.getUser().equals(user))
-                .map(ExpenseResponse::new);
+                .map(this::toResponse)
+                .or(() -> expenseArchive.find(user.getId(), id).map(this::toResponse)));
     }
     
-    // Get expenses by date range
+    // Get expenses by date range, from the table and the archive
     public List<ExpenseResponse> getExpensesByDateRange(String username, LocalDate startDate, LocalDate endDate) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findByUserAndExpenseDateBetweenOrderByExpenseDateDesc(user, startDate, endDate)
-                .stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return withArchived(user,
+                () -> expenseRepository.findByUserAndExpenseDateBetweenOrderByExpenseDateDesc(user, startDate, endDate),
+                () -> expenseArchive.findBetween(user.getId(), startDate, endDate));
     }
     
-    // Get expenses by category
+    // Get expenses by category, archived ones included
     public List<ExpenseResponse> getExpensesByCategory(String username, Long categoryId) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        ExpenseCategory category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new RuntimeException("Category not found: " + categoryId));
+        ExpenseCategory category = findCategory(categoryId);
         
-        return expenseRepository.findByUserAndCategoryOrderByExpenseDateDesc(user, category)
-                .stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return withArchived(user, () -> expenseRepository.findByUserAndCategoryOrderByExpenseDateDesc(user, category),
+                () -> expenseArchive.findAll(user.getId(), inCategory(categoryId)));
     }
     
-    // Search expenses by description
+    // Search expenses by description, archived ones included
     public List<ExpenseResponse> searchExpenses(String username, String description) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findByUserAndDescriptionContainingIgnoreCaseOrderByExpenseDateDesc(user, description)
-                .stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return withArchived(user,
+                () -> expenseRepository.findByUserAndDescriptionContainingIgnoreCaseOrderByExpenseDateDesc(user, description),
+                () -> expenseArchive.findAll(user.getId(), describedAs(description)));
     }
     
     // Update expense
@@ -134,8 +183,8 @@ public class ExpenseService {
         return expenseRepository.findById(id)
                 .filter(expense -> expense.getUser().equals(user))
                 .map(expense -> {
-                    ExpenseCategory category = categoryRepository.findById(request.getCategoryId())
-                            .orElseThrow(() -> new RuntimeException("Category not found: " + request.getCategoryId()));
+                    ExpenseCategory category = findCategory(request.getCategoryId());
+                    Long previousCategoryId = expense.getCategory().getId();
                     
                     expense.setDescription(request.getDescription());
                     expense.setAmount(request.getAmount());
@@ -146,8 +195,15 @@ public class ExpenseService {
                     expense.setRecurring(request.isRecurring());
                     expense.setRecurringFrequency(request.getRecurringFrequency());
                     
-                    Expense updatedExpense = expenseRepository.save(expense);
-                    return new ExpenseResponse(updatedExpense);
+                    Expense updatedExpense = changeSequenceService.recordChange(changeSeq -> {
+                        expense.setChangeSeq(changeSeq);
+                        return expenseRepository.save(expense);
+                    });
+                    categoryUsageService.expenseMoved(previousCategoryId, request.getCategoryId());
+                    ExpenseResponse response = toResponse(updatedExpense);
+                    publishChange(ExpenseChangedEvent.Type.UPDATED, user, updatedExpense.getId(),
+                            updatedExpense.getChangeSeq(), response);
+                    return response;
                 });
     }
     
@@ -158,55 +214,292 @@ public class ExpenseService {
         
         Optional<Expense> expense = expenseRepository.findById(id);
         if (expense.isPresent() && expense.get().getUser().equals(user)) {
-            expenseRepository.deleteById(id);
+            // Delete and leave a tombstone for delta sync in one transaction
+            ExpenseTombstone tombstone = changeSequenceService.recordChange(changeSeq ->
+                    transactionTemplate.execute(status -> {
+                        expenseRepository.deleteById(id);
+                        return tombstoneRepository.save(new ExpenseTombstone(id, user, changeSeq));
+                    }));
+            categoryUsageService.expenseRemoved(expense.get().getCategory().getId());
+            publishChange(ExpenseChangedEvent.Type.DELETED, user, id, tombstone.getChangeSeq(), null);
             return true;
         }
         return false;
     }
     
-    // Get total expenses for user
+    // Get total expenses for user, archived ones included
     public BigDecimal getTotalExpenses(String username) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.getTotalExpensesByUser(user);
+        return expenseArchive.read(user.getId(), () -> expenseRepository.getTotalExpensesByUser(user)
+                .add(expenseArchive.total(user.getId())));
     }
     
-    // Get total expenses for user by date range
+    // Get total expenses for user by date range, archived ones included
     public BigDecimal getTotalExpensesByDateRange(String username, LocalDate startDate, LocalDate endDate) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.getTotalExpensesByUserAndDateRange(user, startDate, endDate);
+        return expenseArchive.read(user.getId(), () -> expenseRepository.getTotalExpensesByUserAndDateRange(user, startDate, endDate)
+                .add(expenseArchive.total(user.getId(), startDate, endDate)));
     }
     
-    // Get recent expenses
+    // Get the 10 most recently created expenses, archived ones included
     public List<ExpenseResponse> getRecentExpenses(String username) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findTop10ByUserOrderByCreatedAtDesc(user)
-                .stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return expenseArchive.read(user.getId(), () -> {
+            List<ExpenseResponse> expenses = toResponses(user, expenseRepository.findTop10ByUserOrderByCreatedAtDesc(user));
+            return merge(expenses, latestArchived(user).stream().map(this::toResponse).toList(),
+                    Comparator.comparing(ExpenseResponse::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())),
+                    RECENT_LIMIT);
+        });
     }
     
-    // Get expense count for user
+    // Get expense count for user, archived ones included
     public long getExpenseCount(String username) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.countByUser(user);
+        return expenseArchive.read(user.getId(), () -> expenseRepository.countByUser(user)
+                + expenseArchive.count(user.getId()));
     }
     
-    // Get recurring expenses
+    // Get recurring expenses, archived ones included
     public List<ExpenseResponse> getRecurringExpenses(String username) {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
-        return expenseRepository.findByUserAndIsRecurringTrueOrderByExpenseDateDesc(user)
-                .stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return withArchived(user, () -> expenseRepository.findByUserAndIsRecurringTrueOrderByExpenseDateDesc(user),
+                () -> expenseArchive.findAll(user.getId(), ArchivedExpense::recurring));
+    }
+    
+    // Table rows and the user's archived rows newest first, read under the archive lock
+    private List<ExpenseResponse> withArchived(AppUser user, Supplier<List<Expense>> expenses,
+                                               Supplier<List<ArchivedExpense>> archived) {
+        return expenseArchive.read(user.getId(), () -> {
+            List<ExpenseResponse> responses = toResponses(user, expenses.get());
+            List<ArchivedExpense> archivedExpenses = archived.get();
+            if (archivedExpenses.isEmpty()) {
+                return responses;
+            }
+            return merge(responses, archivedExpenses.stream().map(this::toResponse).toList(),
+                    Comparator.comparing(ExpenseResponse::getExpenseDate).reversed(), Integer.MAX_VALUE);
+        });
+    }
+    
+    // The stable sort keeps table rows ahead of archived rows that compare equal to them
+    private static <T> List<T> merge(List<T> rows, List<T> archived, Comparator<? super T> order, int limit) {
+        if (archived.isEmpty()) {
+            return rows;
+        }
+        List<T> merged = new ArrayList<>(rows.size() + archived.size());
+        merged.addAll(rows);
+        merged.addAll(archived);
+        merged.sort(order);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+    
+    /**
+     * One page of the table and the archive merged newest first, table rows first on equal
+     * dates. Archived row j then sits at j plus the number of table rows dated on or after
+     * it, so the archived rows ahead of the page are found by binary search with one count
+     * per step, and the page is the merge of the two slices that follow.
+     */
+    private <T> Page<T> mergedPage(AppUser user, Pageable pageable, BiFunction<Long, Integer, List<T>> tableSlice,
+                                   Function<ArchivedExpense, T> fromArchive, Function<T, LocalDate> dateOf) {
+        List<ArchivedExpense> archived = expenseArchive.findAll(user.getId(), expense -> true);
+        long offset = pageable.getOffset();
+        int low = 0;
+        int high = archived.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long position = mid + expenseRepository.countByUserAndExpenseDateGreaterThanEqual(
+                    user, archived.get(mid).expenseDate());
+            if (position < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int size = pageable.getPageSize();
+        List<T> page = merge(tableSlice.apply(offset - low, size),
+                archived.subList(low, Math.min(archived.size(), low + size)).stream().map(fromArchive).toList(),
+                Comparator.comparing(dateOf).reversed(), size);
+        return new PageImpl<>(page, pageable, expenseRepository.countByUser(user) + archived.size());
+    }
+    
+    /**
+     * Sparse rows from the table and the archive merged by a field, read under the archive
+     * lock. The field is selected even when not requested, and dropped again after sorting.
+     */
+    private List<Map<String, Object>> withArchivedFields(AppUser user, ExpenseFields fields, String orderField,
+                                                         Function<ExpenseFields, List<Map<String, Object>>> rows,
+                                                         Supplier<List<ArchivedExpense>> archived, int limit) {
+        return expenseArchive.read(user.getId(), () -> {
+            List<ArchivedExpense> archivedExpenses = archived.get();
+            if (archivedExpenses.isEmpty()) {
+                return rows.apply(fields);
+            }
+            ExpenseFields withOrder = fields.including(orderField);
+            List<Map<String, Object>> merged = merge(rows.apply(withOrder),
+                    archivedExpenses.stream().map(expense -> expense.toFields(withOrder)).toList(),
+                    byField(orderField), limit);
+            return withoutUnrequested(merged, fields, orderField);
+        });
+    }
+    
+    // Newest first by a date or timestamp field, rows without it last
+    @SuppressWarnings("unchecked")
+    private static Comparator<Map<String, Object>> byField(String field) {
+        return Comparator.comparing(row -> (Comparable<Object>) row.get(field),
+                Comparator.nullsLast(Comparator.reverseOrder()));
+    }
+    
+    // The most recently created archived expenses, as many as a recent list can show
+    private List<ArchivedExpense> latestArchived(AppUser user) {
+        return expenseArchive.findAll(user.getId(), expense -> true).stream()
+                .sorted(Comparator.comparing(ArchivedExpense::createdAt, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(RECENT_LIMIT)
+                .toList();
+    }
+    
+    private static List<Map<String, Object>> withoutUnrequested(List<Map<String, Object>> rows, ExpenseFields fields,
+                                                                String field) {
+        if (!fields.getNames().contains(field)) {
+            rows.forEach(row -> row.remove(field));
+        }
+        return rows;
+    }
+    
+    private static Predicate<ArchivedExpense> inCategory(Long categoryId) {
+        return expense -> expense.categoryId() == categoryId;
+    }
+    
+    // Same match as the LIKE in the description searches
+    private static Predicate<ArchivedExpense> describedAs(String description) {
+        String needle = description.toLowerCase(Locale.ROOT);
+        return expense -> expense.description() != null && expense.description().toLowerCase(Locale.ROOT).contains(needle);
+    }
+    
+    private List<ExpenseResponse> toResponses(AppUser user, List<Expense> expenses) {
+        return mapResponses(user, expenses.size(), () -> expenses.stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList()));
+    }
+    
+    // The category part is the registry's shared response, so the category itself is never read
+    private ExpenseResponse toResponse(Expense expense) {
+        return new ExpenseResponse(expense, categoryRegistry.responseFor(expense.getCategory()));
+    }
+    
+    // Archived expenses keep the id of a category that may since have been deactivated
+    private ExpenseResponse toResponse(ArchivedExpense expense) {
+        return expense.toResponse(categoryRegistry.find(expense.categoryId()));
+    }
+    
+    // Validated against the registry; the returned reference is an uninitialised proxy, so no SELECT is issued
+    private ExpenseCategory findCategory(Long categoryId) {
+        if (categoryRegistry.find(categoryId) == null) {
+            throw new RuntimeException("Category not found: " + categoryId);
+        }
+        return categoryRepository.getReferenceById(categoryId);
+    }
+    
+    // Timed as the "mapping" phase of the request trace and as an ExpenseMapping JFR event
+    private <T> T mapResponses(AppUser user, int rows, Supplier<T> mapping) {
+        ExpenseMappingEvent event = new ExpenseMappingEvent();
+        event.begin();
+        T responses = RequestTrace.time("mapping", mapping);
+        event.end();
+        if (event.shouldCommit()) {
+            event.userId = user.getId();
+            event.rows = rows;
+            event.commit();
+        }
+        return responses;
+    }
+    
+    private void publishChange(ExpenseChangedEvent.Type type, AppUser user, Long expenseId,
+                               long changeSeq, ExpenseResponse expense) {
+        eventPublisher.publishEvent(new ExpenseChangedEvent(
+            type, user.getId(), user.getUsername(), expenseId, changeSeq, expense));
+    }
+    
+    // Sparse fieldset variants: only the requested columns are selected and returned
+    
+    public List<Map<String, Object>> getAllExpensesForUser(String username, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        return withArchivedFields(user, fields, "expenseDate", withFields -> expenseRepository.findFieldsByUser(user, withFields),
+                () -> expenseArchive.findAll(user.getId(), expense -> true), Integer.MAX_VALUE);
+    }
+    
+    public Page<Map<String, Object>> getExpensesForUser(String username, Pageable pageable, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        return expenseArchive.read(user.getId(), () -> {
+            if (!expenseArchive.hasExpenses(user.getId())) {
+                return expenseRepository.findFieldsByUser(user, fields, pageable);
+            }
+            ExpenseFields withDate = fields.including("expenseDate");
+            Page<Map<String, Object>> page = mergedPage(user, pageable,
+                    (offset, limit) -> expenseRepository.findFieldsByUser(user, withDate, offset, limit),
+                    expense -> expense.toFields(withDate), row -> (LocalDate) row.get("expenseDate"));
+            withoutUnrequested(page.getContent(), fields, "expenseDate");
+            return page;
+        });
+    }
+    
+    public List<Map<String, Object>> getExpensesByDateRange(String username, LocalDate startDate,
+                                                            LocalDate endDate, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        return withArchivedFields(user, fields, "expenseDate",
+                withFields -> expenseRepository.findFieldsByUserAndExpenseDateBetween(user, withFields, startDate, endDate),
+                () -> expenseArchive.findBetween(user.getId(), startDate, endDate), Integer.MAX_VALUE);
+    }
+    
+    public List<Map<String, Object>> getExpensesByCategory(String username, Long categoryId, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        ExpenseCategory category = findCategory(categoryId);
+        
+        return withArchivedFields(user, fields, "expenseDate",
+                withFields -> expenseRepository.findFieldsByUserAndCategory(user, withFields, category),
+                () -> expenseArchive.findAll(user.getId(), inCategory(categoryId)), Integer.MAX_VALUE);
+    }
+    
+    public List<Map<String, Object>> searchExpenses(String username, String description, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        return withArchivedFields(user, fields, "expenseDate",
+                withFields -> expenseRepository.findFieldsByUserAndDescriptionContaining(user, withFields, description),
+                () -> expenseArchive.findAll(user.getId(), describedAs(description)), Integer.MAX_VALUE);
+    }
+    
+    public List<Map<String, Object>> getRecentExpenses(String username, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        return withArchivedFields(user, fields, "createdAt",
+                withFields -> expenseRepository.findRecentFieldsByUser(user, withFields, RECENT_LIMIT),
+                () -> latestArchived(user), RECENT_LIMIT);
+    }
+    
+    public List<Map<String, Object>> getRecurringExpenses(String username, ExpenseFields fields) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        
+        return withArchivedFields(user, fields, "expenseDate",
+                withFields -> expenseRepository.findRecurringFieldsByUser(user, withFields),
+                () -> expenseArchive.findAll(user.getId(), ArchivedExpense::recurring), Integer.MAX_VALUE);
     }
 }
@@ -0,0 +1,320 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.dto.ExpenseStreamEvent;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.event.ExpensesBulkChangedEvent;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.sharding.ShardContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes a user's expense changes and running total to their open SSE connections.
+ * <p>
+ * Connections are async {@link SseEmitter}s, so they do not hold a servlet thread while
+ * idle. Publishing never writes to a socket: events go into a bounded per-connection
+ * buffer that a small shared writer pool drains. When a buffer overflows the consumer is
+ * too slow, so its backlog is discarded and it receives a single {@code resync} event
+ * telling it to catch up through {@code /api/expenses/changes}. A send that blocks for
+ * longer than the send timeout, because the client stopped reading, is interrupted and
+ * its connection closed, so one stalled client cannot hold a writer for everyone else.
+ */
+@Service
+public class ExpenseStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseStreamService.class);
+    private static final int WRITER_QUEUE_CAPACITY = 10_000;
+
+    private final ExpenseRepository expenseRepository;
+    private final AppUserRepository userRepository;
+    private final ChangeSequenceService changeSequenceService;
+    private final ExpenseArchive expenseArchive;
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final ExecutorService writers;
+
+    @Value("${expense.stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${expense.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${expense.stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Autowired
+    public ExpenseStreamService(ExpenseRepository expenseRepository,
+                                AppUserRepository userRepository,
+                                ChangeSequenceService changeSequenceService,
+                                ExpenseArchive expenseArchive,
+                                @Value("${expense.stream.writer-threads:2}") int writerThreads) {
+        this.expenseRepository = expenseRepository;
+        this.userRepository = userRepository;
+        this.changeSequenceService = changeSequenceService;
+        this.expenseArchive = expenseArchive;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(WRITER_QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "expense-sse-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Open a stream for user; the first event carries the resume cursor and current total
+    public SseEmitter subscribe(String username) {
+        return subscribe(username, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(String username, SseEmitter emitter) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+
+        Connection connection = new Connection(user.getId(), username, emitter, bufferSize);
+        connections.compute(user.getId(), (key, userConnections) -> {
+            Set<Connection> result = userConnections != null ? userConnections : ConcurrentHashMap.newKeySet();
+            result.add(connection);
+            return result;
+        });
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(error -> remove(connection));
+
+        Map<String, Object> ready = Map.of(
+                "cursor", changeSequenceService.stableCursor(),
+                "total", totalOf(user.getId()));
+        connection.offer(SseEmitter.event().name("ready").data(ready));
+        return emitter;
+    }
+
+    // Fan out a committed write; the total is computed once per event on a writer thread
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        Set<Connection> userConnections = connections.get(event.getUserId());
+        if (userConnections == null || userConnections.isEmpty()) {
+            return;
+        }
+        // The writer thread reads the total from the shard the write went to
+        boolean accepted = execute(ShardContext.propagate(() -> {
+            try {
+                BigDecimal total = totalOf(event.getUserId());
+                ExpenseStreamEvent payload = new ExpenseStreamEvent(event, total);
+                for (Connection connection : userConnections) {
+                    connection.offer(SseEmitter.event()
+                            .id(Long.toString(event.getChangeSeq()))
+                            .name("expense")
+                            .data(payload));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to publish expense event, asking clients to resync", e);
+                userConnections.forEach(connection -> connection.requestResync("publish-failed"));
+            }
+        }));
+        if (!accepted) {
+            userConnections.forEach(connection -> connection.requestResync("buffer-overflow"));
+        }
+    }
+
+    // Bulk writes are not fanned out row by row; affected streams catch up through /changes instead
+    @EventListener
+    public void onExpensesBulkChanged(ExpensesBulkChangedEvent event) {
+        for (Long userId : event.getUserIds()) {
+            Set<Connection> userConnections = connections.get(userId);
+            if (userConnections != null) {
+                userConnections.forEach(connection -> connection.requestResync("bulk-change"));
+            }
+        }
+    }
+
+    // Keeps proxies from closing idle streams and surfaces dead connections
+    @Scheduled(fixedRateString = "${expense.stream.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.offer(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    // Closes connections whose current send has been blocked for longer than the send timeout
+    @Scheduled(fixedRateString = "${expense.stream.stall-check-interval-ms:1000}")
+    public void closeStalledConnections() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (connection.isStalled(now, timeoutNanos)) {
+                    log.debug("Closing SSE connection of {} after a send blocked for over {} ms",
+                            connection.username, sendTimeoutMs);
+                    connection.abort();
+                }
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+        connections.values().forEach(userConnections -> userConnections.forEach(c -> c.emitter.complete()));
+    }
+
+    // Archived expenses included, so archiving never moves the total a client sees
+    private BigDecimal totalOf(Long userId) {
+        return expenseArchive.read(userId, () -> expenseRepository.getTotalExpensesByUserId(userId)
+                .add(expenseArchive.total(userId)));
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.userId, (key, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    private boolean execute(Runnable task) {
+        try {
+            writers.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("SSE writer pool is saturated or shut down");
+            return false;
+        }
+    }
+
+    private final class Connection {
+
+        private final Long userId;
+        private final String username;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile String resyncReason;
+        private volatile boolean aborted;
+        // Writer thread and start time of the send in progress, guarded by this
+        private Thread sender;
+        private long sendStartedAt;
+
+        private Connection(Long userId, String username, SseEmitter emitter, int capacity) {
+            this.userId = userId;
+            this.username = username;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (aborted) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                // Slow consumer: drop the backlog and ask the client to resync instead
+                requestResync("buffer-overflow");
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void requestResync(String reason) {
+            buffer.clear();
+            resyncReason = reason;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true) && !execute(this::drain)) {
+                // Retried by the next offer or heartbeat
+                draining.set(false);
+            }
+        }
+
+        synchronized boolean isStalled(long now, long timeoutNanos) {
+            return sender != null && now - sendStartedAt > timeoutNanos;
+        }
+
+        // Interrupts the blocked send; the writer completes the emitter once it returns
+        void abort() {
+            aborted = true;
+            remove(this);
+            buffer.clear();
+            synchronized (this) {
+                if (sender != null) {
+                    sender.interrupt();
+                }
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendStartedAt = System.nanoTime();
+            }
+            try {
+                emitter.send(event);
+            } finally {
+                synchronized (this) {
+                    sender = null;
+                    // An abort racing with a send that completed anyway must not leak into the next task
+                    if (aborted) {
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                if (aborted) {
+                    throw new IOException("Send timed out");
+                }
+                String reason = resyncReason;
+                if (reason != null) {
+                    resyncReason = null;
+                    send(SseEmitter.event().name("resync").data(Map.of("reason", reason)));
+                }
+                SseEmitter.SseEventBuilder event;
+                while ((event = buffer.poll()) != null) {
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away, stopped reading, or the emitter already completed
+                remove(this);
+                buffer.clear();
+                if (aborted) {
+                    emitter.completeWithError(e);
+                }
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!buffer.isEmpty() || resyncReason != null) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ArchivedExpense;
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.dto.ExpenseChange;
+import com.example.testingapp.dto.ExpenseChangesResponse;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseTombstone;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.repository.ExpenseTombstoneRepository;
+import com.example.testingapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serves incremental expense changes for offline-capable clients. Both reads are range
+ * scans on the (user_id, change_seq) indexes, so a sync costs O(changes) regardless of
+ * how much history the user has. Archived expenses are read-only but keep their change
+ * sequences, so the ones in the window are merged in from the {@link ExpenseArchive}; a
+ * full sync therefore still returns every expense.
+ */
+@Service
+public class ExpenseSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSyncService.class);
+    static final int MAX_LIMIT = 1000;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseTombstoneRepository tombstoneRepository;
+    private final AppUserRepository userRepository;
+    private final ChangeSequenceService changeSequenceService;
+    private final CategoryRegistry categoryRegistry;
+    private final ShardRouter shardRouter;
+    private final ExpenseArchive expenseArchive;
+
+    @Value("${expense.sync.tombstone-retention-days:30}")
+    private long tombstoneRetentionDays;
+
+    @Autowired
+    public ExpenseSyncService(ExpenseRepository expenseRepository,
+                              ExpenseTombstoneRepository tombstoneRepository,
+                              AppUserRepository userRepository,
+                              ChangeSequenceService changeSequenceService,
+                              CategoryRegistry categoryRegistry,
+                              ShardRouter shardRouter,
+                              ExpenseArchive expenseArchive) {
+        this.expenseRepository = expenseRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.userRepository = userRepository;
+        this.changeSequenceService = changeSequenceService;
+        this.categoryRegistry = categoryRegistry;
+        this.shardRouter = shardRouter;
+        this.expenseArchive = expenseArchive;
+    }
+
+    // Get changes for user after the given cursor (0 = full sync)
+    public ExpenseChangesResponse getChanges(String username, long since, int limit) {
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+
+        if (since > 0 && since < changeSequenceService.getPurgedThrough()) {
+            return new ExpenseChangesResponse(0, false, true, List.of());
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        long until = changeSequenceService.stableCursor();
+        Pageable window = PageRequest.of(0, pageSize + 1);
+
+        // Under the archive's read lock, so rows being archived are seen in exactly one place
+        List<ExpenseChange> upserts = new ArrayList<>();
+        List<ExpenseTombstone> deletes = expenseArchive.read(user.getId(), () -> {
+            for (Expense expense : expenseRepository.findChangesForUser(user, since, until, window)) {
+                upserts.add(new ExpenseChange(ExpenseChange.Type.UPSERT, expense.getChangeSeq(), expense.getId(),
+                        new ExpenseResponse(expense, categoryRegistry.responseFor(expense.getCategory()))));
+            }
+            // Archived rows keep their change sequences, so they interleave with the table's
+            List<ArchivedExpense> archived = expenseArchive.findChanges(user.getId(), since, until);
+            for (ArchivedExpense expense : archived.subList(0, Math.min(archived.size(), pageSize + 1))) {
+                upserts.add(new ExpenseChange(ExpenseChange.Type.UPSERT, expense.changeSeq(), expense.id(),
+                        expense.toResponse(categoryRegistry.find(expense.categoryId()))));
+            }
+            // A fresh client has nothing to delete
+            return since > 0 ? tombstoneRepository.findChangesForUser(user, since, until, window) : List.of();
+        });
+        upserts.sort(Comparator.comparingLong(ExpenseChange::getChangeSeq));
+
+        List<ExpenseChange> changes = new ArrayList<>(Math.min(pageSize, upserts.size() + deletes.size()));
+        int u = 0;
+        int d = 0;
+        while (changes.size() < pageSize && (u < upserts.size() || d < deletes.size())) {
+            boolean takeUpsert = d >= deletes.size()
+                    || (u < upserts.size() && upserts.get(u).getChangeSeq() < deletes.get(d).getChangeSeq());
+            if (takeUpsert) {
+                changes.add(upserts.get(u++));
+            } else {
+                ExpenseTombstone tombstone = deletes.get(d++);
+                changes.add(new ExpenseChange(ExpenseChange.Type.DELETE, tombstone.getChangeSeq(),
+                        tombstone.getExpenseId(), null));
+            }
+        }
+
+        boolean hasMore = u < upserts.size() || d < deletes.size();
+        long cursor = hasMore
+                ? changes.get(changes.size() - 1).getChangeSeq()
+                : Math.max(since, until);
+        return new ExpenseChangesResponse(cursor, hasMore, false, changes);
+    }
+
+    // Drop tombstones past the retention period, on every shard, and advance the resync horizon
+    @Scheduled(fixedDelayString = "${expense.sync.tombstone-purge-interval-ms:3600000}")
+    public void purgeExpiredTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(tombstoneRetentionDays);
+        Long purgeThrough = shardRouter.onEachShard(() -> tombstoneRepository.findMaxChangeSeqDeletedBefore(cutoff))
+                .values().stream().filter(Objects::nonNull).max(Long::compare).orElse(null);
+        if (purgeThrough == null) {
+            return;
+        }
+        // Record the horizon first so no client can miss a delete we are about to drop
+        changeSequenceService.setPurgedThrough(purgeThrough);
+        int purged = shardRouter.onEachShard(() -> tombstoneRepository.deleteUpToChangeSeq(purgeThrough))
+                .values().stream().mapToInt(Integer::intValue).sum();
+        log.info("Purged {} expense tombstones through change {}", purged, purgeThrough);
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.async.FairBulkheadExecutor;
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.dto.ReportFormat;
+import com.example.testingapp.dto.ReportJob;
+import com.example.testingapp.repository.AnalyticsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Expense reports for a date range, generated in the background and cached on local disk.
+ * <p>
+ * A report totals a user's expenses by month, category and payment method. One grouped
+ * query on the analytics pool returns a row per month, category and payment method, so
+ * even a decade of history comes back as a few thousand rows, and the three breakdowns
+ * are rolled up from those. Archived expenses in the range are rolled up alongside,
+ * from the {@link ExpenseArchive}. Generation runs on the report bulkhead; its threads
+ * bound how many reports run at once.
+ * <p>
+ * Each report is identified by user, range, format, the category names and the user's
+ * current change version (their highest expense, tombstone or archived expense change
+ * sequence). Identical requests share one job while it runs and one file after it
+ * completes. Any write to the user's expenses moves the version, and a rename changes the
+ * names, so the next request builds a new report instead of serving a stale one. A lower
+ * sequence can still commit after the highest one, so a version above the
+ * {@link ChangeSequenceService#stableCursor() stable cursor} does not yet pin down the
+ * data; such reports are built for the one request and never shared.
+ * Files are deleted once older than the cache TTL, and at startup, since a rebuilt
+ * database can hand out the same change versions again.
+ */
+@Service
+public class ReportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportService.class);
+    private static final String CSV_HEADER = "breakdown,value,expense_count,total";
+
+    private final AnalyticsRepository analyticsRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final ObjectMapper objectMapper;
+    private final FairBulkheadExecutor reportExecutor;
+    private final ExpenseArchive expenseArchive;
+    private final ChangeSequenceService changeSequenceService;
+    private final Path cacheDir;
+    private final Map<String, ReportRun> runsById = new ConcurrentHashMap<>();
+    private final Map<String, ReportRun> runsByKey = new ConcurrentHashMap<>();
+
+    @Value("${report.cache.ttl-hours:24}")
+    private long ttlHours;
+
+    @Autowired
+    public ReportService(AnalyticsRepository analyticsRepository,
+                         CategoryRegistry categoryRegistry,
+                         ObjectMapper objectMapper,
+                         @Qualifier("reportExecutor") FairBulkheadExecutor reportExecutor,
+                         ExpenseArchive expenseArchive,
+                         ChangeSequenceService changeSequenceService,
+                         @Value("${report.cache.dir:${java.io.tmpdir}/testingapp-reports}") String cacheDir) throws IOException {
+        this.analyticsRepository = analyticsRepository;
+        this.categoryRegistry = categoryRegistry;
+        this.objectMapper = objectMapper;
+        this.reportExecutor = reportExecutor;
+        this.expenseArchive = expenseArchive;
+        this.changeSequenceService = changeSequenceService;
+        this.cacheDir = Files.createDirectories(Paths.get(cacheDir));
+        evictFiles(Instant.MAX);
+    }
+
+    /**
+     * Job for a report of the user's expenses between two dates, inclusive. Returns the
+     * running or cached job for an identical request instead of starting another one.
+     */
+    public ReportJob submit(String username, LocalDate startDate, LocalDate endDate, ReportFormat format) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        Long userId = analyticsRepository.findUserId(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        // Archiving removes rows from the table, so the archive's highest sequence keeps the version from going back
+        long changeVersion = expenseArchive.read(userId, () -> Math.max(
+                analyticsRepository.getChangeVersion(userId), expenseArchive.maxChangeSeq(userId)));
+        String key = userId + "|" + startDate + "|" + endDate + "|" + format + "|" + changeVersion
+                + "|" + categoryRegistry.snapshot().namesHash();
+        if (changeVersion > changeSequenceService.stableCursor()) {
+            // A change below the version may still be in flight: build this one uncached
+            key = null;
+        }
+        String hashed = key != null ? hash(key) : "uncached-" + UUID.randomUUID();
+        Path file = cacheDir.resolve(hashed + "." + format.getExtension());
+
+        ReportRun run;
+        if (key == null) {
+            run = new ReportRun(new ReportJob(UUID.randomUUID().toString(), format, startDate, endDate),
+                    null, username, userId, file);
+        } else {
+            ReportRun[] created = new ReportRun[1];
+            run = runsByKey.compute(key, (k, existing) -> {
+                if (existing != null && existing.isReusable()) {
+                    return existing;
+                }
+                created[0] = new ReportRun(new ReportJob(UUID.randomUUID().toString(), format, startDate, endDate),
+                        k, username, userId, file);
+                return created[0];
+            });
+            if (created[0] == null) {
+                return run.job;
+            }
+        }
+        runsById.put(run.job.getId(), run);
+
+        CompletableFuture<Void> future = reportExecutor.submit(username, () -> {
+            generate(run);
+            return null;
+        });
+        future.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("Report {} for {} failed", run.job.getId(), username, error);
+                run.job.fail(error.getMessage());
+                run.forget(runsByKey);
+            }
+        });
+        if (future.isCompletedExceptionally()) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RejectedExecutionException rejected) {
+                    // Bulkhead full: surfaces as 503 rather than as a job that failed
+                    runsById.remove(run.job.getId());
+                    throw rejected;
+                }
+            }
+        }
+        return run.job;
+    }
+
+    // A job is only visible to the user who submitted it
+    public Optional<ReportJob> getJob(String jobId, String username) {
+        return findRun(jobId, username).map(run -> run.job);
+    }
+
+    // The finished report file, or empty while it is still being generated
+    public Optional<Path> getArtefact(String jobId, String username) {
+        return findRun(jobId, username)
+                .filter(run -> run.job.getStatus() == ReportJob.Status.COMPLETED && Files.exists(run.file))
+                .map(run -> run.file);
+    }
+
+    // Forget finished jobs and delete report files older than the TTL
+    @Scheduled(fixedDelayString = "${report.cache.cleanup-interval-ms:3600000}")
+    public void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(ttlHours);
+        runsById.values().removeIf(run -> {
+            LocalDateTime finishedAt = run.job.getFinishedAt();
+            if (finishedAt == null || !finishedAt.isBefore(cutoff)) {
+                return false;
+            }
+            run.forget(runsByKey);
+            return true;
+        });
+        evictFiles(Instant.now().minus(ttlHours, ChronoUnit.HOURS));
+    }
+
+    private void evictFiles(Instant modifiedBefore) {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            files.forEach(file -> {
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(modifiedBefore)) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not evict report file {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not list report cache {}: {}", cacheDir, e.getMessage());
+        }
+    }
+
+    private Optional<ReportRun> findRun(String jobId, String username) {
+        return Optional.ofNullable(runsById.get(jobId)).filter(run -> run.username.equals(username));
+    }
+
+    private void generate(ReportRun run) {
+        ReportJob job = run.job;
+        job.start();
+        Totals overall = new Totals();
+        Map<YearMonth, Totals> byMonth = new TreeMap<>();
+        Map<Long, Totals> byCategory = new HashMap<>();
+        Map<String, Totals> byPaymentMethod = new TreeMap<>();
+        List<Map<String, Object>> cells = expenseArchive.read(run.userId, () -> {
+            List<Map<String, Object>> rows = new ArrayList<>(
+                    analyticsRepository.getReportCells(run.userId, job.getStartDate(), job.getEndDate()));
+            rows.addAll(expenseArchive.reportCells(run.userId, job.getStartDate(), job.getEndDate()));
+            return rows;
+        });
+        for (Map<String, Object> cell : cells) {
+            long count = (Long) cell.get("count");
+            BigDecimal total = (BigDecimal) cell.get("total");
+            overall.add(count, total);
+            byMonth.computeIfAbsent(YearMonth.of((Integer) cell.get("year"), (Integer) cell.get("month")), m -> new Totals())
+                    .add(count, total);
+            byCategory.computeIfAbsent((Long) cell.get("categoryId"), id -> new Totals()).add(count, total);
+            String paymentMethod = (String) cell.get("paymentMethod");
+            byPaymentMethod.computeIfAbsent(paymentMethod != null ? paymentMethod : "UNKNOWN", m -> new Totals())
+                    .add(count, total);
+        }
+
+        List<Map<String, Object>> months = new ArrayList<>(byMonth.size());
+        byMonth.forEach((month, totals) -> months.add(totals.toRow("month", month.toString())));
+        List<Map.Entry<Long, Totals>> categoryEntries = new ArrayList<>(byCategory.entrySet());
+        categoryEntries.sort((a, b) -> b.getValue().total.compareTo(a.getValue().total));
+        List<Map<String, Object>> categories = new ArrayList<>(categoryEntries.size());
+        for (Map.Entry<Long, Totals> entry : categoryEntries) {
+            ExpenseCategoryResponse category = categoryRegistry.snapshot().byId(entry.getKey());
+            Map<String, Object> row = entry.getValue().toRow("categoryId", entry.getKey());
+            row.put("category", category != null ? category.getName() : "Category " + entry.getKey());
+            categories.add(row);
+        }
+        List<Map<String, Object>> paymentMethods = new ArrayList<>(byPaymentMethod.size());
+        byPaymentMethod.forEach((method, totals) -> paymentMethods.add(totals.toRow("paymentMethod", method)));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startDate", job.getStartDate().toString());
+        report.put("endDate", job.getEndDate().toString());
+        report.put("generatedAt", LocalDateTime.now().toString());
+        report.put("expenseCount", overall.count);
+        report.put("total", overall.total);
+        report.put("byMonth", months);
+        report.put("byCategory", categories);
+        report.put("byPaymentMethod", paymentMethods);
+
+        try {
+            // Written beside the cache entry and moved into place, so a partial file is never served
+            Path partial = Files.createTempFile(cacheDir, "report-", ".partial");
+            try (Writer writer = new BufferedWriter(Files.newBufferedWriter(partial, StandardCharsets.UTF_8))) {
+                if (job.getFormat() == ReportFormat.JSON) {
+                    objectMapper.writeValue(writer, report);
+                } else {
+                    writeCsv(writer, overall, months, categories, paymentMethods);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(partial);
+                throw e;
+            }
+            Files.move(partial, run.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        job.complete();
+        log.info("Report {} for {} covers {} expenses", job.getId(), run.username, overall.count);
+    }
+
+    private static void writeCsv(Writer writer, Totals overall, List<Map<String, Object>> months,
+                                 List<Map<String, Object>> categories,
+                                 List<Map<String, Object>> paymentMethods) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        writeCsvRow(writer, "total", "", overall.count, overall.total);
+        for (Map<String, Object> row : months) {
+            writeCsvRow(writer, "month", (String) row.get("month"), (Long) row.get("expenseCount"), (BigDecimal) row.get("total"));
+        }
+        for (Map<String, Object> row : categories) {
+            writeCsvRow(writer, "category", (String) row.get("category"), (Long) row.get("expenseCount"), (BigDecimal) row.get("total"));
+        }
+        for (Map<String, Object> row : paymentMethods) {
+            writeCsvRow(writer, "payment_method", (String) row.get("paymentMethod"), (Long) row.get("expenseCount"), (BigDecimal) row.get("total"));
+        }
+    }
+
+    private static void writeCsvRow(Writer writer, String breakdown, String value, long count, BigDecimal total)
+            throws IOException {
+        writer.write(breakdown + "," + csv(value) + "," + count + "," + total.toPlainString());
+        writer.write('\n');
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String hash(String key) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class ReportRun {
+
+        private final ReportJob job;
+        private final String key;
+        private final String username;
+        private final Long userId;
+        private final Path file;
+
+        private ReportRun(ReportJob job, String key, String username, Long userId, Path file) {
+            this.job = job;
+            this.key = key;
+            this.username = username;
+            this.userId = userId;
+            this.file = file;
+        }
+
+        // Uncached runs were never registered under a key
+        private void forget(Map<String, ReportRun> runsByKey) {
+            if (key != null) {
+                runsByKey.remove(key, this);
+            }
+        }
+
+        // Still running, or finished with its file still on disk
+        private boolean isReusable() {
+            ReportJob.Status status = job.getStatus();
+            return status == ReportJob.Status.QUEUED || status == ReportJob.Status.RUNNING
+                    || (status == ReportJob.Status.COMPLETED && Files.exists(file));
+        }
+    }
+
+    private static final class Totals {
+
+        private long count;
+        private BigDecimal total = BigDecimal.ZERO;
+
+        private void add(long count, BigDecimal total) {
+            this.count += count;
+            this.total = this.total.add(total);
+        }
+
+        private Map<String, Object> toRow(String name, Object value) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(name, value);
+            row.put("expenseCount", count);
+            row.put("total", total);
+            return row;
+        }
+    }
+}
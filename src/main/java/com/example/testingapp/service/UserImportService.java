@@ -0,0 +1,413 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.UserCreateRequest;
+import com.example.testingapp.dto.UserImportJob;
+import com.example.testingapp.importer.CsvReader;
+import com.example.testingapp.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user import from CSV, run as a background job.
+ * <p>
+ * The upload is spooled to a temp file and read back one record at a time. Rows are
+ * validated like {@code POST /api/users}, de-duplicated within the file by email, and
+ * handled a chunk at a time: one {@code IN} query finds emails that already exist, and the
+ * rest are inserted as a single JDBC batch. Memory stays flat apart from the in-file
+ * duplicate set, which keeps an 8-byte hash per distinct email rather than the email itself.
+ * Each row's outcome is written to a CSV report file instead of being kept in memory.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+    private static final long FINISHED_JOB_RETENTION_HOURS = 24;
+    private static final String REPORT_HEADER = "line,status,email,message";
+
+    private final UserRepository userRepository;
+    private final UserSearchIndex userSearchIndex;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final Map<String, ImportRun> runs = new ConcurrentHashMap<>();
+
+    @Value("${user.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    public UserImportService(UserRepository userRepository,
+                             UserSearchIndex userSearchIndex,
+                             Validator validator,
+                             TransactionTemplate transactionTemplate) {
+        this.userRepository = userRepository;
+        this.userSearchIndex = userSearchIndex;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Spool the CSV and queue its import. The first record is the header and must name the
+     * firstName, lastName and email columns; phoneNumber is optional. Imports run one at a time.
+     */
+    public UserImportJob startImport(InputStream csv) throws IOException {
+        pruneFinishedJobs();
+        Path upload = Files.createTempFile("user-import-", ".csv");
+        Path report;
+        try {
+            Files.copy(csv, upload, StandardCopyOption.REPLACE_EXISTING);
+            // Reject a file without the required columns now rather than as a failed job
+            try (CsvReader reader = new CsvReader(Files.newBufferedReader(upload, StandardCharsets.UTF_8))) {
+                Columns.of(reader.next());
+            }
+            report = Files.createTempFile("user-import-", "-report.csv");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+        ImportRun run = new ImportRun(new UserImportJob(UUID.randomUUID().toString()), report);
+        runs.put(run.job.getId(), run);
+        executor.execute(() -> runImport(run, upload));
+        return run.job;
+    }
+
+    public Optional<UserImportJob> getJob(String jobId) {
+        return Optional.ofNullable(runs.get(jobId)).map(run -> run.job);
+    }
+
+    // Report rows written so far; complete once the job has finished
+    public Optional<Path> getReport(String jobId) {
+        return Optional.ofNullable(runs.get(jobId)).map(run -> run.report);
+    }
+
+    public Optional<UserImportJob> cancel(String jobId) {
+        return getJob(jobId).map(job -> {
+            job.requestCancel();
+            return job;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runImport(ImportRun run, Path upload) {
+        UserImportJob job = run.job;
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(upload, StandardCharsets.UTF_8));
+             Writer report = new BufferedWriter(Files.newBufferedWriter(run.report, StandardCharsets.UTF_8))) {
+            report.write(REPORT_HEADER);
+            report.write('\n');
+            Columns columns = Columns.of(reader.next());
+            EmailHashSet seen = new EmailHashSet();
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            List<String> record;
+            while (!job.isCancelRequested() && (record = reader.next()) != null) {
+                chunk.add(toRow(reader.getRecordLine(), record, columns, seen));
+                if (chunk.size() >= chunkSize) {
+                    importChunk(chunk, job, report);
+                    chunk.clear();
+                }
+            }
+            if (!job.isCancelRequested() && !chunk.isEmpty()) {
+                importChunk(chunk, job, report);
+            }
+            job.complete();
+            log.info("User import {} {}: {} created of {} rows", job.getId(), job.getStatus(), job.getCreated(), job.getRowsRead());
+        } catch (IOException | RuntimeException e) {
+            log.error("User import {} failed after {} rows", job.getId(), job.getRowsRead(), e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                log.warn("Could not delete import upload {}: {}", upload, e.getMessage());
+            }
+        }
+    }
+
+    // Parses and validates one record; the database checks happen per chunk
+    private Row toRow(long line, List<String> record, Columns columns, EmailHashSet seen) {
+        UserCreateRequest request = new UserCreateRequest(
+                columns.get(record, columns.firstName),
+                columns.get(record, columns.lastName),
+                columns.get(record, columns.email),
+                columns.get(record, columns.phoneNumber));
+        Row row = new Row(line, request);
+        Set<ConstraintViolation<UserCreateRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            row.resolve(RowStatus.INVALID, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        } else if (!seen.add(request.getEmail().toLowerCase(Locale.ROOT))) {
+            row.resolve(RowStatus.DUPLICATE_IN_FILE, "Email appears earlier in the file");
+        }
+        return row;
+    }
+
+    private void importChunk(List<Row> chunk, UserImportJob job, Writer report) throws IOException {
+        List<Row> pending = chunk.stream().filter(row -> row.status == null).collect(Collectors.toList());
+        if (!pending.isEmpty()) {
+            Set<String> existing = userRepository.findEmailsIn(emails(pending)).stream()
+                    .map(email -> email.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            List<Row> inserts = new ArrayList<>(pending.size());
+            for (Row row : pending) {
+                if (existing.contains(row.request.getEmail().toLowerCase(Locale.ROOT))) {
+                    row.resolve(RowStatus.EMAIL_EXISTS, "Email already exists");
+                } else {
+                    inserts.add(row);
+                }
+            }
+            insert(inserts);
+            List<String> created = inserts.stream()
+                    .filter(row -> row.status == RowStatus.CREATED)
+                    .map(row -> row.request.getEmail())
+                    .collect(Collectors.toList());
+            if (!created.isEmpty()) {
+                userRepository.findByEmailIn(created).forEach(userSearchIndex::put);
+            }
+        }
+
+        Map<RowStatus, Integer> counts = new HashMap<>();
+        for (Row row : chunk) {
+            counts.merge(row.status, 1, Integer::sum);
+            report.write(row.line + "," + row.status + "," + csv(row.request.getEmail()) + "," + csv(row.message));
+            report.write('\n');
+        }
+        report.flush();
+        job.addRowsRead(chunk.size());
+        job.addCreated(counts.getOrDefault(RowStatus.CREATED, 0));
+        job.addDuplicatesInFile(counts.getOrDefault(RowStatus.DUPLICATE_IN_FILE, 0));
+        job.addAlreadyExisting(counts.getOrDefault(RowStatus.EMAIL_EXISTS, 0));
+        job.addInvalid(counts.getOrDefault(RowStatus.INVALID, 0));
+        job.addFailed(counts.getOrDefault(RowStatus.FAILED, 0));
+    }
+
+    // One batch for the chunk; if it is rejected, retry row by row to find the offending rows
+    private void insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            List<UserCreateRequest> requests = rows.stream().map(row -> row.request).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> userRepository.insertAll(requests, now));
+            rows.forEach(row -> row.resolve(RowStatus.CREATED, null));
+        } catch (DataAccessException batchFailure) {
+            // Typically an email taken by a concurrent write since the existence check
+            for (Row row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> userRepository.insertAll(List.of(row.request), now));
+                    row.resolve(RowStatus.CREATED, null);
+                } catch (DataAccessException e) {
+                    row.resolve(RowStatus.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(FINISHED_JOB_RETENTION_HOURS);
+        runs.values().removeIf(run -> {
+            LocalDateTime finishedAt = run.job.getFinishedAt();
+            if (finishedAt == null || !finishedAt.isBefore(cutoff)) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(run.report);
+            } catch (IOException e) {
+                log.warn("Could not delete import report {}: {}", run.report, e.getMessage());
+            }
+            return true;
+        });
+    }
+
+    private static Set<String> emails(List<Row> rows) {
+        Set<String> emails = new HashSet<>(rows.size() * 2);
+        rows.forEach(row -> emails.add(row.request.getEmail()));
+        return emails;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private enum RowStatus {
+        CREATED, DUPLICATE_IN_FILE, EMAIL_EXISTS, INVALID, FAILED
+    }
+
+    private static final class ImportRun {
+
+        private final UserImportJob job;
+        private final Path report;
+
+        private ImportRun(UserImportJob job, Path report) {
+            this.job = job;
+            this.report = report;
+        }
+    }
+
+    private static final class Row {
+
+        private final long line;
+        private final UserCreateRequest request;
+        private RowStatus status; // null until resolved
+        private String message;
+
+        private Row(long line, UserCreateRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+
+        private void resolve(RowStatus status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+
+    // Column positions from the header row; names match ignoring case, spaces and underscores
+    private static final class Columns {
+
+        private final int firstName;
+        private final int lastName;
+        private final int email;
+        private final int phoneNumber;
+
+        private Columns(int firstName, int lastName, int email, int phoneNumber) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.phoneNumber = phoneNumber;
+        }
+
+        private static Columns of(List<String> header) {
+            if (header == null) {
+                throw new IllegalArgumentException("CSV is empty; expected a header row");
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.putIfAbsent(header.get(i).replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : List.of("firstname", "lastname", "email")) {
+                if (!positions.containsKey(required)) {
+                    throw new IllegalArgumentException("CSV header is missing column " + required);
+                }
+            }
+            return new Columns(positions.get("firstname"), positions.get("lastname"), positions.get("email"),
+                    positions.getOrDefault("phonenumber", positions.getOrDefault("phone", -1)));
+        }
+
+        // Trimmed value, or null when the column is absent, missing from this row, or blank
+        private String get(List<String> record, int position) {
+            if (position < 0 || position >= record.size()) {
+                return null;
+            }
+            String value = record.get(position).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * Open-addressing set of 64-bit email hashes, 8 bytes per entry. Two distinct emails
+     * sharing a hash would wrongly report the second as a duplicate; at a million emails
+     * the chance of any such collision is below one in ten million.
+     */
+    private static final class EmailHashSet {
+
+        private long[] slots = new long[1024];
+        private int size;
+
+        // False if the email was already present
+        private boolean add(String email) {
+            long hash = hash(email);
+            if ((size + 1) * 2 > slots.length) {
+                grow();
+            }
+            if (!insert(slots, hash)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        private static boolean insert(long[] table, long hash) {
+            int mask = table.length - 1;
+            int i = (int) (hash ^ (hash >>> 32)) & mask;
+            while (table[i] != 0) {
+                if (table[i] == hash) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = hash;
+            return true;
+        }
+
+        private void grow() {
+            long[] previous = slots;
+            slots = new long[previous.length * 2];
+            for (long hash : previous) {
+                if (hash != 0) {
+                    insert(slots, hash);
+                }
+            }
+        }
+
+        // FNV-1a over the chars, then a final mix; 0 is reserved for empty slots
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash == 0 ? 1 : hash;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.UserResponse;
+import com.example.testingapp.entity.User;
+import com.example.testingapp.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory name and email index over every user, so search and autocomplete run no SQL.
+ * <p>
+ * Each user gets an ordinal, and every trigram of its lower-cased full name and email maps
+ * to a sorted list of ordinals. A query of three or more characters intersects the lists of
+ * its trigrams, shortest first, and checks the few candidates left against the real fields.
+ * Shorter queries fall back to a scan for search, and to a sorted map of name and email
+ * prefixes for autocomplete. {@link UserService} applies its writes as they happen; the
+ * periodic reload from the table picks up writes made elsewhere.
+ * <p>
+ * Reads share a read lock. A write takes the write lock only while it updates the posting
+ * lists of one user.
+ */
+@Service
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final int RELOAD_PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Index index = new Index();
+    private volatile boolean loaded;
+    // Ids written while a reload is reading the table; replayed onto the new index before it is swapped in
+    private Set<Long> writtenDuringReload;
+
+    @Autowired
+    public UserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    // Users whose first or last name contains the query, ignoring case, in id order
+    public List<UserResponse> search(String name) {
+        String query = normalize(name);
+        Index current = index();
+        lock.readLock().lock();
+        try {
+            List<UserResponse> matches = new ArrayList<>();
+            if (query.length() < 3) {
+                // Too short for a trigram; most users match such a query anyway
+                for (Entry entry : current.entries) {
+                    if (entry != null && (entry.firstName.contains(query) || entry.lastName.contains(query))) {
+                        matches.add(entry.response);
+                    }
+                }
+                return matches;
+            }
+            for (int ordinal : current.candidates(query)) {
+                Entry entry = current.entries.get(ordinal);
+                if (entry.firstName.contains(query) || entry.lastName.contains(query)) {
+                    matches.add(entry.response);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} users for a partially typed name or email. Exact matches come
+     * first, then prefix matches in alphabetical order, then other substring matches.
+     */
+    public List<UserResponse> autocomplete(String prefix, int limit) {
+        String query = normalize(prefix).trim();
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Index current = index();
+        lock.readLock().lock();
+        try {
+            Set<Integer> ranked = new LinkedHashSet<>();
+            // Keys sort so an exact match precedes its extensions
+            for (Postings postings : current.prefixes.subMap(query, true, query + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < postings.size && ranked.size() < limit; i++) {
+                    ranked.add(postings.ordinals[i]);
+                }
+                if (ranked.size() >= limit) {
+                    break;
+                }
+            }
+            if (ranked.size() < limit && query.length() >= 3) {
+                for (int ordinal : current.candidates(query)) {
+                    Entry entry = current.entries.get(ordinal);
+                    if (entry.fullName.contains(query) || entry.email.contains(query)) {
+                        ranked.add(ordinal);
+                        if (ranked.size() >= limit) {
+                            break;
+                        }
+                    }
+                }
+            }
+            List<UserResponse> results = new ArrayList<>(ranked.size());
+            ranked.forEach(ordinal -> results.add(current.entries.get(ordinal).response));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Add or replace a user after it has been saved
+    public void put(User user) {
+        Entry entry = new Entry(new UserResponse(user));
+        write(user.getId(), current -> current.put(entry));
+    }
+
+    // Drop a user after it has been deleted
+    public void remove(Long id) {
+        write(id, current -> current.remove(id));
+    }
+
+    /**
+     * Rebuild the index from the table, one id-ordered page at a time so a large table is
+     * never held as entities all at once. Serving continues from the old index meanwhile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user.search.reload-interval-ms:300000}",
+               initialDelayString = "${user.search.reload-interval-ms:300000}")
+    public void reload() {
+        reloadLock.lock();
+        try {
+            Set<Long> written = new HashSet<>();
+            lock.writeLock().lock();
+            try {
+                writtenDuringReload = written;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Index fresh = new Index();
+            long lastId = 0;
+            List<User> page;
+            do {
+                page = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, RELOAD_PAGE_SIZE));
+                for (User user : page) {
+                    fresh.put(new Entry(new UserResponse(user)));
+                    lastId = user.getId();
+                }
+            } while (page.size() == RELOAD_PAGE_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                // The old index has every write made here, including those the page reads missed
+                Index previous = index;
+                for (Long id : written) {
+                    Entry entry = previous.get(id);
+                    if (entry != null) {
+                        fresh.put(entry);
+                    } else {
+                        fresh.remove(id);
+                    }
+                }
+                index = fresh;
+                writtenDuringReload = null;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Indexed {} users for search", fresh.ordinals.size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Current index, loading it first if no request has needed it yet
+    private Index index() {
+        if (!loaded) {
+            reload();
+        }
+        return index;
+    }
+
+    private void write(Long id, Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (writtenDuringReload != null) {
+                writtenDuringReload.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Three chars packed into one key; chars are 16 bits each
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static Set<Long> trigrams(String... fields) {
+        Set<Long> keys = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                keys.add(trigram(field, i));
+            }
+        }
+        return keys;
+    }
+
+    private static final class Entry {
+
+        private final UserResponse response;
+        private final String firstName;
+        private final String lastName;
+        private final String fullName;
+        private final String email;
+
+        private Entry(UserResponse response) {
+            this.response = response;
+            this.firstName = normalize(response.getFirstName());
+            this.lastName = normalize(response.getLastName());
+            this.fullName = firstName + " " + lastName;
+            this.email = normalize(response.getEmail());
+        }
+
+        private boolean sameKeys(Entry other) {
+            return fullName.equals(other.fullName) && email.equals(other.email);
+        }
+
+        private List<String> prefixKeys() {
+            return List.of(firstName, lastName, fullName, email);
+        }
+    }
+
+    // Not thread-safe; guarded by the enclosing lock once published
+    private static final class Index {
+
+        private final List<Entry> entries = new ArrayList<>();
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final Map<Long, Postings> trigrams = new HashMap<>();
+        private final TreeMap<String, Postings> prefixes = new TreeMap<>();
+
+        private Entry get(Long id) {
+            Integer ordinal = ordinals.get(id);
+            return ordinal != null ? entries.get(ordinal) : null;
+        }
+
+        private void put(Entry entry) {
+            Long id = entry.response.getId();
+            Integer existing = ordinals.get(id);
+            if (existing != null) {
+                Entry previous = entries.get(existing);
+                entries.set(existing, entry);
+                if (!previous.sameKeys(entry)) {
+                    unindex(existing, previous);
+                    index(existing, entry);
+                }
+                return;
+            }
+            int ordinal = entries.size();
+            entries.add(entry);
+            ordinals.put(id, ordinal);
+            index(ordinal, entry);
+        }
+
+        // The ordinal is not reused; the next reload compacts
+        private void remove(Long id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                unindex(ordinal, entries.get(ordinal));
+                entries.set(ordinal, null);
+            }
+        }
+
+        private void index(int ordinal, Entry entry) {
+            for (long key : trigrams(entry.fullName, entry.email)) {
+                trigrams.computeIfAbsent(key, k -> new Postings()).add(ordinal);
+            }
+            for (String key : entry.prefixKeys()) {
+                prefixes.computeIfAbsent(key, k -> new Postings()).add(ordinal);
+            }
+        }
+
+        private void unindex(int ordinal, Entry entry) {
+            for (long key : trigrams(entry.fullName, entry.email)) {
+                Postings postings = trigrams.get(key);
+                if (postings != null && postings.remove(ordinal) && postings.size == 0) {
+                    trigrams.remove(key);
+                }
+            }
+            for (String key : entry.prefixKeys()) {
+                Postings postings = prefixes.get(key);
+                if (postings != null && postings.remove(ordinal) && postings.size == 0) {
+                    prefixes.remove(key);
+                }
+            }
+        }
+
+        // Live ordinals, ascending, holding every trigram of a query of three or more chars
+        private int[] candidates(String query) {
+            List<Postings> lists = new ArrayList<>();
+            for (long key : trigrams(query)) {
+                Postings postings = trigrams.get(key);
+                if (postings == null) {
+                    return new int[0];
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(postings -> postings.size));
+            int[] result = Arrays.copyOf(lists.get(0).ordinals, lists.get(0).size);
+            int size = result.length;
+            for (int i = 1; i < lists.size() && size > 0; i++) {
+                size = lists.get(i).retainIn(result, size);
+            }
+            return Arrays.copyOf(result, size);
+        }
+    }
+
+    // Sorted, growable int set; new users get the highest ordinal, so adds are normally appends
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (at >= 0) {
+                    return;
+                }
+                insertAt(-at - 1, ordinal);
+                return;
+            }
+            insertAt(size, ordinal);
+        }
+
+        private boolean remove(int ordinal) {
+            int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ordinals, at + 1, ordinals, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        // Keeps only the first size values of sorted that are also in this set; returns the new size
+        private int retainIn(int[] sorted, int length) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < length; i++) {
+                int at = Arrays.binarySearch(ordinals, from, size, sorted[i]);
+                if (at >= 0) {
+                    sorted[kept++] = sorted[i];
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+            }
+            return kept;
+        }
+
+        private void insertAt(int at, int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, at, ordinals, at + 1, size - at);
+            ordinals[at] = ordinal;
+            size++;
+        }
+    }
+}
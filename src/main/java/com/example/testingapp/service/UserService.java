@@ -1,25 +1,58 @@
 package com.example.testingapp.service;
 
 import com.example.testingapp.dto.UserCreateRequest;
+import com.example.testingapp.dto.UserExportFormat;
+import com.example.testingapp.dto.UserPageResponse;
 import com.example.testingapp.dto.UserResponse;
+import com.example.testingapp.dto.UserSort;
 import com.example.testingapp.dto.UserUpdateRequest;
 import com.example.testingapp.entity.User;
 import com.example.testingapp.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
     
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final String CSV_HEADER = "id,firstName,lastName,email,phoneNumber,createdAt,updatedAt";
+    
     private final UserRepository userRepository;
+    private final UserSearchIndex userSearchIndex;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
     
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       UserSearchIndex userSearchIndex,
+                       ObjectMapper objectMapper,
+                       TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
+        this.userSearchIndex = userSearchIndex;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
     }
     
     // Create a new user
@@ -37,6 +70,7 @@ public class UserService {
         );
         
         User savedUser = userRepository.save(user);
+        userSearchIndex.put(savedUser);
         return new UserResponse(savedUser);
     }
     
@@ -48,6 +82,49 @@ public class UserService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Get one page of users in the given order. The cursor is the nextCursor of the previous
+     * page, or null for the first; it holds the last row's sort keys, so the query seeks
+     * straight past them instead of skipping an offset, and rows written meanwhile do not
+     * shift later pages.
+     */
+    public UserPageResponse getUsersPage(UserSort sort, Sort.Direction direction, String cursor, int limit) {
+        Sort order = sort == UserSort.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sort.getProperty()).and(Sort.by(direction, "id"));
+        ScrollPosition position = cursor == null ? ScrollPosition.keyset() : decodeCursor(cursor, sort, direction);
+        Window<User> window = userRepository.findAllBy(position, order, Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+        
+        List<User> users = window.getContent();
+        String nextCursor = window.hasNext() && !users.isEmpty()
+                ? encodeCursor(sort, direction, users.get(users.size() - 1))
+                : null;
+        return new UserPageResponse(users.stream().map(UserResponse::new).collect(Collectors.toList()),
+                nextCursor, window.hasNext());
+    }
+    
+    // Write every user to out, one row at a time, so memory use does not grow with the table
+    public void exportUsers(UserExportFormat format, OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<UserResponse> users = userRepository.streamAllForExport()) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                if (format == UserExportFormat.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                Iterator<UserResponse> rows = users.iterator();
+                while (rows.hasNext()) {
+                    UserResponse user = rows.next();
+                    writer.write(format == UserExportFormat.CSV ? csvRow(user) : objectMapper.writeValueAsString(user));
+                    writer.write('\n');
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("User export failed: " + e.getMessage(), e);
+            }
+        });
+    }
+    
     // Get user by ID
     public Optional<UserResponse> getUserById(Long id) {
         return userRepository.findById(id)
@@ -60,12 +137,14 @@ public class UserService {
                 .map(UserResponse::new);
     }
     
-    // Search users by name
+    // Search users by name (in-memory index, no query)
     public List<UserResponse> searchUsersByName(String name) {
-        return userRepository.findByFirstNameOrLastNameContainingIgnoreCase(name)
-                .stream()
-                .map(UserResponse::new)
-                .collect(Collectors.toList());
+        return userSearchIndex.search(name);
+    }
+    
+    // Ranked name and email suggestions for a partially typed query
+    public List<UserResponse> autocompleteUsers(String query, int limit) {
+        return userSearchIndex.autocomplete(query, limit);
     }
     
     // Update user
@@ -92,6 +171,7 @@ public class UserService {
                     }
                     
                     User updatedUser = userRepository.save(user);
+                    userSearchIndex.put(updatedUser);
                     return new UserResponse(updatedUser);
                 });
     }
@@ -100,6 +180,7 @@ public class UserService {
     public boolean deleteUser(Long id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            userSearchIndex.remove(id);
             return true;
         }
         return false;
@@ -114,4 +195,45 @@ public class UserService {
     public long getUserCount() {
         return userRepository.count();
     }
+    
+    // Cursor text: sort|direction|id|key, base64url-encoded; the key goes last since it may contain '|'
+    private static String encodeCursor(UserSort sort, Sort.Direction direction, User last) {
+        String raw = sort.name() + "|" + direction.name() + "|" + last.getId() + "|" + sort.keyOf(last);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static ScrollPosition decodeCursor(String cursor, UserSort sort, Sort.Direction direction) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(sort.name()) || !parts[1].equals(direction.name())) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort.getProperty() + " " + direction);
+        }
+        Long id = Long.valueOf(parts[2]);
+        Map<String, Object> keys = sort == UserSort.ID
+                ? Map.of("id", id)
+                : Map.of(sort.getProperty(), sort.parseKey(parts[3]), "id", id);
+        return ScrollPosition.forward(keys);
+    }
+    
+    private static String csvRow(UserResponse user) {
+        return String.join(",",
+                csv(user.getId()), csv(user.getFirstName()), csv(user.getLastName()), csv(user.getEmail()),
+                csv(user.getPhoneNumber()), csv(user.getCreatedAt()), csv(user.getUpdatedAt()));
+    }
+    
+    // RFC 4180 field: quoted only when it holds a comma, quote or line break
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
 }
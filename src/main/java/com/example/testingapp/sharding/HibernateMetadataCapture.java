@@ -0,0 +1,30 @@
+package com.example.testingapp.sharding;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+// Keeps the mapping metadata the entity manager factory was built from, so shard schemas match it exactly
+public class HibernateMetadataCapture implements Integrator {
+
+    private volatile Metadata metadata;
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    public Metadata getMetadata() {
+        if (metadata == null) {
+            throw new IllegalStateException("The entity manager factory has not been built yet");
+        }
+        return metadata;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.testingapp.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Copies the tables expenses reference, {@code app_users} and {@code expense_categories},
+ * from the primary to every other shard, so expense rows keep their foreign keys and the
+ * category and user joins run on the shard that holds the expenses.
+ * <p>
+ * The primary stays the only place these tables are written. Services call in after their
+ * own writes commit, and a periodic full pass repairs anything a crash skipped. Categories
+ * deleted on the primary are deleted on the shards too, which only succeeds once
+ * {@code CategoryDeletionService} has removed their expenses from every shard.
+ */
+@Component
+public class ReferenceDataReplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataReplicator.class);
+
+    private final ShardRouter router;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ReferenceDataReplicator(ShardRouter router, JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate) {
+        this.router = router;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${sharding.replication-interval-ms:300000}",
+               initialDelayString = "${sharding.replication-interval-ms:300000}")
+    public void replicateAll() {
+        if (router.isEnabled()) {
+            replicate("app_users", null, false);
+            replicate("expense_categories", null, true);
+        }
+    }
+
+    public void userChanged(Long userId) {
+        afterCommit(() -> replicate("app_users", userId, false));
+    }
+
+    public void categoriesChanged() {
+        afterCommit(() -> replicate("expense_categories", null, true));
+    }
+
+    // The rows are read on another connection, so they must be committed first
+    private void afterCommit(Runnable replication) {
+        if (!router.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    replication.run();
+                }
+            });
+        } else {
+            replication.run();
+        }
+    }
+
+    // The whole table, or the one row with the given id
+    private void replicate(String table, Long id, boolean deleteMissing) {
+        String query = "SELECT * FROM " + table + (id != null ? " WHERE id = " + id : "");
+        List<Map<String, Object>> rows = router.onShard(router.getPrimary(), () -> jdbcTemplate.queryForList(query));
+        for (String shard : router.getShards()) {
+            if (shard.equals(router.getPrimary())) {
+                continue;
+            }
+            router.onShard(shard, () -> transactionTemplate.execute(status -> {
+                sync(table, query, rows, deleteMissing && id == null);
+                return null;
+            }));
+        }
+    }
+
+    // Writes only rows that differ, so a full pass over unchanged tables costs one read per shard
+    private void sync(String table, String query, List<Map<String, Object>> rows, boolean deleteMissing) {
+        Map<Object, Map<String, Object>> existing = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(query)) {
+            existing.put(row.get("id"), row);
+        }
+        List<Map<String, Object>> changed = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            if (!Objects.equals(existing.remove(row.get("id")), row)) {
+                changed.add(row);
+            }
+        }
+        TableRows.upsertById(jdbcTemplate, table, changed);
+        if (deleteMissing) {
+            for (Object id : existing.keySet()) {
+                jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id);
+            }
+        }
+        if (!changed.isEmpty()) {
+            log.debug("Replicated {} rows of {} to shard {}", changed.size(), table, ShardContext.current());
+        }
+    }
+}
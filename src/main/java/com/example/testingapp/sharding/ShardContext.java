@@ -0,0 +1,67 @@
+package com.example.testingapp.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard that connections taken on the current thread are routed to.
+ * <p>
+ * {@link ShardRoutingDataSource} reads it whenever a connection is acquired, so it has to be
+ * set before a transaction or entity manager opens one; switching shards inside a running
+ * transaction has no effect on that transaction. With nothing bound, connections go to
+ * the primary shard, which also holds every table that is not sharded.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    // Binds shard to the calling thread and returns whatever was bound before
+    public static String bind(String shard) {
+        String previous = CURRENT.get();
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+        return previous;
+    }
+
+    public static <T> T callOn(String shard, Supplier<T> work) {
+        String previous = bind(shard);
+        try {
+            return work.get();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    public static void runOn(String shard, Runnable work) {
+        callOn(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Carries the caller's shard onto another thread (e.g. a bulkhead worker)
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        String shard = CURRENT.get();
+        if (shard == null) {
+            return task;
+        }
+        return () -> callOn(shard, task);
+    }
+
+    public static Runnable propagate(Runnable task) {
+        String shard = CURRENT.get();
+        if (shard == null) {
+            return task;
+        }
+        return () -> runOn(shard, task);
+    }
+}
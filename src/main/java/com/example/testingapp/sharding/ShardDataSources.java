@@ -0,0 +1,140 @@
+package com.example.testingapp.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection pools of the non-primary shards, plus the routers that put them behind the
+ * primary's {@code dataSource} and {@code analyticsDataSource} beans.
+ * <p>
+ * Each shard gets a CRUD pool tuned by spring.datasource.hikari and an analytics pool tuned
+ * by analytics.datasource.hikari, mirroring {@code DataSourceConfig}. On MySQL every CRUD
+ * pool, the primary's included, sets the session's auto-increment step and offset so shards
+ * generate expense ids from disjoint residue classes; other databases are configured per
+ * table by {@link ShardSchemaInitializer}.
+ */
+public class ShardDataSources implements AutoCloseable {
+
+    private final boolean enabled;
+    private final String primary;
+    private final int idStride;
+    private final List<String> names;
+    private final Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+    private final Map<String, HikariDataSource> analyticsPools = new LinkedHashMap<>();
+
+    public ShardDataSources(ShardingProperties properties, Binder binder) {
+        this.enabled = properties.isEnabled();
+        this.primary = properties.getPrimary();
+        this.idStride = properties.getIdStride();
+        List<String> names = new ArrayList<>();
+        names.add(primary);
+        if (enabled) {
+            if (properties.getShards().containsKey(primary)) {
+                throw new IllegalStateException("sharding.shards must not redefine the primary shard " + primary);
+            }
+            if (properties.getShards().size() + 1 > idStride) {
+                throw new IllegalStateException("sharding.id-stride " + idStride + " allows at most "
+                        + idStride + " shards");
+            }
+            properties.getShards().forEach((name, shard) -> {
+                names.add(name);
+                int index = names.size() - 1;
+                HikariDataSource pool = createPool(binder, "spring.datasource.hikari", name + "-pool", shard);
+                pool.setConnectionInitSql(identitySql(shard.getUrl(), index));
+                pools.put(name, pool);
+                analyticsPools.put(name, createPool(binder, "analytics.datasource.hikari", name + "-analytics-pool", shard));
+            });
+        }
+        this.names = List.copyOf(names);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getPrimary() {
+        return primary;
+    }
+
+    // Primary first, then the configured shards in declaration order
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int getIdStride() {
+        return idStride;
+    }
+
+    // Position of the shard in getNames(); shard i generates ids congruent to i + 1
+    public int indexOf(String shard) {
+        int index = names.indexOf(shard);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return index;
+    }
+
+    // Raw CRUD pool of a non-primary shard, for work that must bypass routing (schema management)
+    public DataSource getPool(String shard) {
+        HikariDataSource pool = pools.get(shard);
+        if (pool == null) {
+            throw new IllegalArgumentException("No pool for shard: " + shard);
+        }
+        return pool;
+    }
+
+    // Must be called before the primary pool hands out its first connection
+    public void preparePrimary(HikariDataSource primaryPool) {
+        if (primaryPool.getConnectionInitSql() == null) {
+            primaryPool.setConnectionInitSql(identitySql(primaryPool.getJdbcUrl(), 0));
+        }
+    }
+
+    public DataSource route(DataSource primaryPool) {
+        return router(primaryPool, pools);
+    }
+
+    public DataSource routeAnalytics(DataSource primaryPool) {
+        return router(primaryPool, analyticsPools);
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+        analyticsPools.values().forEach(HikariDataSource::close);
+    }
+
+    private DataSource router(DataSource primaryPool, Map<String, HikariDataSource> shardPools) {
+        Map<String, DataSource> targets = new LinkedHashMap<>(shardPools);
+        targets.put(primary, primaryPool);
+        return new ShardRoutingDataSource(primaryPool, targets);
+    }
+
+    private static HikariDataSource createPool(Binder binder, String hikariPrefix, String poolName,
+                                               ShardingProperties.Shard shard) {
+        if (shard.getUrl() == null) {
+            throw new IllegalStateException("No url configured for shard pool " + poolName);
+        }
+        HikariDataSource pool = new HikariDataSource();
+        binder.bind(hikariPrefix, Bindable.ofInstance(pool));
+        pool.setJdbcUrl(shard.getUrl());
+        pool.setUsername(shard.getUsername());
+        pool.setPassword(shard.getPassword());
+        pool.setPoolName(poolName);
+        return pool;
+    }
+
+    private String identitySql(String url, int index) {
+        if (url == null || !(url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:"))) {
+            return null;
+        }
+        return "SET SESSION auto_increment_increment = " + idStride + ", auto_increment_offset = " + (index + 1);
+    }
+}
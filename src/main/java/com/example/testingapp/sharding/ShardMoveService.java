@@ -0,0 +1,215 @@
+package com.example.testingapp.sharding;
+
+import com.example.testingapp.dto.ShardMoveJob;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import com.example.testingapp.event.ExpensesBulkChangedEvent;
+import com.example.testingapp.repository.AppUserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves one user's expenses and tombstones to another shard while the application runs.
+ * <p>
+ * The user's writes are frozen for the duration (they fail with 503 and can be retried),
+ * while reads keep being served from the source shard. Rows are copied in id order, in
+ * chunks of one transaction each, keeping their ids and change sequences, so expense URLs
+ * and delta sync cursors stay valid. Once the row counts match, the user is routed to the
+ * target and unfrozen, and only then are the source rows deleted. A move that fails before
+ * the switch removes its partial copy and leaves the user where they were.
+ * <p>
+ * The freeze, the count of running writes and the cached pin live in this instance's
+ * {@link ShardRouter}; another instance would keep writing to the source shard during the
+ * copy and keep reading it after the switch. Moves are therefore refused unless
+ * {@code sharding.single-instance} declares this the only instance.
+ */
+@Service
+public class ShardMoveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardMoveService.class);
+    private static final long FINISHED_JOB_RETENTION_HOURS = 24;
+
+    private final ShardRouter router;
+    private final AppUserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final boolean singleInstance;
+    private final ExecutorService executor;
+
+    private final Map<String, ShardMoveJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, ShardMoveJob> runningByUser = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ShardMoveService(ShardRouter router,
+                            AppUserRepository userRepository,
+                            JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            ShardingProperties properties) {
+        this.router = router;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = properties.getMoveChunkSize();
+        this.singleInstance = properties.isSingleInstance();
+        // One move at a time keeps the copy load on the shards predictable
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-move");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ShardMoveJob startMove(String username, String targetShard) {
+        if (!router.isEnabled()) {
+            throw new RuntimeException("Sharding is not enabled");
+        }
+        if (!singleInstance) {
+            throw new RuntimeException("Online moves need sharding.single-instance=true: "
+                    + "other instances would not see the freeze or the new pin");
+        }
+        if (!router.getShards().contains(targetShard)) {
+            throw new RuntimeException("Unknown shard: " + targetShard);
+        }
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        String sourceShard = router.shardFor(user.getId());
+        if (sourceShard.equals(targetShard)) {
+            throw new RuntimeException("User " + username + " is already on shard " + targetShard);
+        }
+        pruneFinishedJobs();
+
+        ShardMoveJob job = new ShardMoveJob(UUID.randomUUID().toString(), user.getId(), sourceShard, targetShard);
+        ShardMoveJob running = runningByUser.putIfAbsent(user.getId(), job);
+        if (running != null) {
+            throw new RuntimeException("User " + username + " is already being moved: " + running.getId());
+        }
+        jobs.put(job.getId(), job);
+        executor.execute(() -> runMove(job));
+        return job;
+    }
+
+    public Optional<ShardMoveJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Before the switch an interrupted move is simply retried; after it only source rows are left over
+        executor.shutdownNow();
+    }
+
+    private void runMove(ShardMoveJob job) {
+        Long userId = job.getUserId();
+        String source = job.getSourceShard();
+        String target = job.getTargetShard();
+        ExpenseRangesWrittenEvent.Builder moved = ExpenseRangesWrittenEvent.builder(ExpenseRangesWrittenEvent.Operation.SHARD_MOVED);
+        try {
+            router.freeze(userId);
+            try {
+                copy(job, moved);
+                router.assign(userId, target);
+                job.switched();
+                if (!moved.isEmpty()) {
+                    eventPublisher.publishEvent(moved.build());
+                }
+            } catch (RuntimeException e) {
+                router.onShard(target, () -> deleteUserRows(userId));
+                throw e;
+            } finally {
+                router.unfreeze(userId);
+            }
+            router.onShard(source, () -> deleteUserRows(userId));
+            job.complete();
+            log.info("Moved {} expenses of user {} from shard {} to {}", job.getCopiedExpenses(), userId, source, target);
+        } catch (RuntimeException e) {
+            log.error("Moving user {} from shard {} to {} failed", userId, source, target, e);
+            job.fail(e.getMessage());
+        } finally {
+            runningByUser.remove(userId);
+            if (job.isSwitched()) {
+                // Streams re-read totals and changes from the new shard
+                eventPublisher.publishEvent(ExpensesBulkChangedEvent.forUser(userId, job.getCopiedExpenses()));
+            }
+        }
+    }
+
+    private void copy(ShardMoveJob job, ExpenseRangesWrittenEvent.Builder moved) {
+        Long userId = job.getUserId();
+        String source = job.getSourceShard();
+        String target = job.getTargetShard();
+        // Leftovers of an earlier failed attempt
+        router.onShard(target, () -> deleteUserRows(userId));
+
+        long lastId = 0;
+        List<Map<String, Object>> rows;
+        while (!(rows = readChunk(source, "expenses", userId, lastId)).isEmpty()) {
+            List<Map<String, Object>> chunk = rows;
+            job.addCopiedExpenses(router.onShard(target, () -> transactionTemplate.execute(status ->
+                    TableRows.insert(jdbcTemplate, "expenses", chunk, null))));
+            chunk.forEach(row -> moved.add(userId, ((Number) row.get("id")).longValue(),
+                    ((Number) row.get("change_seq")).longValue()));
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+        }
+        lastId = 0;
+        while (!(rows = readChunk(source, "expense_tombstones", userId, lastId)).isEmpty()) {
+            List<Map<String, Object>> chunk = rows;
+            // Tombstone ids are internal and the target generates its own
+            job.addCopiedTombstones(router.onShard(target, () -> transactionTemplate.execute(status ->
+                    TableRows.insert(jdbcTemplate, "expense_tombstones", chunk, "id"))));
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+        }
+
+        long expected = router.onShard(source, () -> countExpenses(userId));
+        long copied = router.onShard(target, () -> countExpenses(userId));
+        if (expected != copied) {
+            throw new IllegalStateException("Copied " + copied + " of " + expected + " expenses");
+        }
+    }
+
+    private List<Map<String, Object>> readChunk(String shard, String table, Long userId, long afterId) {
+        return router.onShard(shard, () -> jdbcTemplate.queryForList(
+                "SELECT * FROM " + table + " WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?",
+                userId, afterId, chunkSize));
+    }
+
+    private long countExpenses(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses WHERE user_id = ?", Long.class, userId);
+    }
+
+    // In chunks, so no single transaction locks all of a large user's rows
+    private Void deleteUserRows(Long userId) {
+        for (String table : List.of("expense_tombstones", "expenses")) {
+            List<Long> ids;
+            while (!(ids = jdbcTemplate.queryForList("SELECT id FROM " + table
+                    + " WHERE user_id = ? ORDER BY id LIMIT ?", Long.class, userId, chunkSize)).isEmpty()) {
+                jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ? AND id <= ?",
+                        userId, ids.get(ids.size() - 1));
+            }
+        }
+        return null;
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(FINISHED_JOB_RETENTION_HOURS);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
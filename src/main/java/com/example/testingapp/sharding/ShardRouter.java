@@ -0,0 +1,245 @@
+package com.example.testingapp.sharding;
+
+import com.example.testingapp.entity.UserShard;
+import com.example.testingapp.repository.UserShardRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard holds a user's expenses and runs work against one or all shards.
+ * <p>
+ * A user lives on the shard the {@link ConsistentHashRing} assigns to their id unless a
+ * move has pinned them elsewhere; pins are kept in {@code user_shards} on the primary and
+ * cached here, as are move freezes; {@link ShardMoveService} only moves users when
+ * {@code sharding.single-instance} says no other instance holds its own copies.
+ * <p>
+ * Work for another shard is run on a separate thread, never inline: a request thread may
+ * already hold a connection through its open entity manager, and that connection would be
+ * reused whatever shard is bound. With sharding disabled there is only the primary and
+ * everything runs inline, so single-database deployments behave exactly as before.
+ */
+@Service
+public class ShardRouter {
+
+    private final ShardDataSources dataSources;
+    private final UserShardRepository userShardRepository;
+    private final ConsistentHashRing ring;
+    private final ExecutorService executor;
+
+    private final Map<Long, String> pinned = new ConcurrentHashMap<>();
+    private final Set<Long> frozen = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Integer> activeWrites = new ConcurrentHashMap<>();
+
+    @Value("${sharding.freeze-timeout-ms:30000}")
+    private long freezeTimeoutMs;
+
+    @Autowired
+    public ShardRouter(ShardDataSources dataSources,
+                       UserShardRepository userShardRepository,
+                       ShardingProperties properties) {
+        this.dataSources = dataSources;
+        this.userShardRepository = userShardRepository;
+        this.ring = new ConsistentHashRing(dataSources.getNames(), properties.getVirtualNodes());
+        AtomicInteger threadCount = new AtomicInteger();
+        // Unbounded so work nested inside a shard task can never wait for a free thread
+        this.executor = dataSources.isEnabled() ? Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    @PostConstruct
+    public void loadPins() {
+        if (isEnabled()) {
+            for (UserShard userShard : userShardRepository.findAll()) {
+                pinned.put(userShard.getUserId(), userShard.getShard());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return dataSources.isEnabled();
+    }
+
+    public String getPrimary() {
+        return dataSources.getPrimary();
+    }
+
+    public List<String> getShards() {
+        return dataSources.getNames();
+    }
+
+    public String shardFor(Long userId) {
+        if (!isEnabled()) {
+            return getPrimary();
+        }
+        String shard = pinned.get(userId);
+        return shard != null ? shard : ring.nodeFor(userId);
+    }
+
+    // Shard the hash ring alone would pick, ignoring pins
+    public String ringShardFor(Long userId) {
+        return isEnabled() ? ring.nodeFor(userId) : getPrimary();
+    }
+
+    public Map<Long, String> getPinned() {
+        return Map.copyOf(pinned);
+    }
+
+    /**
+     * Registers a write to the user's expenses. Returns false while the user is frozen for a
+     * move; otherwise the caller must call {@link #exitWrite} when the write is done.
+     */
+    public boolean enterWrite(Long userId) {
+        activeWrites.merge(userId, 1, Integer::sum);
+        if (frozen.contains(userId)) {
+            exitWrite(userId);
+            return false;
+        }
+        return true;
+    }
+
+    public void exitWrite(Long userId) {
+        activeWrites.computeIfPresent(userId, (id, writes) -> writes == 1 ? null : writes - 1);
+    }
+
+    // Wraps a background write; fails fast while the user is frozen
+    public <T> T write(Long userId, Supplier<T> work) {
+        if (!enterWrite(userId)) {
+            throw new RejectedExecutionException("Expenses of user " + userId + " are being moved between shards");
+        }
+        try {
+            return ShardContext.callOn(shardFor(userId), work);
+        } finally {
+            exitWrite(userId);
+        }
+    }
+
+    /**
+     * Wraps a bulk write to the expenses of several users on the shard already bound, such as
+     * one chunk of a category job; fails fast, before running work, while any of them is
+     * frozen, so a move never copies their rows while the write is under way.
+     */
+    public <T> T fenceWrites(Collection<Long> userIds, Supplier<T> work) {
+        List<Long> entered = new ArrayList<>(userIds.size());
+        try {
+            for (Long userId : userIds) {
+                if (!enterWrite(userId)) {
+                    throw new RejectedExecutionException("Expenses of user " + userId + " are being moved between shards");
+                }
+                entered.add(userId);
+            }
+            return work.get();
+        } finally {
+            entered.forEach(this::exitWrite);
+        }
+    }
+
+    // Run work with the given shard bound, on a shard worker
+    public <T> T onShard(String shard, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        dataSources.indexOf(shard);
+        return join(CompletableFuture.supplyAsync(() -> ShardContext.callOn(shard, work), executor));
+    }
+
+    // Scatter work to every shard in parallel and gather the results, keyed and ordered by shard
+    public <T> Map<String, T> onEachShard(Supplier<T> work) {
+        Map<String, T> results = new LinkedHashMap<>();
+        if (!isEnabled()) {
+            results.put(getPrimary(), work.get());
+            return results;
+        }
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String shard : getShards()) {
+            futures.put(shard, CompletableFuture.supplyAsync(() -> ShardContext.callOn(shard, work), executor));
+        }
+        futures.forEach((shard, future) -> results.put(shard, join(future)));
+        return results;
+    }
+
+    // Blocks new writes of the user and waits for running ones to finish
+    void freeze(Long userId) {
+        frozen.add(userId);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(freezeTimeoutMs);
+        while (activeWrites.containsKey(userId)) {
+            if (System.nanoTime() > deadline) {
+                frozen.remove(userId);
+                throw new IllegalStateException("Writes of user " + userId + " did not finish within "
+                        + freezeTimeoutMs + " ms");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                frozen.remove(userId);
+                throw new IllegalStateException("Interrupted while freezing user " + userId, e);
+            }
+        }
+    }
+
+    void unfreeze(Long userId) {
+        frozen.remove(userId);
+    }
+
+    public boolean isFrozen(Long userId) {
+        return frozen.contains(userId);
+    }
+
+    // Route the user to shard from now on; a pin matching the ring is dropped
+    void assign(Long userId, String shard) {
+        dataSources.indexOf(shard);
+        onShard(getPrimary(), () -> {
+            if (shard.equals(ring.nodeFor(userId))) {
+                userShardRepository.deleteById(userId);
+            } else {
+                userShardRepository.save(new UserShard(userId, shard));
+            }
+            return null;
+        });
+        if (shard.equals(ring.nodeFor(userId))) {
+            pinned.remove(userId);
+        } else {
+            pinned.put(userId, shard);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
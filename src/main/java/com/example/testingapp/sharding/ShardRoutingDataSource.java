@@ -0,0 +1,23 @@
+package com.example.testingapp.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Hands out connections from the pool of the shard bound to the calling thread
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(DataSource primary, Map<String, DataSource> shards) {
+        setDefaultTargetDataSource(primary);
+        setTargetDataSources(Map.copyOf(shards));
+        // An unknown shard name is a routing bug, not a reason to write to the primary
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
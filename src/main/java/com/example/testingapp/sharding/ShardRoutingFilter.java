@@ -0,0 +1,67 @@
+package com.example.testingapp.sharding;
+
+import com.example.testingapp.entity.AppUser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds the authenticated user's shard for the rest of an expense request.
+ * <p>
+ * Registered behind Spring Security, so the user is known, and ahead of the open entity
+ * manager, so its first connection already goes to the right shard. Requests that may write
+ * are counted per user so {@link ShardMoveService} can wait for them, and are turned away
+ * with 503 while the user is being moved.
+ */
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    private final ShardRouter router;
+
+    public ShardRoutingFilter(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AppUser user)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        boolean write = !isAsyncDispatch(request) && !isReadOnly(request.getMethod());
+        if (write && !router.enterWrite(user.getId())) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Your expenses are being moved, please retry shortly\"}");
+            return;
+        }
+        String previous = ShardContext.bind(router.shardFor(user.getId()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.bind(previous);
+            if (write) {
+                router.exitWrite(user.getId());
+            }
+        }
+    }
+
+    private static boolean isReadOnly(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+}
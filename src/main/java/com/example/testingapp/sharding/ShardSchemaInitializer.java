@@ -0,0 +1,177 @@
+package com.example.testingapp.sharding;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.engine.jdbc.connections.internal.DatasourceConnectionProviderImpl;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.tool.schema.spi.DelayedDropRegistryNotAvailableImpl;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prepares the non-primary shards when sharding is enabled.
+ * <p>
+ * Before anything else runs, every shard's schema is brought up to date from the same
+ * mapping metadata the primary's entity manager factory uses, and each shard's expense id
+ * generator is moved into its own residue class above every id already stored anywhere,
+ * so ids stay unique when a user's rows are moved between shards. Once the application is
+ * ready, reference data is replicated and users whose expenses are already stored on a
+ * shard other than their ring shard, e.g. everyone when sharding is first enabled on an
+ * existing database, are pinned where their data is.
+ */
+@Component
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+    // Marker row in sync_sequences recording the stride a shard's expense ids were set up with
+    static final String ID_STRIDE_SEQUENCE = "expense-id-stride";
+
+    private final ShardRouter router;
+    private final ShardDataSources dataSources;
+    private final HibernateMetadataCapture metadataCapture;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataReplicator replicator;
+
+    @Autowired
+    public ShardSchemaInitializer(ShardRouter router,
+                                  ShardDataSources dataSources,
+                                  HibernateMetadataCapture metadataCapture,
+                                  EntityManagerFactory entityManagerFactory,
+                                  JdbcTemplate jdbcTemplate,
+                                  ReferenceDataReplicator replicator) {
+        this.router = router;
+        this.dataSources = dataSources;
+        this.metadataCapture = metadataCapture;
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicator = replicator;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!router.isEnabled()) {
+            return;
+        }
+        String dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getClass().getName();
+        for (String shard : router.getShards()) {
+            if (!shard.equals(router.getPrimary())) {
+                updateSchema(shard, dialect);
+            }
+        }
+        long maxId = router.onEachShard(() -> jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM expenses", Long.class))
+                .values().stream().mapToLong(Long::longValue).max().orElse(0);
+        for (String shard : router.getShards()) {
+            router.onShard(shard, () -> {
+                configureExpenseIds(shard, maxId);
+                return null;
+            });
+        }
+        log.info("Sharding enabled across {}", router.getShards());
+    }
+
+    // Before other ready listeners, so category usage is reconciled against replicated categories
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void onReady() {
+        if (!router.isEnabled()) {
+            return;
+        }
+        replicator.replicateAll();
+        pinExistingPlacements();
+    }
+
+    private void updateSchema(String shard, String dialect) {
+        // The native bootstrap ignores jakarta.persistence.nonJtaDataSource, so hand over a provider
+        DatasourceConnectionProviderImpl connectionProvider = new DatasourceConnectionProviderImpl();
+        connectionProvider.setDataSource(dataSources.getPool(shard));
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(JdbcSettings.CONNECTION_PROVIDER, connectionProvider)
+                .applySetting(AvailableSettings.DIALECT, dialect)
+                .build();
+        try {
+            // Same as ddl-auto=update, but never drops anything whatever the primary uses
+            Map<String, Object> settings = Map.of(AvailableSettings.HBM2DDL_AUTO, "update",
+                    AvailableSettings.HBM2DDL_HALT_ON_ERROR, true);
+            SchemaManagementToolCoordinator.process(metadataCapture.getMetadata(), registry, settings,
+                    DelayedDropRegistryNotAvailableImpl.INSTANCE);
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    // Runs once per shard and stride; later restarts leave the generator alone
+    private void configureExpenseIds(String shard, long maxId) {
+        int stride = dataSources.getIdStride();
+        List<Long> configured = jdbcTemplate.queryForList(
+                "SELECT next_value FROM sync_sequences WHERE name = ?", Long.class, ID_STRIDE_SEQUENCE);
+        if (!configured.isEmpty() && configured.get(0) == stride) {
+            return;
+        }
+        int offset = dataSources.indexOf(shard) + 1;
+        long start = maxId / stride * stride + offset;
+        while (start <= maxId) {
+            start += stride;
+        }
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName()).toLowerCase(Locale.ROOT);
+        if (product.contains("h2")) {
+            jdbcTemplate.execute("ALTER TABLE expenses ALTER COLUMN id RESTART WITH " + start);
+            jdbcTemplate.execute("ALTER TABLE expenses ALTER COLUMN id SET INCREMENT BY " + stride);
+        } else if (product.contains("mysql") || product.contains("mariadb")) {
+            // Step and offset are session settings, applied by every pool's connection init SQL
+            jdbcTemplate.execute("ALTER TABLE expenses AUTO_INCREMENT = " + start);
+        } else {
+            throw new IllegalStateException("Cannot configure expense ids for sharding on " + product);
+        }
+        if (jdbcTemplate.update("UPDATE sync_sequences SET next_value = ? WHERE name = ?",
+                stride, ID_STRIDE_SEQUENCE) == 0) {
+            jdbcTemplate.update("INSERT INTO sync_sequences (name, next_value, purged_through) VALUES (?, ?, 0)",
+                    ID_STRIDE_SEQUENCE, stride);
+        }
+        log.info("Shard {} generates expense ids from {} in steps of {}", shard, start, stride);
+    }
+
+    private void pinExistingPlacements() {
+        Map<String, List<Long>> usersByShard = router.onEachShard(() -> jdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM expenses", Long.class));
+        Map<Long, List<String>> shardsByUser = new LinkedHashMap<>();
+        usersByShard.forEach((shard, userIds) -> userIds.forEach(userId ->
+                shardsByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(shard)));
+        int pinned = 0;
+        for (Map.Entry<Long, List<String>> entry : shardsByUser.entrySet()) {
+            Long userId = entry.getKey();
+            List<String> shards = entry.getValue();
+            if (shards.size() > 1) {
+                log.warn("Expenses of user {} are spread over shards {}; move them to {}",
+                        userId, shards, router.shardFor(userId));
+            } else if (!shards.get(0).equals(router.shardFor(userId))) {
+                router.assign(userId, shards.get(0));
+                pinned++;
+            }
+        }
+        if (pinned > 0) {
+            log.info("Pinned {} users to the shard that already holds their expenses", pinned);
+        }
+    }
+}
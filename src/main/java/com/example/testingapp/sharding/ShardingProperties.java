@@ -0,0 +1,110 @@
+package com.example.testingapp.sharding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code sharding.*} settings. The primary shard is the spring.datasource database; every
+ * entry under {@code sharding.shards} adds another one with the same schema. Pool sizes
+ * and timeouts come from spring.datasource.hikari and analytics.datasource.hikari, so
+ * every shard gets the same pair of pools as the primary.
+ */
+public class ShardingProperties {
+
+    private boolean enabled;
+    private String primary = "shard0";
+    private int virtualNodes = 128;
+    // Shard i generates expense ids congruent to i + 1 modulo the stride, so it caps the shard count
+    private int idStride = 16;
+    private int moveChunkSize = 500;
+    // Moves freeze and pin users in this instance's memory only, so they need it to be the only one
+    private boolean singleInstance;
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    public static class Shard {
+
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPrimary() {
+        return primary;
+    }
+
+    public void setPrimary(String primary) {
+        this.primary = primary;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public int getIdStride() {
+        return idStride;
+    }
+
+    public void setIdStride(int idStride) {
+        this.idStride = idStride;
+    }
+
+    public int getMoveChunkSize() {
+        return moveChunkSize;
+    }
+
+    public void setMoveChunkSize(int moveChunkSize) {
+        this.moveChunkSize = moveChunkSize;
+    }
+
+    public boolean isSingleInstance() {
+        return singleInstance;
+    }
+
+    public void setSingleInstance(boolean singleInstance) {
+        this.singleInstance = singleInstance;
+    }
+
+    public Map<String, Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(Map<String, Shard> shards) {
+        this.shards = shards;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.testingapp.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Copies rows read with SELECT * between shards; every shard has the same columns
+final class TableRows {
+
+    private TableRows() {
+    }
+
+    // Inserts rows as read, leaving out skipColumn (e.g. a generated id) when given
+    static int insert(JdbcTemplate jdbcTemplate, String table, List<Map<String, Object>> rows, String skipColumn) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<String> columns = rows.get(0).keySet().stream()
+                .filter(column -> !column.equalsIgnoreCase(skipColumn))
+                .toList();
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            batch.add(columns.stream().map(row::get).toArray());
+        }
+        jdbcTemplate.batchUpdate(sql, batch);
+        return rows.size();
+    }
+
+    // Updates rows that exist by id and inserts the rest
+    static void upsertById(JdbcTemplate jdbcTemplate, String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = rows.get(0).keySet().stream()
+                .filter(column -> !column.equalsIgnoreCase("id"))
+                .toList();
+        String sql = "UPDATE " + table + " SET "
+                + columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                + " WHERE id = ?";
+        List<Map<String, Object>> missing = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Object[] args = new Object[columns.size() + 1];
+            for (int i = 0; i < columns.size(); i++) {
+                args[i] = row.get(columns.get(i));
+            }
+            args[columns.size()] = row.get("id");
+            if (jdbcTemplate.update(sql, args) == 0) {
+                missing.add(row);
+            }
+        }
+        insert(jdbcTemplate, table, missing, null);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.testingapp.tracing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Phase timings and SQL statistics collected for a single HTTP request.
+ * <p>
+ * The trace is bound to the request thread by {@link RequestTracingFilter}; code on the
+ * request path records into it through the static helpers, which do nothing when no trace
+ * is bound, so instrumented code costs one thread-local read while tracing is disabled.
+ * Phases may nest (the {@code user} lookup runs inside {@code auth}), so they are not
+ * expected to add up to the total.
+ */
+public class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private final Map<String, SqlStats> statements = new LinkedHashMap<>();
+    private SqlStats lastStatement;
+    private long sqlNanos;
+    private int sqlCount;
+    private long totalNanos = -1;
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    // Binds trace to the calling thread and returns whatever was bound before
+    public static RequestTrace bind(RequestTrace trace) {
+        RequestTrace previous = CURRENT.get();
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+        return previous;
+    }
+
+    public static <T> T time(String phase, Supplier<T> work) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            trace.addPhase(phase, System.nanoTime() - start);
+        }
+    }
+
+    public static void record(String phase, long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.addPhase(phase, nanos);
+        }
+    }
+
+    // Carries the caller's trace onto another thread (e.g. a bulkhead worker)
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            RequestTrace previous = bind(trace);
+            try {
+                return task.get();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    public synchronized void addPhase(String phase, long nanos) {
+        long[] entry = phases.computeIfAbsent(phase, key -> new long[1]);
+        entry[0] += nanos;
+    }
+
+    public synchronized void recordStatement(String sql, long nanos, long updateCount) {
+        String normalized = SqlFingerprint.normalize(sql);
+        SqlStats stats = statements.computeIfAbsent(normalized, SqlStats::new);
+        stats.count++;
+        stats.nanos += nanos;
+        if (updateCount > 0) {
+            stats.rows += updateCount;
+        }
+        lastStatement = stats;
+        sqlNanos += nanos;
+        sqlCount++;
+    }
+
+    // Result sets are read right after their statement runs, so rows go to the last one
+    public synchronized void recordRow() {
+        if (lastStatement != null) {
+            lastStatement.rows++;
+        }
+    }
+
+    public synchronized void finish() {
+        if (totalNanos < 0) {
+            totalNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos < 0 ? System.nanoTime() - startNanos : totalNanos;
+    }
+
+    // Header value per https://www.w3.org/TR/server-timing/, durations in milliseconds
+    public synchronized String toServerTiming() {
+        List<String> metrics = new ArrayList<>();
+        phases.forEach((phase, entry) -> metrics.add(phase + ";dur=" + millis(entry[0])));
+        if (sqlCount > 0) {
+            metrics.add("db;dur=" + millis(sqlNanos) + ";desc=\"" + sqlCount + " statements\"");
+        }
+        metrics.add("total;dur=" + millis(getTotalNanos()));
+        return String.join(", ", metrics);
+    }
+
+    public synchronized Map<String, Object> toLogEntry() {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("totalMs", ms(getTotalNanos()));
+        Map<String, Object> phaseMs = new LinkedHashMap<>();
+        phases.forEach((phase, timing) -> phaseMs.put(phase, ms(timing[0])));
+        phaseMs.put("db", ms(sqlNanos));
+        entry.put("phases", phaseMs);
+        entry.put("statementCount", sqlCount);
+        List<Map<String, Object>> sql = new ArrayList<>();
+        for (SqlStats stats : statements.values()) {
+            Map<String, Object> statement = new LinkedHashMap<>();
+            statement.put("fingerprint", SqlFingerprint.id(stats.sql));
+            statement.put("sql", stats.sql);
+            statement.put("count", stats.count);
+            statement.put("rows", stats.rows);
+            statement.put("ms", ms(stats.nanos));
+            sql.add(statement);
+        }
+        entry.put("sql", sql);
+        return entry;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static double ms(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static final class SqlStats {
+
+        private final String sql;
+        private int count;
+        private long rows;
+        private long nanos;
+
+        private SqlStats(String sql) {
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.testingapp.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opens a {@link RequestTrace} for every request and reports it when the request ends.
+ * <p>
+ * With Server-Timing enabled the response body is buffered so that the header, which has
+ * to precede the body, can still include the serialisation phase. A sample of requests,
+ * plus every request slower than the threshold, is written to the {@code request-trace}
+ * logger as one JSON line. Async requests are followed through their final dispatch;
+ * event streams are left alone because they never finish in a useful time.
+ */
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+    private static final Logger traceLog = LoggerFactory.getLogger("request-trace");
+    private static final String TRACE_ATTRIBUTE = RequestTrace.class.getName();
+
+    private final ObjectMapper objectMapper;
+    private final boolean serverTiming;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public RequestTracingFilter(ObjectMapper objectMapper, boolean serverTiming,
+                                double sampleRate, long slowThresholdMs) {
+        this.objectMapper = objectMapper;
+        this.serverTiming = serverTiming;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThresholdMs * 1_000_000L;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestTrace trace = (RequestTrace) request.getAttribute(TRACE_ATTRIBUTE);
+        HttpServletResponse tracedResponse = response;
+        if (trace == null) {
+            trace = new RequestTrace();
+            request.setAttribute(TRACE_ATTRIBUTE, trace);
+            if (serverTiming) {
+                tracedResponse = new ContentCachingResponseWrapper(response);
+            }
+        }
+
+        RequestTrace previous = RequestTrace.bind(trace);
+        try {
+            filterChain.doFilter(request, tracedResponse);
+        } finally {
+            RequestTrace.bind(previous);
+            if (!request.isAsyncStarted()) {
+                complete(trace, request, tracedResponse);
+            }
+        }
+    }
+
+    private void complete(RequestTrace trace, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        trace.finish();
+        ContentCachingResponseWrapper buffered =
+                WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (buffered != null) {
+            buffered.setHeader("Server-Timing", trace.toServerTiming());
+            buffered.copyBodyToResponse();
+        }
+
+        boolean slow = trace.getTotalNanos() >= slowThresholdNanos;
+        if (traceLog.isInfoEnabled() && (slow || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            traceLog.info(toJson(trace, request, response, slow));
+        }
+    }
+
+    private String toJson(RequestTrace trace, HttpServletRequest request, HttpServletResponse response,
+                          boolean slow) {
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("method", request.getMethod());
+        entry.put("route", route != null ? route : request.getRequestURI());
+        entry.put("status", response.getStatus());
+        entry.put("slow", slow);
+        entry.putAll(trace.toLogEntry());
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            return entry.toString();
+        }
+    }
+}
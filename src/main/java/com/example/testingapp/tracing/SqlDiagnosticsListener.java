@@ -0,0 +1,164 @@
+package com.example.testingapp.tracing;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL diagnostics for every statement on the proxied data sources, replacing show-sql.
+ * <p>
+ * Statements slower than the threshold go to the {@code sql.slow} logger and a random
+ * sample of the rest to {@code sql.sample}; both loggers write through a bounded async
+ * appender (see logback-spring.xml), so a statement never waits on console output.
+ * Count, total and max time are aggregated per {@link SqlFingerprint}. The number of
+ * fingerprints is capped; statements beyond the cap are folded into one {@code (other)} entry.
+ */
+public class SqlDiagnosticsListener implements QueryExecutionListener {
+
+    private static final Logger slowLog = LoggerFactory.getLogger("sql.slow");
+    private static final Logger sampleLog = LoggerFactory.getLogger("sql.sample");
+    private static final String OTHER = "(other)";
+
+    private static final ThreadLocal<long[]> QUERY_START = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final int maxFingerprints;
+    // Raw SQL to its normalised form, so the regex work happens once per distinct statement
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong since = new AtomicLong(System.currentTimeMillis());
+
+    public SqlDiagnosticsListener(long slowThresholdMs, double sampleRate, int maxFingerprints) {
+        this.slowThresholdNanos = slowThresholdMs * 1_000_000L;
+        this.sampleRate = sampleRate;
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        QUERY_START.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long nanos = System.nanoTime() - QUERY_START.get()[0];
+        for (QueryInfo query : queryInfoList) {
+            statsFor(query.getQuery()).record(nanos / queryInfoList.size(), execInfo.isSuccess());
+        }
+
+        if (nanos >= slowThresholdNanos) {
+            if (slowLog.isWarnEnabled()) {
+                slowLog.warn("{} ms on {}: {}", String.format("%.3f", nanos / 1_000_000.0),
+                        execInfo.getDataSourceName(), sqlOf(queryInfoList));
+            }
+        } else if (sampleRate > 0 && sampleLog.isInfoEnabled()
+                && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampleLog.info("{} ms on {}: {}", String.format("%.3f", nanos / 1_000_000.0),
+                    execInfo.getDataSourceName(), sqlOf(queryInfoList));
+        }
+    }
+
+    // Aggregates ordered by total time, most expensive first
+    public List<Map<String, Object>> getStatistics(int limit) {
+        List<StatementStats> sorted = new ArrayList<>(stats.values());
+        sorted.sort(Comparator.comparingLong((StatementStats s) -> s.totalNanos.sum()).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (StatementStats entry : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            long count = entry.count.sum();
+            long totalNanos = entry.totalNanos.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("fingerprint", entry.sql.equals(OTHER) ? OTHER : SqlFingerprint.id(entry.sql));
+            row.put("sql", entry.sql);
+            row.put("count", count);
+            row.put("errors", entry.errors.sum());
+            row.put("totalMs", millis(totalNanos));
+            row.put("meanMs", count == 0 ? 0.0 : millis(totalNanos / count));
+            row.put("maxMs", millis(entry.maxNanos.get()));
+            result.add(row);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getSummary(int limit) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("since", Instant.ofEpochMilli(since.get()).toString());
+        summary.put("fingerprints", stats.size());
+        summary.put("slowThresholdMs", slowThresholdNanos / 1_000_000L);
+        summary.put("sampleRate", sampleRate);
+        summary.put("statements", getStatistics(limit));
+        return summary;
+    }
+
+    public void reset() {
+        stats.clear();
+        since.set(System.currentTimeMillis());
+    }
+
+    private StatementStats statsFor(String sql) {
+        String shape = normalized.get(sql);
+        if (shape == null) {
+            shape = SqlFingerprint.normalize(sql);
+            if (normalized.size() < maxFingerprints * 4) {
+                normalized.put(sql, shape);
+            }
+        }
+        StatementStats entry = stats.get(shape);
+        if (entry != null) {
+            return entry;
+        }
+        String key = stats.size() < maxFingerprints ? shape : OTHER;
+        return stats.computeIfAbsent(key, StatementStats::new);
+    }
+
+    private static String sqlOf(List<QueryInfo> queryInfoList) {
+        if (queryInfoList.size() == 1) {
+            return queryInfoList.get(0).getQuery();
+        }
+        StringBuilder sql = new StringBuilder();
+        for (QueryInfo query : queryInfoList) {
+            sql.append(sql.length() == 0 ? "" : "; ").append(query.getQuery());
+        }
+        return sql.toString();
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static final class StatementStats {
+
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        void record(long nanos, boolean success) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+}
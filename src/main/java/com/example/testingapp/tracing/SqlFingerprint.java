@@ -0,0 +1,30 @@
+package com.example.testingapp.tracing;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reduces SQL to a shape that is the same for every execution of a query: literals become
+ * {@code ?}, {@code IN} lists collapse to one placeholder and whitespace is squeezed. The
+ * fingerprint id is a short hash of that shape, stable across restarts, for grouping traces.
+ */
+public final class SqlFingerprint {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlFingerprint() {
+    }
+
+    public static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    public static String id(String normalizedSql) {
+        return String.format("%08x", normalizedSql.hashCode());
+    }
+}
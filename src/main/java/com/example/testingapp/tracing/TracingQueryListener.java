@@ -0,0 +1,57 @@
+package com.example.testingapp.tracing;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Feeds JDBC activity on a proxied data source into the {@link RequestTrace} bound to the
+ * executing thread: elapsed time and update counts per statement, and one row per
+ * successful {@link ResultSet#next()}. Work outside a traced request is ignored.
+ */
+public class TracingQueryListener implements QueryExecutionListener, MethodExecutionListener {
+
+    // ExecutionInfo only reports whole milliseconds, which hides most OLTP statements
+    private static final ThreadLocal<long[]> QUERY_START = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (RequestTrace.current() != null) {
+            QUERY_START.get()[0] = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - QUERY_START.get()[0];
+        long updateCount = execInfo.getResult() instanceof Integer count ? count : 0;
+        for (QueryInfo query : queryInfoList) {
+            trace.recordStatement(query.getQuery(), nanos / queryInfoList.size(), updateCount);
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof ResultSet
+                && "next".equals(executionContext.getMethod().getName())
+                && Boolean.TRUE.equals(executionContext.getResult())) {
+            RequestTrace trace = RequestTrace.current();
+            if (trace != null) {
+                trace.recordRow();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.testingapp.archive;
+
+import com.example.testingapp.entity.Expense;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpenseSegmentTest {
+
+    private static final LocalDate BEFORE = LocalDate.of(2019, 1, 1);
+    private static final LocalDate AFTER = LocalDate.of(2021, 12, 31);
+
+    @TempDir
+    Path dir;
+
+    private static List<ArchivedExpense> year(int rows) {
+        List<ArchivedExpense> expenses = new ArrayList<>();
+        LocalDateTime created = LocalDateTime.of(2020, 1, 1, 9, 30, 15, 123_456_000);
+        for (int i = 0; i < rows; i++) {
+            boolean sparse = i % 3 == 0;
+            expenses.add(new ArchivedExpense(1000 + i * 16L, "Expense " + i, new BigDecimal(i + ".25"),
+                    LocalDate.of(2020, 1, 1).plusDays(i % 366), 1 + i % 4,
+                    sparse ? null : "Notes ✓ " + i,
+                    sparse ? null : Expense.PaymentMethod.values()[i % Expense.PaymentMethod.values().length],
+                    i % 5 == 0, i % 5 == 0 ? Expense.RecurringFrequency.MONTHLY : null,
+                    created.plusMinutes(i), sparse ? null : created.plusDays(i), 50_000L + i));
+        }
+        return expenses;
+    }
+
+    @Test
+    void testRowsRoundTripInDateOrder() throws IOException {
+        List<ArchivedExpense> expenses = year(1000);
+        Path file = dir.resolve("2020-1.seg");
+        ExpenseSegmentWriter.write(file, expenses);
+
+        ExpenseSegment segment = ExpenseSegment.open(file);
+        assertEquals(1000, segment.getRowCount());
+        assertEquals(LocalDate.of(2020, 1, 1), segment.getMinDate());
+        assertEquals(LocalDate.of(2020, 12, 31), segment.getMaxDate());
+        assertEquals(50_999L, segment.getMaxChangeSeq());
+        assertTrue(segment.referencesCategory(4));
+        assertFalse(segment.referencesCategory(5));
+
+        List<ArchivedExpense> rows = segment.rowsBetween(BEFORE, AFTER);
+        assertEquals(1000, rows.size());
+        for (int i = 1; i < rows.size(); i++) {
+            assertFalse(rows.get(i).expenseDate().isBefore(rows.get(i - 1).expenseDate()));
+        }
+        for (ArchivedExpense expected : expenses) {
+            assertEquals(expected, segment.find(expected.id()).orElseThrow());
+        }
+        assertTrue(segment.find(1001).isEmpty());
+    }
+
+    @Test
+    void testTotalsMatchTheRowsInRange() throws IOException {
+        List<ArchivedExpense> expenses = year(500);
+        Path file = dir.resolve("2020-1.seg");
+        ExpenseSegmentWriter.write(file, expenses);
+        ExpenseSegment segment = ExpenseSegment.open(file);
+
+        BigDecimal all = expenses.stream().map(ArchivedExpense::amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, all.compareTo(segment.getTotal()));
+        assertEquals(0, all.compareTo(segment.totalBetween(BEFORE, AFTER)));
+
+        LocalDate start = LocalDate.of(2020, 3, 1);
+        LocalDate end = LocalDate.of(2020, 3, 31);
+        List<ArchivedExpense> march = expenses.stream()
+                .filter(expense -> !expense.expenseDate().isBefore(start) && !expense.expenseDate().isAfter(end))
+                .toList();
+        assertEquals(0, march.stream().map(ArchivedExpense::amount).reduce(BigDecimal.ZERO, BigDecimal::add)
+                .compareTo(segment.totalBetween(start, end)));
+        assertEquals(march.size(), segment.rowsBetween(start, end).size());
+        assertFalse(segment.overlaps(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31)));
+    }
+
+    @Test
+    void testCorruptColumnIsDetected() throws IOException {
+        Path file = dir.resolve("2020-1.seg");
+        ExpenseSegmentWriter.write(file, year(100));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(file, bytes);
+
+        ExpenseSegment segment = ExpenseSegment.open(file);
+        assertThrows(IllegalStateException.class, () -> segment.rowsBetween(BEFORE, AFTER));
+    }
+}
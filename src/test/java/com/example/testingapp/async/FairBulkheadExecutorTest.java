@@ -0,0 +1,91 @@
+package com.example.testingapp.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FairBulkheadExecutorTest {
+
+    private final FairBulkheadExecutor executor = new FairBulkheadExecutor("test", 1, 10, 3);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testUsersAreServedRoundRobin() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("blocker", () -> awaitQuietly(release));
+        while (executor.getActiveCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        executor.submit("heavy", () -> order.add("heavy-1"));
+        executor.submit("heavy", () -> order.add("heavy-2"));
+        executor.submit("heavy", () -> order.add("heavy-3"));
+        CompletableFuture<Boolean> last = executor.submit("light", () -> order.add("light-1"));
+        assertEquals(4, executor.getQueueDepth());
+
+        release.countDown();
+        last.get(5, TimeUnit.SECONDS);
+        while (order.size() < 4) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(List.of("heavy-1", "light-1", "heavy-2", "heavy-3"), order);
+    }
+
+    @Test
+    void testSubmissionsBeyondPerUserLimitAreRejected() {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("blocker", () -> awaitQuietly(release));
+        for (int i = 0; i < 3; i++) {
+            executor.submit("heavy", () -> true);
+        }
+
+        CompletableFuture<Boolean> rejected = executor.submit("heavy", () -> true);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertEquals(1, executor.getRejectedCount());
+        release.countDown();
+    }
+
+    @Test
+    void testShutdownFailsQueuedTasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit("blocker", () -> awaitQuietly(release));
+        while (executor.getActiveCount() == 0) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<Boolean> queued = executor.submit("heavy", () -> true);
+
+        executor.shutdown();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertEquals(0, executor.getQueueDepth());
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.testingapp.audit;
+
+import com.example.testingapp.dto.ExpenseCategoryResponse;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditJournalTest {
+
+    private static final Instant EPOCH = Instant.EPOCH;
+
+    @TempDir
+    Path dir;
+
+    private AuditJournal open(AuditJournal.FsyncPolicy fsyncPolicy) {
+        return new AuditJournal(dir.toString(), DataSize.ofKilobytes(64), fsyncPolicy, 10, 90);
+    }
+
+    private static Instant later() {
+        return Instant.now().plus(1, ChronoUnit.MINUTES);
+    }
+
+    private static ExpenseChangedEvent event(ExpenseChangedEvent.Type type, long userId, long expenseId, long changeSeq) {
+        if (type == ExpenseChangedEvent.Type.DELETED) {
+            return new ExpenseChangedEvent(type, userId, "user" + userId, expenseId, changeSeq, null);
+        }
+        ExpenseCategoryResponse category = new ExpenseCategoryResponse();
+        category.setId(3L);
+        ExpenseResponse expense = new ExpenseResponse();
+        expense.setId(expenseId);
+        expense.setDescription("Expense ✓ " + expenseId);
+        expense.setAmount(new BigDecimal("12.50"));
+        expense.setExpenseDate(LocalDate.of(2024, 2, 29));
+        expense.setCategory(category);
+        return new ExpenseChangedEvent(type, userId, "user" + userId, expenseId, changeSeq, expense);
+    }
+
+    private int segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return (int) files.filter(file -> file.toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    void testReplayFiltersByUserAcrossSegments() throws IOException {
+        AuditJournal journal = open(AuditJournal.FsyncPolicy.INTERVAL);
+        Instant before = Instant.now();
+        for (long seq = 1; seq <= 2000; seq++) {
+            ExpenseChangedEvent.Type type = seq % 10 == 0 ? ExpenseChangedEvent.Type.DELETED : ExpenseChangedEvent.Type.CREATED;
+            journal.append(event(type, seq % 2 + 1, seq, seq));
+        }
+
+        List<AuditRecord> records = journal.replay(1, EPOCH, later(), 10_000);
+        assertEquals(1000, records.size());
+        assertTrue(segmentFiles() >= 3);
+        for (int i = 0; i < records.size(); i++) {
+            AuditRecord record = records.get(i);
+            assertEquals(1, record.userId());
+            assertEquals(2L * i + 2, record.changeSeq());
+            assertFalse(record.timestamp().isBefore(before.truncatedTo(ChronoUnit.MILLIS)));
+        }
+        AuditRecord created = records.get(0);
+        assertEquals(ExpenseChangedEvent.Type.CREATED, created.type());
+        assertEquals("Expense ✓ 2", created.description());
+        assertEquals(new BigDecimal("12.50"), created.amount());
+        assertEquals(LocalDate.of(2024, 2, 29), created.expenseDate());
+        assertEquals(3L, created.categoryId());
+        AuditRecord deleted = records.get(4);
+        assertEquals(ExpenseChangedEvent.Type.DELETED, deleted.type());
+        assertEquals(10, deleted.expenseId());
+        assertNull(deleted.description());
+
+        assertEquals(5, journal.replay(2, EPOCH, later(), 5).size());
+        assertTrue(journal.replay(1, later(), later().plusSeconds(60), 10).isEmpty());
+        journal.close();
+    }
+
+    @Test
+    void testBulkWritesAreJournaledAsOneRangePerUser() {
+        AuditJournal journal = open(AuditJournal.FsyncPolicy.NONE);
+        journal.append(event(ExpenseChangedEvent.Type.CREATED, 1, 5, 40));
+        journal.onExpenseRangesWritten(ExpenseRangesWrittenEvent.builder(ExpenseRangesWrittenEvent.Operation.CATEGORY_REASSIGNED)
+                .add(1, 5, 41).add(2, 6, 42).add(1, 9, 43)
+                .build());
+
+        List<AuditRecord> records = journal.replay(1, EPOCH, later(), 10);
+        assertEquals(2, records.size());
+        assertNull(records.get(0).range());
+        AuditRecord range = records.get(1);
+        assertEquals(ExpenseChangedEvent.Type.UPDATED, range.type());
+        assertEquals(5, range.expenseId());
+        assertEquals(41, range.changeSeq());
+        assertNull(range.description());
+        assertEquals(new AuditRecord.Range(ExpenseRangesWrittenEvent.Operation.CATEGORY_REASSIGNED, 9, 43, 2), range.range());
+        assertEquals(new AuditRecord.Range(ExpenseRangesWrittenEvent.Operation.CATEGORY_REASSIGNED, 6, 42, 1),
+                journal.replay(2, EPOCH, later(), 10).get(0).range());
+        journal.close();
+    }
+
+    @Test
+    void testReopenContinuesAfterCleanTailAndSkipsTornOne() throws IOException {
+        AuditJournal journal = open(AuditJournal.FsyncPolicy.NONE);
+        long lastStart = 0;
+        for (long seq = 1; seq <= 10; seq++) {
+            long end = journal.append(event(ExpenseChangedEvent.Type.CREATED, 1, seq, seq));
+            if (seq < 10) {
+                lastStart = end;
+            }
+        }
+        journal.close();
+
+        journal = open(AuditJournal.FsyncPolicy.NONE);
+        assertEquals(10, journal.replay(1, EPOCH, later(), 100).size());
+        journal.append(event(ExpenseChangedEvent.Type.UPDATED, 1, 11, 11));
+        assertEquals(1, segmentFiles());
+        journal.close();
+
+        // Damage the body of the tenth record, as a crash halfway through writing it would
+        Path segment = dir.resolve(String.format("%020d", 0) + ".journal");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(lastStart + 20);
+            file.write(file.read() ^ 0xFF);
+        }
+
+        journal = open(AuditJournal.FsyncPolicy.NONE);
+        List<AuditRecord> records = journal.replay(1, EPOCH, later(), 100);
+        assertEquals(9, records.size());
+        assertEquals(2, segmentFiles());
+        journal.append(event(ExpenseChangedEvent.Type.CREATED, 1, 12, 12));
+        assertEquals(12, journal.replay(1, EPOCH, later(), 100).get(9).changeSeq());
+        journal.close();
+    }
+
+    @Test
+    void testAlwaysPolicyMakesEveryConcurrentAppendDurable() throws Exception {
+        AuditJournal journal = open(AuditJournal.FsyncPolicy.ALWAYS);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            long userId = writer;
+            futures.add(writers.submit(() -> {
+                for (long seq = 1; seq <= 200; seq++) {
+                    journal.append(event(ExpenseChangedEvent.Type.CREATED, userId, seq, seq));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writers.shutdown();
+
+        assertEquals(0L, journal.getStats().get("unflushedBytes"));
+        assertEquals(1600L, journal.getStats().get("appended"));
+        for (long userId = 0; userId < 8; userId++) {
+            assertEquals(200, journal.replay(userId, EPOCH, later(), 1000).size());
+        }
+        journal.close();
+    }
+
+    @Test
+    void testRetentionDeletesOnlyOldFullSegments() throws IOException {
+        AuditJournal journal = open(AuditJournal.FsyncPolicy.NONE);
+        for (long seq = 1; seq <= 2000; seq++) {
+            journal.append(event(ExpenseChangedEvent.Type.CREATED, 1, seq, seq));
+        }
+        assertTrue(segmentFiles() >= 3);
+
+        journal.purgeBefore(Instant.now().minus(1, ChronoUnit.DAYS));
+        assertTrue(segmentFiles() >= 3);
+
+        journal.purgeBefore(later());
+        assertEquals(1, segmentFiles());
+        List<AuditRecord> remaining = journal.replay(1, EPOCH, later(), 10_000);
+        assertFalse(remaining.isEmpty());
+        assertEquals(2000, remaining.get(remaining.size() - 1).changeSeq());
+        journal.close();
+    }
+
+    @Test
+    void testDirectoryCanOnlyBeOpenedOnce() {
+        AuditJournal journal = open(AuditJournal.FsyncPolicy.NONE);
+        assertThrows(IllegalStateException.class, () -> open(AuditJournal.FsyncPolicy.NONE));
+        journal.close();
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.testingapp.controller;
+
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.entity.ExpenseCategory;
+import com.example.testingapp.entity.User;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseCategoryRepository;
+import com.example.testingapp.repository.ExpenseRepository;
+import com.example.testingapp.repository.UserRepository;
+import com.example.testingapp.security.JwtUtil;
+import com.example.testingapp.service.UserSearchIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Statement-count and latency budgets for every expense, category and user endpoint,
+ * measured against a seeded dataset. The counts include the JWT filter's user lookup. A
+ * new N+1 (e.g. a lazy association read per row) raises the count with the dataset size
+ * and fails here. Latency is judged on the median of several warmed-up runs, and budgets
+ * are deliberately loose to tolerate slow CI machines; scale them with
+ * -Dbudget.time-factor=2 if needed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:query-budget.properties")
+@Import(StatementCapture.Config.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EndpointBudgetTest {
+
+    private static final int EXPENSES = 300;
+    private static final int EXTRA_USERS = 200;
+    private static final int TIMED_RUNS = 5;
+    private static final double TIME_FACTOR = Double.parseDouble(System.getProperty("budget.time-factor", "1"));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCapture statementCapture;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseCategoryRepository categoryRepository;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private String userToken;
+    private String adminToken;
+    private Long expenseId;
+    private Long categoryId;
+    private Long userId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        AppUser owner = appUserRepository.findByUsername("user").orElseThrow();
+        userToken = "Bearer " + jwtUtil.generateToken(owner);
+        adminToken = "Bearer " + jwtUtil.generateToken(appUserRepository.findByUsername("admin").orElseThrow());
+
+        List<ExpenseCategory> categories = categoryRepository.findAll();
+        categoryId = categories.get(0).getId();
+        Random random = new Random(7);
+        List<Expense> expenses = new ArrayList<>(EXPENSES);
+        for (int i = 0; i < EXPENSES; i++) {
+            Expense expense = new Expense((i % 5 == 0 ? "Coffee " : "Groceries ") + i,
+                    BigDecimal.valueOf(100 + random.nextInt(10_000), 2),
+                    LocalDate.now().minusDays(random.nextInt(365)),
+                    categories.get(i % categories.size()), owner);
+            expense.setRecurring(i % 10 == 0);
+            expense.setRecurringFrequency(i % 10 == 0 ? Expense.RecurringFrequency.MONTHLY : null);
+            expenses.add(expense);
+        }
+        transactionTemplate.executeWithoutResult(status -> expenseRepository.saveAll(expenses));
+        expenseId = expenses.get(0).getId();
+
+        List<User> users = new ArrayList<>(EXTRA_USERS);
+        for (int i = 0; i < EXTRA_USERS; i++) {
+            users.add(new User("First" + i, "Last" + i, "budget.user" + i + "@example.com", "555000" + i));
+        }
+        userRepository.saveAll(users);
+        userId = users.get(0).getId();
+        // Saved behind UserService's back, so the search index picks them up as it would on its periodic reload
+        userSearchIndex.reload();
+
+        // Warm up the MVC, security and Hibernate paths so the first budget is not charged for class loading
+        for (int i = 0; i < 5; i++) {
+            perform(get("/api/expenses").header("Authorization", userToken));
+            perform(get("/api/users").header("Authorization", userToken));
+        }
+        // Likewise the first category write, which evicts the second-level cache and rebuilds CategoryRegistry
+        Long warmupCategory = newCategory();
+        perform(delete("/api/expense-categories/" + warmupCategory).header("Authorization", adminToken));
+        // First sync call allocates the change sequence block; that one-off cost is not per request
+        perform(get("/api/expenses/changes").header("Authorization", userToken));
+    }
+
+    Stream<Budget> budgets() {
+        return Stream.of(
+                // ExpenseController
+                new Budget("list expenses", 3, 300, () -> get("/api/expenses").header("Authorization", userToken)),
+                new Budget("list expenses, sparse", 3, 200, () -> get("/api/expenses").param("fields", "description,amount").header("Authorization", userToken)),
+                new Budget("paginate expenses", 4, 200, () -> get("/api/expenses/paginated").param("page", "3").param("size", "20").header("Authorization", userToken)),
+                new Budget("expense by id", 3, 200, () -> get("/api/expenses/" + expenseId).header("Authorization", userToken)),
+                new Budget("expenses by date range", 3, 300, () -> get("/api/expenses/date-range").param("startDate", LocalDate.now().minusDays(90).toString()).param("endDate", LocalDate.now().toString()).header("Authorization", userToken)),
+                new Budget("expenses by category", 4, 200, () -> get("/api/expenses/category/" + categoryId).header("Authorization", userToken)),
+                new Budget("search expenses", 3, 200, () -> get("/api/expenses/search").param("description", "coffee").header("Authorization", userToken)),
+                new Budget("recent expenses", 3, 200, () -> get("/api/expenses/recent").header("Authorization", userToken)),
+                new Budget("recurring expenses", 3, 200, () -> get("/api/expenses/recurring").header("Authorization", userToken)),
+                new Budget("expense count", 3, 200, () -> get("/api/expenses/count").header("Authorization", userToken)),
+                new Budget("expense total", 3, 200, () -> get("/api/expenses/total").header("Authorization", userToken)),
+                new Budget("expense total by date range", 3, 200, () -> get("/api/expenses/total/date-range").param("startDate", LocalDate.now().minusDays(30).toString()).param("endDate", LocalDate.now().toString()).header("Authorization", userToken)),
+                new Budget("monthly summary", 3, 200, () -> get("/api/expenses/summary/monthly").header("Authorization", userToken)),
+                new Budget("category summary", 3, 200, () -> get("/api/expenses/summary/by-category").header("Authorization", userToken)),
+                new Budget("expense changes", 3, 300, () -> get("/api/expenses/changes").param("since", "0").param("limit", "100").header("Authorization", userToken)),
+                new Budget("create expense", 4, 300, () -> post("/api/expenses").header("Authorization", userToken).contentType(MediaType.APPLICATION_JSON).content(expenseJson("Budget lunch"))),
+                new Budget("update expense", 5, 300, () -> put("/api/expenses/" + expenseId).header("Authorization", userToken).contentType(MediaType.APPLICATION_JSON).content(expenseJson("Budget dinner"))),
+                new Budget("delete expense", 5, 300, () -> delete("/api/expenses/" + newExpense()).header("Authorization", userToken)),
+
+                // ExpenseCategoryController: reads come from CategoryRegistry (only the JWT user lookup runs),
+                // writes pay one SELECT to rebuild it
+                new Budget("list categories", 1, 200, () -> get("/api/expense-categories").header("Authorization", adminToken)),
+                new Budget("active categories", 1, 200, () -> get("/api/expense-categories/active").header("Authorization", userToken)),
+                new Budget("category by id", 1, 200, () -> get("/api/expense-categories/" + categoryId).header("Authorization", userToken)),
+                new Budget("category by name", 1, 200, () -> get("/api/expense-categories/name/Travel").header("Authorization", userToken)),
+                new Budget("search categories", 2, 200, () -> get("/api/expense-categories/search").param("name", "an").header("Authorization", userToken)),
+                new Budget("category count", 1, 200, () -> get("/api/expense-categories/count").header("Authorization", userToken)),
+                new Budget("active category count", 1, 200, () -> get("/api/expense-categories/count/active").header("Authorization", userToken)),
+                new Budget("category exists", 1, 200, () -> get("/api/expense-categories/" + categoryId + "/exists").header("Authorization", userToken)),
+                new Budget("popular categories", 1, 200, () -> get("/api/expense-categories/popular").header("Authorization", userToken)),
+                new Budget("create category", 3, 300, () -> post("/api/expense-categories").header("Authorization", adminToken).contentType(MediaType.APPLICATION_JSON).content(categoryJson("Budget " + System.nanoTime()))),
+                new Budget("update category", 4, 300, () -> put("/api/expense-categories/" + newCategory()).header("Authorization", adminToken).contentType(MediaType.APPLICATION_JSON).content(categoryJson("Renamed " + System.nanoTime()))),
+                new Budget("deactivate category", 4, 300, () -> patch("/api/expense-categories/" + newCategory() + "/deactivate").header("Authorization", adminToken)),
+                new Budget("delete category", 6, 300, () -> delete("/api/expense-categories/" + newCategory()).header("Authorization", adminToken)),
+
+                // UserController
+                new Budget("list users", 2, 300, () -> get("/api/users").header("Authorization", userToken)),
+                new Budget("users page", 2, 200, () -> get("/api/users/paginated").param("sort", "lastName").param("limit", "50").header("Authorization", userToken)),
+                new Budget("export users", 2, 300, () -> get("/api/users/export").param("format", "csv").header("Authorization", adminToken)),
+                new Budget("user by id", 2, 200, () -> get("/api/users/" + userId).header("Authorization", userToken)),
+                new Budget("user by email", 2, 200, () -> get("/api/users/email/budget.user1@example.com").header("Authorization", userToken)),
+                // Search and autocomplete are served by UserSearchIndex; only the JWT user lookup runs
+                new Budget("search users", 1, 200, () -> get("/api/users/search").param("name", "First1").header("Authorization", userToken)),
+                new Budget("autocomplete users", 1, 200, () -> get("/api/users/autocomplete").param("q", "budget.user1").header("Authorization", userToken)),
+                new Budget("user count", 2, 200, () -> get("/api/users/count").header("Authorization", userToken)),
+                new Budget("user exists", 2, 200, () -> get("/api/users/" + userId + "/exists").header("Authorization", userToken)),
+                new Budget("create user", 3, 300, () -> post("/api/users").header("Authorization", userToken).contentType(MediaType.APPLICATION_JSON).content(userJson("new." + System.nanoTime() + "@example.com"))),
+                new Budget("update user", 3, 300, () -> put("/api/users/" + userId).header("Authorization", userToken).contentType(MediaType.APPLICATION_JSON).content(userJson("budget.user0@example.com"))),
+                new Budget("patch user", 3, 300, () -> patch("/api/users/" + userId).header("Authorization", userToken).contentType(MediaType.APPLICATION_JSON).content("{\"phoneNumber\":\"5551234\"}")),
+                new Budget("delete user", 4, 300, () -> delete("/api/users/" + newUser()).header("Authorization", userToken))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("budgets")
+    void endpointStaysWithinBudget(Budget budget) throws Exception {
+        // Statement counts are checked on every run; latency on the median of the timed runs, after a
+        // warm-up run that pays this endpoint's own class loading and plan caching
+        long[] elapsedMillis = new long[TIMED_RUNS];
+        for (int run = -1; run < TIMED_RUNS; run++) {
+            MockHttpServletRequestBuilder request = budget.request.get();
+            statementCapture.reset();
+
+            long start = System.nanoTime();
+            MvcResult result = perform(request);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            List<String> statements = statementCapture.getStatements();
+
+            int status = result.getResponse().getStatus();
+            assertTrue(status >= 200 && status < 300,
+                    budget.name + " returned " + status + ": " + result.getResponse().getContentAsString());
+            if (statements.size() > budget.maxStatements) {
+                fail(budget.name + " ran " + statements.size() + " statements, budget is " + budget.maxStatements
+                        + ":\n  " + String.join("\n  ", statements));
+            }
+            if (run >= 0) {
+                elapsedMillis[run] = elapsed;
+            }
+        }
+        Arrays.sort(elapsedMillis);
+        long medianMillis = elapsedMillis[TIMED_RUNS / 2];
+        long maxMillis = Math.round(budget.maxMillis * TIME_FACTOR);
+        assertTrue(medianMillis <= maxMillis, budget.name + " took " + medianMillis + " ms (median of "
+                + Arrays.toString(elapsedMillis) + "), budget is " + maxMillis + " ms");
+    }
+
+    // Work on the analytics bulkhead must not borrow connections from the request pool
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/expenses/total", "/api/expenses/summary/monthly", "/api/expenses/summary/by-category"})
+    void analyticsEndpointsQueryOnlyTheAnalyticsPool(String path) throws Exception {
+        statementCapture.reset();
+
+        perform(get(path).header("Authorization", userToken));
+
+        List<String> primary = statementCapture.getStatements().stream()
+                .filter(statement -> !statement.startsWith("[analyticsDataSource] "))
+                .toList();
+        // Only the JWT filter's user lookup, which runs on the request thread before the bulkhead
+        assertEquals(1, primary.size(), path + " used the request pool: " + primary);
+        assertTrue(primary.get(0).contains("from app_users"), primary.get(0));
+    }
+
+    // Performs the request, following async endpoints through to their final dispatch
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result.getAsyncResult(TimeUnit.SECONDS.toMillis(10));
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result;
+    }
+
+    private Long newExpense() {
+        AppUser owner = appUserRepository.findByUsername("user").orElseThrow();
+        ExpenseCategory category = categoryRepository.findById(categoryId).orElseThrow();
+        return expenseRepository.save(new Expense("Budget delete", BigDecimal.TEN, LocalDate.now(), category, owner)).getId();
+    }
+
+    private Long newCategory() {
+        return categoryRepository.save(new ExpenseCategory("Budget " + System.nanoTime(), "Temporary", "#000000", "tag")).getId();
+    }
+
+    private Long newUser() {
+        return userRepository.save(new User("Temp", "User", "temp." + System.nanoTime() + "@example.com", null)).getId();
+    }
+
+    private String expenseJson(String description) {
+        return "{\"description\":\"" + description + "\",\"amount\":12.50,\"expenseDate\":\"" + LocalDate.now()
+                + "\",\"categoryId\":" + categoryId + "}";
+    }
+
+    private static String categoryJson(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"Budget test\",\"color\":\"#123456\",\"icon\":\"tag\"}";
+    }
+
+    private static String userJson(String email) {
+        return "{\"firstName\":\"Budget\",\"lastName\":\"User\",\"email\":\"" + email + "\",\"phoneNumber\":\"5550000\"}";
+    }
+
+    static final class Budget {
+
+        private final String name;
+        private final int maxStatements;
+        private final long maxMillis;
+        private final Supplier<MockHttpServletRequestBuilder> request;
+
+        Budget(String name, int maxStatements, long maxMillis, Supplier<MockHttpServletRequestBuilder> request) {
+            this.name = name;
+            this.maxStatements = maxStatements;
+            this.maxMillis = maxMillis;
+            this.request = request;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.testingapp.controller;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records every statement executed through the application's data sources, on any thread,
+ * so statements run by async endpoints on the analytics bulkhead are counted too. One
+ * execution counts once, batched or not, since that is one round trip.
+ */
+public class StatementCapture implements QueryExecutionListener {
+
+    private final List<String> statements = new ArrayList<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        synchronized (statements) {
+            statements.add("[" + execInfo.getDataSourceName() + "] " + sql);
+        }
+    }
+
+    public void reset() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    public List<String> getStatements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        // Picked up by DataSourceConfig's proxy post-processor like any other listener
+        @Bean
+        public StatementCapture statementCapture() {
+            return new StatementCapture();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.testingapp.jfr;
+
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.security.JwtUtil;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The custom JFR events fire on real requests once a recording enables them.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:query-budget.properties",
+        properties = "spring.datasource.url=jdbc:h2:mem:jfr_events;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class JfrEventsTest {
+
+    private static final String PASSWORD_HASH = "com.example.testingapp.PasswordHash";
+    private static final String JWT_PARSE = "com.example.testingapp.JwtParse";
+    private static final String REPOSITORY_CALL = "com.example.testingapp.RepositoryCall";
+    private static final String EXPENSE_MAPPING = "com.example.testingapp.ExpenseMapping";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    private final List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+    private RecordingStream stream;
+
+    @BeforeEach
+    void startRecording() {
+        stream = new RecordingStream();
+        for (String name : List.of(PASSWORD_HASH, JWT_PARSE, REPOSITORY_CALL, EXPENSE_MAPPING)) {
+            stream.enable(name).withThreshold(Duration.ZERO);
+        }
+        stream.onEvent(events::add);
+        stream.startAsync();
+    }
+
+    @AfterEach
+    void stopRecording() {
+        stream.close();
+    }
+
+    @Test
+    void testEachLoginEmitsOnePasswordMatch() throws Exception {
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"wrong\"}"))
+                .andExpect(status().is4xxClientError());
+
+        // The provider may also encode its dummy "user not found" password once, on first use.
+        // Each login verifies the password with BCrypt exactly once
+        List<RecordedEvent> matches = awaitEvents(PASSWORD_HASH, 2,
+                event -> event.getString("operation").equals("matches"));
+        assertEquals(2, matches.size());
+        assertEquals(1, matches.stream().filter(event -> event.getBoolean("succeeded")).count());
+    }
+
+    @Test
+    void testAuthenticatedRequestEmitsJwtRepositoryAndMappingEvents() throws Exception {
+        String token = "Bearer " + jwtUtil.generateToken(appUserRepository.findByUsername("user").orElseThrow());
+
+        mockMvc.perform(get("/api/expenses").header("Authorization", token))
+                .andExpect(status().isOk());
+
+        List<RecordedEvent> jwt = awaitEvents(JWT_PARSE, 1, event -> true);
+        assertEquals(1, jwt.size());
+        assertEquals("user", jwt.get(0).getString("username"));
+        assertEquals("valid", jwt.get(0).getString("outcome"));
+        assertFalse(awaitEvents(REPOSITORY_CALL, 1, event -> true).isEmpty());
+        assertFalse(awaitEvents(EXPENSE_MAPPING, 1, event -> true).isEmpty());
+    }
+
+    // Streamed events arrive in periodic chunks, so wait for them rather than reading once. A stream
+    // opened after another one was closed can hand over the same event twice across a chunk
+    // rotation; such copies share their thread, start and duration, so they are counted once
+    private List<RecordedEvent> awaitEvents(String name, int expected, Predicate<RecordedEvent> filter)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<RecordedEvent> matching;
+        do {
+            Set<List<Object>> seen = new HashSet<>();
+            matching = events.stream()
+                    .filter(event -> event.getEventType().getName().equals(name))
+                    .filter(filter)
+                    .filter(event -> seen.add(List.of(event.getThread().getJavaThreadId(),
+                            event.getStartTime(), event.getDuration())))
+                    .toList();
+            if (matching.size() >= expected) {
+                break;
+            }
+            Thread.sleep(50);
+        } while (System.nanoTime() < deadline);
+        return matching;
+    }
+}
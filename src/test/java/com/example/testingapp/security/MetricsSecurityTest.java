@@ -0,0 +1,102 @@
+package com.example.testingapp.security;
+
+import com.example.testingapp.repository.AppUserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Access to the Prometheus scrape and the auth meters it exposes. Runs on its own H2
+ * database with metrics export enabled, which Boot otherwise turns off in tests.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@TestPropertySource(locations = "classpath:query-budget.properties",
+        properties = "spring.datasource.url=jdbc:h2:mem:metrics_security;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class MetricsSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    private String userToken;
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        userToken = "Bearer " + jwtUtil.generateToken(appUserRepository.findByUsername("user").orElseThrow());
+        adminToken = "Bearer " + jwtUtil.generateToken(appUserRepository.findByUsername("admin").orElseThrow());
+    }
+
+    @Test
+    void prometheusScrapeIsRejectedWithoutAToken() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void prometheusScrapeIsRejectedForNonAdmins() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", userToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void prometheusScrapeServesAdmins() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("auth_jwt_verification_seconds")));
+    }
+
+    @Test
+    void healthStaysPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void jwtIsVerifiedOncePerRequest() throws Exception {
+        long before = verifications("valid");
+
+        mockMvc.perform(get("/api/expense-categories/active").header("Authorization", userToken))
+                .andExpect(status().isOk());
+
+        assertEquals(before + 1, verifications("valid"));
+    }
+
+    @Test
+    void rejectedTokensAreCountedAsInvalid() throws Exception {
+        long before = verifications("invalid");
+
+        mockMvc.perform(get("/api/expense-categories/active").header("Authorization", userToken + "x"))
+                .andExpect(status().isForbidden());
+
+        assertEquals(before + 1, verifications("invalid"));
+    }
+
+    private long verifications(String outcome) {
+        Timer timer = meterRegistry.find("auth.jwt.verification").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
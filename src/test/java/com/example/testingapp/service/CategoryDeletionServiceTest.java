@@ -0,0 +1,102 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.audit.AuditRecord;
+import com.example.testingapp.dto.CategoryDeletionJob;
+import com.example.testingapp.dto.ExpenseCategoryRequest;
+import com.example.testingapp.dto.ExpenseChange;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CategoryDeletionServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private CategoryDeletionService categoryDeletionService;
+
+    @Autowired
+    private ExpenseCategoryService categoryService;
+
+    @Autowired
+    private ExpenseSyncService expenseSyncService;
+
+    @Autowired
+    private ExpenseStreamService expenseStreamService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testReassignMovesExpensesWithDistinctChangeSequences() throws InterruptedException {
+        String username = newUser();
+        Long from = categoryService.createCategory(new ExpenseCategoryRequest("Merge source", null, null, null)).getId();
+        Long to = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        ExpenseResponse first = createExpense(username, "Merge one", from);
+        // Ids in between belong to other categories; sequences follow the ids, so they stay distinct and ordered
+        for (int i = 0; i < 3; i++) {
+            createExpense(username, "Merge gap " + i);
+        }
+        ExpenseResponse second = createExpense(username, "Merge two", from);
+        long cursor = expenseSyncService.getChanges(username, 0, ExpenseSyncService.MAX_LIMIT).getCursor();
+        RecordingEmitter affected = new RecordingEmitter();
+        expenseStreamService.subscribe(username, affected);
+        RecordingEmitter bystander = new RecordingEmitter();
+        expenseStreamService.subscribe(newUser(), bystander);
+
+        CategoryDeletionJob job = categoryDeletionService.startReassignment(from, to).orElseThrow();
+        assertEquals(to, job.getTargetCategoryId());
+        for (int i = 0; i < 100 && job.getStatus() == CategoryDeletionJob.Status.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(CategoryDeletionJob.Status.COMPLETED, job.getStatus());
+        assertEquals(2, job.getReassignedExpenses());
+
+        assertFalse(categoryService.categoryExists(from));
+        ExpenseResponse moved = transactionTemplate.execute(status -> expenseService.getExpenseById(first.getId(), username).orElseThrow());
+        assertEquals(to, moved.getCategory().getId());
+        List<ExpenseChange> changes = expenseSyncService.getChanges(username, cursor, 100).getChanges();
+        assertEquals(List.of(first.getId(), second.getId()), changes.stream().map(ExpenseChange::getExpenseId).toList());
+        assertEquals(changes.get(0).getChangeSeq() + (second.getId() - first.getId()), changes.get(1).getChangeSeq());
+        assertEquals(List.of(new AuditRecord.Range(ExpenseRangesWrittenEvent.Operation.CATEGORY_REASSIGNED,
+                second.getId(), changes.get(1).getChangeSeq(), 2)), auditedRanges(username));
+
+        // Only the owner of the moved expenses is asked to resync
+        for (int i = 0; i < 100 && affected.events.stream().noneMatch(event -> event.contains("event:resync")); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(affected.events.stream().anyMatch(event -> event.contains("event:resync")));
+        assertTrue(bystander.events.stream().noneMatch(event -> event.contains("event:resync")));
+        affected.complete();
+        bystander.complete();
+    }
+
+    @Test
+    void testDeletionJobTombstonesExpensesAndRemovesCategory() throws InterruptedException {
+        String username = newUser();
+        Long categoryId = categoryService.createCategory(new ExpenseCategoryRequest("Purge me", null, null, null)).getId();
+        ExpenseResponse first = createExpense(username, "Purge one", categoryId);
+        ExpenseResponse second = createExpense(username, "Purge two", categoryId);
+        long cursor = expenseSyncService.getChanges(username, 0, ExpenseSyncService.MAX_LIMIT).getCursor();
+
+        CategoryDeletionJob job = categoryDeletionService.startDeletion(categoryId).orElseThrow();
+        assertEquals(2, job.getTotalExpenses());
+        for (int i = 0; i < 100 && job.getStatus() == CategoryDeletionJob.Status.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(CategoryDeletionJob.Status.COMPLETED, job.getStatus());
+        assertEquals(100, job.getPercentComplete());
+        assertFalse(categoryService.categoryExists(categoryId));
+        assertEquals(0, categoryUsageService.getExpenseCount(categoryId));
+        List<ExpenseChange> changes = expenseSyncService.getChanges(username, cursor, 100).getChanges();
+        assertEquals(List.of(first.getId(), second.getId()), changes.stream().map(ExpenseChange::getExpenseId).toList());
+        assertTrue(changes.stream().allMatch(change -> change.getType() == ExpenseChange.Type.DELETE));
+        assertEquals(List.of(new AuditRecord.Range(ExpenseRangesWrittenEvent.Operation.CATEGORY_DELETED,
+                second.getId(), changes.get(1).getChangeSeq(), 2)), auditedRanges(username));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseCategoryRequest;
+import com.example.testingapp.entity.ExpenseCategory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpenseCategoryServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ExpenseCategoryService categoryService;
+
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testCategoryReadsHitTheSecondLevelCacheAndWritesEvictIt() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CacheRegionStatistics entities = statistics.getDomainDataRegionStatistics(ExpenseCategory.CACHE_REGION);
+        Long categoryId = categoryService.createCategory(new ExpenseCategoryRequest("Cached", null, null, null)).getId();
+        try {
+            // The first read (or the insert itself) populates the region; the next one is served from it
+            readCategory(categoryId);
+            long hits = entities.getHitCount();
+            assertEquals("Cached", readCategory(categoryId).getName());
+            assertTrue(entities.getHitCount() > hits);
+            // The query region only exists once a cacheable query has run
+            categoryRepository.findAll();
+            CacheRegionStatistics queries = statistics.getQueryRegionStatistics(ExpenseCategory.QUERY_CACHE_REGION);
+            long queryHits = queries.getHitCount();
+            categoryRepository.findAll();
+            assertTrue(queries.getHitCount() > queryHits);
+
+            // The write evicts the stale entry, which the registry refresh then loads afresh from the table
+            long puts = entities.getPutCount();
+            categoryService.updateCategory(categoryId, new ExpenseCategoryRequest("Cached renamed", null, null, null));
+
+            assertTrue(entities.getPutCount() > puts);
+            hits = entities.getHitCount();
+            assertEquals("Cached renamed", readCategory(categoryId).getName());
+            assertTrue(entities.getHitCount() > hits);
+            assertTrue(categoryRepository.findAll().stream().anyMatch(category -> category.getName().equals("Cached renamed")));
+        } finally {
+            categoryService.deleteCategory(categoryId);
+        }
+    }
+
+    @Test
+    void testCategoryRegistrySwapsInANewSnapshotOnWrite() {
+        CategoryRegistry.Snapshot before = categoryRegistry.snapshot();
+        Long categoryId = categoryService.createCategory(new ExpenseCategoryRequest("Registry new", null, null, null)).getId();
+        try {
+            CategoryRegistry.Snapshot after = categoryRegistry.snapshot();
+
+            // Readers holding the old snapshot keep a consistent, unchanged view
+            assertNotSame(before, after);
+            assertNull(before.byId(categoryId));
+            assertEquals(before.count() + 1, after.count());
+            assertSame(after.byId(categoryId), after.byName("Registry new"));
+            assertThrows(UnsupportedOperationException.class, () -> after.all().clear());
+
+            categoryService.deactivateCategory(categoryId);
+            assertTrue(after.byId(categoryId).isActive());
+            assertFalse(categoryRegistry.snapshot().byId(categoryId).isActive());
+            assertEquals(after.activeCount() - 1, categoryRegistry.snapshot().activeCount());
+        } finally {
+            categoryService.deleteCategory(categoryId);
+        }
+        assertNull(categoryRegistry.snapshot().byId(categoryId));
+    }
+
+    @Test
+    void testCategoryRegistryPicksUpWritesFromOtherInstances() {
+        // Written straight to the table, as another instance would, so neither the registry nor Hibernate hears of it
+        jdbcTemplate.update("INSERT INTO expense_categories (name, is_active) VALUES ('Elsewhere', TRUE)");
+        Long categoryId = jdbcTemplate.queryForObject("SELECT id FROM expense_categories WHERE name = 'Elsewhere'", Long.class);
+        try {
+            assertNull(categoryRegistry.snapshot().byId(categoryId));
+            // An id miss is checked against the table and refreshes the registry
+            assertEquals("Elsewhere", categoryRegistry.find(categoryId).getName());
+
+            jdbcTemplate.update("UPDATE expense_categories SET name = 'Elsewhere renamed' WHERE id = ?", categoryId);
+            categoryRegistry.reload();
+
+            assertEquals("Elsewhere renamed", categoryRegistry.find(categoryId).getName());
+            assertNull(categoryRegistry.snapshot().byName("Elsewhere"));
+        } finally {
+            jdbcTemplate.update("DELETE FROM expense_categories WHERE id = ?", categoryId);
+            categoryRegistry.reload();
+        }
+    }
+
+    private ExpenseCategory readCategory(Long categoryId) {
+        return transactionTemplate.execute(status -> categoryRepository.findById(categoryId).orElseThrow());
+    }
+}
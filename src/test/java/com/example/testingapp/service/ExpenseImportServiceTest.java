@@ -0,0 +1,115 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ExpenseArchiver;
+import com.example.testingapp.audit.AuditRecord;
+import com.example.testingapp.dto.ExpenseImportJob;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.entity.Expense;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import com.example.testingapp.importer.StatementFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpenseImportServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
+    @Autowired
+    private ExpenseArchiver expenseArchiver;
+
+    private ExpenseImportJob importStatement(String username, String statement, StatementFormat format)
+            throws IOException, InterruptedException {
+        ExpenseImportJob job = expenseImportService.startImport(username,
+                new ByteArrayInputStream(statement.getBytes(StandardCharsets.UTF_8)), format,
+                null, Expense.PaymentMethod.DEBIT_CARD, "dd/MM/yyyy");
+        for (int i = 0; i < 100 && job.getStatus() == ExpenseImportJob.Status.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(ExpenseImportJob.Status.COMPLETED, job.getStatus());
+        return job;
+    }
+
+    @Test
+    void testStatementImportSkipsCreditsAndDuplicates() throws IOException, InterruptedException {
+        String username = newUser();
+        Long food = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        Long other = categoryRepository.findByName("Other").orElseThrow().getId();
+        long foodBefore = categoryUsageService.getExpenseCount(food);
+        String statement = "Date,Payee,Memo,Debit,Credit,Category\n"
+                + "03/02/2019,Statement Bakery,\"Card 1234, contactless\",\"1,204.50\",,food & dining\n"
+                + "04/02/2019,Statement Salary,,,2500.00,\n"
+                + "05/02/2019,Statement Kiosk,,3.20,,Snacks\n"
+                + "05/02/2019,Statement Kiosk,,3.20,,Snacks\n"
+                + "2019-02-06,Statement Bad Date,,9.99,,\n";
+
+        ExpenseImportJob first = importStatement(username, statement, StatementFormat.CSV);
+        assertEquals(5, first.getLinesRead());
+        assertEquals(3, first.getCreated());
+        assertEquals(1, first.getCredits());
+        assertEquals(1, first.getInvalid());
+        assertTrue(first.getErrors().get(0).startsWith("Line 6: "));
+        assertEquals(foodBefore + 1, categoryUsageService.getExpenseCount(food));
+        List<AuditRecord.Range> ranges = auditedRanges(username);
+        assertEquals(1, ranges.size());
+        assertEquals(ExpenseRangesWrittenEvent.Operation.IMPORTED, ranges.get(0).operation());
+        assertEquals(3, ranges.get(0).count());
+
+        List<ExpenseResponse> imported = expenseService.searchExpenses(username, "Statement ");
+        assertEquals(3, imported.size());
+        ExpenseResponse bakery = imported.stream()
+                .filter(expense -> expense.getDescription().equals("Statement Bakery")).findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("1204.50").compareTo(bakery.getAmount()));
+        assertEquals(LocalDate.of(2019, 2, 3), bakery.getExpenseDate());
+        assertEquals("Card 1234, contactless", bakery.getNotes());
+        assertEquals(food, bakery.getCategory().getId());
+        assertTrue(imported.stream()
+                .filter(expense -> expense.getDescription().equals("Statement Kiosk"))
+                .allMatch(expense -> expense.getCategory().getId().equals(other)));
+
+        // Both kiosk lines match an existing expense one-for-one the second time
+        ExpenseImportJob second = importStatement(username, statement, StatementFormat.CSV);
+        assertEquals(0, second.getCreated());
+        assertEquals(3, second.getDuplicates());
+        assertEquals(3, expenseService.searchExpenses(username, "Statement ").size());
+
+        // Still duplicates once they have been archived
+        Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+        assertEquals(3, expenseArchiver.archiveUser(userId, expenseArchiver.cutoff(LocalDate.now())));
+        ExpenseImportJob third = importStatement(username, statement, StatementFormat.CSV);
+        assertEquals(0, third.getCreated());
+        assertEquals(3, third.getDuplicates());
+        assertEquals(3, expenseService.searchExpenses(username, "Statement ").size());
+    }
+
+    @Test
+    void testOfxImportReadsSgmlTransactions() throws IOException, InterruptedException {
+        String username = newUser();
+        String statement = "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\n\n"
+                + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+                + "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20190301120000[-5:EST]<TRNAMT>-42.10"
+                + "<FITID>A1<NAME>Ofx Hardware &amp; Garden<MEMO>Store 7</STMTTRN>\n"
+                + "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20190302<TRNAMT>100.00<FITID>A2<NAME>Ofx Refund</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+        ExpenseImportJob job = importStatement(username, statement, StatementFormat.OFX);
+        assertEquals(2, job.getLinesRead());
+        assertEquals(1, job.getCreated());
+        assertEquals(1, job.getCredits());
+
+        ExpenseResponse expense = expenseService.searchExpenses(username, "Ofx Hardware").get(0);
+        assertEquals("Ofx Hardware & Garden", expense.getDescription());
+        assertEquals(0, new BigDecimal("42.10").compareTo(expense.getAmount()));
+        assertEquals(LocalDate.of(2019, 3, 1), expense.getExpenseDate());
+        assertEquals("Store 7", expense.getNotes());
+    }
+}
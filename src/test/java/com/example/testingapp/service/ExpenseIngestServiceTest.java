@@ -0,0 +1,56 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseChange;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.dto.ExpenseResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestPropertySource(properties = {
+    "expense.ingest.enabled=true",
+    "expense.ingest.linger-ms=200"
+})
+public class ExpenseIngestServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ExpenseIngestService expenseIngestService;
+
+    @Autowired
+    private ExpenseSyncService expenseSyncService;
+
+    @Test
+    void testIngestedExpensesCommitInBatches() {
+        String username = newUser();
+        Long food = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        long cursor = expenseSyncService.getChanges(username, 0, ExpenseSyncService.MAX_LIMIT).getCursor();
+        long batchesBefore = (long) expenseIngestService.getStats().get("batches");
+
+        List<CompletableFuture<ExpenseResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ExpenseRequest request = new ExpenseRequest("Ingested " + i, new BigDecimal("3.10"), LocalDate.of(2024, 7, 1), food);
+            futures.add(expenseIngestService.createExpense(request, username));
+        }
+        List<ExpenseResponse> created = futures.stream().map(CompletableFuture::join).toList();
+
+        assertEquals(40, created.stream().map(ExpenseResponse::getId).distinct().count());
+        assertEquals("Food & Dining", created.get(0).getCategory().getName());
+        long batches = (long) expenseIngestService.getStats().get("batches") - batchesBefore;
+        assertTrue(batches < 10, "40 expenses took " + batches + " batches");
+        List<ExpenseChange> changes = expenseSyncService.getChanges(username, cursor, 100).getChanges();
+        assertEquals(40, changes.size());
+        assertEquals(40, changes.stream().mapToLong(ExpenseChange::getChangeSeq).distinct().count());
+        assertEquals(40, expenseService.getAllExpensesForUser(username).size());
+
+        assertThrows(RuntimeException.class, () -> expenseIngestService.createExpense(
+                new ExpenseRequest("Nowhere", BigDecimal.ONE, LocalDate.of(2024, 7, 1), -1L), username));
+    }
+}
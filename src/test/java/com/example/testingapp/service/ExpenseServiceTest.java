@@ -0,0 +1,207 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.archive.ExpenseArchive;
+import com.example.testingapp.archive.ExpenseArchiver;
+import com.example.testingapp.audit.AuditRecord;
+import com.example.testingapp.dto.ExpenseCategoryRequest;
+import com.example.testingapp.dto.ExpenseChange;
+import com.example.testingapp.dto.ExpenseChangesResponse;
+import com.example.testingapp.dto.ExpenseFields;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.dto.ReportFormat;
+import com.example.testingapp.dto.ReportJob;
+import com.example.testingapp.event.ExpenseChangedEvent;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpenseServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ExpenseSyncService expenseSyncService;
+
+    @Autowired
+    private ExpenseCategoryService categoryService;
+
+    @Autowired
+    private CategoryDeletionService categoryDeletionService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ExpenseArchive expenseArchive;
+
+    @Autowired
+    private ExpenseArchiver expenseArchiver;
+
+    @Test
+    void testSparseFieldsetReturnsOnlyRequestedFields() {
+        String username = newUser();
+        ExpenseResponse created = createExpense(username, "Sparse lunch");
+
+        List<Map<String, Object>> rows = expenseService.searchExpenses(
+            username, "Sparse lunch", ExpenseFields.parse("description,amount,categoryId"));
+
+        assertEquals(1, rows.size());
+        Map<String, Object> row = rows.get(0);
+        assertEquals(List.of("id", "description", "amount", "categoryId"), List.copyOf(row.keySet()));
+        assertEquals(created.getId(), row.get("id"));
+        assertEquals(created.getCategory().getId(), row.get("categoryId"));
+        assertEquals(0, new BigDecimal("12.50").compareTo((BigDecimal) row.get("amount")));
+    }
+
+    @Test
+    void testSparseFieldsetRejectsUnknownFields() {
+        assertThrows(IllegalArgumentException.class, () -> ExpenseFields.parse("id,user"));
+    }
+
+    @Test
+    void testUsageCountersFollowExpenseWritesAndReconcile() {
+        String username = newUser();
+        Long categoryId = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        long before = categoryUsageService.getExpenseCount(categoryId);
+
+        ExpenseResponse first = createExpense(username, "Usage one");
+        createExpense(username, "Usage two");
+        assertEquals(before + 2, categoryUsageService.getExpenseCount(categoryId));
+
+        transactionTemplate.execute(status -> expenseService.deleteExpense(first.getId(), username));
+        assertEquals(before + 1, categoryUsageService.getExpenseCount(categoryId));
+
+        // A recount agrees with the incremental total
+        categoryUsageService.reconcile();
+        assertEquals(before + 1, categoryUsageService.getExpenseCount(categoryId));
+        List<Long> ranking = categoryUsageService.getCategoriesOrderedByUsage().stream()
+                .map(category -> category.getId())
+                .toList();
+        assertTrue(ranking.contains(categoryId));
+    }
+
+    @Test
+    void testExpenseWritesAreJournaled() {
+        String username = newUser();
+        Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+        Long food = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        Instant from = Instant.now().minusSeconds(1);
+        ExpenseResponse created = expenseService.createExpense(
+                new ExpenseRequest("Audited lunch", new BigDecimal("8.40"), LocalDate.of(2024, 6, 1), food), username);
+        transactionTemplate.execute(status -> expenseService.updateExpense(created.getId(),
+                new ExpenseRequest("Audited dinner", new BigDecimal("21.00"), LocalDate.of(2024, 6, 1), food), username));
+        transactionTemplate.execute(status -> expenseService.deleteExpense(created.getId(), username));
+
+        List<AuditRecord> records = auditJournal.replay(userId, from, Instant.now().plusSeconds(1), 100);
+
+        assertEquals(List.of(ExpenseChangedEvent.Type.CREATED, ExpenseChangedEvent.Type.UPDATED, ExpenseChangedEvent.Type.DELETED),
+                records.stream().map(AuditRecord::type).toList());
+        assertTrue(records.stream().allMatch(record -> record.expenseId() == created.getId()));
+        assertEquals("Audited dinner", records.get(1).description());
+        assertEquals(0, new BigDecimal("21.00").compareTo(records.get(1).amount()));
+        assertTrue(records.get(0).changeSeq() < records.get(1).changeSeq());
+        assertNull(records.get(2).amount());
+    }
+
+    @Test
+    void testArchivedExpensesLeaveTheTableButStayReadable() throws IOException, InterruptedException {
+        String username = newUser();
+        Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+        Long categoryId = categoryService.createCategory(new ExpenseCategoryRequest("Archived only", null, null, null)).getId();
+        LocalDate old = LocalDate.now().minusYears(3).withDayOfYear(10);
+        List<ExpenseResponse> archived = List.of(
+                expenseService.createExpense(new ExpenseRequest("Old one", new BigDecimal("10.25"), old, categoryId), username),
+                expenseService.createExpense(new ExpenseRequest("Old two", new BigDecimal("4.75"), old.plusDays(30), categoryId), username));
+        ExpenseResponse recent = expenseService.createExpense(
+                new ExpenseRequest("Recent", new BigDecimal("1.00"), LocalDate.now(), categoryId), username);
+
+        assertEquals(2, expenseArchiver.archiveUser(userId, expenseArchiver.cutoff(LocalDate.now())));
+        AuditRecord.Range archivedRange = auditedRanges(username).get(0);
+        assertEquals(ExpenseRangesWrittenEvent.Operation.ARCHIVED, archivedRange.operation());
+        assertEquals(archived.get(1).getId(), archivedRange.lastExpenseId());
+        assertEquals(2, archivedRange.count());
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expenses WHERE user_id = ?", Integer.class, userId));
+        assertTrue(expenseArchive.hasExpenses(userId));
+        assertEquals(3, expenseService.getExpenseCount(username));
+        assertEquals(0, new BigDecimal("16.00").compareTo(expenseService.getTotalExpenses(username)));
+        assertEquals(0, new BigDecimal("15.00").compareTo(
+                expenseService.getTotalExpensesByDateRange(username, old, old.plusDays(30))));
+        assertEquals(List.of(recent.getId(), archived.get(1).getId(), archived.get(0).getId()),
+                expenseService.getExpensesByDateRange(username, old, LocalDate.now()).stream()
+                        .map(ExpenseResponse::getId).toList());
+        List<Long> newestFirst = List.of(recent.getId(), archived.get(1).getId(), archived.get(0).getId());
+        assertEquals(newestFirst, expenseService.getAllExpensesForUser(username).stream().map(ExpenseResponse::getId).toList());
+        assertEquals(newestFirst, expenseService.getExpensesByCategory(username, categoryId).stream()
+                .map(ExpenseResponse::getId).toList());
+        assertEquals(List.of(archived.get(1).getId()), expenseService.searchExpenses(username, "OLD TWO").stream()
+                .map(ExpenseResponse::getId).toList());
+        assertEquals(3, expenseService.getRecentExpenses(username).size());
+        assertEquals(List.of(archived.get(1).getId(), archived.get(0).getId()),
+                expenseService.getAllExpensesForUser(username, ExpenseFields.parse("description")).stream()
+                        .skip(1).map(row -> row.get("id")).toList());
+        assertFalse(expenseService.getAllExpensesForUser(username, ExpenseFields.parse("description")).get(0)
+                .containsKey("expenseDate"));
+        
+        // Pages interleave the archive at any offset
+        for (int size = 1; size <= 3; size++) {
+            List<Long> paged = new ArrayList<>();
+            for (int page = 0; page * size < 3; page++) {
+                Page<ExpenseResponse> expenses = expenseService.getExpensesForUser(username, PageRequest.of(page, size));
+                assertEquals(3, expenses.getTotalElements());
+                expenses.forEach(expense -> paged.add(expense.getId()));
+            }
+            assertEquals(newestFirst, paged);
+        }
+        assertEquals(List.of(archived.get(1).getId()), expenseService.getExpensesForUser(
+                username, PageRequest.of(1, 1), ExpenseFields.parse("id")).map(row -> row.get("id")).getContent());
+
+        // Sync still returns archived expenses, in change order, whether from scratch or from a cursor before them
+        ExpenseChangesResponse full = expenseSyncService.getChanges(username, 0, ExpenseSyncService.MAX_LIMIT);
+        assertEquals(List.of(archived.get(0).getId(), archived.get(1).getId(), recent.getId()),
+                full.getChanges().stream().map(ExpenseChange::getExpenseId).toList());
+        assertEquals("Old two", full.getChanges().get(1).getExpense().getDescription());
+        assertEquals(categoryId, full.getChanges().get(1).getExpense().getCategory().getId());
+        ExpenseChangesResponse paged = expenseSyncService.getChanges(username, full.getChanges().get(0).getChangeSeq(), 1);
+        assertTrue(paged.isHasMore());
+        assertEquals(archived.get(1).getId(), paged.getChanges().get(0).getExpenseId());
+
+        ExpenseResponse found = transactionTemplate.execute(status ->
+                expenseService.getExpenseById(archived.get(0).getId(), username).orElseThrow());
+        assertEquals("Old one", found.getDescription());
+        assertEquals(categoryId, found.getCategory().getId());
+        assertTrue(transactionTemplate.execute(status ->
+                expenseService.getExpenseById(archived.get(0).getId(), "user")).isEmpty());
+
+        // Archived expenses are read-only and pin their category
+        assertEquals(Boolean.FALSE, transactionTemplate.execute(status -> expenseService.deleteExpense(archived.get(0).getId(), username)));
+        Long other = categoryRepository.findByName("Other").orElseThrow().getId();
+        assertThrows(RuntimeException.class, () -> categoryDeletionService.startReassignment(categoryId, other));
+
+        ReportJob job = reportService.submit(username, old.withDayOfYear(1), LocalDate.now(), ReportFormat.CSV);
+        for (int i = 0; i < 100 && job.getStatus() != ReportJob.Status.COMPLETED; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(ReportJob.Status.COMPLETED, job.getStatus());
+        List<String> lines = Files.readAllLines(reportService.getArtefact(job.getId(), username).orElseThrow());
+        assertTrue(lines.contains("total,,3,16.00"));
+        assertTrue(lines.contains("category,Archived only,3,16.00"));
+    }
+}
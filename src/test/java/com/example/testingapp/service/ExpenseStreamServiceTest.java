@@ -0,0 +1,57 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseStreamEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestPropertySource(properties = "expense.stream.send-timeout-ms=200")
+public class ExpenseStreamServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ExpenseStreamService expenseStreamService;
+
+    // Blocks every send until interrupted, like a client that stopped reading
+    private static class StalledEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted", e);
+            }
+        }
+    }
+
+    @Test
+    void testStalledStreamsDoNotBlockOtherClients() throws InterruptedException {
+        String username = newUser();
+        int connectionsBefore = expenseStreamService.getConnectionCount();
+        // One stalled client per writer thread would otherwise hold the whole pool
+        for (int i = 0; i < 2; i++) {
+            expenseStreamService.subscribe(username, new StalledEmitter());
+        }
+        RecordingEmitter healthy = new RecordingEmitter();
+        expenseStreamService.subscribe(username, healthy);
+        Thread.sleep(300);
+
+        createExpense(username, "Streamed lunch");
+        for (int i = 0; i < 100 && healthy.payloads.stream().noneMatch(ExpenseStreamEvent.class::isInstance); i++) {
+            expenseStreamService.closeStalledConnections();
+            Thread.sleep(50);
+        }
+
+        assertTrue(healthy.events.get(0).contains("event:ready"));
+        assertTrue(healthy.payloads.stream()
+                .anyMatch(payload -> payload instanceof ExpenseStreamEvent event
+                        && event.getExpense().getDescription().equals("Streamed lunch")));
+        assertEquals(connectionsBefore + 1, expenseStreamService.getConnectionCount());
+        healthy.complete();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseChange;
+import com.example.testingapp.dto.ExpenseChangesResponse;
+import com.example.testingapp.dto.ExpenseResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpenseSyncServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ExpenseSyncService expenseSyncService;
+
+    @Autowired
+    private ChangeSequenceService changeSequenceService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testChangesSinceCursorIncludeUpsertsAndTombstones() {
+        String username = newUser();
+        ExpenseResponse deleted = createExpense(username, "Sync delete me");
+        long cursor = expenseSyncService.getChanges(username, 0, ExpenseSyncService.MAX_LIMIT).getCursor();
+
+        ExpenseResponse created = createExpense(username, "Sync created");
+        // Ownership checks compare entities, so share one persistence context like a web request does
+        Boolean removed = transactionTemplate.execute(status -> expenseService.deleteExpense(deleted.getId(), username));
+        assertEquals(Boolean.TRUE, removed);
+
+        ExpenseChangesResponse changes = expenseSyncService.getChanges(username, cursor, 100);
+
+        assertFalse(changes.isResetRequired());
+        assertFalse(changes.isHasMore());
+        assertEquals(2, changes.getChanges().size());
+        ExpenseChange upsert = changes.getChanges().get(0);
+        assertEquals(ExpenseChange.Type.UPSERT, upsert.getType());
+        assertEquals(created.getId(), upsert.getExpenseId());
+        ExpenseChange delete = changes.getChanges().get(1);
+        assertEquals(ExpenseChange.Type.DELETE, delete.getType());
+        assertEquals(deleted.getId(), delete.getExpenseId());
+        assertTrue(changes.getCursor() >= delete.getChangeSeq());
+
+        assertTrue(expenseSyncService.getChanges(username, changes.getCursor(), 100).getChanges().isEmpty());
+    }
+
+    @Test
+    void testBackfilledRowsArePagedWithoutLoss() {
+        String username = newUser();
+        Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+        for (int i = 0; i < 5; i++) {
+            createExpense(username, "Legacy " + i);
+        }
+        // As if written before delta sync existed
+        jdbcTemplate.update("UPDATE expenses SET change_seq = NULL WHERE user_id = ?", userId);
+
+        changeSequenceService.backfill();
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM expenses WHERE user_id = ? ORDER BY change_seq", Long.class, userId);
+        assertEquals(ids.stream().sorted().toList(), ids);
+        ExpenseChangesResponse first = expenseSyncService.getChanges(username, 0, 2);
+        assertTrue(first.isHasMore());
+        ExpenseChangesResponse second = expenseSyncService.getChanges(username, first.getCursor(), 2);
+        ExpenseChangesResponse third = expenseSyncService.getChanges(username, second.getCursor(), 2);
+        assertFalse(third.isHasMore());
+        List<Long> synced = new ArrayList<>();
+        for (ExpenseChangesResponse page : List.of(first, second, third)) {
+            page.getChanges().forEach(change -> synced.add(change.getExpenseId()));
+        }
+        assertEquals(ids, synced);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.audit.AuditJournal;
+import com.example.testingapp.audit.AuditRecord;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.dto.RegisterRequest;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseCategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Spring context and helpers shared by the expense service tests: every test writes as a
+ * user of its own, removed again afterwards.
+ */
+// Fresh archive and journal directories per run, since the in-memory database starts over too
+@SpringBootTest(properties = {
+    "expense.archive.dir=target/test-expense-archive/${random.uuid}",
+    "audit.journal.dir=target/test-audit-journal/${random.uuid}"
+})
+public abstract class ExpenseTestSupport {
+
+    @Autowired
+    protected AuthService authService;
+
+    @Autowired
+    protected AppUserRepository userRepository;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected CategoryUsageService categoryUsageService;
+
+    @Autowired
+    protected ExpenseCategoryRepository categoryRepository;
+
+    @Autowired
+    protected ExpenseService expenseService;
+
+    @Autowired
+    protected AuditJournal auditJournal;
+
+    private final List<String> usernames = new ArrayList<>();
+
+    // Every test writes as its own user, so no test sees another's expenses
+    protected String newUser() {
+        String username = "svc-" + UUID.randomUUID().toString().substring(0, 8);
+        authService.register(new RegisterRequest(username, username + "@example.com", "password123"));
+        usernames.add(username);
+        return username;
+    }
+
+    @AfterEach
+    void removeUsers() {
+        for (String username : usernames) {
+            Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+            jdbcTemplate.update("DELETE FROM expenses WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM expense_tombstones WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM app_users WHERE id = ?", userId);
+        }
+        if (!usernames.isEmpty()) {
+            categoryUsageService.reconcile();
+        }
+        usernames.clear();
+    }
+
+    // Bulk-write ranges journaled for the user so far
+    protected List<AuditRecord.Range> auditedRanges(String username) {
+        Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+        return auditJournal.replay(userId, Instant.EPOCH, Instant.now().plusSeconds(1), 1000).stream()
+                .map(AuditRecord::range).filter(Objects::nonNull).toList();
+    }
+
+    protected ExpenseResponse createExpense(String username, String description) {
+        return createExpense(username, description, categoryRepository.findByName("Food & Dining").orElseThrow().getId());
+    }
+
+    protected ExpenseResponse createExpense(String username, String description, Long categoryId) {
+        ExpenseRequest request = new ExpenseRequest(
+            description, new BigDecimal("12.50"), LocalDate.now(), categoryId
+        );
+        request.setNotes("Some notes");
+        return expenseService.createExpense(request, username);
+    }
+
+    // Keeps the text of every event sent and every object payload
+    protected static class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final List<Object> payloads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    event.append(text);
+                } else {
+                    payloads.add(part.getData());
+                }
+            }
+            events.add(event.toString());
+        }
+    }
+}
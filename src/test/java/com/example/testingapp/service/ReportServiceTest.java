@@ -0,0 +1,83 @@
+package com.example.testingapp.service;
+
+import com.example.testingapp.dto.ExpenseCategoryRequest;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.dto.ReportFormat;
+import com.example.testingapp.dto.ReportJob;
+import com.example.testingapp.entity.Expense;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportServiceTest extends ExpenseTestSupport {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ExpenseCategoryService categoryService;
+
+    @Autowired
+    private ChangeSequenceService changeSequenceService;
+
+    @Test
+    void testReportJobsAreSharedUntilExpensesChange() throws IOException, InterruptedException {
+        String username = newUser();
+        Long food = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        ExpenseRequest request = new ExpenseRequest("Report lunch", new BigDecimal("12.50"), LocalDate.of(2018, 5, 10), food);
+        request.setPaymentMethod(Expense.PaymentMethod.CREDIT_CARD);
+        expenseService.createExpense(request, username);
+        LocalDate start = LocalDate.of(2018, 1, 1);
+        LocalDate end = LocalDate.of(2018, 12, 31);
+
+        ReportJob job = reportService.submit(username, start, end, ReportFormat.CSV);
+        assertEquals(job.getId(), reportService.submit(username, start, end, ReportFormat.CSV).getId());
+        for (int i = 0; i < 100 && job.getStatus() != ReportJob.Status.COMPLETED; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(ReportJob.Status.COMPLETED, job.getStatus());
+        assertTrue(reportService.getJob(job.getId(), "admin").isEmpty());
+
+        Path file = reportService.getArtefact(job.getId(), username).orElseThrow();
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("breakdown,value,expense_count,total", lines.get(0));
+        assertTrue(lines.contains("total,,1,12.50"));
+        assertTrue(lines.contains("month,2018-05,1,12.50"));
+        assertTrue(lines.contains("category,Food & Dining,1,12.50"));
+        assertTrue(lines.contains("payment_method,CREDIT_CARD,1,12.50"));
+
+        // Cached until the user's expenses change
+        assertEquals(job.getId(), reportService.submit(username, start, end, ReportFormat.CSV).getId());
+        createExpense(username, "Unrelated write");
+        assertNotEquals(job.getId(), reportService.submit(username, start, end, ReportFormat.CSV).getId());
+    }
+
+    @Test
+    void testReportsAreNotSharedWhileALowerChangeIsInFlightOrAfterARename() {
+        String username = newUser();
+        Long categoryId = categoryService.createCategory(new ExpenseCategoryRequest("Report rename", null, null, null)).getId();
+        createExpense(username, "Before rename", categoryId);
+        LocalDate today = LocalDate.now();
+
+        // A write that reserved its sequence first has not committed, so the version is not stable yet
+        changeSequenceService.recordChange(inFlight -> {
+            createExpense(username, "Committed above the in-flight change", categoryId);
+            assertNotEquals(reportService.submit(username, today, today, ReportFormat.JSON).getId(),
+                    reportService.submit(username, today, today, ReportFormat.JSON).getId());
+            return null;
+        });
+
+        ReportJob job = reportService.submit(username, today, today, ReportFormat.JSON);
+        assertEquals(job.getId(), reportService.submit(username, today, today, ReportFormat.JSON).getId());
+        categoryService.updateCategory(categoryId, new ExpenseCategoryRequest("Report renamed", null, null, null));
+        assertNotEquals(job.getId(), reportService.submit(username, today, today, ReportFormat.JSON).getId());
+    }
+}
@@ -1,10 +1,26 @@
 package com.example.testingapp.service;
 
 import com.example.testingapp.dto.UserCreateRequest;
+import com.example.testingapp.dto.UserExportFormat;
+import com.example.testingapp.dto.UserImportJob;
+import com.example.testingapp.dto.UserPageResponse;
 import com.example.testingapp.dto.UserResponse;
+import com.example.testingapp.dto.UserSort;
+import com.example.testingapp.dto.UserUpdateRequest;
+import com.example.testingapp.importer.CsvReader;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -14,6 +30,9 @@ public class UserServiceTest {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private UserImportService userImportService;
+    
     @Test
     void testCreateUser() {
         UserCreateRequest request = new UserCreateRequest(
@@ -38,6 +57,100 @@ public class UserServiceTest {
         assertTrue(users.size() >= 5); // At least the 5 sample users from DataInitializer
     }
     
+    @Test
+    void testSearchAndAutocompleteFollowWrites() {
+        UserResponse created = userService.createUser(new UserCreateRequest(
+            "Zebulon", "Quixote", "zeb.quixote@example.com", "5550101"
+        ));
+        
+        assertEquals(List.of(created.getId()), ids(userService.searchUsersByName("ULON")));
+        assertEquals(List.of(created.getId()), ids(userService.searchUsersByName("xot")));
+        assertTrue(userService.searchUsersByName("zeb.quixote").isEmpty()); // Search covers names only
+        assertEquals(created.getId(), userService.autocompleteUsers("zebulon q", 5).get(0).getId());
+        assertEquals(created.getId(), userService.autocompleteUsers("quixote@", 5).get(0).getId());
+        
+        UserUpdateRequest rename = new UserUpdateRequest();
+        rename.setLastName("Quartermaine");
+        userService.updateUser(created.getId(), rename);
+        assertTrue(userService.searchUsersByName("xot").isEmpty());
+        assertEquals(List.of(created.getId()), ids(userService.autocompleteUsers("quarterm", 5)));
+        
+        userService.deleteUser(created.getId());
+        assertTrue(userService.autocompleteUsers("zebulon", 5).isEmpty());
+    }
+    
+    @Test
+    void testCursorPagesCoverEveryUserOnceInOrder() {
+        List<Long> expected = userService.getAllUsers().stream()
+            .sorted(Comparator.comparing(UserResponse::getLastName).thenComparing(UserResponse::getId).reversed())
+            .map(UserResponse::getId)
+            .toList();
+        
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPageResponse page = userService.getUsersPage(UserSort.LAST_NAME, Sort.Direction.DESC, cursor, 2);
+            assertTrue(page.getUsers().size() <= 2);
+            paged.addAll(ids(page.getUsers()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        assertEquals(expected, paged);
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(
+            UserSort.EMAIL, Sort.Direction.DESC,
+            userService.getUsersPage(UserSort.LAST_NAME, Sort.Direction.DESC, null, 1).getNextCursor(), 1));
+    }
+    
+    @Test
+    void testCsvExportHasHeaderAndOneRecordPerUser() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userService.exportUsers(UserExportFormat.CSV, out);
+        
+        CsvReader reader = new CsvReader(new StringReader(out.toString(StandardCharsets.UTF_8)));
+        assertEquals(List.of("id", "firstName", "lastName", "email", "phoneNumber", "createdAt", "updatedAt"), reader.next());
+        long rows = 0;
+        while (reader.next() != null) {
+            rows++;
+        }
+        assertEquals(userService.getUserCount(), rows);
+    }
+    
+    @Test
+    void testCsvImportReportsEveryRow() throws Exception {
+        String csv = "First Name,Last_Name,email,phone\n"
+            + "Ivy,\"Import, Jr\",ivy.import@example.com,5550001\n"
+            + "Ivan,Import,IVY.IMPORT@example.com,\n"
+            + "Ada,Import,john.doe@example.com,\n"
+            + "X,Import,x.import@example.com,\n"
+            + "Oz,\"Multi\nLine\",oz.import@example.com,\n";
+        
+        UserImportJob job = userImportService.startImport(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        for (int i = 0; i < 100 && job.getStatus() == UserImportJob.Status.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+        
+        assertEquals(UserImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRowsRead());
+        assertEquals(2, job.getCreated());
+        assertEquals(1, job.getDuplicatesInFile());
+        assertEquals(1, job.getAlreadyExisting());
+        assertEquals(1, job.getInvalid());
+        List<String> report = Files.readAllLines(userImportService.getReport(job.getId()).orElseThrow());
+        assertEquals(List.of(
+            "line,status,email,message",
+            "2,CREATED,ivy.import@example.com,",
+            "3,DUPLICATE_IN_FILE,IVY.IMPORT@example.com,Email appears earlier in the file",
+            "4,EMAIL_EXISTS,john.doe@example.com,Email already exists",
+            "5,INVALID,x.import@example.com,First name must be between 2 and 50 characters",
+            "6,CREATED,oz.import@example.com,"), report);
+        assertEquals("Import, Jr", userService.getUserByEmail("ivy.import@example.com").orElseThrow().getLastName());
+        assertEquals(1, userService.autocompleteUsers("oz.import", 5).size());
+    }
+    
+    private static List<Long> ids(List<UserResponse> users) {
+        return users.stream().map(UserResponse::getId).toList();
+    }
+    
     @Test
     void contextLoads() {
         assertNotNull(userService);
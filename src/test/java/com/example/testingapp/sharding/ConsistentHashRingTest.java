@@ -0,0 +1,55 @@
+package com.example.testingapp.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void testKeysAreSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard0", "shard1", "shard2", "shard3"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (long key = 1; key <= KEYS; key++) {
+            counts.merge(ring.nodeFor(key), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.forEach((node, count) -> assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2,
+                node + " got " + count + " of " + KEYS + " keys"));
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard0", "shard1", "shard2"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard0", "shard1", "shard2", "shard3"), 128);
+
+        int moved = 0;
+        for (long key = 1; key <= KEYS; key++) {
+            String node = after.nodeFor(key);
+            if (!node.equals(before.nodeFor(key))) {
+                assertEquals("shard3", node);
+                moved++;
+            }
+        }
+
+        assertTrue(Math.abs(moved - KEYS / 4) < KEYS / 4 * 0.2, moved + " of " + KEYS + " keys moved");
+    }
+
+    @Test
+    void testPlacementDoesNotDependOnNodeOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard0", "shard1", "shard2"), 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("shard2", "shard0", "shard1"), 128);
+
+        for (long key = 1; key <= 1000; key++) {
+            assertEquals(ring.nodeFor(key), reordered.nodeFor(key));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.testingapp.sharding;
+
+import com.example.testingapp.audit.AuditJournal;
+import com.example.testingapp.audit.AuditRecord;
+import com.example.testingapp.dto.CategoryDeletionJob;
+import com.example.testingapp.dto.ExpenseCategoryRequest;
+import com.example.testingapp.dto.ExpenseRequest;
+import com.example.testingapp.dto.ExpenseResponse;
+import com.example.testingapp.dto.RegisterRequest;
+import com.example.testingapp.dto.ShardMoveJob;
+import com.example.testingapp.entity.AppUser;
+import com.example.testingapp.event.ExpenseRangesWrittenEvent;
+import com.example.testingapp.repository.AppUserRepository;
+import com.example.testingapp.repository.ExpenseCategoryRepository;
+import com.example.testingapp.service.AuthService;
+import com.example.testingapp.service.CategoryDeletionService;
+import com.example.testingapp.service.CategoryUsageService;
+import com.example.testingapp.service.ExpenseCategoryService;
+import com.example.testingapp.service.ExpenseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the application against three H2 databases: the primary and two expense shards.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sharding_primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "sharding.enabled=true",
+        "sharding.shards.shard1.url=jdbc:h2:mem:sharding_1;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "sharding.shards.shard1.username=sa",
+        "sharding.shards.shard2.url=jdbc:h2:mem:sharding_2;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "sharding.shards.shard2.username=sa",
+        "sharding.move-chunk-size=2",
+        "sharding.single-instance=true",
+        "audit.journal.dir=target/test-audit-journal/${random.uuid}"
+})
+public class ShardingTest {
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private ShardMoveService shardMoveService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private CategoryUsageService categoryUsageService;
+
+    @Autowired
+    private AppUserRepository userRepository;
+
+    @Autowired
+    private ExpenseCategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditJournal auditJournal;
+
+    @Autowired
+    private ExpenseCategoryService categoryService;
+
+    @Autowired
+    private CategoryDeletionService categoryDeletionService;
+
+    // Registers users until one lands on a shard other than the primary
+    private AppUser registerUserOffPrimary(String prefix) {
+        for (int i = 0; i < 100; i++) {
+            String username = prefix + i;
+            authService.register(new RegisterRequest(username, username + "@example.com", "password123"));
+            AppUser user = userRepository.findByUsername(username).orElseThrow();
+            if (!router.shardFor(user.getId()).equals(router.getPrimary())) {
+                return user;
+            }
+        }
+        throw new IllegalStateException("No user was placed off the primary shard");
+    }
+
+    private ExpenseResponse createExpense(AppUser user, String description) {
+        return createExpense(user, description, categoryRepository.findByName("Food & Dining").orElseThrow().getId());
+    }
+
+    private ExpenseResponse createExpense(AppUser user, String description, Long categoryId) {
+        ExpenseRequest request = new ExpenseRequest(description, new BigDecimal("9.99"), LocalDate.now(), categoryId);
+        return ShardContext.callOn(router.shardFor(user.getId()),
+                () -> expenseService.createExpense(request, user.getUsername()));
+    }
+
+    private List<Long> expenseIdsOn(String shard, Long userId) {
+        return ShardContext.callOn(shard, () -> jdbcTemplate.queryForList(
+                "SELECT id FROM expenses WHERE user_id = ? ORDER BY id", Long.class, userId));
+    }
+
+    @Test
+    void testExpensesAreStoredOnTheUsersShard() {
+        AppUser user = registerUserOffPrimary("placed");
+        String shard = router.shardFor(user.getId());
+
+        ExpenseResponse created = createExpense(user, "Sharded lunch");
+
+        assertEquals(List.of(created.getId()), expenseIdsOn(shard, user.getId()));
+        assertTrue(expenseIdsOn(router.getPrimary(), user.getId()).isEmpty());
+        // Each shard generates ids in its own residue class
+        assertEquals(router.getShards().indexOf(shard) + 1, created.getId() % 16);
+        assertEquals(1, ShardContext.callOn(shard, () -> expenseService.getExpenseCount(user.getUsername())));
+    }
+
+    @Test
+    void testCategoryUsageIsReconciledAcrossShards() {
+        AppUser user = registerUserOffPrimary("usage");
+        Long categoryId = categoryRepository.findByName("Food & Dining").orElseThrow().getId();
+        createExpense(user, "Counted lunch");
+        long expected = router.onEachShard(() -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expenses WHERE category_id = ?", Long.class, categoryId))
+                .values().stream().mapToLong(Long::longValue).sum();
+
+        categoryUsageService.reconcile();
+
+        assertEquals(expected, categoryUsageService.getExpenseCount(categoryId));
+    }
+
+    @Test
+    void testMoveCopiesExpensesKeepingIdsAndSwitchesTheUser() throws InterruptedException {
+        AppUser user = registerUserOffPrimary("mover");
+        String source = router.shardFor(user.getId());
+        String target = source.equals("shard1") ? "shard2" : "shard1";
+        for (int i = 0; i < 5; i++) {
+            createExpense(user, "Movable expense " + i);
+        }
+        List<Long> ids = expenseIdsOn(source, user.getId());
+
+        ShardMoveJob job = shardMoveService.startMove(user.getUsername(), target);
+        while (job.getStatus() == ShardMoveJob.Status.RUNNING) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(ShardMoveJob.Status.COMPLETED, job.getStatus(), job.getError());
+        assertEquals(5, job.getCopiedExpenses());
+        assertEquals(target, router.shardFor(user.getId()));
+        assertEquals(ids, expenseIdsOn(target, user.getId()));
+        assertTrue(expenseIdsOn(source, user.getId()).isEmpty());
+        AuditRecord moved = auditJournal.replay(user.getId(), Instant.EPOCH, Instant.now().plusSeconds(1), 100).stream()
+                .filter(record -> record.range() != null).findFirst().orElseThrow();
+        assertEquals(ExpenseRangesWrittenEvent.Operation.SHARD_MOVED, moved.range().operation());
+        assertEquals(ids.get(0), moved.expenseId());
+        assertEquals(ids.get(4), moved.range().lastExpenseId());
+        assertEquals(5, moved.range().count());
+        // New expenses follow the user to the target shard
+        ExpenseResponse created = createExpense(user, "After the move");
+        assertTrue(expenseIdsOn(target, user.getId()).contains(created.getId()));
+    }
+
+    @Test
+    void testCategoryJobsDoNotWriteWhileAUserIsFrozen() throws InterruptedException {
+        AppUser user = registerUserOffPrimary("fenced");
+        Long categoryId = categoryService.createCategory(new ExpenseCategoryRequest("Fenced", null, null, null)).getId();
+        Long target = categoryRepository.findByName("Other").orElseThrow().getId();
+        ExpenseResponse expense = createExpense(user, "Fenced lunch", categoryId);
+
+        router.freeze(user.getId());
+        CategoryDeletionJob job;
+        try {
+            job = awaitJob(categoryDeletionService.startReassignment(categoryId, target).orElseThrow());
+        } finally {
+            router.unfreeze(user.getId());
+        }
+        assertEquals(CategoryDeletionJob.Status.FAILED, job.getStatus());
+        assertEquals(0, job.getReassignedExpenses());
+        assertEquals(categoryId, ShardContext.callOn(router.shardFor(user.getId()), () -> jdbcTemplate.queryForObject(
+                "SELECT category_id FROM expenses WHERE id = ?", Long.class, expense.getId())));
+
+        // Starting again once the user is no longer frozen resumes it
+        job = awaitJob(categoryDeletionService.startReassignment(categoryId, target).orElseThrow());
+        assertEquals(CategoryDeletionJob.Status.COMPLETED, job.getStatus(), job.getError());
+        assertEquals(1, job.getReassignedExpenses());
+        assertEquals(target, ShardContext.callOn(router.shardFor(user.getId()), () -> jdbcTemplate.queryForObject(
+                "SELECT category_id FROM expenses WHERE id = ?", Long.class, expense.getId())));
+    }
+
+    private static CategoryDeletionJob awaitJob(CategoryDeletionJob job) throws InterruptedException {
+        for (int i = 0; i < 200 && job.getStatus() == CategoryDeletionJob.Status.RUNNING; i++) {
+            Thread.sleep(20);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.testingapp.tracing;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the async appender that logback-spring.xml puts in front of the diagnostic
+ * loggers. Boots an empty context so Spring Boot applies that file as the application does.
+ */
+@SpringBootTest(classes = DiagnosticsLoggingTest.Config.class)
+public class DiagnosticsLoggingTest {
+
+    @Configuration
+    static class Config {
+    }
+
+    @Test
+    void testFullQueueDropsEntriesInsteadOfBlockingTheCaller() throws Exception {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger sampleLog = context.getLogger("sql.sample");
+        AsyncAppender async = (AsyncAppender) sampleLog.getAppender("ASYNC_DIAGNOSTICS");
+        assertNotNull(async, "sql.sample is not routed through ASYNC_DIAGNOSTICS");
+        assertTrue(async.isNeverBlock());
+        assertSame(async, context.getLogger("sql.slow").getAppender("ASYNC_DIAGNOSTICS"));
+        assertSame(async, context.getLogger("request-trace").getAppender("ASYNC_DIAGNOSTICS"));
+
+        // Same settings in front of an appender that stalls, as a slow terminal or pipe would;
+        // the configured appender only ever accepts its one console appender
+        AsyncAppender copy = new AsyncAppender();
+        copy.setContext(context);
+        copy.setQueueSize(async.getQueueSize());
+        copy.setDiscardingThreshold(async.getDiscardingThreshold());
+        copy.setNeverBlock(async.isNeverBlock());
+        StallingAppender stalled = new StallingAppender();
+        stalled.setContext(context);
+        stalled.start();
+        copy.addAppender(stalled);
+        copy.start();
+        Logger flooded = context.getLogger("diagnostics-logging-test");
+        flooded.setAdditive(false);
+        flooded.addAppender(copy);
+        int logged = async.getQueueSize() * 4;
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                for (int i = 0; i < logged; i++) {
+                    flooded.info("statement {}", i);
+                }
+            });
+        } finally {
+            stalled.release.countDown();
+            flooded.detachAndStopAllAppenders();
+        }
+
+        // The queue filled completely (INFO is not discarded early) and everything past it was dropped
+        int delivered = stalled.appended.get();
+        assertTrue(delivered >= async.getQueueSize(), "delivered " + delivered);
+        assertTrue(delivered < logged, "delivered all " + logged + " entries");
+    }
+
+    private static final class StallingAppender extends AppenderBase<ILoggingEvent> {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger appended = new AtomicInteger();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            appended.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.testingapp.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestTraceTest {
+
+    @AfterEach
+    void unbind() {
+        RequestTrace.bind(null);
+    }
+
+    @Test
+    void testHelpersDoNothingWithoutABoundTrace() {
+        assertNull(RequestTrace.current());
+        assertEquals("ok", RequestTrace.time("handler", () -> "ok"));
+        RequestTrace.record("auth", 1_000_000);
+        assertNull(RequestTrace.current());
+    }
+
+    @Test
+    void testPhasesAndStatementsAppearInServerTiming() {
+        RequestTrace trace = new RequestTrace();
+        RequestTrace.bind(trace);
+
+        RequestTrace.record("auth", 2_500_000);
+        RequestTrace.record("auth", 500_000);
+        RequestTrace.time("handler", () -> null);
+        trace.recordStatement("select * from expenses where id = 1", 1_000_000, 0);
+        trace.recordStatement("select * from expenses where id = 2", 1_000_000, 0);
+        trace.finish();
+
+        String header = trace.toServerTiming();
+        assertTrue(header.startsWith("auth;dur=3.000, handler;dur="), header);
+        assertTrue(header.contains("db;dur=2.000;desc=\"2 statements\""), header);
+        assertTrue(header.endsWith(String.format(Locale.ROOT, "total;dur=%.3f", trace.getTotalNanos() / 1_000_000.0)), header);
+    }
+
+    @Test
+    void testStatementsAreGroupedByFingerprintWithRowsOnTheLastStatement() {
+        RequestTrace trace = new RequestTrace();
+        trace.recordStatement("select * from expenses where id = 1", 1_000, 0);
+        trace.recordRow();
+        trace.recordStatement("select * from expenses where id = 2", 1_000, 0);
+        trace.recordRow();
+        trace.recordStatement("update expenses set amount = 3 where id = 2", 1_000, 1);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> sql = (List<Map<String, Object>>) trace.toLogEntry().get("sql");
+        assertEquals(2, sql.size());
+        assertEquals("select * from expenses where id = ?", sql.get(0).get("sql"));
+        assertEquals(2, sql.get(0).get("count"));
+        assertEquals(2L, sql.get(0).get("rows"));
+        assertEquals(1L, sql.get(1).get("rows"));
+        assertEquals(3, trace.toLogEntry().get("statementCount"));
+    }
+
+    @Test
+    void testPropagateCarriesTheTraceToAnotherThread() throws Exception {
+        RequestTrace trace = new RequestTrace();
+        RequestTrace.bind(trace);
+
+        RequestTrace seen = CompletableFuture.supplyAsync(RequestTrace.propagate(() -> {
+            RequestTrace.record("analytics", 1_000_000);
+            return RequestTrace.current();
+        })).get();
+
+        assertSame(trace, seen);
+        assertTrue(trace.toServerTiming().startsWith("analytics;dur=1.000"), trace.toServerTiming());
+    }
+
+    @Test
+    void testFilterAddsServerTimingAndKeepsTheBody() throws Exception {
+        RequestTracingFilter filter = new RequestTracingFilter(new ObjectMapper(), true, 0, 60_000);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain(new TracedServlet()));
+
+        String header = response.getHeader("Server-Timing");
+        assertNotNull(header);
+        assertTrue(header.startsWith("handler;dur="), header);
+        assertTrue(header.contains("total;dur="), header);
+        assertEquals("[]", response.getContentAsString());
+        assertNull(RequestTrace.current());
+    }
+
+    @Test
+    void testFilterLeavesTheResponseAloneWithServerTimingDisabled() throws Exception {
+        RequestTracingFilter filter = new RequestTracingFilter(new ObjectMapper(), false, 0, 60_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        TracedServlet servlet = new TracedServlet();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/expenses"), response, new MockFilterChain(servlet));
+
+        assertNull(response.getHeader("Server-Timing"));
+        assertNotNull(servlet.trace.get());
+        assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    void testEventStreamsAreNotTraced() throws Exception {
+        RequestTracingFilter filter = new RequestTracingFilter(new ObjectMapper(), true, 0, 60_000);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses/stream");
+        request.addHeader("Accept", "text/event-stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        TracedServlet servlet = new TracedServlet();
+
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+
+        assertNull(servlet.trace.get());
+        assertNull(response.getHeader("Server-Timing"));
+    }
+
+    // Records a handler phase and remembers which trace was bound while it ran
+    private static final class TracedServlet extends HttpServlet {
+
+        private final AtomicReference<RequestTrace> trace = new AtomicReference<>();
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            trace.set(RequestTrace.current());
+            RequestTrace.record("handler", 1_000_000);
+            response.setContentType("application/json");
+            response.getWriter().write("[]");
+        }
+    }
+}
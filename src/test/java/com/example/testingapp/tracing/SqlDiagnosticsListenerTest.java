@@ -0,0 +1,112 @@
+package com.example.testingapp.tracing;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlDiagnosticsListenerTest {
+
+    private static final int STATEMENTS = 20_000;
+
+    private final ListAppender<ILoggingEvent> sampled = new ListAppender<>();
+    private final ListAppender<ILoggingEvent> slow = new ListAppender<>();
+
+    @BeforeEach
+    void attach() {
+        sampled.start();
+        slow.start();
+        ((Logger) LoggerFactory.getLogger("sql.sample")).addAppender(sampled);
+        ((Logger) LoggerFactory.getLogger("sql.slow")).addAppender(slow);
+    }
+
+    @AfterEach
+    void detach() {
+        ((Logger) LoggerFactory.getLogger("sql.sample")).detachAppender(sampled);
+        ((Logger) LoggerFactory.getLogger("sql.slow")).detachAppender(slow);
+    }
+
+    @Test
+    void testSampleRateControlsHowManyStatementsAreLogged() {
+        SqlDiagnosticsListener listener = new SqlDiagnosticsListener(60_000, 0.05, 100);
+
+        for (int i = 0; i < STATEMENTS; i++) {
+            run(listener, "select * from expenses where id = " + i, true);
+        }
+
+        // 5% of 20,000 is 1,000 with a standard deviation of about 31
+        int logged = sampled.list.size();
+        assertTrue(logged > 800 && logged < 1200, "sampled " + logged + " of " + STATEMENTS);
+        assertTrue(slow.list.isEmpty());
+        assertEquals((long) STATEMENTS, listener.getStatistics(10).get(0).get("count"));
+    }
+
+    @Test
+    void testZeroSampleRateLogsNothing() {
+        SqlDiagnosticsListener listener = new SqlDiagnosticsListener(60_000, 0, 100);
+
+        for (int i = 0; i < 1_000; i++) {
+            run(listener, "select 1", true);
+        }
+
+        assertTrue(sampled.list.isEmpty());
+        assertTrue(slow.list.isEmpty());
+    }
+
+    @Test
+    void testSlowStatementsAreAlwaysLoggedAndNeverSampled() {
+        SqlDiagnosticsListener listener = new SqlDiagnosticsListener(0, 1.0, 100);
+
+        for (int i = 0; i < 50; i++) {
+            run(listener, "select * from users where id = " + i, true);
+        }
+
+        assertEquals(50, slow.list.size());
+        assertTrue(sampled.list.isEmpty());
+    }
+
+    @Test
+    void testStatisticsAggregatePerFingerprintAndCapTheirNumber() {
+        SqlDiagnosticsListener listener = new SqlDiagnosticsListener(60_000, 0, 2);
+
+        run(listener, "select * from expenses where id = 1", true);
+        run(listener, "select * from expenses where id = 2", false);
+        run(listener, "select * from users where id = 1", true);
+        run(listener, "select * from categories where id = 1", true);
+        run(listener, "select * from app_users where id = 1", true);
+
+        List<Map<String, Object>> statistics = listener.getStatistics(10);
+        assertEquals(3, statistics.size());
+        Map<String, Object> expenses = statistics.stream()
+                .filter(row -> row.get("sql").equals("select * from expenses where id = ?"))
+                .findFirst().orElseThrow();
+        assertEquals(2L, expenses.get("count"));
+        assertEquals(1L, expenses.get("errors"));
+        Map<String, Object> other = statistics.stream()
+                .filter(row -> row.get("fingerprint").equals("(other)"))
+                .findFirst().orElseThrow();
+        assertEquals(2L, other.get("count"));
+
+        listener.reset();
+        assertTrue(listener.getStatistics(10).isEmpty());
+    }
+
+    private static void run(SqlDiagnosticsListener listener, String sql, boolean success) {
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setDataSourceName("dataSource");
+        execution.setSuccess(success);
+        List<QueryInfo> queries = List.of(new QueryInfo(sql));
+        listener.beforeQuery(execution, queries);
+        listener.afterQuery(execution, queries);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.testingapp.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlFingerprintTest {
+
+    @Test
+    void testLiteralsBecomePlaceholders() {
+        assertEquals("select * from expenses where user_id = ? and description like ? and amount > ?",
+                SqlFingerprint.normalize("select * from expenses where user_id = 42 and description like 'it''s%' and amount > -1.50"));
+    }
+
+    @Test
+    void testInListsOfAnyLengthCollapse() {
+        String one = SqlFingerprint.normalize("delete from expenses where id in (?)");
+        String many = SqlFingerprint.normalize("delete from expenses where id IN ( ?, ?,? , ? )");
+        String literals = SqlFingerprint.normalize("delete from expenses where id in (1, 2, 3)");
+
+        assertEquals("delete from expenses where id in (?)", one);
+        assertEquals(one, many);
+        assertEquals(one, literals);
+    }
+
+    @Test
+    void testIdentifiersWithDigitsAndWhitespaceAreNormalised() {
+        assertEquals("select e1_0.id from expenses e1_0 where e1_0.id = ?",
+                SqlFingerprint.normalize("select  e1_0.id\n  from expenses e1_0\twhere e1_0.id = 7"));
+    }
+
+    @Test
+    void testIdIsStableForTheSameShape() {
+        String first = SqlFingerprint.normalize("select * from users where id = 1");
+        String second = SqlFingerprint.normalize("select * from users where id = 2");
+
+        assertEquals(SqlFingerprint.id(first), SqlFingerprint.id(second));
+        assertEquals(8, SqlFingerprint.id(first).length());
+        assertNotEquals(SqlFingerprint.id(first), SqlFingerprint.id(SqlFingerprint.normalize("select * from users")));
+    }
+}